@@ -35,4 +35,14 @@
      * on another execution (e.g. work that submits and waits on other work).
      */
     void expand();
+
+    /**
+     * Runs the given execution in the calling thread, provided it is still waiting in the queue.  The resource lock of the
+     * execution is not acquired: the caller must already hold a lock that grants it the right to run the execution (e.g. the
+     * parent of the worker lease the execution would otherwise acquire).  On completion, {@link ConditionalExecution#complete()}
+     * will be called.
+     *
+     * @return true if the execution was run, false if it had already been taken from the queue.
+     */
+    boolean tryRunInCurrentThread(ConditionalExecution<T> execution);
 }
@@ -106,6 +106,26 @@ private void expand(boolean force) {
         }
     }
 
+    @Override
+    public boolean tryRunInCurrentThread(ConditionalExecution<T> execution) {
+        lock.lock();
+        try {
+            // Executions are removed from the queue while holding the lock, right after their resource lock has been acquired,
+            // so an execution which is still in the queue has not been picked up by any runner
+            if (!queue.remove(execution)) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            execution.getExecution().run();
+        } finally {
+            execution.complete();
+        }
+        return true;
+    }
+
     @Override
     public void stop() {
         lock.lock();
@@ -254,6 +254,40 @@ class DefaultConditionalExecutionQueueTest extends ConcurrentSpec {
         result == "foo"
     }
 
+    def "can run a queued execution in the current thread without acquiring its resource lock"() {
+        def thread = null
+        def execution = testExecution({
+            thread = Thread.currentThread()
+            return "foo"
+        })
+
+        when:
+        queue.submit(execution)
+        def ran = queue.tryRunInCurrentThread(execution)
+
+        then:
+        ran
+        thread == Thread.currentThread()
+        execution.complete
+        execution.await() == "foo"
+        !execution.resourceLock.locked
+        !execution.resourceLock.released
+    }
+
+    def "does not run an execution in the current thread once it has been taken from the queue"() {
+        def execution = testExecution({
+            return "foo"
+        })
+
+        when:
+        release(execution)
+        queue.submit(execution)
+        execution.await()
+
+        then:
+        !queue.tryRunInCurrentThread(execution)
+    }
+
     def "stopping the queue stops the underlying executor"() {
         ExecutorFactory factory = Mock(ExecutorFactory)
         ManagedExecutor executor = Mock(ManagedExecutor)
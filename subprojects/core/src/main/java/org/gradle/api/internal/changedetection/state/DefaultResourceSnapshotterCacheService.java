@@ -16,12 +16,18 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.internal.file.archive.ZipEntry;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.Hasher;
 import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.snapshot.RegularFileSnapshot;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 public class DefaultResourceSnapshotterCacheService implements ResourceSnapshotterCacheService {
     private static final HashCode NO_HASH = Hashing.signature(CachingResourceHasher.class.getName() + " : no hash");
     private final PersistentIndexedCache<HashCode, HashCode> persistentCache;
@@ -36,26 +42,79 @@ public HashCode hashFile(RegularFileSnapshot fileSnapshot, RegularFileHasher has
 
         HashCode resourceHash = persistentCache.get(resourceHashCacheKey);
         if (resourceHash != null) {
-            if (resourceHash.equals(NO_HASH)) {
-                return null;
-            }
-            return resourceHash;
+            return fromCachedHash(resourceHash);
         }
 
         resourceHash = hasher.hash(fileSnapshot);
+        storeHash(resourceHashCacheKey, resourceHash);
+        return resourceHash;
+    }
 
+    @Override
+    public HashCode hashZipEntry(ZipEntryContext zipEntryContext, ResourceHasher hasher, HashCode configurationHash) throws IOException {
+        ZipEntry zipEntry = zipEntryContext.getEntry();
+        byte[] content = zipEntry.getContent();
+        HashCode resourceHashCacheKey = resourceHashCacheKey(Hashing.hashBytes(content), configurationHash);
+
+        HashCode resourceHash = persistentCache.get(resourceHashCacheKey);
         if (resourceHash != null) {
-            persistentCache.put(resourceHashCacheKey, resourceHash);
-        } else {
-            persistentCache.put(resourceHashCacheKey, NO_HASH);
+            return fromCachedHash(resourceHash);
         }
+
+        // The content of the entry can only be read once, so hand the content we already read to the hasher
+        resourceHash = hasher.hash(new ZipEntryContext(new ReadZipEntry(zipEntry, content), zipEntryContext.getFullName(), zipEntryContext.getRootParentName()));
+        storeHash(resourceHashCacheKey, resourceHash);
         return resourceHash;
     }
 
+    @Nullable
+    private static HashCode fromCachedHash(HashCode resourceHash) {
+        return resourceHash.equals(NO_HASH) ? null : resourceHash;
+    }
+
+    private void storeHash(HashCode resourceHashCacheKey, @Nullable HashCode resourceHash) {
+        persistentCache.put(resourceHashCacheKey, resourceHash != null ? resourceHash : NO_HASH);
+    }
+
     private static HashCode resourceHashCacheKey(HashCode contentHash, HashCode configurationHash) {
         Hasher hasher = Hashing.newHasher();
         hasher.putHash(configurationHash);
         hasher.putHash(contentHash);
         return hasher.hash();
     }
+
+    private static class ReadZipEntry implements ZipEntry {
+        private final ZipEntry delegate;
+        private final byte[] content;
+
+        ReadZipEntry(ZipEntry delegate, byte[] content) {
+            this.delegate = delegate;
+            this.content = content;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return delegate.isDirectory();
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public byte[] getContent() {
+            return content;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public int size() {
+            return content.length;
+        }
+    }
 }
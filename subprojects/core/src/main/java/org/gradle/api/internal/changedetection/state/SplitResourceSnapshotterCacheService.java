@@ -20,8 +20,10 @@
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.snapshot.RegularFileSnapshot;
 
+import java.io.IOException;
+
 /**
- * A {@link ResourceSnapshotterCacheService} that delegates to the global service for immutable files
+ * A {@link ResourceSnapshotterCacheService} that delegates to the global service for immutable files, and entries of immutable archives,
  * and uses the local service for all other files. This ensures optimal cache utilization.
  */
 public class SplitResourceSnapshotterCacheService implements ResourceSnapshotterCacheService {
@@ -43,4 +45,13 @@ public HashCode hashFile(RegularFileSnapshot fileSnapshot, RegularFileHasher has
             return localCache.hashFile(fileSnapshot, hasher, configurationHash);
         }
     }
+
+    @Override
+    public HashCode hashZipEntry(ZipEntryContext zipEntryContext, ResourceHasher hasher, HashCode configurationHash) throws IOException {
+        if (globalCacheLocations.isInsideGlobalCache(zipEntryContext.getRootParentName())) {
+            return globalCache.hashZipEntry(zipEntryContext, hasher, configurationHash);
+        } else {
+            return localCache.hashZipEntry(zipEntryContext, hasher, configurationHash);
+        }
+    }
 }
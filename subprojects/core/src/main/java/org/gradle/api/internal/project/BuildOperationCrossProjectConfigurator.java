@@ -70,6 +70,10 @@ protected void doRunProjectConfigure(Project project) {
     }
 
     private void runProjectConfigureAction(final Project project, final Action<? super Project> configureAction) {
+        ParallelProjectConfiguration parallelConfiguration = ParallelProjectConfiguration.current();
+        if (parallelConfiguration != null) {
+            parallelConfiguration.beforeCrossProjectConfiguration(project);
+        }
         ((ProjectInternal)project).getMutationState().withMutableState(new Runnable() {
             @Override
             public void run() {
@@ -650,6 +650,16 @@ public ProjectInternal project(String path) {
 
     @Override
     public ProjectInternal findProject(String path) {
+        ProjectInternal project = lookupProject(path);
+        ParallelProjectConfiguration parallelConfiguration = ParallelProjectConfiguration.current();
+        if (project != null && parallelConfiguration != null) {
+            parallelConfiguration.beforeProjectAccess(project);
+        }
+        return project;
+    }
+
+    @Override
+    public ProjectInternal lookupProject(String path) {
         if (isNullOrEmpty(path)) {
             throw new InvalidUserDataException("A path must be specified!");
         }
@@ -778,11 +788,20 @@ public Project evaluationDependsOn(String path) {
         if (isNullOrEmpty(path)) {
             throw new InvalidUserDataException("You must specify a project!");
         }
-        DefaultProject projectToEvaluate = (DefaultProject) project(path);
-        return evaluationDependsOn(projectToEvaluate);
+        // Evaluating the project waits for it when it is configured in parallel
+        ProjectInternal projectToEvaluate = lookupProject(path);
+        if (projectToEvaluate == null) {
+            throw new UnknownProjectException(String.format("Project with path '%s' could not be found in %s.", path, this));
+        }
+        return evaluationDependsOn((DefaultProject) projectToEvaluate);
     }
 
     private Project evaluationDependsOn(DefaultProject projectToEvaluate) {
+        ParallelProjectConfiguration parallelConfiguration = ParallelProjectConfiguration.current();
+        if (parallelConfiguration != null && parallelConfiguration.contains(projectToEvaluate) && !parallelConfiguration.isConfiguredByCurrentThread(projectToEvaluate)) {
+            // The project may be configuring in another thread, which the evaluation waits for
+            return projectToEvaluate.evaluate();
+        }
         if (projectToEvaluate.getState().isConfiguring()) {
             throw new CircularReferenceException(String.format("Circular referencing during evaluation for %s.",
                 projectToEvaluate));
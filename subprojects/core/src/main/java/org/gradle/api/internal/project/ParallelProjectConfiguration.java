@@ -0,0 +1,423 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.project;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.gradle.api.Action;
+import org.gradle.api.CircularReferenceException;
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.MultipleBuildOperationFailures;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resources.ProjectLeaseRegistry;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Configures projects of a build concurrently, each under its project lock.
+ *
+ * <p>A project is configured only once its parent has been configured, so that the configuration its parent applies to it through
+ * {@code subprojects {}} and {@code allprojects {}} happens first. A project that is configured by another thread when
+ * {@link Project#evaluationDependsOn(String)} is called for it is waited for, and waiting in a cycle fails the same way as in serial configuration.</p>
+ *
+ * <p>Configuring a project other than the project being configured, or one of its descendants which has not started configuration yet, through
+ * {@link CrossProjectConfigurator}, is not safe while other projects are configured. On the first such access, the configuration falls back to
+ * configuring one project at a time: the access waits until the projects configured by other threads are done or blocked, and from then on
+ * projects are configured one after the other. Looking up a project through {@link Project#project(String)} or {@link Project#findProject(String)}
+ * is such an access as well when the project is being configured by another thread, or has not been configured yet and is not a descendant of
+ * the project being configured.</p>
+ *
+ * <p>When the configuration of a project fails, its descendants which have not started configuration yet are not configured, and the first failure
+ * is rethrown once the other projects are done.</p>
+ */
+public class ParallelProjectConfiguration {
+    /**
+     * When enabled, and parallel project execution is enabled, the subprojects of a build are configured in parallel.
+     */
+    public static final String PARALLEL_CONFIGURATION_PROPERTY = "org.gradle.internal.parallel-configuration";
+
+    private static final Logger LOGGER = Logging.getLogger(ParallelProjectConfiguration.class);
+    private static final ThreadLocal<ParallelProjectConfiguration> CURRENT = new ThreadLocal<ParallelProjectConfiguration>();
+
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final ProjectLeaseRegistry projectLeaseRegistry;
+    private final Object lock = new Object();
+    private final ReentrantLock serialLock = new ReentrantLock();
+    private final Set<ProjectInternal> projects = new HashSet<ProjectInternal>();
+    private final Set<ProjectInternal> unconfigured = new HashSet<ProjectInternal>();
+    private final Map<ProjectInternal, Thread> configuringThreads = new HashMap<ProjectInternal, Thread>();
+    private final Map<Thread, ProjectInternal> waitingThreads = new HashMap<Thread, ProjectInternal>();
+    private final Set<ProjectInternal> failed = new HashSet<ProjectInternal>();
+    private final ThreadLocal<Deque<ProjectInternal>> configuringInThread = new ThreadLocal<Deque<ProjectInternal>>() {
+        @Override
+        protected Deque<ProjectInternal> initialValue() {
+            return new ArrayDeque<ProjectInternal>();
+        }
+    };
+    private int active;
+    private boolean serial;
+    private Throwable failure;
+
+    public ParallelProjectConfiguration(BuildOperationExecutor buildOperationExecutor, ProjectLeaseRegistry projectLeaseRegistry) {
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.projectLeaseRegistry = projectLeaseRegistry;
+    }
+
+    /**
+     * Returns the parallel configuration the current thread takes part in, if any.
+     */
+    @Nullable
+    public static ParallelProjectConfiguration current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Configures the given projects, whose parents have to be configured already or be part of the given projects, using the given action.
+     */
+    public void configure(final List<ProjectInternal> projects, final Action<? super ProjectInternal> configureAction) {
+        addProjects(projects);
+        try {
+            buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+                @Override
+                public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                    // Parents come before their children, so each parent is picked up before its children wait for it
+                    for (ProjectInternal project : projects) {
+                        queue.add(new ConfigureProject(project, configureAction));
+                    }
+                }
+            });
+        } catch (MultipleBuildOperationFailures e) {
+            // Like serial configuration, fail with the first failure only
+            synchronized (lock) {
+                if (failure != null) {
+                    throw UncheckedException.throwAsUncheckedException(failure);
+                }
+            }
+            throw e;
+        }
+    }
+
+    @VisibleForTesting
+    void addProjects(Collection<ProjectInternal> projects) {
+        synchronized (lock) {
+            this.projects.addAll(projects);
+            unconfigured.addAll(projects);
+        }
+    }
+
+    /**
+     * Returns whether the given project is configured as part of this parallel configuration.
+     */
+    public boolean contains(ProjectInternal project) {
+        synchronized (lock) {
+            return projects.contains(project);
+        }
+    }
+
+    /**
+     * Marks the given project as configured by the current thread. Returns false when the project is configured, or being configured, elsewhere.
+     */
+    public boolean claim(ProjectInternal project) {
+        synchronized (lock) {
+            if (!unconfigured.remove(project)) {
+                return false;
+            }
+            configuringThreads.put(project, Thread.currentThread());
+        }
+        configuringInThread.get().addLast(project);
+        return true;
+    }
+
+    /**
+     * Marks the given project, claimed by the current thread, as configured.
+     */
+    public void configured(ProjectInternal project) {
+        configuringInThread.get().removeLast();
+        synchronized (lock) {
+            configuringThreads.remove(project);
+            lock.notifyAll();
+        }
+    }
+
+    public boolean isConfiguredByCurrentThread(ProjectInternal project) {
+        synchronized (lock) {
+            return configuringThreads.get(project) == Thread.currentThread();
+        }
+    }
+
+    /**
+     * Waits until the given project has been configured by another thread.
+     *
+     * @throws CircularReferenceException when the thread configuring the project waits, directly or not, for the current thread.
+     */
+    public void awaitConfigured(final ProjectInternal project) {
+        final Thread currentThread = Thread.currentThread();
+        synchronized (lock) {
+            if (!isConfiguredElsewhere(project)) {
+                return;
+            }
+            Thread owner = configuringThreads.get(project);
+            while (owner != null) {
+                if (owner == currentThread) {
+                    throw new CircularReferenceException(String.format("Circular referencing during evaluation for %s.", project));
+                }
+                ProjectInternal awaited = waitingThreads.get(owner);
+                owner = awaited == null ? null : configuringThreads.get(awaited);
+            }
+            waitingThreads.put(currentThread, project);
+        }
+        pause(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    try {
+                        while (isConfiguredElsewhere(project)) {
+                            lock.wait();
+                        }
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    } finally {
+                        waitingThreads.remove(currentThread);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Called before the current thread applies configuration to the given project, while configuring its own project.
+     */
+    public void beforeCrossProjectConfiguration(Project target) {
+        ProjectInternal configuring = configuringInThread.get().peekLast();
+        if (configuring == null || target == configuring) {
+            return;
+        }
+        boolean first;
+        synchronized (lock) {
+            if (serial ? serialLock.isHeldByCurrentThread() : unconfigured.contains(target) && isDescendant((ProjectInternal) target, configuring)) {
+                return;
+            }
+            // A thread still configuring in parallel when another thread switched to serial configuration has to wait its turn as well
+            first = !serial;
+            serial = true;
+            active--;
+            lock.notifyAll();
+        }
+        if (first) {
+            LOGGER.info("Configuring projects one at a time, as {} configures {}.", configuring, target);
+        }
+        projectLeaseRegistry.withoutProjectLock(new Runnable() {
+            @Override
+            public void run() {
+                serialLock.lock();
+                synchronized (lock) {
+                    try {
+                        while (active > 0) {
+                            lock.wait();
+                        }
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    } finally {
+                        active++;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Called before the current thread looks up the given project by path, while configuring its own project. Reading from a project that another
+     * thread configures, or is about to configure, races with that thread, so it falls back to serial configuration like cross-project configuration.
+     */
+    public void beforeProjectAccess(ProjectInternal target) {
+        ProjectInternal configuring = configuringInThread.get().peekLast();
+        if (configuring == null || target == configuring) {
+            return;
+        }
+        synchronized (lock) {
+            boolean configuredElsewhere = isConfiguredElsewhere(target);
+            boolean notConfiguredYet = unconfigured.contains(target) && !isDescendant(target, configuring);
+            if (!serial && !configuredElsewhere && !notConfiguredYet) {
+                return;
+            }
+        }
+        beforeCrossProjectConfiguration(target);
+    }
+
+    @VisibleForTesting
+    boolean isSerial() {
+        synchronized (lock) {
+            return serial;
+        }
+    }
+
+    private boolean isConfiguredElsewhere(ProjectInternal project) {
+        Thread owner = configuringThreads.get(project);
+        return owner != null && owner != Thread.currentThread();
+    }
+
+    private static boolean isDescendant(ProjectInternal project, ProjectInternal ancestor) {
+        for (ProjectInternal parent = project.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits until the parent of the given project has been configured. Returns false when the configuration of the parent, or of one of its
+     * ancestors, failed, in which case the project is not configured.
+     */
+    private boolean awaitParent(ProjectInternal project) {
+        ProjectInternal parent = project.getParent();
+        if (parent == null) {
+            return true;
+        }
+        synchronized (lock) {
+            try {
+                while (!isFailed(parent) && (unconfigured.contains(parent) || configuringThreads.containsKey(parent))) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            if (isFailed(parent)) {
+                failed.add(project);
+                lock.notifyAll();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private boolean isFailed(ProjectInternal project) {
+        return failed.contains(project) || project.getState().hasFailure();
+    }
+
+    private void failed(ProjectInternal project, Throwable e) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = e;
+            }
+            failed.add(project);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Runs the given action while the current thread does not count as configuring a project, without holding its project locks.
+     */
+    private void pause(final Runnable action) {
+        final int serialHolds = serialLock.getHoldCount();
+        for (int i = 0; i < serialHolds; i++) {
+            serialLock.unlock();
+        }
+        synchronized (lock) {
+            active--;
+            lock.notifyAll();
+        }
+        projectLeaseRegistry.withoutProjectLock(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    action.run();
+                } finally {
+                    resume(serialHolds);
+                }
+            }
+        });
+    }
+
+    private void resume(int serialHolds) {
+        synchronized (lock) {
+            if (!serial) {
+                active++;
+                return;
+            }
+        }
+        serialLock.lock();
+        for (int i = 1; i < serialHolds; i++) {
+            serialLock.lock();
+        }
+        synchronized (lock) {
+            active++;
+        }
+    }
+
+    private class ConfigureProject implements RunnableBuildOperation {
+        private final ProjectInternal project;
+        private final Action<? super ProjectInternal> configureAction;
+
+        ConfigureProject(ProjectInternal project, Action<? super ProjectInternal> configureAction) {
+            this.project = project;
+            this.configureAction = configureAction;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            if (!awaitParent(project)) {
+                LOGGER.info("Not configuring {}, as the configuration of its parent failed.", project);
+                return;
+            }
+            ParallelProjectConfiguration previous = CURRENT.get();
+            CURRENT.set(ParallelProjectConfiguration.this);
+            projectLeaseRegistry.withoutProjectLock(new Runnable() {
+                @Override
+                public void run() {
+                    resume(1);
+                }
+            });
+            try {
+                configureAction.execute(project);
+            } catch (Throwable e) {
+                failed(project, e);
+                throw e;
+            } finally {
+                while (serialLock.isHeldByCurrentThread()) {
+                    serialLock.unlock();
+                }
+                synchronized (lock) {
+                    active--;
+                    lock.notifyAll();
+                }
+                CURRENT.set(previous);
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Configure " + project.getDisplayName() + " in parallel");
+        }
+    }
+}
@@ -80,6 +80,13 @@ public interface ProjectInternal extends Project, ProjectIdentifier, HasScriptSe
     @Override
     ProjectInternal findProject(String path);
 
+    /**
+     * Finds a project by path like {@link #findProject(String)}, only to reference it: unlike {@link #findProject(String)}, the lookup does not
+     * count as accessing the project while projects are configured in parallel.
+     */
+    @Nullable
+    ProjectInternal lookupProject(String path);
+
     ProjectRegistry<ProjectInternal> getProjectRegistry();
 
     DynamicObject getInheritedScope();
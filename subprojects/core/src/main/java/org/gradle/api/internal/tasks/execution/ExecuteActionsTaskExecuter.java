@@ -68,6 +68,7 @@
 import org.gradle.internal.execution.history.ExecutionHistoryStore;
 import org.gradle.internal.execution.history.changes.InputChangesInternal;
 import org.gradle.internal.execution.impl.OutputFilterUtil;
+import org.gradle.internal.execution.steps.CaptureStateBeforeExecutionStep;
 import org.gradle.internal.file.ReservedFileSystemLocationRegistry;
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 import org.gradle.internal.fingerprint.FileCollectionFingerprint;
@@ -107,6 +108,7 @@
  */
 public class ExecuteActionsTaskExecuter implements TaskExecuter {
     private static final Logger LOGGER = LoggerFactory.getLogger(ExecuteActionsTaskExecuter.class);
+    private static final boolean PARALLEL_INPUT_FINGERPRINTING = Boolean.getBoolean(CaptureStateBeforeExecutionStep.PARALLEL_INPUT_FINGERPRINTING_PROPERTY);
 
     public enum BuildCacheState {
         ENABLED, DISABLED
@@ -321,10 +323,15 @@ public void visitInputFileProperties(InputFilePropertyVisitor visitor) {
                     // That means that there is a very close relation between the file property and the output.
                     || inputFileProperty.isSkipWhenEmpty();
                 String propertyName = inputFileProperty.getPropertyName();
-                visitor.visitInputFileProperty(propertyName, value, incremental, () -> {
-                    FileCollectionFingerprinter fingerprinter = fingerprinterRegistry.getFingerprinter(inputFileProperty.getNormalizer());
-                    return fingerprinter.fingerprint(inputFileProperty.getPropertyFiles());
-                });
+                FileCollectionFingerprinter fingerprinter = fingerprinterRegistry.getFingerprinter(inputFileProperty.getNormalizer());
+                if (PARALLEL_INPUT_FINGERPRINTING) {
+                    // The input files can be fingerprinted by other threads, which must not access the project.
+                    // Resolve them here, on the thread holding the project lock.
+                    FileCollection files = ResolvedFileCollectionStructure.resolve(inputFileProperty.getPropertyFiles());
+                    visitor.visitInputFileProperty(propertyName, value, incremental, () -> fingerprinter.fingerprint(files));
+                } else {
+                    visitor.visitInputFileProperty(propertyName, value, incremental, () -> fingerprinter.fingerprint(inputFileProperty.getPropertyFiles()));
+                }
             }
         }
 
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.file.AbstractFileCollection;
+import org.gradle.api.internal.file.FileCollectionInternal;
+import org.gradle.api.internal.file.FileCollectionStructureVisitor;
+import org.gradle.api.internal.file.FileTreeInternal;
+import org.gradle.api.internal.file.collections.FileSystemMirroringFileTree;
+import org.gradle.api.tasks.util.PatternSet;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The structure of a file collection, resolved once so that it can be visited again without touching the objects which produced it.
+ *
+ * Resolving the structure of a task input resolves configurations and evaluates the providers it is made of, which needs the project lock.
+ * The resolved structure only holds files, patterns and file trees, so it can be fingerprinted by another thread.
+ */
+class ResolvedFileCollectionStructure extends AbstractFileCollection {
+    private final String displayName;
+    private final List<Consumer<FileCollectionStructureVisitor>> elements;
+
+    private ResolvedFileCollectionStructure(String displayName, List<Consumer<FileCollectionStructureVisitor>> elements) {
+        this.displayName = displayName;
+        this.elements = elements;
+    }
+
+    public static FileCollection resolve(FileCollectionInternal files) {
+        ImmutableList.Builder<Consumer<FileCollectionStructureVisitor>> elements = ImmutableList.builder();
+        files.visitStructure(new FileCollectionStructureVisitor() {
+            @Override
+            public void visitCollection(FileCollectionInternal.Source source, Iterable<File> contents) {
+                List<File> resolvedContents = ImmutableList.copyOf(contents);
+                elements.add(visitor -> visitor.visitCollection(source, resolvedContents));
+            }
+
+            @Override
+            public void visitGenericFileTree(FileTreeInternal fileTree, FileSystemMirroringFileTree sourceTree) {
+                elements.add(visitor -> visitor.visitGenericFileTree(fileTree, sourceTree));
+            }
+
+            @Override
+            public void visitFileTree(File root, PatternSet patterns, FileTreeInternal fileTree) {
+                elements.add(visitor -> visitor.visitFileTree(root, patterns, fileTree));
+            }
+
+            @Override
+            public void visitFileTreeBackedByFile(File file, FileTreeInternal fileTree, FileSystemMirroringFileTree sourceTree) {
+                elements.add(visitor -> visitor.visitFileTreeBackedByFile(file, fileTree, sourceTree));
+            }
+        });
+        return new ResolvedFileCollectionStructure(files.toString(), elements.build());
+    }
+
+    @Override
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public Set<File> getFiles() {
+        Set<File> files = new LinkedHashSet<>();
+        visitContents(new FileCollectionStructureVisitor() {
+            @Override
+            public void visitCollection(FileCollectionInternal.Source source, Iterable<File> contents) {
+                Iterables.addAll(files, contents);
+            }
+
+            @Override
+            public void visitGenericFileTree(FileTreeInternal fileTree, FileSystemMirroringFileTree sourceTree) {
+                files.addAll(fileTree.getFiles());
+            }
+
+            @Override
+            public void visitFileTree(File root, PatternSet patterns, FileTreeInternal fileTree) {
+                files.addAll(fileTree.getFiles());
+            }
+
+            @Override
+            public void visitFileTreeBackedByFile(File file, FileTreeInternal fileTree, FileSystemMirroringFileTree sourceTree) {
+                files.addAll(fileTree.getFiles());
+            }
+        });
+        return files;
+    }
+
+    @Override
+    protected void visitContents(FileCollectionStructureVisitor visitor) {
+        for (Consumer<FileCollectionStructureVisitor> element : elements) {
+            element.accept(visitor);
+        }
+    }
+}
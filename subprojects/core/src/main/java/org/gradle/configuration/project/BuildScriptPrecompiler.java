@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration.project;
+
+import org.gradle.api.Project;
+import org.gradle.api.internal.initialization.ClassLoaderScope;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.project.ProjectScript;
+import org.gradle.configuration.CompileOperationFactory;
+import org.gradle.configuration.ProjectScriptTarget;
+import org.gradle.groovy.scripts.CachingScriptSource;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.groovy.scripts.internal.FileCacheBackedScriptClassCompiler;
+import org.gradle.internal.Actions;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.scripts.ScriptingLanguages;
+import org.gradle.model.dsl.internal.transform.ClosureCreationInterceptingVerifier;
+import org.gradle.scripts.ScriptingLanguage;
+
+/**
+ * Compiles project build scripts in the background, ahead of the evaluation of the projects, so that evaluation finds the compiled classes in the script cache.
+ *
+ * <p>The classes of a build script depend on the class loader of the project's parent, which is only known once the parent's {@code buildscript {}} and {@code plugins {}} blocks have been applied.
+ * Scripts are therefore compiled speculatively against the class loader of the closest ancestor project that has already been configured. The work is wasted when the project ends up
+ * with a different class loader, in which case the script is compiled again during evaluation.</p>
+ */
+public class BuildScriptPrecompiler implements Stoppable {
+    /**
+     * When set, build scripts are compiled in the background while the build is being configured.
+     */
+    public static final String PRECOMPILE_SCRIPTS_PROPERTY = "org.gradle.internal.precompile-scripts";
+
+    private final FileCacheBackedScriptClassCompiler scriptClassCompiler;
+    private final CompileOperationFactory compileOperationFactory;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final ManagedExecutor executor;
+    private volatile boolean stopped;
+
+    public BuildScriptPrecompiler(FileCacheBackedScriptClassCompiler scriptClassCompiler, CompileOperationFactory compileOperationFactory, BuildOperationExecutor buildOperationExecutor,
+                                  ExecutorFactory executorFactory, int maxWorkerCount) {
+        this.scriptClassCompiler = scriptClassCompiler;
+        this.compileOperationFactory = compileOperationFactory;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.executor = executorFactory.create("Build script compiler", maxWorkerCount);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(PRECOMPILE_SCRIPTS_PROPERTY);
+    }
+
+    /**
+     * Schedules compilation of the build scripts of the given project and all of its subprojects, using the base class loader of the project.
+     */
+    public void precompileProjectAndSubprojects(ProjectInternal project) {
+        ClassLoaderScope baseScope = project.getBaseClassLoaderScope();
+        if (!baseScope.isLocked()) {
+            return;
+        }
+        ClassLoader classLoader = baseScope.getExportClassLoader();
+        precompile(project, classLoader);
+        precompileSubprojects(project, classLoader);
+    }
+
+    /**
+     * Schedules compilation of the build scripts of all subprojects of the given project, once the class loader of the project is known.
+     * Does nothing when the project does not add anything to the class loader it inherits from its parent, as the scripts have already been scheduled with that class loader.
+     */
+    public void precompileSubprojects(ProjectInternal project) {
+        ClassLoaderScope scope = project.getClassLoaderScope();
+        if (!scope.isLocked()) {
+            return;
+        }
+        ClassLoader classLoader = scope.getExportClassLoader();
+        if (classLoader == project.getBaseClassLoaderScope().getExportClassLoader()) {
+            return;
+        }
+        precompileSubprojects(project, classLoader);
+    }
+
+    private void precompileSubprojects(ProjectInternal project, ClassLoader classLoader) {
+        for (Project subproject : project.getSubprojects()) {
+            precompile((ProjectInternal) subproject, classLoader);
+            precompileSubprojects((ProjectInternal) subproject, classLoader);
+        }
+    }
+
+    private void precompile(ProjectInternal project, final ClassLoader classLoader) {
+        final ScriptSource source = CachingScriptSource.of(project.getBuildScriptSource());
+        if (!isGroovyScript(source)) {
+            return;
+        }
+        final ProjectScriptTarget target = new ProjectScriptTarget(project);
+        // Background threads have no current operation, so attach the compilation to the operation scheduling it
+        final BuildOperationRef parent = CurrentBuildOperationRef.instance().get();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (stopped) {
+                    return;
+                }
+                try {
+                    buildOperationExecutor.run(new RunnableBuildOperation() {
+                        @Override
+                        public void run(BuildOperationContext context) {
+                            // Same operations as DefaultScriptPluginFactory, so that both passes end up under the same cache keys
+                            scriptClassCompiler.precompile(source, classLoader, compileOperationFactory.getPluginsBlockCompileOperation(target), ProjectScript.class, Actions.doNothing());
+                            scriptClassCompiler.precompile(source, classLoader, compileOperationFactory.getScriptCompileOperation(source, target), ProjectScript.class, ClosureCreationInterceptingVerifier.INSTANCE);
+                        }
+
+                        @Override
+                        public BuildOperationDescriptor.Builder description() {
+                            return BuildOperationDescriptor.displayName("Precompile " + source.getShortDisplayName()).parent(parent);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    // Ignore, the script is compiled again when the project is evaluated, which reports the failure
+                }
+            }
+        });
+    }
+
+    private static boolean isGroovyScript(ScriptSource source) {
+        String fileName = source.getFileName();
+        for (ScriptingLanguage scriptingLanguage : ScriptingLanguages.all()) {
+            if (scriptingLanguage.getProvider() != null && fileName.endsWith(scriptingLanguage.getExtension())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        executor.stop();
+    }
+}
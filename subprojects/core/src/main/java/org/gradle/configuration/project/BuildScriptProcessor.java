@@ -23,12 +23,20 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 public class BuildScriptProcessor implements ProjectConfigureAction {
     private static final Logger LOGGER = LoggerFactory.getLogger(BuildScriptProcessor.class);
     private final ScriptPluginFactory configurerFactory;
+    private final BuildScriptPrecompiler precompiler;
 
     public BuildScriptProcessor(ScriptPluginFactory configurerFactory) {
+        this(configurerFactory, null);
+    }
+
+    public BuildScriptProcessor(ScriptPluginFactory configurerFactory, @Nullable BuildScriptPrecompiler precompiler) {
         this.configurerFactory = configurerFactory;
+        this.precompiler = precompiler;
     }
 
     @Override
@@ -37,6 +45,9 @@ public void execute(final ProjectInternal project) {
             LOGGER.info("Evaluating {} using {}.", project, project.getBuildScriptSource().getDisplayName());
         }
         final Timer clock = Time.startTimer();
+        if (precompiler != null && project.getParent() == null) {
+            precompiler.precompileProjectAndSubprojects(project);
+        }
         try {
             final ScriptPlugin configurer = configurerFactory.create(project.getBuildScriptSource(), project.getBuildscript(), project.getClassLoaderScope(), project.getBaseClassLoaderScope(), true);
             project.getMutationState().withMutableState(new Runnable() {
@@ -45,6 +56,9 @@ public void run() {
                     configurer.apply(project);
                 }
             });
+            if (precompiler != null) {
+                precompiler.precompileSubprojects(project);
+            }
         } finally {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Timing: Running the build script took {}", clock.getElapsed());
@@ -18,6 +18,7 @@
 import org.gradle.api.Action;
 import org.gradle.api.ProjectConfigurationException;
 import org.gradle.api.ProjectEvaluationListener;
+import org.gradle.api.internal.project.ParallelProjectConfiguration;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ProjectStateInternal;
 import org.gradle.internal.operations.BuildOperationCategory;
@@ -59,6 +60,24 @@ public LifecycleProjectEvaluator(BuildOperationExecutor buildOperationExecutor,
 
     @Override
     public void evaluate(final ProjectInternal project, final ProjectStateInternal state) {
+        ParallelProjectConfiguration parallelConfiguration = ParallelProjectConfiguration.current();
+        if (parallelConfiguration != null && parallelConfiguration.contains(project)) {
+            // Another thread may be configuring the project, in which case wait for it
+            if (parallelConfiguration.claim(project)) {
+                try {
+                    evaluateIfUnconfigured(project, state);
+                } finally {
+                    parallelConfiguration.configured(project);
+                }
+            } else {
+                parallelConfiguration.awaitConfigured(project);
+            }
+        } else {
+            evaluateIfUnconfigured(project, state);
+        }
+    }
+
+    private void evaluateIfUnconfigured(ProjectInternal project, ProjectStateInternal state) {
         if (state.isUnconfigured()) {
             buildOperationExecutor.run(new EvaluateProject(project, state));
         }
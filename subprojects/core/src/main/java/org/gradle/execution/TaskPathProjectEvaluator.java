@@ -16,16 +16,32 @@
 
 package org.gradle.execution;
 
+import org.gradle.api.Action;
 import org.gradle.api.BuildCancelledException;
 import org.gradle.api.Project;
+import org.gradle.api.internal.project.ParallelProjectConfiguration;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.initialization.BuildCancellationToken;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.resources.ProjectLeaseRegistry;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TaskPathProjectEvaluator implements ProjectConfigurer {
     private final BuildCancellationToken cancellationToken;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final ProjectLeaseRegistry projectLeaseRegistry;
 
     public TaskPathProjectEvaluator(BuildCancellationToken cancellationToken) {
+        this(cancellationToken, null, null);
+    }
+
+    public TaskPathProjectEvaluator(BuildCancellationToken cancellationToken, @Nullable BuildOperationExecutor buildOperationExecutor, @Nullable ProjectLeaseRegistry projectLeaseRegistry) {
         this.cancellationToken = cancellationToken;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.projectLeaseRegistry = projectLeaseRegistry;
     }
 
     @Override
@@ -60,11 +76,31 @@ private void bindAllModelRules(ProjectInternal project) {
     @Override
     public void configureHierarchy(ProjectInternal project) {
         configure(project);
+        if (isParallelConfigurationEnabled(project)) {
+            List<ProjectInternal> subprojects = new ArrayList<ProjectInternal>();
+            for (Project sub : project.getSubprojects()) {
+                subprojects.add((ProjectInternal) sub);
+            }
+            new ParallelProjectConfiguration(buildOperationExecutor, projectLeaseRegistry).configure(subprojects, new Action<ProjectInternal>() {
+                @Override
+                public void execute(ProjectInternal sub) {
+                    configure(sub);
+                }
+            });
+            return;
+        }
         for (Project sub : project.getSubprojects()) {
             configure((ProjectInternal) sub);
         }
     }
 
+    private boolean isParallelConfigurationEnabled(ProjectInternal project) {
+        return buildOperationExecutor != null
+            && Boolean.getBoolean(ParallelProjectConfiguration.PARALLEL_CONFIGURATION_PROPERTY)
+            && project.getGradle().getStartParameter().isParallelProjectExecutionEnabled()
+            && project.getSubprojects().size() > 1;
+    }
+
     @Override
     public void configureHierarchyFully(ProjectInternal project) {
         configureFully(project);
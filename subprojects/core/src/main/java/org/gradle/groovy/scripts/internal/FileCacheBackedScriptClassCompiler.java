@@ -19,9 +19,12 @@
 import org.codehaus.groovy.ast.ClassNode;
 import org.gradle.api.Action;
 import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.api.internal.initialization.ClassLoaderScope;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.CacheScopeMapping;
+import org.gradle.cache.internal.VersionStrategy;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.internal.Pair;
 import org.gradle.internal.classanalysis.AsmConstants;
@@ -38,6 +41,7 @@
 import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 import org.gradle.model.dsl.internal.transform.RuleVisitor;
+import org.gradle.util.GFileUtils;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
@@ -51,6 +55,9 @@
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.gradle.internal.classpath.CachedClasspathTransformer.StandardTransform.BuildLogic;
 
@@ -64,15 +71,22 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler,
     private final CacheRepository cacheRepository;
     private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
     private final CachedClasspathTransformer classpathTransformer;
+    private final CacheScopeMapping cacheScopeMapping;
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final Set<String> precompiling = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, File> precompiled = new ConcurrentHashMap<>();
 
     public FileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, ScriptCompilationHandler scriptCompilationHandler,
                                               ProgressLoggerFactory progressLoggerFactory, ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
-                                              CachedClasspathTransformer classpathTransformer) {
+                                              CachedClasspathTransformer classpathTransformer, CacheScopeMapping cacheScopeMapping,
+                                              TemporaryFileProvider temporaryFileProvider) {
         this.cacheRepository = cacheRepository;
         this.scriptCompilationHandler = scriptCompilationHandler;
         this.progressLoggerFactory = progressLoggerFactory;
         this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
         this.classpathTransformer = classpathTransformer;
+        this.cacheScopeMapping = cacheScopeMapping;
+        this.temporaryFileProvider = temporaryFileProvider;
     }
 
     @Override
@@ -94,12 +108,7 @@ public <T extends Script, M> CompiledScript<T, M> compile(final ScriptSource sou
             throw new IllegalArgumentException("Unknown classloader: " + classLoader);
         }
         final RemappingScriptSource remapped = new RemappingScriptSource(source);
-
-        PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
-        hasher.putString(dslId);
-        hasher.putHash(sourceHashCode);
-        hasher.putHash(classLoaderHash);
-        String key = HashUtil.compactStringFor(hasher.hash().toByteArray());
+        String key = cacheKey(dslId, sourceHashCode, classLoaderHash);
 
         // Caching involves 2 distinct caches, so that 2 scripts with the same (hash, classpath) do not get compiled twice
         // 1. First, we look for a cache script which (path, hash) matches. This cache is invalidated when the compile classpath of the script changes
@@ -111,7 +120,7 @@ public <T extends Script, M> CompiledScript<T, M> compile(final ScriptSource sou
             .withDisplayName(dslId + " generic class cache for " + source.getDisplayName())
             .withInitializer(new ProgressReportingInitializer(
                 progressLoggerFactory,
-                new CompileToCrossBuildCacheAction(remapped, classLoader, operation, verifier, scriptBaseClass),
+                new CompileToCrossBuildCacheAction(key, remapped, classLoader, operation, verifier, scriptBaseClass),
                 "Compiling " + source.getShortDisplayName()))
             .open();
         try {
@@ -124,6 +133,52 @@ public <T extends Script, M> CompiledScript<T, M> compile(final ScriptSource sou
         }
     }
 
+    /**
+     * Compiles the given script ahead of its first use, so that {@link #compile} can pick up the result instead of compiling the script itself.
+     * The classes are compiled into a staging directory outside of the script cache, so that several scripts can be compiled concurrently.
+     * Does nothing when the script has already been compiled for the given class loader, or when compilation fails.
+     * Failures are reported when the script is compiled for real.
+     */
+    public void precompile(ScriptSource source, ClassLoader classLoader, CompileOperation<?> operation, Class<? extends Script> scriptBaseClass, Action<? super ClassNode> verifier) {
+        assert source.getResource().isContentCached();
+        if (source.getResource().getHasEmptyContent()) {
+            return;
+        }
+        HashCode classLoaderHash = classLoaderHierarchyHasher.getClassLoaderHash(classLoader);
+        if (classLoaderHash == null) {
+            return;
+        }
+        String key = cacheKey(operation.getId(), source.getResource().getContentHash(), classLoaderHash);
+        if (!precompiling.add(key)) {
+            return;
+        }
+        File classesDir = new File(cacheScopeMapping.getBaseDirectory(null, "scripts/" + key, VersionStrategy.CachePerVersion), operation.getId());
+        if (classesDir.isDirectory()) {
+            // Compiled by an earlier build
+            return;
+        }
+        File stagingDir = temporaryFileProvider.createTemporaryDirectory("script", key);
+        try {
+            scriptCompilationHandler.compileToDir(new RemappingScriptSource(source), classLoader, new File(stagingDir, operation.getId()), new File(stagingDir, "metadata"), operation, scriptBaseClass, verifier);
+            if (classesDir.isDirectory()) {
+                // Compiled by the cache initializer in the meantime. Should it run between this check and publishing the result, close() cleans up
+                GFileUtils.deleteQuietly(stagingDir);
+            } else {
+                precompiled.put(key, stagingDir);
+            }
+        } catch (RuntimeException e) {
+            GFileUtils.deleteQuietly(stagingDir);
+        }
+    }
+
+    private static String cacheKey(String dslId, HashCode sourceHashCode, HashCode classLoaderHash) {
+        PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
+        hasher.putString(dslId);
+        hasher.putHash(sourceHashCode);
+        hasher.putHash(classLoaderHash);
+        return HashUtil.compactStringFor(hasher.hash().toByteArray());
+    }
+
     private <T extends Script, M> CompiledScript<T, M> emptyCompiledScript(CompileOperation<M> operation) {
         return new EmptyCompiledScript<>(operation);
     }
@@ -157,6 +212,11 @@ public Pair<RelativePath, ClassVisitor> apply(ClasspathEntryVisitor.Entry entry,
 
     @Override
     public void close() {
+        for (File stagingDir : precompiled.values()) {
+            GFileUtils.deleteQuietly(stagingDir);
+        }
+        precompiled.clear();
+        precompiling.clear();
     }
 
     private File classesDir(PersistentCache cache, CompileOperation<?> operation) {
@@ -168,14 +228,16 @@ private File metadataDir(PersistentCache cache) {
     }
 
     private class CompileToCrossBuildCacheAction implements Action<PersistentCache> {
+        private final String key;
         private final Action<? super ClassNode> verifier;
         private final Class<? extends Script> scriptBaseClass;
         private final ClassLoader classLoader;
         private final CompileOperation<?> operation;
         private final ScriptSource source;
 
-        public <T extends Script> CompileToCrossBuildCacheAction(ScriptSource source, ClassLoader classLoader, CompileOperation<?> operation,
+        public <T extends Script> CompileToCrossBuildCacheAction(String key, ScriptSource source, ClassLoader classLoader, CompileOperation<?> operation,
                                                                  Action<? super ClassNode> verifier, Class<T> scriptBaseClass) {
+            this.key = key;
             this.source = source;
             this.classLoader = classLoader;
             this.operation = operation;
@@ -187,6 +249,13 @@ public <T extends Script> CompileToCrossBuildCacheAction(ScriptSource source, Cl
         public void execute(PersistentCache cache) {
             File classesDir = classesDir(cache, operation);
             File metadataDir = metadataDir(cache);
+            File stagingDir = precompiled.remove(key);
+            if (stagingDir != null) {
+                GFileUtils.copyDirectory(new File(stagingDir, operation.getId()), classesDir);
+                GFileUtils.copyDirectory(new File(stagingDir, "metadata"), metadataDir);
+                GFileUtils.deleteQuietly(stagingDir);
+                return;
+            }
             scriptCompilationHandler.compileToDir(source, classLoader, classesDir, metadataDir, operation, scriptBaseClass, verifier);
         }
     }
@@ -29,7 +29,7 @@
 public class DefaultCompileClasspathFingerprinter extends AbstractFileCollectionFingerprinter implements CompileClasspathFingerprinter {
     public DefaultCompileClasspathFingerprinter(ResourceSnapshotterCacheService cacheService, FileCollectionSnapshotter fileCollectionSnapshotter, StringInterner stringInterner) {
         super(ClasspathFingerprintingStrategy.compileClasspath(
-                    new CachingResourceHasher(new AbiExtractingClasspathResourceHasher(), cacheService),
+                    new CachingResourceHasher(new AbiExtractingClasspathResourceHasher(), cacheService, AbiExtractingClasspathResourceHasher::isClassFile),
                     cacheService,
                     stringInterner
                 ), fileCollectionSnapshotter);
@@ -82,7 +82,9 @@
 import org.gradle.api.provider.ProviderFactory;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.internal.CacheScopeMapping;
 import org.gradle.caching.internal.BuildCacheServices;
+import org.gradle.concurrent.ParallelismConfiguration;
 import org.gradle.configuration.BuildOperatingFiringProjectsPreparer;
 import org.gradle.configuration.CompileOperationFactory;
 import org.gradle.configuration.DefaultInitScriptProcessor;
@@ -93,6 +95,7 @@
 import org.gradle.configuration.ScriptPluginFactory;
 import org.gradle.configuration.ScriptPluginFactorySelector;
 import org.gradle.configuration.internal.UserCodeApplicationContext;
+import org.gradle.configuration.project.BuildScriptPrecompiler;
 import org.gradle.configuration.project.BuildScriptProcessor;
 import org.gradle.configuration.project.ConfigureActionsProjectEvaluator;
 import org.gradle.configuration.project.DefaultCompileOperationFactory;
@@ -176,6 +179,7 @@
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.DefaultTextFileResourceLoader;
 import org.gradle.internal.resource.TextFileResourceLoader;
+import org.gradle.internal.resources.ProjectLeaseRegistry;
 import org.gradle.internal.scripts.ScriptExecutionListener;
 import org.gradle.internal.service.CachingServiceLocator;
 import org.gradle.internal.service.DefaultServiceRegistry;
@@ -355,10 +359,16 @@ protected BuildLoader createBuildLoader(GradleProperties gradleProperties, IProj
         );
     }
 
+    protected BuildScriptPrecompiler createBuildScriptPrecompiler(FileCacheBackedScriptClassCompiler scriptClassCompiler, CompileOperationFactory compileOperationFactory,
+                                                                  BuildOperationExecutor buildOperationExecutor, ExecutorFactory executorFactory,
+                                                                  ParallelismConfiguration parallelismConfiguration) {
+        return new BuildScriptPrecompiler(scriptClassCompiler, compileOperationFactory, buildOperationExecutor, executorFactory, parallelismConfiguration.getMaxWorkerCount());
+    }
+
     protected ProjectEvaluator createProjectEvaluator(BuildOperationExecutor buildOperationExecutor, CachingServiceLocator cachingServiceLocator, ScriptPluginFactory scriptPluginFactory) {
         ConfigureActionsProjectEvaluator withActionsEvaluator = new ConfigureActionsProjectEvaluator(
             PluginsProjectConfigureActions.from(cachingServiceLocator),
-            new BuildScriptProcessor(scriptPluginFactory),
+            new BuildScriptProcessor(scriptPluginFactory, BuildScriptPrecompiler.isEnabled() ? get(BuildScriptPrecompiler.class) : null),
             new DelayedConfigurationActions()
         );
         return new LifecycleProjectEvaluator(buildOperationExecutor, withActionsEvaluator);
@@ -386,14 +396,18 @@ protected FileCacheBackedScriptClassCompiler createFileCacheBackedScriptClassCom
         ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
         DefaultScriptCompilationHandler scriptCompilationHandler,
         CachedClasspathTransformer classpathTransformer,
-        ProgressLoggerFactory progressLoggerFactory
+        ProgressLoggerFactory progressLoggerFactory,
+        CacheScopeMapping cacheScopeMapping,
+        TemporaryFileProvider temporaryFileProvider
     ) {
         return new FileCacheBackedScriptClassCompiler(
             cacheRepository,
             new BuildOperationBackedScriptCompilationHandler(scriptCompilationHandler, buildOperationExecutor),
             progressLoggerFactory,
             classLoaderHierarchyHasher,
-            classpathTransformer);
+            classpathTransformer,
+            cacheScopeMapping,
+            temporaryFileProvider);
     }
 
     protected ScriptPluginFactory createScriptPluginFactory(InstantiatorFactory instantiatorFactory, BuildOperationExecutor buildOperationExecutor, UserCodeApplicationContext userCodeApplicationContext) {
@@ -510,8 +524,8 @@ protected ScriptHandlerFactory createScriptHandlerFactory(DependencyManagementSe
             instantiator);
     }
 
-    protected ProjectConfigurer createProjectConfigurer(BuildCancellationToken cancellationToken) {
-        return new TaskPathProjectEvaluator(cancellationToken);
+    protected ProjectConfigurer createProjectConfigurer(BuildCancellationToken cancellationToken, BuildOperationExecutor buildOperationExecutor, ProjectLeaseRegistry projectLeaseRegistry) {
+        return new TaskPathProjectEvaluator(cancellationToken, buildOperationExecutor, projectLeaseRegistry);
     }
 
     protected ProjectsPreparer createBuildConfigurer(ProjectConfigurer projectConfigurer, BuildStateRegistry buildStateRegistry, BuildLoader buildLoader, ListenerManager listenerManager, BuildOperationExecutor buildOperationExecutor) {
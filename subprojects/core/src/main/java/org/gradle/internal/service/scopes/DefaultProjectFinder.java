@@ -16,6 +16,7 @@
 
 package org.gradle.internal.service.scopes;
 
+import org.gradle.api.UnknownProjectException;
 import org.gradle.api.artifacts.component.BuildIdentifier;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.artifacts.dsl.dependencies.ProjectFinder;
@@ -36,12 +37,17 @@ public DefaultProjectFinder(BuildStateRegistry buildStateRegistry, Supplier<Proj
 
     @Override
     public ProjectInternal getProject(String path) {
-        return baseProjectSupplier.get().project(path);
+        ProjectInternal project = findProject(path);
+        if (project == null) {
+            throw new UnknownProjectException(String.format("Project with path '%s' could not be found in %s.", path, baseProjectSupplier.get()));
+        }
+        return project;
     }
 
     @Override
     public ProjectInternal findProject(String path) {
-        return baseProjectSupplier.get().findProject(path);
+        // Project dependencies only reference the project, so they do not need to wait for it to be configured
+        return baseProjectSupplier.get().lookupProject(path);
     }
 
     @Nullable
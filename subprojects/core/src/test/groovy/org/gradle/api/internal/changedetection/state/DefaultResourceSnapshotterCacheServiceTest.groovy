@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.api.internal.file.archive.ZipEntry
 import org.gradle.internal.file.FileMetadata
 import org.gradle.internal.file.impl.DefaultFileMetadata
 import org.gradle.internal.hash.HashCode
@@ -75,6 +76,43 @@ class DefaultResourceSnapshotterCacheServiceTest extends Specification {
         0 * _
     }
 
+    def "caches the result for zip entries by content"() {
+        def expectedHash = HashCode.fromInt(123)
+        def content = [1, 2, 3] as byte[]
+
+        when:
+        def actualHash = snapshotterCache.hashZipEntry(zipEntryContext("Foo.class", content), delegate, configurationHash)
+        then:
+        1 * delegate.hash(_ as ZipEntryContext) >> { ZipEntryContext context ->
+            assert context.entry.name == "Foo.class"
+            assert context.entry.content == content
+            expectedHash
+        }
+        actualHash == expectedHash
+        0 * delegate._
+
+        when:
+        actualHash = snapshotterCache.hashZipEntry(zipEntryContext("other/Foo.class", content), delegate, configurationHash)
+        then:
+        actualHash == expectedHash
+        0 * delegate._
+
+        when:
+        actualHash = snapshotterCache.hashZipEntry(zipEntryContext("Foo.class", [4, 5, 6] as byte[]), delegate, configurationHash)
+        then:
+        1 * delegate.hash(_ as ZipEntryContext) >> null
+        actualHash == null
+        0 * delegate._
+    }
+
+    private ZipEntryContext zipEntryContext(String name, byte[] content) {
+        def zipEntry = Stub(ZipEntry) {
+            getName() >> name
+            getContent() >> content
+        }
+        return new ZipEntryContext(zipEntry, name, "foo.zip")
+    }
+
     private HashCode getConfigurationHash() {
         def hasher = Hashing.newHasher()
         hasher.putString(delegate.getClass().getName())
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.project
+
+import org.gradle.api.Action
+import org.gradle.api.CircularReferenceException
+import org.gradle.api.Project
+import org.gradle.internal.operations.BuildOperationContext
+import org.gradle.internal.operations.BuildOperationExecutor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.MultipleBuildOperationFailures
+import org.gradle.internal.operations.RunnableBuildOperation
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.resources.ProjectLeaseRegistry
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+class ParallelProjectConfigurationTest extends Specification {
+    def projectLeaseRegistry = Stub(ProjectLeaseRegistry) {
+        withoutProjectLock(_ as Runnable) >> { Runnable action -> action.run() }
+    }
+    def configuration = new ParallelProjectConfiguration(new TestBuildOperationExecutor(), projectLeaseRegistry)
+    def root = project(":", null)
+    def a = project(":a", root)
+    def a1 = project(":a:a1", a)
+    def b = project(":b", root)
+    def c = project(":c", root)
+    def operationThreads = new CopyOnWriteArrayList<Thread>()
+    def operationContext = Stub(BuildOperationContext)
+    // Runs each operation in its own thread, like the real executor with enough workers
+    def parallelExecutor = Stub(BuildOperationExecutor) {
+        runAll(_ as Action) >> { Action<BuildOperationQueue<RunnableBuildOperation>> generator ->
+            def failures = new CopyOnWriteArrayList<Throwable>()
+            generator.execute(Stub(BuildOperationQueue) {
+                add(_) >> { RunnableBuildOperation operation ->
+                    operationThreads << Thread.start {
+                        try {
+                            operation.run(operationContext)
+                        } catch (Throwable t) {
+                            failures << t
+                        }
+                    }
+                }
+            })
+            operationThreads*.join(10000)
+            if (!failures.empty) {
+                throw new MultipleBuildOperationFailures("Multiple failures", failures, null)
+            }
+        }
+    }
+
+    def "configures each project with the parallel configuration as current"() {
+        def configured = []
+
+        when:
+        configuration.configure([a, a1, b]) { ProjectInternal project ->
+            assert ParallelProjectConfiguration.current().is(configuration)
+            assert configuration.claim(project)
+            configured << project
+            configuration.configured(project)
+        }
+
+        then:
+        configured == [a, a1, b]
+        configuration.contains(a1)
+        !configuration.contains(root)
+        ParallelProjectConfiguration.current() == null
+    }
+
+    def "does not configure a project configured while configuring another project"() {
+        def configured = []
+
+        when:
+        configuration.configure([a, b]) { ProjectInternal project ->
+            if (configuration.claim(project)) {
+                configured << project
+                if (project.is(a)) {
+                    assert configuration.claim(b)
+                    assert configuration.isConfiguredByCurrentThread(b)
+                    configured << b
+                    configuration.configured(b)
+                }
+                configuration.configured(project)
+            } else {
+                configuration.awaitConfigured(project)
+            }
+        }
+
+        then:
+        configured == [a, b]
+    }
+
+    def "configures descendants and other projects from a project"() {
+        def configured = []
+
+        when:
+        configuration.configure([a, a1, b]) { ProjectInternal project ->
+            configuration.claim(project)
+            if (project.is(a)) {
+                configuration.beforeCrossProjectConfiguration(a1)
+                configuration.beforeCrossProjectConfiguration(b)
+            }
+            configured << project
+            configuration.configured(project)
+        }
+
+        then:
+        configured == [a, a1, b]
+    }
+
+    def "fails when threads configuring projects wait for each other"() {
+        def failures = new CopyOnWriteArrayList<Throwable>()
+        def claimed = new CountDownLatch(2)
+        configuration.addProjects([a, b])
+
+        when:
+        def threads = [[a, b], [b, a]].collect { ProjectInternal own, ProjectInternal other ->
+            Thread.start {
+                configuration.claim(own)
+                claimed.countDown()
+                claimed.await()
+                try {
+                    configuration.awaitConfigured(other)
+                } catch (CircularReferenceException e) {
+                    failures << e
+                } finally {
+                    configuration.configured(own)
+                }
+            }
+        }
+        threads*.join(10000)
+
+        then:
+        threads.every { !it.alive }
+        failures.size() == 1
+    }
+
+    def "configures projects one at a time once any thread configures another project"() {
+        def parallelConfiguration = new ParallelProjectConfiguration(parallelExecutor, projectLeaseRegistry)
+        def started = new CountDownLatch(3)
+        def concurrent = new AtomicInteger()
+        def overlapped = new AtomicBoolean()
+        def others = [(a): b, (b): c, (c): a]
+
+        when:
+        parallelConfiguration.configure([a, b, c]) { ProjectInternal project ->
+            parallelConfiguration.claim(project)
+            try {
+                started.countDown()
+                started.await()
+                parallelConfiguration.beforeCrossProjectConfiguration(others[project])
+                if (concurrent.incrementAndGet() > 1) {
+                    overlapped.set(true)
+                }
+                Thread.sleep(50)
+                concurrent.decrementAndGet()
+            } finally {
+                parallelConfiguration.configured(project)
+            }
+        }
+
+        then:
+        operationThreads.every { !it.alive }
+        !overlapped.get()
+    }
+
+    def "looks up configured projects and descendants of the project being configured in parallel"() {
+        when:
+        configuration.configure([a, a1, b]) { ProjectInternal project ->
+            configuration.claim(project)
+            if (project.is(a)) {
+                configuration.beforeProjectAccess(a1)
+                configuration.beforeProjectAccess(root)
+            }
+            if (project.is(b)) {
+                configuration.beforeProjectAccess(a)
+            }
+            configuration.configured(project)
+        }
+
+        then:
+        !configuration.serial
+    }
+
+    def "looking up a project which is not configured yet falls back to serial configuration"() {
+        when:
+        configuration.configure([a, b]) { ProjectInternal project ->
+            configuration.claim(project)
+            if (project.is(a)) {
+                configuration.beforeProjectAccess(b)
+            }
+            configuration.configured(project)
+        }
+
+        then:
+        configuration.serial
+    }
+
+    def "configures projects one at a time once any thread looks up a project configured by another thread"() {
+        def parallelConfiguration = new ParallelProjectConfiguration(parallelExecutor, projectLeaseRegistry)
+        def started = new CountDownLatch(3)
+        def concurrent = new AtomicInteger()
+        def overlapped = new AtomicBoolean()
+        def others = [(a): b, (b): c, (c): a]
+
+        when:
+        parallelConfiguration.configure([a, b, c]) { ProjectInternal project ->
+            parallelConfiguration.claim(project)
+            try {
+                started.countDown()
+                started.await()
+                parallelConfiguration.beforeProjectAccess(others[project])
+                if (concurrent.incrementAndGet() > 1) {
+                    overlapped.set(true)
+                }
+                Thread.sleep(50)
+                concurrent.decrementAndGet()
+            } finally {
+                parallelConfiguration.configured(project)
+            }
+        }
+
+        then:
+        operationThreads.every { !it.alive }
+        !overlapped.get()
+        parallelConfiguration.serial
+    }
+
+    def "does not configure descendants of a project whose configuration failed and rethrows the first failure"() {
+        def parallelConfiguration = new ParallelProjectConfiguration(parallelExecutor, projectLeaseRegistry)
+        def failureA = new RuntimeException("a")
+        def configured = new CopyOnWriteArrayList<ProjectInternal>()
+
+        when:
+        parallelConfiguration.configure([a, a1, b]) { ProjectInternal project ->
+            configured << project
+            if (project.is(a)) {
+                throw failureA
+            }
+            if (project.is(b)) {
+                // Fail only once the configuration of a has failed
+                operationThreads[0].join()
+                throw new RuntimeException("b")
+            }
+        }
+
+        then:
+        RuntimeException e = thrown()
+        e.is(failureA)
+        configured as Set == [a, b] as Set
+    }
+
+    private ProjectInternal project(String path, ProjectInternal parent) {
+        Stub(ProjectInternal) {
+            getPath() >> path
+            getParent() >> parent
+            getState() >> new ProjectStateInternal()
+            compareTo(_) >> { Project other -> path <=> other.path }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution
+
+import org.gradle.api.internal.file.FileCollectionInternal
+import org.gradle.api.internal.file.FileCollectionStructureVisitor
+import org.gradle.api.internal.file.FileTreeInternal
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.file.collections.FileSystemMirroringFileTree
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+
+class ResolvedFileCollectionStructureTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def "resolves the sources of the collection only once"() {
+        def file = tmpDir.createFile("a.txt")
+        def dir = tmpDir.createDir("dir")
+        dir.createFile("b.txt")
+        def sources = Mock(Callable)
+        def files = TestFiles.fileCollectionFactory().resolving(sources)
+
+        when:
+        def resolved = ResolvedFileCollectionStructure.resolve(files)
+
+        then:
+        1 * sources.call() >> [file, TestFiles.fileCollectionFactory().resolving(dir).asFileTree]
+
+        when:
+        def structure = structureOf(resolved)
+        def contents = resolved.files
+
+        then:
+        0 * sources.call()
+        structure == [[file], dir]
+        contents == [file, dir.file("b.txt")] as Set
+    }
+
+    private static List<Object> structureOf(FileCollectionInternal files) {
+        def structure = []
+        files.visitStructure(new FileCollectionStructureVisitor() {
+            @Override
+            void visitCollection(FileCollectionInternal.Source source, Iterable<File> contents) {
+                structure << contents.toList()
+            }
+
+            @Override
+            void visitGenericFileTree(FileTreeInternal fileTree, FileSystemMirroringFileTree sourceTree) {
+                structure << fileTree
+            }
+
+            @Override
+            void visitFileTree(File root, PatternSet patterns, FileTreeInternal fileTree) {
+                structure << root
+            }
+
+            @Override
+            void visitFileTreeBackedByFile(File file, FileTreeInternal fileTree, FileSystemMirroringFileTree sourceTree) {
+                structure << file
+            }
+        })
+        return structure
+    }
+}
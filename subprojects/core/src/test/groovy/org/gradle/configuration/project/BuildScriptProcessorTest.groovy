@@ -53,4 +53,41 @@ class BuildScriptProcessorTest extends Specification {
         1 * configurerFactory.create(scriptSource, scriptHandler, targetScope, baseScope, true) >> scriptPlugin
         1 * scriptPlugin.apply(project)
     }
+
+    def precompilesBuildScriptsAroundApplyingTheRootProjectBuildScript() {
+        def precompiler = Mock(BuildScriptPrecompiler)
+        def processor = new BuildScriptProcessor(configurerFactory, precompiler)
+        project.parent >> null
+
+        when:
+        processor.execute(project)
+
+        then:
+        1 * precompiler.precompileProjectAndSubprojects(project)
+
+        then:
+        1 * configurerFactory.create(scriptSource, scriptHandler, targetScope, baseScope, true) >> scriptPlugin
+        1 * scriptPlugin.apply(project)
+
+        then:
+        1 * precompiler.precompileSubprojects(project)
+        0 * precompiler._
+    }
+
+    def precompilesOnlySubprojectBuildScriptsForNonRootProject() {
+        def precompiler = Mock(BuildScriptPrecompiler)
+        def processor = new BuildScriptProcessor(configurerFactory, precompiler)
+        project.parent >> Mock(ProjectInternal)
+
+        when:
+        processor.execute(project)
+
+        then:
+        1 * configurerFactory.create(scriptSource, scriptHandler, targetScope, baseScope, true) >> scriptPlugin
+        1 * scriptPlugin.apply(project)
+
+        then:
+        1 * precompiler.precompileSubprojects(project)
+        0 * precompiler._
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.groovy.scripts.internal
+
+import org.gradle.api.Action
+import org.gradle.api.internal.file.TemporaryFileProvider
+import org.gradle.api.internal.initialization.ClassLoaderScope
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.cache.internal.CacheScopeMapping
+import org.gradle.groovy.scripts.ScriptSource
+import org.gradle.internal.classpath.CachedClasspathTransformer
+import org.gradle.internal.hash.ClassLoaderHierarchyHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.logging.progress.ProgressLoggerFactory
+import org.gradle.internal.resource.TextResource
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+class FileCacheBackedScriptClassCompilerTest extends Specification {
+    @Rule
+    public TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def cachesDir = tmpDir.file("caches")
+    def stagingDirs = new CopyOnWriteArrayList<TestFile>()
+    def compiledTo = new CopyOnWriteArrayList<File>()
+    def stagingCount = new AtomicInteger()
+    Closure beforeCompile = {}
+    Action<? super PersistentCache> initializer
+    TestFile cacheDir
+
+    def persistentCache = Stub(PersistentCache) {
+        getBaseDir() >> { cacheDir }
+    }
+    def cacheBuilder = Stub(CacheBuilder) {
+        withDisplayName(_) >> { cacheBuilder }
+        withInitializer(_) >> { Action<? super PersistentCache> action ->
+            initializer = action
+            cacheBuilder
+        }
+        open() >> {
+            // Like the real cache, run the initializer only when the cache does not exist yet
+            if (!cacheDir.directory) {
+                cacheDir.mkdirs()
+                initializer.execute(persistentCache)
+            }
+            persistentCache
+        }
+    }
+    def cacheRepository = Stub(CacheRepository) {
+        cache(_) >> { String key ->
+            cacheDir = cachesDir.file(key)
+            cacheBuilder
+        }
+    }
+    def cacheScopeMapping = Stub(CacheScopeMapping) {
+        getBaseDirectory(_, _, _) >> { scope, String key, strategy -> cachesDir.file(key) }
+    }
+    def temporaryFileProvider = Stub(TemporaryFileProvider) {
+        createTemporaryDirectory(*_) >> {
+            def dir = tmpDir.createDir("staging-${stagingCount.incrementAndGet()}")
+            stagingDirs << dir
+            dir
+        }
+    }
+    def scriptCompilationHandler = Mock(ScriptCompilationHandler)
+    def classLoader = new URLClassLoader(new URL[0])
+    def compiler = new FileCacheBackedScriptClassCompiler(
+        cacheRepository,
+        scriptCompilationHandler,
+        Stub(ProgressLoggerFactory),
+        Stub(ClassLoaderHierarchyHasher) { getClassLoaderHash(classLoader) >> HashCode.fromInt(0x1) },
+        Stub(CachedClasspathTransformer),
+        cacheScopeMapping,
+        temporaryFileProvider)
+
+    def source = Stub(ScriptSource) {
+        getResource() >> Stub(TextResource) {
+            isContentCached() >> true
+            getHasEmptyContent() >> false
+            getContentHash() >> HashCode.fromInt(0x2)
+        }
+        getClassName() >> "build_123"
+        getDisplayName() >> "build file 'build.gradle'"
+        getShortDisplayName() >> "build.gradle"
+    }
+    def operation = Stub(CompileOperation) {
+        getId() >> "cp_proj"
+    }
+    def targetScope = Stub(ClassLoaderScope) {
+        getExportClassLoader() >> classLoader
+    }
+
+    def setup() {
+        scriptCompilationHandler.compileToDir(*_) >> { ScriptSource source, ClassLoader classLoader, File classesDir, File metadataDir, CompileOperation<?> operation, Class<?> baseClass, Action<?> verifier ->
+            compileTo(classesDir, metadataDir)
+        }
+    }
+
+    def "uses the classes compiled ahead of time when the script is compiled"() {
+        when:
+        compiler.precompile(source, classLoader, operation, Script, {})
+
+        then:
+        compiledTo == [stagingDirs[0].file("cp_proj")]
+
+        when:
+        compiler.compile(source, targetScope, operation, Script, {})
+
+        then:
+        compiledTo.size() == 1
+        cacheDir.file("cp_proj/Script.class").text == stagingDirs[0].file("cp_proj").path
+        cacheDir.file("metadata/metadata.bin").file
+        !stagingDirs[0].exists()
+    }
+
+    def "does not compile a script ahead of time when an earlier build compiled it"() {
+        given:
+        compiler.compile(source, targetScope, operation, Script, {})
+
+        when:
+        compiler.precompile(source, classLoader, operation, Script, {})
+
+        then:
+        compiledTo == [cacheDir.file("cp_proj")]
+        stagingDirs.empty
+    }
+
+    def "compiles the script in the cache when the compilation ahead of time has not finished yet"() {
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        beforeCompile = { File classesDir ->
+            if (classesDir.path.startsWith(stagingDirs[0].path)) {
+                started.countDown()
+                release.await()
+            }
+        }
+
+        when:
+        def precompile = Thread.start {
+            compiler.precompile(source, classLoader, operation, Script, {})
+        }
+        started.await()
+        compiler.compile(source, targetScope, operation, Script, {})
+        release.countDown()
+        precompile.join(10000)
+
+        then:
+        !precompile.alive
+        compiledTo == [cacheDir.file("cp_proj"), stagingDirs[0].file("cp_proj")]
+        cacheDir.file("cp_proj/Script.class").text == cacheDir.file("cp_proj").path
+        !stagingDirs[0].exists()
+    }
+
+    def "removes the classes compiled ahead of time which were not used on close"() {
+        given:
+        compiler.precompile(source, classLoader, operation, Script, {})
+
+        when:
+        compiler.close()
+
+        then:
+        !stagingDirs[0].exists()
+
+        when:
+        compiler.compile(source, targetScope, operation, Script, {})
+
+        then:
+        compiledTo == [stagingDirs[0].file("cp_proj"), cacheDir.file("cp_proj")]
+    }
+
+    private void compileTo(File classesDir, File metadataDir) {
+        beforeCompile(classesDir)
+        compiledTo << classesDir
+        new TestFile(classesDir, "Script.class").text = classesDir.path
+        new TestFile(metadataDir, "metadata.bin").text = ""
+    }
+}
@@ -18,6 +18,7 @@ import gradlebuild.cleanup.WhenNotEmpty
 
 plugins {
     id("gradlebuild.distribution.implementation-java")
+    id("gradlebuild.jmh")
 }
 
 dependencies {
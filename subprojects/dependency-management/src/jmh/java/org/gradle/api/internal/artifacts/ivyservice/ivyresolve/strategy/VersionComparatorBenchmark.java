@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Replays version lists as they are returned by repository listings, and sorts them as dynamic version resolution
+ * and conflict resolution do.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class VersionComparatorBenchmark {
+
+    private static final List<String> GUAVA = Arrays.asList(
+        "10.0", "10.0-rc1", "10.0-rc2", "10.0-rc3", "10.0.1", "11.0", "11.0-rc1", "11.0.1", "11.0.2", "12.0", "12.0-rc1", "12.0-rc2", "12.0.1",
+        "13.0", "13.0-final", "13.0-rc1", "13.0-rc2", "13.0.1", "14.0", "14.0-rc1", "14.0-rc2", "14.0-rc3", "14.0.1", "15.0", "15.0-rc1",
+        "16.0", "16.0-rc1", "16.0.1", "17.0", "17.0-rc1", "17.0-rc2", "18.0", "18.0-rc1", "18.0-rc2", "19.0", "19.0-rc1", "19.0-rc2", "19.0-rc3",
+        "20.0", "20.0-rc1", "21.0", "21.0-rc1", "21.0-rc2", "22.0", "22.0-android", "22.0-rc1", "22.0-rc1-android", "23.0", "23.0-android",
+        "23.0-rc1", "23.0-rc1-android", "23.1-android", "23.1-jre", "23.2-android", "23.2-jre", "23.3-android", "23.3-jre", "23.4-android",
+        "23.4-jre", "23.5-android", "23.5-jre", "23.6-android", "23.6-jre", "23.6.1-android", "23.6.1-jre", "24.0-android", "24.0-jre",
+        "24.1-android", "24.1-jre", "24.1.1-android", "24.1.1-jre", "25.0-android", "25.0-jre", "25.1-android", "25.1-jre", "26.0-android",
+        "26.0-jre", "27.0-android", "27.0-jre", "27.0.1-android", "27.0.1-jre", "27.1-android", "27.1-jre", "28.0-android", "28.0-jre",
+        "28.1-android", "28.1-jre", "28.2-android", "28.2-jre", "29.0-android", "29.0-jre", "r03", "r05", "r06", "r07", "r08", "r09"
+    );
+
+    private static final List<String> SPRING = Arrays.asList(
+        "5.0.0.M1", "5.0.0.M2", "5.0.0.M3", "5.0.0.M4", "5.0.0.M5", "5.0.0.RC1", "5.0.0.RC2", "5.0.0.RC3", "5.0.0.RC4", "5.0.0.RELEASE",
+        "5.0.1.RELEASE", "5.0.2.RELEASE", "5.0.3.RELEASE", "5.0.4.RELEASE", "5.0.5.RELEASE", "5.0.6.RELEASE", "5.0.7.RELEASE", "5.0.8.RELEASE",
+        "5.0.9.RELEASE", "5.0.10.RELEASE", "5.0.11.RELEASE", "5.0.12.RELEASE", "5.0.13.RELEASE", "5.0.14.RELEASE", "5.0.15.RELEASE",
+        "5.0.16.RELEASE", "5.0.17.RELEASE", "5.1.0.RC1", "5.1.0.RC2", "5.1.0.RC3", "5.1.0.RELEASE", "5.1.1.RELEASE", "5.1.2.RELEASE",
+        "5.1.3.RELEASE", "5.1.4.RELEASE", "5.1.5.RELEASE", "5.1.6.RELEASE", "5.1.7.RELEASE", "5.1.8.RELEASE", "5.1.9.RELEASE",
+        "5.1.10.RELEASE", "5.1.11.RELEASE", "5.1.12.RELEASE", "5.1.13.RELEASE", "5.1.14.RELEASE", "5.1.15.RELEASE", "5.2.0.M1", "5.2.0.M2",
+        "5.2.0.M3", "5.2.0.RC1", "5.2.0.RC2", "5.2.0.RELEASE", "5.2.1.RELEASE", "5.2.2.RELEASE", "5.2.3.RELEASE", "5.2.4.RELEASE",
+        "5.2.5.RELEASE", "5.2.6.RELEASE", "5.2.7.RELEASE"
+    );
+
+    private static final List<String> SNAPSHOTS = Arrays.asList(
+        "1.0-SNAPSHOT", "1.0", "1.1-SNAPSHOT", "1.1-20200102.101112-1", "1.1-20200102.121314-2", "1.1-20200105.080910-3", "1.1",
+        "1.2-SNAPSHOT", "1.2-20200301.101010-1", "1.2-20200302.111111-2", "1.2-20200303.121212-3", "1.2-20200304.131313-4",
+        "1.2-20200305.141414-5", "1.2", "2.0-alpha-1", "2.0-alpha-2", "2.0-beta-1", "2.0-dev", "2.0-rc-1", "2.0-SNAPSHOT", "2.0",
+        "2.0.1", "2.0.2-SNAPSHOT", "2.0.2-sp1", "2.1.0-GA", "2.1.0-final"
+    );
+
+    @Param({"guava", "spring", "snapshots"})
+    String versions;
+
+    private List<String> versionStrings;
+    private List<Version> parsed;
+    private VersionParser versionParser;
+    private Comparator<Version> comparator;
+
+    @Setup
+    public void setup() {
+        switch (versions) {
+            case "guava":
+                versionStrings = GUAVA;
+                break;
+            case "spring":
+                versionStrings = SPRING;
+                break;
+            default:
+                versionStrings = SNAPSHOTS;
+        }
+        versionParser = new VersionParser();
+        comparator = new DefaultVersionComparator().asVersionComparator();
+        parsed = new ArrayList<>(versionStrings.size());
+        for (String version : versionStrings) {
+            parsed.add(versionParser.transform(version));
+        }
+        Collections.shuffle(parsed);
+    }
+
+    @Benchmark
+    public void sortParsedVersions(Blackhole bh) {
+        List<Version> copy = new ArrayList<>(parsed);
+        copy.sort(comparator);
+        bh.consume(copy);
+    }
+
+    @Benchmark
+    public void parseAndSortVersions(Blackhole bh) {
+        List<Version> copy = new ArrayList<>(versionStrings.size());
+        for (String version : versionStrings) {
+            copy.add(versionParser.transform(version));
+        }
+        copy.sort(comparator);
+        bh.consume(copy);
+    }
+
+    @Benchmark
+    public void findLatestVersion(Blackhole bh) {
+        Version latest = null;
+        for (Version version : parsed) {
+            if (latest == null || comparator.compare(version, latest) > 0) {
+                latest = version;
+            }
+        }
+        bh.consume(latest);
+    }
+}
@@ -28,6 +28,7 @@
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.artifacts.component.ComponentIdentifierFactory;
 import org.gradle.api.internal.artifacts.component.DefaultComponentIdentifierFactory;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationResolveAhead;
 import org.gradle.api.internal.artifacts.dsl.CapabilityNotationParserFactory;
 import org.gradle.api.internal.artifacts.dsl.dependencies.DependencyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheLockingManager;
@@ -138,6 +139,7 @@
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetadata;
 import org.gradle.internal.component.external.model.PreferJavaRuntimeVariant;
 import org.gradle.internal.component.model.PersistentModuleSource;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.file.RelativeFilePathResolver;
@@ -168,6 +170,7 @@
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.snapshot.ValueSnapshotter;
 import org.gradle.internal.typeconversion.NotationParser;
+import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.util.BuildCommencedTimeProvider;
 import org.gradle.util.internal.SimpleMapInterner;
 
@@ -184,6 +187,13 @@
  * The set of dependency management services that are created per build.
  */
 class DependencyManagementBuildScopeServices {
+    void configure(ListenerManager listenerManager, StartParameter startParameter, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
+        if (Boolean.getBoolean(ConfigurationResolveAhead.RESOLVE_AHEAD_PROPERTY) && startParameter.isParallelProjectExecutionEnabled()) {
+            // Without parallel project execution, the project locks are held by the task execution and nothing could be resolved ahead
+            listenerManager.addListener(new ConfigurationResolveAhead(executorFactory, workerLeaseService));
+        }
+    }
+
     DependencyManagementServices createDependencyManagementServices(ServiceRegistry parent) {
         return new DefaultDependencyManagementServices(parent);
     }
@@ -515,7 +525,8 @@ ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory re
                                                                 VersionSelectorScheme versionSelectorScheme,
                                                                 VersionParser versionParser,
                                                                 ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor,
-                                                                InstantiatorFactory instantiatorFactory) {
+                                                                InstantiatorFactory instantiatorFactory,
+                                                                ExecutorFactory executorFactory) {
         return new DefaultArtifactDependencyResolver(
             buildOperationExecutor,
             resolverFactories,
@@ -529,7 +540,8 @@ ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory re
             versionSelectorScheme,
             versionParser,
             componentMetadataSupplierRuleExecutor,
-            instantiatorFactory);
+            instantiatorFactory,
+            executorFactory);
     }
 
     ProjectPublicationRegistry createProjectPublicationRegistry() {
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.configurations;
+
+import org.gradle.api.internal.DomainObjectContext;
+import org.gradle.internal.service.scopes.EventScope;
+import org.gradle.internal.service.scopes.Scopes;
+
+/**
+ * Notified when the build dependencies of a configuration have been computed, which happens when a configuration is used as a task input
+ * while building the task graph. Such a configuration will most likely be resolved when executing the task graph.
+ */
+@EventScope(Scopes.Build)
+public interface ConfigurationBuildDependenciesListener {
+    /**
+     * Called when the build dependencies of the given configuration have been computed, without resolving its graph.
+     */
+    void buildDependenciesResolved(ConfigurationInternal configuration, DomainObjectContext owner);
+}
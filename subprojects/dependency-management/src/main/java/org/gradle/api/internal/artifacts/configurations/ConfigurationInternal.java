@@ -52,6 +52,12 @@ enum InternalState {
 
     void markAsObserved(InternalState requestedState);
 
+    /**
+     * Resolves the dependency graph of this configuration, if not already done. Resolution failures are not thrown,
+     * they are reported when the results are queried.
+     */
+    void resolveGraph();
+
     void addMutationValidator(MutationValidator validator);
 
     void removeMutationValidator(MutationValidator validator);
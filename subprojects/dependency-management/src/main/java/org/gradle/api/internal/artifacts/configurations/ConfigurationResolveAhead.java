@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.configurations;
+
+import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.execution.TaskExecutionGraph;
+import org.gradle.api.execution.TaskExecutionGraphListener;
+import org.gradle.api.internal.DomainObjectContext;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.initialization.InternalBuildFinishedListener;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.model.ModelContainer;
+import org.gradle.internal.work.WorkerLeaseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves, ahead of task execution, the dependency graphs of the configurations which are used as task inputs.
+ *
+ * While the task graph is built, configurations which are inputs of the scheduled tasks get their build dependencies computed.
+ * Once the task graph is ready, the graphs of those configurations are resolved in the background with bounded parallelism,
+ * instead of being resolved one after the other by the first task which needs them. Configurations of a given project
+ * are resolved sequentially, while holding a worker lease and the lock of that project, so that resolution happens under the same
+ * conditions as when it is triggered by a task. All resolutions go through the same build scoped services, hence share
+ * the same in-memory metadata caches.
+ *
+ * Resolving ahead only warms up the caches: a detached copy of each configuration is resolved, without its project dependencies,
+ * so that the configuration itself is neither resolved nor observed, and can still be changed until a task uses it.
+ * Results and failures are reported as usual when tasks query them.
+ */
+public class ConfigurationResolveAhead implements ConfigurationBuildDependenciesListener, TaskExecutionGraphListener, InternalBuildFinishedListener {
+    public static final String RESOLVE_AHEAD_PROPERTY = "org.gradle.internal.resolution.resolveAhead";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationResolveAhead.class);
+
+    private final ExecutorFactory executorFactory;
+    private final WorkerLeaseService workerLeaseService;
+    private final Map<ModelContainer, List<ConfigurationInternal>> candidates = new LinkedHashMap<>();
+    private ManagedExecutor executor;
+    private volatile boolean stopped;
+
+    public ConfigurationResolveAhead(ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
+        this.executorFactory = executorFactory;
+        this.workerLeaseService = workerLeaseService;
+    }
+
+    @Override
+    public void buildDependenciesResolved(ConfigurationInternal configuration, DomainObjectContext owner) {
+        if (owner.isScript() || owner.getProjectPath() == null) {
+            // Not owned by a project: script classpath or detached configuration
+            return;
+        }
+        synchronized (candidates) {
+            candidates.computeIfAbsent(owner.getModel(), model -> new ArrayList<>()).add(configuration);
+        }
+    }
+
+    @Override
+    public void graphPopulated(TaskExecutionGraph graph) {
+        List<Map.Entry<ModelContainer, List<ConfigurationInternal>>> batches;
+        synchronized (candidates) {
+            if (candidates.isEmpty() || executor != null) {
+                return;
+            }
+            batches = new ArrayList<>(candidates.entrySet());
+            candidates.clear();
+            executor = executorFactory.create("Resolve configurations ahead", Math.min(workerLeaseService.getMaxWorkerCount(), batches.size()));
+        }
+        for (Map.Entry<ModelContainer, List<ConfigurationInternal>> batch : batches) {
+            ModelContainer owner = batch.getKey();
+            List<ConfigurationInternal> configurations = batch.getValue();
+            // Count against max-workers, like any task would
+            executor.execute(() -> workerLeaseService.withLocks(Collections.singleton(workerLeaseService.getWorkerLease()), () -> resolveAll(owner, configurations)));
+        }
+    }
+
+    private void resolveAll(ModelContainer owner, List<ConfigurationInternal> configurations) {
+        for (ConfigurationInternal configuration : configurations) {
+            if (stopped) {
+                return;
+            }
+            // Acquire the project lock for each configuration only, so that tasks of the project are not held back for too long
+            owner.withMutableState(() -> resolve(configuration));
+        }
+    }
+
+    private static void resolve(ConfigurationInternal configuration) {
+        try {
+            ConfigurationInternal copy = (ConfigurationInternal) configuration.copyRecursive();
+            // Resolving project dependencies would mark the target configurations as observed, and they are cheap to resolve anyway
+            copy.getDependencies().removeIf(ProjectDependency.class::isInstance);
+            copy.resolveGraph();
+        } catch (Exception e) {
+            // The configuration will be resolved again when a task needs it, which reports the failure
+            LOGGER.debug("Could not resolve {} ahead of task execution.", configuration, e);
+        }
+    }
+
+    @Override
+    public void buildFinished(GradleInternal gradle) {
+        stopped = true;
+        ManagedExecutor executor;
+        synchronized (candidates) {
+            executor = this.executor;
+            this.executor = null;
+            candidates.clear();
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+}
@@ -546,6 +546,11 @@ private void markParentsObserved(InternalState requestedState) {
         }
     }
 
+    @Override
+    public void resolveGraph() {
+        resolveToStateOrLater(GRAPH_RESOLVED);
+    }
+
     @Override
     public ResolvedConfiguration getResolvedConfiguration() {
         resolveToStateOrLater(ARTIFACTS_RESOLVED);
@@ -730,6 +735,7 @@ private ResolverResults resolveGraphForBuildDependenciesIfRequired() {
             resolver.resolveBuildDependencies(DefaultConfiguration.this, results);
             resolvedState = BUILD_DEPENDENCIES_RESOLVED;
             cachedResolverResults = results;
+            listenerManager.getBroadcaster(ConfigurationBuildDependenciesListener.class).buildDependenciesResolved(this, owner);
         }
         // Otherwise, already have a result, so reuse it
         return cachedResolverResults;
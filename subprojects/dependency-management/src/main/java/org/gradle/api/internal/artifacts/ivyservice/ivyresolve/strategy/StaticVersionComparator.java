@@ -48,6 +48,12 @@ public StaticVersionComparator(Map<String, Integer> specialMeanings) {
      */
     @Override
     public int compare(Version version1, Version version2) {
+        if (version1 == version2) {
+            return 0;
+        }
+        if (version1 instanceof VersionParser.DefaultVersion && version2 instanceof VersionParser.DefaultVersion) {
+            return compareParsed((VersionParser.DefaultVersion) version1, (VersionParser.DefaultVersion) version2);
+        }
         if (version1.equals(version2)) {
             return 0;
         }
@@ -105,4 +111,59 @@ public int compare(Version version1, Version version2) {
 
         return 0;
     }
+
+    /**
+     * Same algorithm as {@link #compare(Version, Version)}, using the comparison keys precomputed by the parser.
+     */
+    private int compareParsed(VersionParser.DefaultVersion version1, VersionParser.DefaultVersion version2) {
+        if (version1.getSource().equals(version2.getSource())) {
+            return 0;
+        }
+        int length1 = version1.getPartCount();
+        int length2 = version2.getPartCount();
+
+        int i = 0;
+        for (; i < length1 && i < length2; i++) {
+            boolean is1Number = version1.isNumber(i);
+            boolean is2Number = version2.isNumber(i);
+
+            if (is1Number && is2Number) {
+                int result = Long.compare(version1.getNumber(i), version2.getNumber(i));
+                if (result == 0) {
+                    continue;
+                }
+                return result;
+            }
+            if (is1Number) {
+                return 1;
+            }
+            if (is2Number) {
+                return -1;
+            }
+            String part1 = version1.getPart(i);
+            String part2 = version2.getPart(i);
+            if (part1.equals(part2)) {
+                continue;
+            }
+            // both are strings, we compare them taking into account special meaning
+            Integer sm1 = specialMeanings.get(version1.getLowerCasePart(i));
+            Integer sm2 = specialMeanings.get(version2.getLowerCasePart(i));
+            if (sm1 != null) {
+                sm2 = sm2 == null ? 0 : sm2;
+                return sm1 - sm2;
+            }
+            if (sm2 != null) {
+                return -sm2;
+            }
+            return part1.compareTo(part2);
+        }
+        if (i < length1) {
+            return version1.isNumber(i) ? 1 : -1;
+        }
+        if (i < length2) {
+            return version2.isNumber(i) ? -1 : 1;
+        }
+
+        return 0;
+    }
 }
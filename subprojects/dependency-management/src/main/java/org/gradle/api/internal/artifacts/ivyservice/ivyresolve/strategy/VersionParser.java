@@ -22,6 +22,7 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 public class VersionParser implements Transformer<Version, String> {
@@ -84,22 +85,62 @@ private Version parse(String original) {
         return new DefaultVersion(original, parts, base);
     }
 
-    private static class DefaultVersion implements Version {
+    /**
+     * Parsed versions are interned by the parser, so in addition to the parts exposed through {@link Version} they
+     * carry precomputed comparison keys: primitive numeric values and lower-cased qualifiers. This lets
+     * {@link StaticVersionComparator} compare them without boxing or allocating.
+     */
+    static class DefaultVersion implements Version {
         private final String source;
         private final String[] parts;
         private final Long[] numericParts;
         private final DefaultVersion baseVersion;
+        private final boolean[] isNumber;
+        private final long[] numbers;
+        private final String[] lowerCaseParts;
 
         public DefaultVersion(String source, List<String> parts, DefaultVersion baseVersion) {
             this.source = source;
             this.parts = parts.toArray(new String[0]);
             this.numericParts = new Long[this.parts.length];
+            this.isNumber = new boolean[this.parts.length];
+            this.numbers = new long[this.parts.length];
+            this.lowerCaseParts = new String[this.parts.length];
             for (int i = 0; i < parts.size(); i++) {
-                this.numericParts[i] = Longs.tryParse(this.parts[i]);
+                String part = this.parts[i];
+                Long numericPart = Longs.tryParse(part);
+                this.numericParts[i] = numericPart;
+                if (numericPart != null) {
+                    this.isNumber[i] = true;
+                    this.numbers[i] = numericPart;
+                    this.lowerCaseParts[i] = part;
+                } else {
+                    this.lowerCaseParts[i] = part.toLowerCase(Locale.US);
+                }
             }
             this.baseVersion = baseVersion == null ? this : baseVersion;
         }
 
+        int getPartCount() {
+            return parts.length;
+        }
+
+        String getPart(int index) {
+            return parts[index];
+        }
+
+        boolean isNumber(int index) {
+            return isNumber[index];
+        }
+
+        long getNumber(int index) {
+            return numbers[index];
+        }
+
+        String getLowerCasePart(int index) {
+            return lowerCaseParts[index];
+        }
+
         @Override
         public String toString() {
             return source;
@@ -22,6 +22,7 @@
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.factories.LoggingExcludeFactory;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.factories.NormalizingExcludeFactory;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.factories.OptimizingExcludeFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.simple.BitSetExcludeFactory;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.simple.DefaultExcludeFactory;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeSpec;
 import org.gradle.internal.component.model.ExcludeMetadata;
@@ -33,13 +34,18 @@
 import java.util.stream.Collectors;
 
 public class ModuleExclusions {
+    /**
+     * When enabled, set excludes are backed by bitsets over a dense index of the modules and groups seen during resolution.
+     */
+    public static final String BITSET_EXCLUDES_PROPERTY = "org.gradle.internal.resolution.bitsetExcludes";
+
     private final CachingExcludeFactory.MergeCaches mergeCaches = new CachingExcludeFactory.MergeCaches();
     // please keep the formatting below as it helps enabling or disabling stages
     private final ExcludeFactory factory = new OptimizingExcludeFactory(// optimizes for nulls, 2-params, ... mandatory
         new CachingExcludeFactory(// caches the result of TL operations
             LoggingExcludeFactory.maybeLog(new NormalizingExcludeFactory(// performs algebra
                 new CachingExcludeFactory(// caches the result of optimization operations
-                    new DefaultExcludeFactory(), // the end of the chain, mandatory
+                    newLeafFactory(), // the end of the chain, mandatory
                     mergeCaches // shares the same caches as the top level one as after reducing we can find already cached merge operations
                 )
             )),
@@ -53,6 +59,10 @@ public ModuleExclusions() {
         nothing = factory.nothing();
     }
 
+    private static ExcludeFactory newLeafFactory() {
+        return Boolean.getBoolean(BITSET_EXCLUDES_PROPERTY) ? new BitSetExcludeFactory() : new DefaultExcludeFactory();
+    }
+
     public ExcludeSpec excludeAny(Collection<ExcludeMetadata> excludes) {
         if (excludes.isEmpty()) {
             // avoids creation of empty hashset
@@ -18,6 +18,7 @@
 import com.google.common.collect.Sets;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.simple.IndexedSet;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeAnyOf;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeNothing;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeSpec;
@@ -94,8 +95,7 @@ ExcludeSpec tryIntersect(ExcludeSpec left, ExcludeSpec right) {
     private ExcludeSpec intersectModuleSet(ModuleSetExclude left, ExcludeSpec right) {
         if (right instanceof ModuleSetExclude) {
             ModuleSetExclude msr = (ModuleSetExclude) right;
-            Set<String> modules = Sets.newHashSet(left.getModules());
-            modules.retainAll(msr.getModules());
+            Set<String> modules = intersectionOf(left.getModules(), msr.getModules());
             if (modules.isEmpty()) {
                 return factory.nothing();
             }
@@ -107,6 +107,16 @@ private ExcludeSpec intersectModuleSet(ModuleSetExclude left, ExcludeSpec right)
         return null;
     }
 
+    private static <T> Set<T> intersectionOf(Set<T> one, Set<T> two) {
+        // fast path when the sets are bitsets sharing the same index
+        Set<T> common = IndexedSet.intersectionOf(one, two);
+        if (common == null) {
+            common = Sets.newHashSet(one);
+            common.retainAll(two);
+        }
+        return common;
+    }
+
     private ExcludeSpec intersectAnyOf(ExcludeAnyOf left, ExcludeSpec right) {
         Set<ExcludeSpec> leftComponents = left.getComponents();
         if (right instanceof ExcludeAnyOf) {
@@ -206,8 +216,7 @@ private ExcludeSpec intersectModuleId(ModuleIdExclude left, ExcludeSpec right) {
     private ExcludeSpec intersectModuleIdSet(ModuleIdSetExclude left, ExcludeSpec right) {
         Set<ModuleIdentifier> moduleIds = left.getModuleIds();
         if (right instanceof ModuleIdSetExclude) {
-            Set<ModuleIdentifier> common = Sets.newHashSet(((ModuleIdSetExclude) right).getModuleIds());
-            common.retainAll(moduleIds);
+            Set<ModuleIdentifier> common = intersectionOf(((ModuleIdSetExclude) right).getModuleIds(), moduleIds);
             return moduleIds(common);
         } else if (right instanceof ModuleSetExclude) {
             Set<String> modules = ((ModuleSetExclude) right).getModules();
@@ -281,8 +290,7 @@ private ExcludeSpec moduleIdSet(Set<ModuleIdentifier> moduleIds) {
     private ExcludeSpec intersectGroupSet(GroupSetExclude left, ExcludeSpec right) {
         Set<String> groups = left.getGroups();
         if (right instanceof GroupSetExclude) {
-            Set<String> common = Sets.newHashSet(((GroupSetExclude) right).getGroups());
-            common.retainAll(groups);
+            Set<String> common = intersectionOf(((GroupSetExclude) right).getGroups(), groups);
             return groupSet(common);
         } else if (right instanceof ModuleIdExclude) {
             if (groups.contains(((ModuleIdExclude) right).getModuleId().getGroup())) {
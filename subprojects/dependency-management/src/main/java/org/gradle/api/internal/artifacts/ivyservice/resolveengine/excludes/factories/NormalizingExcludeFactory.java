@@ -18,6 +18,7 @@
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.simple.IndexedSet;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.CompositeExclude;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeAllOf;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeAnyOf;
@@ -39,6 +40,7 @@
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -181,13 +183,13 @@ private ExcludeSpec doUnion(Set<ExcludeSpec> specs) {
             }
         }
         if (moduleIdSetsExcludes.size() > 1) {
-            moduleIdSetsExcludes = ImmutableList.of(delegate.moduleIdSet(moduleIdSetsExcludes.stream().flatMap(e -> e.getModuleIds().stream()).collect(toSet())));
+            moduleIdSetsExcludes = ImmutableList.of(delegate.moduleIdSet(unionOf(moduleIdSetsExcludes, ModuleIdSetExclude::getModuleIds)));
         }
         if (groupSetExcludes.size() > 1) {
-            groupSetExcludes = ImmutableList.of(delegate.groupSet(groupSetExcludes.stream().flatMap(e -> e.getGroups().stream()).collect(toSet())));
+            groupSetExcludes = ImmutableList.of(delegate.groupSet(unionOf(groupSetExcludes, GroupSetExclude::getGroups)));
         }
         if (moduleSetExcludes.size() > 1) {
-            moduleSetExcludes = ImmutableList.of(delegate.moduleSet(moduleSetExcludes.stream().flatMap(e -> e.getModules().stream()).collect(toSet())));
+            moduleSetExcludes = ImmutableList.of(delegate.moduleSet(unionOf(moduleSetExcludes, ModuleSetExclude::getModules)));
         }
         ImmutableSet.Builder<ExcludeSpec> builder = ImmutableSet.builderWithExpectedSize(
             moduleIdExcludes.size() + groupExcludes.size() + moduleExcludes.size() +
@@ -232,6 +234,16 @@ private ExcludeSpec doUnion(Set<ExcludeSpec> specs) {
         return Optimizations.optimizeCollection(this, elements, delegate::anyOf);
     }
 
+    private static <E, T> Set<T> unionOf(List<E> excludes, Function<E, Set<T>> elements) {
+        List<Set<T>> sets = excludes.stream().map(elements).collect(Collectors.toList());
+        // fast path when the sets are bitsets sharing the same index
+        Set<T> union = IndexedSet.unionOf(sets);
+        if (union != null) {
+            return union;
+        }
+        return sets.stream().flatMap(Set::stream).collect(toSet());
+    }
+
     /**
      * Flattens a collection of elements that are going to be joined or intersected. There
      * are 3 possible outcomes:
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.simple;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.GroupSetExclude;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ModuleIdSetExclude;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ModuleSetExclude;
+
+import java.util.Set;
+
+/**
+ * An exclude factory which backs set excludes with {@link IndexedSet indexed sets}: each module id,
+ * group and module name is assigned a dense index, so that set excludes are represented as bitsets.
+ * This makes matching, unions and intersections of set excludes word-parallel operations, and
+ * comparing two set excludes (which the caching factories do a lot) doesn't require hashing anymore.
+ */
+public class BitSetExcludeFactory extends DefaultExcludeFactory {
+    private final DenseIndex<ModuleIdentifier> moduleIds = new DenseIndex<>();
+    private final DenseIndex<String> groups = new DenseIndex<>();
+    private final DenseIndex<String> modules = new DenseIndex<>();
+
+    @Override
+    public ModuleIdSetExclude moduleIdSet(Set<ModuleIdentifier> modules) {
+        return DefaultModuleIdSetExclude.of(IndexedSet.of(moduleIds, modules));
+    }
+
+    @Override
+    public GroupSetExclude groupSet(Set<String> groups) {
+        return new DefaultGroupSetExclude(IndexedSet.of(this.groups, groups));
+    }
+
+    @Override
+    public ModuleSetExclude moduleSet(Set<String> modules) {
+        return new DefaultModuleSetExclude(IndexedSet.of(this.modules, modules));
+    }
+}
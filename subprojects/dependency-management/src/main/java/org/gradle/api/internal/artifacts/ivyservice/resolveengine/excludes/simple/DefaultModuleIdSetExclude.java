@@ -30,7 +30,12 @@ static ModuleIdSetExclude of(Set<ModuleIdentifier> ids) {
         return new DefaultModuleIdSetExclude(ImmutableSet.copyOf(ids));
     }
 
-    private DefaultModuleIdSetExclude(ImmutableSet<ModuleIdentifier> moduleIds) {
+    static ModuleIdSetExclude of(IndexedSet<ModuleIdentifier> ids) {
+        // indexed sets are immutable already
+        return new DefaultModuleIdSetExclude(ids);
+    }
+
+    private DefaultModuleIdSetExclude(Set<ModuleIdentifier> moduleIds) {
         this.moduleIds = moduleIds;
         this.hashCode = moduleIds.hashCode();
     }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.simple;
+
+import org.gradle.internal.Cast;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns a dense, stable, integer index to each value it sees. Indices are never
+ * released, which is fine for the values it is used for (module identifiers, groups
+ * and module names seen during resolution), as their number is bounded by the size of
+ * the dependency graphs.
+ *
+ * Lookups are lock-free, only the assignment of a new index is synchronized.
+ */
+final class DenseIndex<T> {
+    private final ConcurrentMap<T, Integer> indices = new ConcurrentHashMap<>();
+    private volatile Object[] values = new Object[64];
+    private int count;
+
+    /**
+     * Returns the index of the given value, or -1 if no index was assigned to it yet.
+     */
+    int indexOf(Object value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer index = indices.get(value);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the index of the given value, assigning a new one if needed.
+     */
+    int index(T value) {
+        Integer index = indices.get(value);
+        if (index != null) {
+            return index;
+        }
+        return assign(value);
+    }
+
+    private synchronized int assign(T value) {
+        Integer index = indices.get(value);
+        if (index != null) {
+            return index;
+        }
+        int next = count++;
+        Object[] current = values;
+        if (next == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[next] = value;
+        // publish the value before the index, so that any thread which knows the index can see the value
+        values = current;
+        indices.put(value, next);
+        return next;
+    }
+
+    T get(int index) {
+        return Cast.uncheckedCast(values[index]);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.simple;
+
+import javax.annotation.Nullable;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable set which elements are represented by their index in a {@link DenseIndex}.
+ * Membership tests, unions and intersections of sets sharing the same index are performed
+ * directly on the underlying bits, without hashing nor copying any element.
+ *
+ * Equality and hash code follow the {@link Set} contract, so those sets can be compared
+ * with any other set implementation.
+ */
+public final class IndexedSet<T> extends AbstractSet<T> {
+    private final DenseIndex<T> index;
+    private final BitSet bits;
+    private final int size;
+    private final int hashCode;
+
+    private IndexedSet(DenseIndex<T> index, BitSet bits) {
+        this.index = index;
+        this.bits = bits;
+        this.size = bits.cardinality();
+        int hash = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            hash += index.get(i).hashCode();
+        }
+        this.hashCode = hash;
+    }
+
+    static <T> IndexedSet<T> of(DenseIndex<T> index, Collection<? extends T> elements) {
+        if (elements instanceof IndexedSet && ((IndexedSet<?>) elements).index == index) {
+            return cast(elements);
+        }
+        BitSet bits = new BitSet();
+        for (T element : elements) {
+            bits.set(index.index(element));
+        }
+        return new IndexedSet<>(index, bits);
+    }
+
+    /**
+     * Computes the union of the given sets, if they are all indexed sets sharing the same index.
+     *
+     * @return the union, or null if the sets cannot be combined directly
+     */
+    @Nullable
+    public static <T> Set<T> unionOf(Collection<? extends Set<T>> sets) {
+        DenseIndex<T> index = commonIndex(sets);
+        if (index == null) {
+            return null;
+        }
+        BitSet union = new BitSet();
+        for (Set<T> set : sets) {
+            union.or(((IndexedSet<T>) set).bits);
+        }
+        return new IndexedSet<>(index, union);
+    }
+
+    /**
+     * Computes the intersection of the given sets, if they are both indexed sets sharing the same index.
+     *
+     * @return the intersection, or null if the sets cannot be combined directly
+     */
+    @Nullable
+    public static <T> Set<T> intersectionOf(Set<T> one, Set<T> two) {
+        if (one instanceof IndexedSet && two instanceof IndexedSet) {
+            IndexedSet<T> left = cast(one);
+            IndexedSet<T> right = cast(two);
+            if (left.index == right.index) {
+                BitSet intersection = (BitSet) left.bits.clone();
+                intersection.and(right.bits);
+                return new IndexedSet<>(left.index, intersection);
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static <T> DenseIndex<T> commonIndex(Collection<? extends Set<T>> sets) {
+        DenseIndex<T> index = null;
+        for (Set<T> set : sets) {
+            if (!(set instanceof IndexedSet)) {
+                return null;
+            }
+            DenseIndex<T> setIndex = ((IndexedSet<T>) set).index;
+            if (index == null) {
+                index = setIndex;
+            } else if (index != setIndex) {
+                return null;
+            }
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> IndexedSet<T> cast(Collection<? extends T> set) {
+        return (IndexedSet<T>) set;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int i = index.indexOf(o);
+        return i >= 0 && bits.get(i);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int next = bits.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public T next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                T value = index.get(next);
+                next = bits.nextSetBit(next + 1);
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof IndexedSet && ((IndexedSet<?>) o).index == index) {
+            return bits.equals(((IndexedSet<?>) o).bits);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
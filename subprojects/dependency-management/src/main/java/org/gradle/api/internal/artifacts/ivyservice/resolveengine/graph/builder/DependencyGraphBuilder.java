@@ -54,6 +54,8 @@
 import org.gradle.internal.component.model.ComponentResolveMetadata;
 import org.gradle.internal.component.model.DefaultCompatibilityCheckResult;
 import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.id.IdGenerator;
 import org.gradle.internal.id.LongIdGenerator;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -79,6 +81,8 @@
 
 public class DependencyGraphBuilder {
     private static final Logger LOGGER = LoggerFactory.getLogger(DependencyGraphBuilder.class);
+    public static final String SPECULATIVE_METADATA_PREFETCH_PROPERTY = "org.gradle.internal.resolution.speculativeMetadataPrefetch";
+    public static final String MAX_SPECULATIVE_METADATA_PREFETCHES_PROPERTY = "org.gradle.internal.resolution.maxSpeculativeMetadataPrefetches";
     private final ModuleConflictHandler moduleConflictHandler;
     private final Spec<? super DependencyMetadata> edgeFilter;
     private final ResolveContextToComponentResolver moduleResolver;
@@ -94,6 +98,7 @@ public class DependencyGraphBuilder {
     private final VersionSelectorScheme versionSelectorScheme;
     private final Comparator<Version> versionComparator;
     private final VersionParser versionParser;
+    private final ExecutorFactory executorFactory;
 
     final static Spec<EdgeState> ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC = dependencyState -> dependencyState.getDependencyState().getDependency().isEndorsingStrictVersions();
     final static Spec<EdgeState> NOT_ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC = dependencyState -> !dependencyState.getDependencyState().getDependency().isEndorsingStrictVersions();
@@ -113,6 +118,26 @@ public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolve
                                   VersionSelectorScheme versionSelectorScheme,
                                   Comparator<Version> versionComparator,
                                   VersionParser versionParser) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, moduleConflictHandler, capabilitiesConflictHandler, edgeFilter, attributesSchema,
+            moduleExclusions, buildOperationExecutor, dependencySubstitutionApplicator, componentSelectorConverter, attributesFactory, versionSelectorScheme, versionComparator, versionParser, null);
+    }
+
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver,
+                                  ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver,
+                                  ModuleConflictHandler moduleConflictHandler,
+                                  CapabilitiesConflictHandler capabilitiesConflictHandler,
+                                  Spec<? super DependencyMetadata> edgeFilter,
+                                  AttributesSchemaInternal attributesSchema,
+                                  ModuleExclusions moduleExclusions,
+                                  BuildOperationExecutor buildOperationExecutor,
+                                  DependencySubstitutionApplicator dependencySubstitutionApplicator,
+                                  ComponentSelectorConverter componentSelectorConverter,
+                                  ImmutableAttributesFactory attributesFactory,
+                                  VersionSelectorScheme versionSelectorScheme,
+                                  Comparator<Version> versionComparator,
+                                  VersionParser versionParser,
+                                  @Nullable ExecutorFactory executorFactory) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
@@ -128,6 +153,7 @@ public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolve
         this.versionSelectorScheme = versionSelectorScheme;
         this.versionComparator = versionComparator;
         this.versionParser = versionParser;
+        this.executorFactory = executorFactory;
     }
 
     public void resolve(final ResolveContext resolveContext, final DependencyGraphVisitor modelVisitor) {
@@ -139,10 +165,25 @@ public void resolve(final ResolveContext resolveContext, final DependencyGraphVi
         int graphSize = estimateSize(resolveContext);
         ResolutionStrategyInternal resolutionStrategy = resolveContext.getResolutionStrategy();
 
-        final ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, metaDataResolver, edgeFilter, attributesSchema, moduleExclusions, componentSelectorConverter, attributesFactory, dependencySubstitutionApplicator, versionSelectorScheme, versionComparator, versionParser, moduleConflictHandler.getResolver(), graphSize);
+        ManagedExecutor prefetchExecutor = null;
+        SpeculativeMetadataPrefetcher prefetcher = null;
+        if (executorFactory != null && Boolean.getBoolean(SPECULATIVE_METADATA_PREFETCH_PROPERTY)) {
+            prefetchExecutor = executorFactory.create("Metadata prefetch", Integer.getInteger(MAX_SPECULATIVE_METADATA_PREFETCHES_PROPERTY, 16));
+            prefetcher = new SpeculativeMetadataPrefetcher(metaDataResolver, versionSelectorScheme, buildOperationExecutor, prefetchExecutor);
+        }
+        ComponentMetaDataResolver graphMetaDataResolver = prefetcher != null ? prefetcher : metaDataResolver;
+        final ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, graphMetaDataResolver, edgeFilter, attributesSchema, moduleExclusions, componentSelectorConverter, attributesFactory, dependencySubstitutionApplicator, versionSelectorScheme, versionComparator, versionParser, moduleConflictHandler.getResolver(), graphSize);
 
         Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache = Maps.newHashMapWithExpectedSize(graphSize / 2);
-        traverseGraph(resolveState, componentIdentifierCache);
+        try {
+            traverseGraph(resolveState, componentIdentifierCache, prefetcher);
+        } finally {
+            if (prefetcher != null) {
+                // Drop the prefetches that have not started, and wait for the running ones so that none outlives the resolution
+                prefetcher.stop();
+                prefetchExecutor.stop();
+            }
+        }
 
         validateGraph(resolveState, resolutionStrategy.isFailingOnDynamicVersions(), resolutionStrategy.isFailingOnChangingVersions());
 
@@ -166,7 +207,7 @@ private static int estimateSize(ResolveContext resolveContext) {
     /**
      * Traverses the dependency graph, resolving conflicts and building the paths from the root configuration.
      */
-    private void traverseGraph(final ResolveState resolveState, final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
+    private void traverseGraph(final ResolveState resolveState, final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache, @Nullable SpeculativeMetadataPrefetcher prefetcher) {
         resolveState.onMoreSelected(resolveState.getRoot());
         final List<EdgeState> dependencies = Lists.newArrayList();
 
@@ -181,9 +222,9 @@ private void traverseGraph(final ResolveState resolveState, final Map<ModuleVers
                 // Initialize and collect any new outgoing edges of this node
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
-                boolean edgeWasProcessed = resolveEdges(node, dependencies, ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, false, resolveState, componentIdentifierCache);
+                boolean edgeWasProcessed = resolveEdges(node, dependencies, ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, false, resolveState, componentIdentifierCache, prefetcher);
                 node.collectEndorsedStrictVersions(dependencies);
-                resolveEdges(node, dependencies, NOT_ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, edgeWasProcessed, resolveState, componentIdentifierCache);
+                resolveEdges(node, dependencies, NOT_ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, edgeWasProcessed, resolveState, componentIdentifierCache, prefetcher);
             } else {
                 // We have some batched up conflicts. Resolve the first, and continue traversing the graph
                 if (moduleConflictHandler.hasConflicts()) {
@@ -240,12 +281,13 @@ private boolean resolveEdges(final NodeState node,
                                  final Spec<EdgeState> dependencyFilter,
                                  final boolean recomputeSelectors,
                                  final ResolveState resolveState,
-                                 final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
+                                 final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache,
+                                 @Nullable final SpeculativeMetadataPrefetcher prefetcher) {
         if (dependencies.isEmpty()) {
             return false;
         }
         if (performSelectionSerially(dependencies, dependencyFilter, resolveState, recomputeSelectors)) {
-            maybeDownloadMetadataInParallel(node, componentIdentifierCache, dependencies, dependencyFilter);
+            maybeDownloadMetadataInParallel(node, componentIdentifierCache, dependencies, dependencyFilter, resolveState, prefetcher);
             attachToTargetRevisionsSerially(dependencies, dependencyFilter);
             return true;
         } else {
@@ -316,8 +358,16 @@ private void checkForModuleConflicts(ResolveState resolveState, ModuleResolveSta
     /**
      * Prepares the resolution of edges, either serially or concurrently.
      * It uses a simple heuristic to determine if we should perform concurrent resolution, based on the the number of edges, and whether they have unresolved metadata.
+     *
+     * When speculative prefetching is enabled and some metadata has to be downloaded anyway, the metadata of components that the nodes
+     * already waiting in the queue are likely to select is fetched in the background, so that the network is kept busy while this node is blocked.
      */
-    private void maybeDownloadMetadataInParallel(NodeState node, Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache, List<EdgeState> dependencies, Spec<EdgeState> dependencyFilter) {
+    private void maybeDownloadMetadataInParallel(NodeState node,
+                                                 Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache,
+                                                 List<EdgeState> dependencies,
+                                                 Spec<EdgeState> dependencyFilter,
+                                                 ResolveState resolveState,
+                                                 @Nullable SpeculativeMetadataPrefetcher prefetcher) {
         List<ComponentState> requiringDownload = null;
         for (EdgeState dependency : dependencies) {
             if (!dependencyFilter.isSatisfiedBy(dependency)) {
@@ -334,6 +384,9 @@ private void maybeDownloadMetadataInParallel(NodeState node, Map<ModuleVersionId
                 }
             }
         }
+        if (requiringDownload != null && prefetcher != null) {
+            prefetcher.prefetchForQueuedNodes(resolveState);
+        }
         // Only download in parallel if there is more than 1 component to download
         if (requiringDownload != null && requiringDownload.size() > 1) {
             final ImmutableList<ComponentState> toDownloadInParallel = ImmutableList.copyOf(requiringDownload);
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+
+import javax.annotation.Nullable;
+
+/**
+ * Fetches the metadata of a component that is not part of the graph yet. Failures are ignored: should the
+ * component be selected later on, its resolution is attempted again and the failure is reported then.
+ */
+class PrefetchMetadataOperation implements RunnableBuildOperation {
+    private final ComponentMetaDataResolver metaDataResolver;
+    private final ModuleComponentIdentifier id;
+    private final BuildOperationRef parent;
+
+    PrefetchMetadataOperation(ComponentMetaDataResolver metaDataResolver, ModuleComponentIdentifier id, @Nullable BuildOperationRef parent) {
+        this.metaDataResolver = metaDataResolver;
+        this.id = id;
+        this.parent = parent;
+    }
+
+    @Override
+    public void run(BuildOperationContext context) {
+        metaDataResolver.resolve(id, DefaultComponentOverrideMetadata.EMPTY, new DefaultBuildableComponentResolveResult());
+    }
+
+    @Override
+    public BuildOperationDescriptor.Builder description() {
+        return BuildOperationDescriptor.displayName("Prefetch " + id.getDisplayName()).parent(parent);
+    }
+}
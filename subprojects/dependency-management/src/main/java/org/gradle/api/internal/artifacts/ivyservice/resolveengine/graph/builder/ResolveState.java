@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
@@ -54,6 +55,7 @@
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -70,6 +72,7 @@ class ResolveState implements ComponentStateFactory<ComponentState> {
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
     private final Deque<NodeState> queue;
+    private int appendedCount;
     private final AttributesSchemaInternal attributesSchema;
     private final ModuleExclusions moduleExclusions;
     private final DeselectVersionAction deselectVersionAction = new DeselectVersionAction(this);
@@ -146,6 +149,13 @@ public ModuleResolveState getModule(ModuleIdentifier id) {
         return modules.computeIfAbsent(id, mid -> new ModuleResolveState(idGenerator, id, metaDataResolver, attributesFactory, versionComparator, versionParser, selectorStateResolver, resolveOptimizations));
     }
 
+    /**
+     * Returns true if the given module has already been seen during this resolution, without registering it.
+     */
+    boolean hasModule(ModuleIdentifier id) {
+        return modules.containsKey(id);
+    }
+
     @Override
     public ComponentState getRevision(ComponentIdentifier componentIdentifier, ModuleVersionIdentifier id, ComponentResolveMetadata metadata) {
         ComponentState componentState = getModule(id.getModule()).getVersion(id, componentIdentifier);
@@ -182,6 +192,20 @@ public NodeState peek() {
         return queue.isEmpty() ? null : queue.getFirst();
     }
 
+    /**
+     * Returns the nodes waiting to be traversed, starting with the most recently added one.
+     */
+    Iterator<NodeState> getQueuedNodesNewestFirst() {
+        return Iterators.unmodifiableIterator(queue.descendingIterator());
+    }
+
+    /**
+     * Returns the number of nodes added to the end of the queue so far.
+     */
+    int getAppendedCount() {
+        return appendedCount;
+    }
+
     public NodeState pop() {
         NodeState next = queue.removeFirst();
         return next.dequeue();
@@ -195,6 +219,7 @@ public void onMoreSelected(NodeState node) {
         // possible before attempting to resolve them
         if (node.enqueue()) {
             queue.addLast(node);
+            appendedCount++;
         }
     }
 
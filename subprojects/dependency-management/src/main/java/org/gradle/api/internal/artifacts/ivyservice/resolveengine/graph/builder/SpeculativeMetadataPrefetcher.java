@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Speculatively fetches the metadata of components that are very likely to be selected once the nodes
+ * which are already waiting in the traversal queue get visited.
+ *
+ * Only dependencies declaring a single, static, non-changing version on a module which hasn't been seen
+ * yet are considered: for those, the selected component can be predicted without running selection.
+ * The prediction may still be invalidated later (conflict resolution, substitution rules, excludes), in
+ * which case the fetched metadata is simply not used. Results are not stored here: fetching populates the
+ * repository caches, making the fetch done later by {@link ComponentState#resolve()} cheap.
+ *
+ * Prefetches run in the background and the traversal never waits for them, unless it needs the metadata
+ * of a component that is being prefetched: resolving through this resolver waits for that prefetch first.
+ */
+class SpeculativeMetadataPrefetcher implements ComponentMetaDataResolver {
+    private final ComponentMetaDataResolver delegate;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final Executor executor;
+    private final Set<ModuleComponentIdentifier> requested = Sets.newHashSet();
+    private final ConcurrentMap<ComponentIdentifier, CountDownLatch> inFlight = new ConcurrentHashMap<>();
+    private int visitedAppendedCount;
+    private volatile boolean stopped;
+
+    SpeculativeMetadataPrefetcher(ComponentMetaDataResolver delegate, VersionSelectorScheme versionSelectorScheme, BuildOperationExecutor buildOperationExecutor, Executor executor) {
+        this.delegate = delegate;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.executor = executor;
+    }
+
+    /**
+     * Schedules prefetches for the outgoing dependencies of the nodes added to the traversal queue since the previous call.
+     * Each queued node is only visited once. Does not wait for the prefetches to complete.
+     */
+    void prefetchForQueuedNodes(ResolveState resolveState) {
+        int appendedCount = resolveState.getAppendedCount();
+        int newlyAppended = appendedCount - visitedAppendedCount;
+        visitedAppendedCount = appendedCount;
+        Iterator<NodeState> queuedNodes = resolveState.getQueuedNodesNewestFirst();
+        for (int i = 0; i < newlyAppended && queuedNodes.hasNext(); i++) {
+            NodeState queued = queuedNodes.next();
+            if (!queued.isTransitive() || !queued.getComponent().isSelected()) {
+                continue;
+            }
+            for (DependencyMetadata dependency : queued.getMetadata().getDependencies()) {
+                ModuleComponentIdentifier candidate = predictTarget(resolveState, dependency);
+                if (candidate != null && requested.add(candidate) && !delegate.isFetchingMetadataCheap(candidate)) {
+                    schedule(candidate);
+                }
+            }
+        }
+    }
+
+    private void schedule(final ModuleComponentIdentifier candidate) {
+        final CountDownLatch done = new CountDownLatch(1);
+        inFlight.put(candidate, done);
+        final BuildOperationRef parent = CurrentBuildOperationRef.instance().get();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!stopped) {
+                        buildOperationExecutor.run(new PrefetchMetadataOperation(delegate, candidate, parent));
+                    }
+                } catch (RuntimeException e) {
+                    // Ignore, the failure is reported should the component be selected
+                } finally {
+                    inFlight.remove(candidate);
+                    done.countDown();
+                }
+            }
+        });
+    }
+
+    /**
+     * Discards the prefetches which have not started yet.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void resolve(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata, BuildableComponentResolveResult result) {
+        CountDownLatch prefetch = inFlight.get(identifier);
+        if (prefetch != null) {
+            Uninterruptibles.awaitUninterruptibly(prefetch);
+        }
+        delegate.resolve(identifier, componentOverrideMetadata, result);
+    }
+
+    @Override
+    public boolean isFetchingMetadataCheap(ComponentIdentifier identifier) {
+        return delegate.isFetchingMetadataCheap(identifier);
+    }
+
+    private ModuleComponentIdentifier predictTarget(ResolveState resolveState, DependencyMetadata dependency) {
+        if (dependency.isConstraint() || dependency.isChanging() || !resolveState.getEdgeFilter().isSatisfiedBy(dependency)) {
+            return null;
+        }
+        ComponentSelector selector = dependency.getSelector();
+        if (!(selector instanceof ModuleComponentSelector)) {
+            return null;
+        }
+        ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+        if (resolveState.hasModule(moduleSelector.getModuleIdentifier())) {
+            // Selection already happened, or is in progress, for this module: nothing to predict
+            return null;
+        }
+        VersionConstraint constraint = moduleSelector.getVersionConstraint();
+        String version = constraint.getRequiredVersion();
+        if (Strings.isNullOrEmpty(version) || !constraint.getRejectedVersions().isEmpty() || constraint.getBranch() != null) {
+            return null;
+        }
+        String strictVersion = constraint.getStrictVersion();
+        if (!Strings.isNullOrEmpty(strictVersion) && !strictVersion.equals(version)) {
+            return null;
+        }
+        if (versionSelectorScheme.parseSelector(version).isDynamic()) {
+            return null;
+        }
+        return DefaultModuleComponentIdentifier.newId(moduleSelector.getModuleIdentifier(), version);
+    }
+}
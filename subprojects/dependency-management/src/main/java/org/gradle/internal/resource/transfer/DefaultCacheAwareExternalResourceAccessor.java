@@ -54,6 +54,7 @@
 public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExternalResourceAccessor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultCacheAwareExternalResourceAccessor.class);
+    public static final String CONDITIONAL_REVALIDATION_PROPERTY = "org.gradle.internal.resource.conditionalRevalidation";
 
     private final ExternalResourceRepository delegate;
     private final CachedExternalResourceIndex<String> cachedExternalResourceIndex;
@@ -64,8 +65,13 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
     private final ProducerGuard<ExternalResourceName> producerGuard;
     private final FileResourceRepository fileResourceRepository;
     private final ChecksumService checksumService;
+    private final boolean conditionalRevalidation;
 
     public DefaultCacheAwareExternalResourceAccessor(ExternalResourceRepository delegate, CachedExternalResourceIndex<String> cachedExternalResourceIndex, BuildCommencedTimeProvider timeProvider, TemporaryFileProvider temporaryFileProvider, ArtifactCacheLockingManager artifactCacheLockingManager, ExternalResourceCachePolicy externalResourceCachePolicy, ProducerGuard<ExternalResourceName> producerGuard, FileResourceRepository fileResourceRepository, ChecksumService checksumService) {
+        this(delegate, cachedExternalResourceIndex, timeProvider, temporaryFileProvider, artifactCacheLockingManager, externalResourceCachePolicy, producerGuard, fileResourceRepository, checksumService, Boolean.getBoolean(CONDITIONAL_REVALIDATION_PROPERTY));
+    }
+
+    DefaultCacheAwareExternalResourceAccessor(ExternalResourceRepository delegate, CachedExternalResourceIndex<String> cachedExternalResourceIndex, BuildCommencedTimeProvider timeProvider, TemporaryFileProvider temporaryFileProvider, ArtifactCacheLockingManager artifactCacheLockingManager, ExternalResourceCachePolicy externalResourceCachePolicy, ProducerGuard<ExternalResourceName> producerGuard, FileResourceRepository fileResourceRepository, ChecksumService checksumService, boolean conditionalRevalidation) {
         this.delegate = delegate;
         this.cachedExternalResourceIndex = cachedExternalResourceIndex;
         this.timeProvider = timeProvider;
@@ -75,6 +81,7 @@ public DefaultCacheAwareExternalResourceAccessor(ExternalResourceRepository dele
         this.producerGuard = producerGuard;
         this.fileResourceRepository = fileResourceRepository;
         this.checksumService = checksumService;
+        this.conditionalRevalidation = conditionalRevalidation;
     }
 
     @Nullable
@@ -94,6 +101,13 @@ public LocallyAvailableExternalResource getResource(final ExternalResourceName l
                 return fileResourceRepository.resource(cached.getCachedFile(), location.getUri(), cached.getExternalResourceMetaData());
             }
 
+            // We have a cached version, but it might be out of date. Without local candidates to compare checksums against,
+            // a conditional request transfers the resource only if it has changed, in a single round trip
+            boolean hasLocalCandidates = additionalCandidates != null && !additionalCandidates.isNone();
+            if (conditionalRevalidation && cached != null && cached.getExternalResourceMetaData() != null && !hasLocalCandidates) {
+                return revalidateCachedResource(location, fileStore, cached);
+            }
+
             // We have a cached version, but it might be out of date, so we tell the upstreams to revalidate too
             final boolean revalidate = true;
 
@@ -119,7 +133,6 @@ public LocallyAvailableExternalResource getResource(final ExternalResourceName l
             }
 
             // Either no cached, or it's changed. See if we can find something local with the same checksum
-            boolean hasLocalCandidates = additionalCandidates != null && !additionalCandidates.isNone();
             if (hasLocalCandidates) {
                 // The “remote” may have already given us the checksum
                 HashCode remoteChecksum = remoteMetaData.getSha1();
@@ -151,6 +164,32 @@ public LocallyAvailableExternalResource getResource(final ExternalResourceName l
         });
     }
 
+    @Nullable
+    private LocallyAvailableExternalResource revalidateCachedResource(ExternalResourceName location, ResourceFileStore fileStore, CachedExternalResource cached) {
+        DownloadAction downloadAction = new DownloadAction(location);
+        ExternalResourceReadResult<Object> result;
+        try {
+            result = delegate.withProgressLogging().resource(location, true).withContentIfChanged(cached.getExternalResourceMetaData(), downloadAction);
+        } catch (Exception e) {
+            throw ResourceExceptions.getFailed(location.getUri(), e);
+        }
+        if (result == null) {
+            return null;
+        }
+        if (result.isUnchanged()) {
+            LOGGER.info("Cached resource {} is up-to-date (lastModified: {}).", location, cached.getExternalLastModified());
+            // Update the cache entry in the index: this resets the age of the cached entry to zero
+            cachedExternalResourceIndex.store(location.toString(), cached.getCachedFile(), cached.getExternalResourceMetaData());
+            return fileResourceRepository.resource(cached.getCachedFile(), location.getUri(), cached.getExternalResourceMetaData());
+        }
+
+        try {
+            return moveIntoCache(location, downloadAction.destination, fileStore, downloadAction.metaData);
+        } finally {
+            downloadAction.destination.delete();
+        }
+    }
+
     @Nullable
     private HashCode getResourceSha1(ExternalResourceName location, boolean revalidate) {
         try {
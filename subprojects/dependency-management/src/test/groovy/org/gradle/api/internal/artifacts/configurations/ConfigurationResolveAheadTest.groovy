@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.configurations
+
+import org.gradle.api.artifacts.DependencySet
+import org.gradle.api.execution.TaskExecutionGraph
+import org.gradle.api.internal.DomainObjectContext
+import org.gradle.api.internal.GradleInternal
+import org.gradle.internal.model.ModelContainer
+import org.gradle.internal.work.WorkerLeaseService
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.util.Path
+
+class ConfigurationResolveAheadTest extends ConcurrentSpec {
+    def workerLeaseService = Mock(WorkerLeaseService) {
+        getMaxWorkerCount() >> 4
+    }
+    def resolveAhead = new ConfigurationResolveAhead(executorFactory, workerLeaseService)
+
+    def "resolves a copy of the configurations of each project while holding a worker lease and the project lock"() {
+        def model1 = Mock(ModelContainer)
+        def model2 = Mock(ModelContainer)
+        def copy1 = copy()
+        def copy2 = copy()
+        def copy3 = copy()
+        def conf1 = Mock(ConfigurationInternal) { copyRecursive() >> copy1 }
+        def conf2 = Mock(ConfigurationInternal) { copyRecursive() >> copy2 }
+        def conf3 = Mock(ConfigurationInternal) { copyRecursive() >> copy3 }
+
+        given:
+        resolveAhead.buildDependenciesResolved(conf1, project(model1))
+        resolveAhead.buildDependenciesResolved(conf2, project(model1))
+        resolveAhead.buildDependenciesResolved(conf3, project(model2))
+
+        when:
+        resolveAhead.graphPopulated(Stub(TaskExecutionGraph))
+        resolveAhead.buildFinished(Stub(GradleInternal))
+
+        then:
+        2 * workerLeaseService.withLocks(_, _ as Runnable) >> { locks, Runnable action -> action.run() }
+        2 * model1.withMutableState(_ as Runnable) >> { Runnable action -> action.run() }
+        1 * model2.withMutableState(_ as Runnable) >> { Runnable action -> action.run() }
+        1 * copy1.resolveGraph()
+        1 * copy2.resolveGraph()
+        1 * copy3.resolveGraph()
+        0 * conf1.resolveGraph()
+        0 * conf2.resolveGraph()
+        0 * conf3.resolveGraph()
+    }
+
+    def "does not resolve project dependencies ahead"() {
+        def model = Mock(ModelContainer)
+        def dependencies = Mock(DependencySet)
+        def copy = Mock(ConfigurationInternal) { getDependencies() >> dependencies }
+        def conf = Mock(ConfigurationInternal) { copyRecursive() >> copy }
+
+        given:
+        resolveAhead.buildDependenciesResolved(conf, project(model))
+
+        when:
+        resolveAhead.graphPopulated(Stub(TaskExecutionGraph))
+        resolveAhead.buildFinished(Stub(GradleInternal))
+
+        then:
+        1 * workerLeaseService.withLocks(_, _ as Runnable) >> { locks, Runnable action -> action.run() }
+        1 * model.withMutableState(_ as Runnable) >> { Runnable action -> action.run() }
+
+        then:
+        1 * dependencies.removeIf(_)
+
+        then:
+        1 * copy.resolveGraph()
+    }
+
+    def "ignores configurations which are not owned by a project"() {
+        def model = Mock(ModelContainer)
+        def script = Stub(DomainObjectContext) {
+            isScript() >> true
+            getModel() >> model
+        }
+        def conf = Mock(ConfigurationInternal)
+
+        given:
+        resolveAhead.buildDependenciesResolved(conf, script)
+
+        when:
+        resolveAhead.graphPopulated(Stub(TaskExecutionGraph))
+        resolveAhead.buildFinished(Stub(GradleInternal))
+
+        then:
+        0 * model._
+        0 * conf._
+    }
+
+    def "failures are not propagated"() {
+        def model = Mock(ModelContainer)
+        def copy = copy()
+        def conf = Mock(ConfigurationInternal) { copyRecursive() >> copy }
+
+        given:
+        resolveAhead.buildDependenciesResolved(conf, project(model))
+
+        when:
+        resolveAhead.graphPopulated(Stub(TaskExecutionGraph))
+        resolveAhead.buildFinished(Stub(GradleInternal))
+
+        then:
+        1 * workerLeaseService.withLocks(_, _ as Runnable) >> { locks, Runnable action -> action.run() }
+        1 * model.withMutableState(_ as Runnable) >> { Runnable action -> action.run() }
+        1 * copy.resolveGraph() >> { throw new RuntimeException("broken") }
+        noExceptionThrown()
+    }
+
+    private ConfigurationInternal copy() {
+        Mock(ConfigurationInternal) {
+            getDependencies() >> Stub(DependencySet)
+        }
+    }
+
+    private DomainObjectContext project(ModelContainer model) {
+        Stub(DomainObjectContext) {
+            isScript() >> false
+            getProjectPath() >> Path.path(":p")
+            getModel() >> model
+        }
+    }
+}
@@ -87,6 +87,7 @@ class DefaultConfigurationSpec extends Specification {
     def configurationsProvider = Mock(ConfigurationsProvider)
     def resolver = Mock(ConfigurationResolver)
     def listenerManager = Mock(ListenerManager)
+    def buildDependenciesListener = Mock(ConfigurationBuildDependenciesListener)
     def metaDataProvider = Mock(DependencyMetaDataProvider)
     def resolutionStrategy = Mock(ResolutionStrategyInternal)
     def projectAccessListener = Mock(ProjectAccessListener)
@@ -99,6 +100,7 @@ class DefaultConfigurationSpec extends Specification {
 
     def setup() {
         _ * listenerManager.createAnonymousBroadcaster(DependencyResolutionListener) >> { new AnonymousListenerBroadcast<DependencyResolutionListener>(DependencyResolutionListener) }
+        _ * listenerManager.getBroadcaster(ConfigurationBuildDependenciesListener) >> buildDependenciesListener
         _ * resolver.getRepositories() >> []
         _ * projectStateRegistry.newExclusiveOperationLock() >> safeLock
         _ * safeLock.withLock(_) >> { args -> args[0].run() }
@@ -1156,6 +1158,23 @@ class DefaultConfigurationSpec extends Specification {
         0 * resolver._
     }
 
+    def "notifies listeners when task dependencies are determined without resolving the graph"() {
+        def config = conf("conf")
+
+        given:
+        _ * resolutionStrategy.resolveGraphToDetermineTaskDependencies() >> false
+        _ * resolver.resolveBuildDependencies(config, _) >> { ConfigurationInternal c, ResolverResults r ->
+            r.graphResolved(Stub(ResolutionResult), Stub(ResolvedLocalComponentsResult), visitedArtifacts())
+        }
+
+        when:
+        config.getBuildDependencies().getDependencies(null)
+        config.getBuildDependencies().getDependencies(null)
+
+        then:
+        1 * buildDependenciesListener.buildDependenciesResolved(config, _)
+    }
+
     def "resolving graph for task dependencies, and then resolving it for results does not re-resolve graph"() {
         def config = conf("conf")
 
@@ -261,4 +261,32 @@ abstract class AbstractDefaultVersionComparatorTest extends Specification {
         def versionComparator = comparator.asVersionComparator()
         versionComparator.compare(v1, v2) < 0
     }
+
+    def "compares parsed versions the same way as other Version implementations"() {
+        def versionComparator = comparator.asVersionComparator()
+        def parsed1 = versionParser.transform(v1)
+        def parsed2 = versionParser.transform(v2)
+        def other1 = Stub(Version) {
+            getParts() >> parsed1.parts
+            getNumericParts() >> parsed1.numericParts
+        }
+        def other2 = Stub(Version) {
+            getParts() >> parsed2.parts
+            getNumericParts() >> parsed2.numericParts
+        }
+
+        expect:
+        Math.signum(versionComparator.compare(parsed1, parsed2)) == Math.signum(versionComparator.compare(other1, other2))
+        Math.signum(versionComparator.compare(parsed2, parsed1)) == Math.signum(versionComparator.compare(other2, other1))
+
+        where:
+        v1             | v2
+        "1.0"          | "1.0.1"
+        "1.0-RC"       | "1.0-final"
+        "1.0-Dev"      | "1.0-a"
+        "1.0-SNAPSHOT" | "1.0-sp"
+        "1.0.a"        | "1.0.B"
+        "1.01"         | "1.1"
+        "2.0-ga"       | "2.0-release"
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.simple
+
+import spock.lang.Specification
+
+class IndexedSetTest extends Specification {
+    def index = new DenseIndex<String>()
+
+    def "behaves like a regular set"() {
+        def set = IndexedSet.of(index, ["a", "b", "c"])
+
+        expect:
+        set.size() == 3
+        set.contains("b")
+        !set.contains("d")
+        !set.contains(null)
+        set as List == ["a", "b", "c"]
+        set == ["c", "b", "a"] as Set
+        ["c", "b", "a"] as Set == set
+        set.hashCode() == (["a", "b", "c"] as Set).hashCode()
+    }
+
+    def "reuses indexed sets sharing the same index"() {
+        def set = IndexedSet.of(index, ["a", "b"])
+
+        expect:
+        IndexedSet.of(index, set).is(set)
+        !IndexedSet.of(new DenseIndex<String>(), set).is(set)
+    }
+
+    def "computes unions and intersections of sets sharing the same index"() {
+        def one = IndexedSet.of(index, ["a", "b", "c"])
+        def two = IndexedSet.of(index, ["b", "c", "d"])
+        def three = IndexedSet.of(index, ["e"])
+
+        expect:
+        IndexedSet.unionOf([one, two, three]) == ["a", "b", "c", "d", "e"] as Set
+        IndexedSet.intersectionOf(one, two) == ["b", "c"] as Set
+        IndexedSet.intersectionOf(one, three).empty
+    }
+
+    def "does not combine sets which are not indexed or use different indices"() {
+        def one = IndexedSet.of(index, ["a", "b"])
+        def other = IndexedSet.of(new DenseIndex<String>(), ["a", "b"])
+
+        expect:
+        IndexedSet.unionOf([one, ["c"] as Set]) == null
+        IndexedSet.unionOf([one, other]) == null
+        IndexedSet.intersectionOf(one, other) == null
+        one == other
+    }
+
+    def "assigns dense indices"() {
+        when:
+        (0..<200).each { index.index("v$it".toString()) }
+
+        then:
+        index.indexOf("v0") == 0
+        index.indexOf("v199") == 199
+        index.get(150) == "v150"
+        index.indexOf("unknown") == -1
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder
+
+import org.gradle.api.artifacts.VersionConstraint
+import org.gradle.api.internal.FeaturePreviews
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.dependencies.DefaultImmutableVersionConstraint
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser
+import org.gradle.api.specs.Specs
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.ComponentOverrideMetadata
+import org.gradle.internal.component.model.ConfigurationMetadata
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+
+class SpeculativeMetadataPrefetcherTest extends Specification {
+    def metaDataResolver = Mock(ComponentMetaDataResolver)
+    def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator(new FeaturePreviews()), new VersionParser())
+    def resolveState = Mock(ResolveState)
+    def scheduled = []
+    def executor = { Runnable action -> scheduled << action } as Executor
+    def prefetcher = new SpeculativeMetadataPrefetcher(metaDataResolver, versionSelectorScheme, new TestBuildOperationExecutor(), executor)
+    def queue = []
+
+    def setup() {
+        _ * resolveState.getEdgeFilter() >> Specs.satisfyAll()
+        _ * resolveState.getQueuedNodesNewestFirst() >> { queue.reverse().iterator() }
+        _ * resolveState.getAppendedCount() >> { queue.size() }
+    }
+
+    def "prefetches static versions of modules not seen yet in the background"() {
+        given:
+        queued(dependency("org", "a", "1.0"), dependency("org", "b", "2.0"))
+
+        when:
+        prefetcher.prefetchForQueuedNodes(resolveState)
+
+        then:
+        1 * metaDataResolver.isFetchingMetadataCheap(id("org", "a", "1.0")) >> false
+        1 * metaDataResolver.isFetchingMetadataCheap(id("org", "b", "2.0")) >> false
+        0 * metaDataResolver.resolve(_, _, _)
+        scheduled.size() == 2
+
+        when:
+        scheduled*.run()
+
+        then:
+        1 * metaDataResolver.resolve(id("org", "a", "1.0"), _, _)
+        1 * metaDataResolver.resolve(id("org", "b", "2.0"), _, _)
+    }
+
+    def "does not prefetch dynamic, rejecting or already selected modules"() {
+        given:
+        queued(
+            dependency("org", "dynamic", "1.+"),
+            dependency("org", "rejecting", DefaultImmutableVersionConstraint.of("", "1.0", "", ["1.1"])),
+            dependency("org", "seen", "1.0")
+        )
+        resolveState.hasModule(DefaultModuleIdentifier.newId("org", "seen")) >> true
+
+        when:
+        prefetcher.prefetchForQueuedNodes(resolveState)
+
+        then:
+        scheduled.empty
+        0 * metaDataResolver.isFetchingMetadataCheap(_)
+    }
+
+    def "does not prefetch metadata which is cheap to fetch or already requested"() {
+        given:
+        queued(dependency("org", "cheap", "1.0"), dependency("org", "a", "1.0"))
+        queued(dependency("org", "a", "1.0"))
+        metaDataResolver.isFetchingMetadataCheap(id("org", "cheap", "1.0")) >> true
+
+        when:
+        prefetcher.prefetchForQueuedNodes(resolveState)
+
+        then:
+        scheduled.size() == 1
+    }
+
+    def "visits each queued node only once"() {
+        given:
+        def first = queued(dependency("org", "a", "1.0"))
+
+        when:
+        prefetcher.prefetchForQueuedNodes(resolveState)
+        queued(dependency("org", "b", "1.0"))
+        prefetcher.prefetchForQueuedNodes(resolveState)
+
+        then:
+        1 * first.getMetadata() >> Stub(ConfigurationMetadata) { getDependencies() >> [dependency("org", "a", "1.0")] }
+        scheduled.size() == 2
+    }
+
+    def "discards prefetches that have not started when stopped"() {
+        given:
+        queued(dependency("org", "a", "1.0"))
+        prefetcher.prefetchForQueuedNodes(resolveState)
+
+        when:
+        prefetcher.stop()
+        scheduled*.run()
+
+        then:
+        0 * metaDataResolver.resolve(_, _, _)
+    }
+
+    def "resolving a component waits for its prefetch to complete"() {
+        given:
+        queued(dependency("org", "a", "1.0"))
+        prefetcher.prefetchForQueuedNodes(resolveState)
+        def result = Stub(BuildableComponentResolveResult)
+        def resolving = new Thread({ prefetcher.resolve(id("org", "a", "1.0"), Stub(ComponentOverrideMetadata), result) })
+
+        when:
+        resolving.start()
+        resolving.join(100)
+
+        then:
+        resolving.alive
+
+        when:
+        scheduled*.run()
+        resolving.join()
+
+        then:
+        2 * metaDataResolver.resolve(id("org", "a", "1.0"), _, _)
+    }
+
+    private NodeState queued(DependencyMetadata... dependencies) {
+        def component = Stub(ComponentState) {
+            isSelected() >> true
+        }
+        def metadata = Stub(ConfigurationMetadata) {
+            getDependencies() >> (dependencies as List)
+        }
+        def node = Mock(NodeState) {
+            isTransitive() >> true
+            getComponent() >> component
+            getMetadata() >> metadata
+        }
+        queue << node
+        node
+    }
+
+    private DependencyMetadata dependency(String group, String name, String version) {
+        dependency(group, name, DefaultImmutableVersionConstraint.of(version))
+    }
+
+    private DependencyMetadata dependency(String group, String name, VersionConstraint version) {
+        Stub(DependencyMetadata) {
+            getSelector() >> DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId(group, name), version)
+        }
+    }
+
+    private static id(String group, String name, String version) {
+        DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId(group, name), version)
+    }
+}
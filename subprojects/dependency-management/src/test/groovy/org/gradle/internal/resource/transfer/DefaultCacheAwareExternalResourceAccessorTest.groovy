@@ -249,6 +249,71 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         0 * _._
     }
 
+    def "reuses cached resource if conditional revalidation reports it unchanged"() {
+        given:
+        def cache = new DefaultCacheAwareExternalResourceAccessor(repository, index, timeProvider, temporaryFileProvider, cacheLockingManager, cachePolicy, producerGuard, fileRepository, TestUtil.checksumService, true)
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cachedMetaData = Stub(ExternalResourceMetaData)
+        def remoteResource = Mock(ExternalResource)
+        def location = new ExternalResourceName("thing")
+        def resultResource = Stub(LocallyAvailableExternalResource)
+
+        when:
+        def result = cache.getResource(location, null, fileStore, null)
+
+        then:
+        result == resultResource
+
+        and:
+        1 * index.lookup("thing") >> Stub(CachedExternalResource) {
+            getCachedAt() >> 23999L
+            getExternalResourceMetaData() >> cachedMetaData
+            getCachedFile() >> cachedFile
+        }
+        timeProvider.currentTime >> 24000L
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.resource(location, true) >> remoteResource
+        1 * remoteResource.withContentIfChanged(cachedMetaData, _) >> ExternalResourceReadResult.unchanged()
+        1 * index.store("thing", cachedFile, cachedMetaData)
+        1 * fileRepository.resource(cachedFile, location.uri, cachedMetaData) >> resultResource
+        0 * _._
+    }
+
+    def "downloads resource if conditional revalidation reports it changed"() {
+        given:
+        def cache = new DefaultCacheAwareExternalResourceAccessor(repository, index, timeProvider, temporaryFileProvider, cacheLockingManager, cachePolicy, producerGuard, fileRepository, TestUtil.checksumService, true)
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cachedMetaData = Stub(ExternalResourceMetaData)
+        def remoteMetaData = Stub(ExternalResourceMetaData)
+        def remoteResource = Mock(ExternalResource)
+        def location = new ExternalResourceName("thing")
+        def localResource = new DefaultLocallyAvailableResource(cachedFile, TestUtil.checksumService)
+        def resultResource = Stub(LocallyAvailableExternalResource)
+
+        when:
+        def result = cache.getResource(location, null, fileStore, null)
+
+        then:
+        result == resultResource
+
+        and:
+        1 * index.lookup("thing") >> Stub(CachedExternalResource) {
+            getCachedAt() >> 23999L
+            getExternalResourceMetaData() >> cachedMetaData
+            getCachedFile() >> cachedFile
+        }
+        timeProvider.currentTime >> 24000L
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.resource(location, true) >> remoteResource
+        1 * remoteResource.withContentIfChanged(cachedMetaData, _) >> { ExternalResourceMetaData previous, ExternalResource.ContentAction a ->
+            ExternalResourceReadResult.of(0, a.execute(new ByteArrayInputStream(), remoteMetaData))
+        }
+        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * index.store("thing", cachedFile, remoteMetaData)
+        1 * fileRepository.resource(cachedFile, location.uri, remoteMetaData) >> resultResource
+        0 * _._
+    }
+
     def "will download sha1 for finding candidates if not available in meta-data"() {
         given:
         def localCandidates = Mock(LocallyAvailableResourceCandidates)
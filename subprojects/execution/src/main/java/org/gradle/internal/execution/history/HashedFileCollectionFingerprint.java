@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history;
+
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
+import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.hash.HashCode;
+
+/**
+ * A file collection fingerprint from a previous execution which knows the combined hash of its contents.
+ *
+ * The combined hash and the root hashes are available without loading the individual file fingerprints,
+ * so that unchanged file collections can be detected without comparing each file.
+ */
+public interface HashedFileCollectionFingerprint extends FileCollectionFingerprint {
+    /**
+     * The combined hash of the contents, as calculated by {@link CurrentFileCollectionFingerprint#getHash()}.
+     */
+    HashCode getHash();
+
+    /**
+     * The identifier of the strategy used to calculate the fingerprint.
+     */
+    String getStrategyIdentifier();
+
+    /**
+     * Whether the individual file fingerprints could not be loaded, in which case {@link #getFingerprints()} is empty. Loads the file fingerprints.
+     */
+    boolean isMissingFingerprints();
+}
@@ -18,6 +18,8 @@
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Iterables;
+import org.gradle.internal.execution.history.HashedFileCollectionFingerprint;
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 import org.gradle.internal.fingerprint.FileCollectionFingerprint;
 import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
 import org.gradle.internal.hash.HashCode;
@@ -29,13 +31,30 @@ public abstract class AbstractFingerprintCompareStrategy implements FingerprintC
 
     @Override
     public boolean visitChangesSince(FileCollectionFingerprint current, FileCollectionFingerprint previous, String propertyTitle, ChangeVisitor visitor) {
-        if (hasSameRootHashes(current, previous)) {
+        if (hasSameRootHashes(current, previous) || hasSameHash(current, previous)) {
             return true;
         }
+        if (previous instanceof HashedFileCollectionFingerprint && ((HashedFileCollectionFingerprint) previous).isMissingFingerprints()) {
+            // Without the previous file fingerprints, the changes cannot be determined file by file
+            return visitor.visitChange(new DescriptiveChange("%s file fingerprints of the previous execution are not available.", propertyTitle));
+        }
         return visitChangesSince(current.getFingerprints(), previous.getFingerprints(), propertyTitle, visitor);
     }
 
-    private boolean hasSameRootHashes(FileCollectionFingerprint current, FileCollectionFingerprint previous) {
+    /**
+     * Compares the combined hashes when the previous fingerprint knows it, so that the individual file fingerprints don't need to be loaded.
+     */
+    private static boolean hasSameHash(FileCollectionFingerprint current, FileCollectionFingerprint previous) {
+        if (!(current instanceof CurrentFileCollectionFingerprint) || !(previous instanceof HashedFileCollectionFingerprint)) {
+            return false;
+        }
+        CurrentFileCollectionFingerprint currentFingerprint = (CurrentFileCollectionFingerprint) current;
+        HashedFileCollectionFingerprint previousFingerprint = (HashedFileCollectionFingerprint) previous;
+        return currentFingerprint.getStrategyIdentifier().equals(previousFingerprint.getStrategyIdentifier())
+            && currentFingerprint.getHash().equals(previousFingerprint.getHash());
+    }
+
+    private static boolean hasSameRootHashes(FileCollectionFingerprint current, FileCollectionFingerprint previous) {
         return Iterables.elementsEqual(current.getRootHashes().entries(), previous.getRootHashes().entries());
     }
 
@@ -27,32 +27,74 @@
 import org.gradle.internal.execution.history.ExecutionHistoryStore;
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.snapshot.ValueSnapshot;
 import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
 
+import javax.annotation.Nullable;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
-import static com.google.common.collect.ImmutableSortedMap.copyOfSorted;
-import static com.google.common.collect.Maps.transformValues;
-
+/**
+ * Stores execution history entries without their file fingerprints, which are stored separately, keyed by the entry key and their content hash.
+ * An entry only references the fingerprints of its file properties, so the fingerprints of properties which did not change since the
+ * previous execution are not written again.
+ *
+ * The combined hash and the root hashes of each file property are kept in the entry, and the file fingerprints are only loaded
+ * when they are queried. This way unchanged properties can be detected without loading their file fingerprints.
+ */
 public class DefaultExecutionHistoryStore implements ExecutionHistoryStore {
 
     private final PersistentIndexedCache<String, AfterPreviousExecutionState> store;
+    private final PersistentIndexedCache<String, Map<String, FileSystemLocationFingerprint>> fingerprints;
 
     public DefaultExecutionHistoryStore(ExecutionHistoryCacheAccess executionHistoryCacheAccess, StringInterner stringInterner) {
         DefaultPreviousExecutionStateSerializer serializer = new DefaultPreviousExecutionStateSerializer(
-            new FileCollectionFingerprintSerializer(stringInterner));
+            new FingerprintReferenceSerializer(stringInterner));
 
         this.store = executionHistoryCacheAccess.createCache(
             PersistentIndexedCacheParameters.of("executionHistory", String.class, serializer),
             10000,
             false
         );
+        this.fingerprints = executionHistoryCacheAccess.createCache(
+            PersistentIndexedCacheParameters.of("executionHistoryFingerprints", String.class, new FingerprintMapSerializer(stringInterner)),
+            10000,
+            false
+        );
     }
 
     @Override
     public Optional<AfterPreviousExecutionState> load(String key) {
-        return Optional.ofNullable(store.get(key));
+        AfterPreviousExecutionState entry = store.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new DefaultAfterPreviousExecutionState(
+            entry.getOriginMetadata(),
+            entry.getImplementation(),
+            entry.getAdditionalImplementations(),
+            entry.getInputProperties(),
+            resolveReferences(key, entry.getInputFileProperties()),
+            resolveReferences(key, entry.getOutputFileProperties()),
+            entry.isSuccessful()
+        ));
+    }
+
+    private ImmutableSortedMap<String, FileCollectionFingerprint> resolveReferences(String key, ImmutableSortedMap<String, FileCollectionFingerprint> references) {
+        ImmutableSortedMap.Builder<String, FileCollectionFingerprint> builder = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<String, FileCollectionFingerprint> entry : references.entrySet()) {
+            FileCollectionFingerprint fingerprint = entry.getValue();
+            if (fingerprint instanceof FingerprintReference) {
+                FingerprintReference reference = (FingerprintReference) fingerprint;
+                fingerprint = new LazyFileCollectionFingerprint(reference, () -> fingerprints.get(fingerprintKey(key, reference.getContentHash())));
+            }
+            builder.put(entry.getKey(), fingerprint);
+        }
+        return builder.build();
     }
 
     @Override
@@ -66,26 +108,78 @@ public void store(
         ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputFileProperties,
         boolean successful
     ) {
+        Set<HashCode> previouslyStored = storedFingerprints(store.get(key));
+        Set<HashCode> stored = new HashSet<>();
+        ImmutableSortedMap<String, FileCollectionFingerprint> inputFileReferences = storeFingerprints(key, inputFileProperties, previouslyStored, stored);
+        ImmutableSortedMap<String, FileCollectionFingerprint> outputFileReferences = storeFingerprints(key, outputFileProperties, previouslyStored, stored);
+        // Fingerprints are written before the entry referencing them
         store.put(key, new DefaultAfterPreviousExecutionState(
             originMetadata,
             implementation,
             additionalImplementations,
             inputProperties,
-            prepareForSerialization(inputFileProperties),
-            prepareForSerialization(outputFileProperties),
+            inputFileReferences,
+            outputFileReferences,
             successful
         ));
+        previouslyStored.removeAll(stored);
+        removeFingerprints(key, previouslyStored);
+    }
+
+    private ImmutableSortedMap<String, FileCollectionFingerprint> storeFingerprints(
+        String key,
+        ImmutableSortedMap<String, CurrentFileCollectionFingerprint> fingerprintsToStore,
+        Set<HashCode> previouslyStored,
+        Set<HashCode> stored
+    ) {
+        ImmutableSortedMap.Builder<String, FileCollectionFingerprint> builder = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<String, CurrentFileCollectionFingerprint> entry : fingerprintsToStore.entrySet()) {
+            CurrentFileCollectionFingerprint fingerprint = entry.getValue();
+            if (fingerprint.isEmpty()) {
+                builder.put(entry.getKey(), FileCollectionFingerprint.EMPTY);
+                continue;
+            }
+            FingerprintReference reference = FingerprintReference.of(fingerprint);
+            HashCode contentHash = reference.getContentHash();
+            if (stored.add(contentHash) && !previouslyStored.contains(contentHash)) {
+                fingerprints.put(fingerprintKey(key, contentHash), fingerprint.getFingerprints());
+            }
+            builder.put(entry.getKey(), reference);
+        }
+        return builder.build();
     }
 
     @Override
     public void remove(String key) {
+        Set<HashCode> previouslyStored = storedFingerprints(store.get(key));
         store.remove(key);
+        removeFingerprints(key, previouslyStored);
+    }
+
+    private void removeFingerprints(String key, Set<HashCode> contentHashes) {
+        for (HashCode contentHash : contentHashes) {
+            fingerprints.remove(fingerprintKey(key, contentHash));
+        }
+    }
+
+    private static Set<HashCode> storedFingerprints(@Nullable AfterPreviousExecutionState entry) {
+        Set<HashCode> contentHashes = new HashSet<>();
+        if (entry != null) {
+            collectReferences(entry.getInputFileProperties(), contentHashes);
+            collectReferences(entry.getOutputFileProperties(), contentHashes);
+        }
+        return contentHashes;
+    }
+
+    private static void collectReferences(ImmutableSortedMap<String, FileCollectionFingerprint> fingerprints, Set<HashCode> contentHashes) {
+        for (FileCollectionFingerprint fingerprint : fingerprints.values()) {
+            if (fingerprint instanceof FingerprintReference) {
+                contentHashes.add(((FingerprintReference) fingerprint).getContentHash());
+            }
+        }
     }
 
-    private static ImmutableSortedMap<String, FileCollectionFingerprint> prepareForSerialization(ImmutableSortedMap<String, CurrentFileCollectionFingerprint> fingerprints) {
-        return copyOfSorted(transformValues(fingerprints, value -> {
-            //noinspection ConstantConditions
-            return new SerializableFileCollectionFingerprint(value.getFingerprints(), value.getRootHashes());
-        }));
+    private static String fingerprintKey(String key, HashCode contentHash) {
+        return key + ":" + contentHash;
     }
 }
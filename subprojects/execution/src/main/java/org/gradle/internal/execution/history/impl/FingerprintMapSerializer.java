@@ -17,10 +17,10 @@
 package org.gradle.internal.execution.history.impl;
 
 import com.google.common.base.Objects;
-import com.google.common.collect.ImmutableMap;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.fingerprint.impl.CompactFingerprintMap;
 import org.gradle.internal.fingerprint.impl.DefaultFileSystemLocationFingerprint;
 import org.gradle.internal.fingerprint.impl.IgnoredPathFileSystemLocationFingerprint;
 import org.gradle.internal.hash.HashCode;
@@ -50,7 +50,7 @@ public FingerprintMapSerializer(StringInterner stringInterner) {
     @Override
     public Map<String, FileSystemLocationFingerprint> read(Decoder decoder) throws IOException {
         int fingerprintCount = decoder.readSmallInt();
-        ImmutableMap.Builder<String, FileSystemLocationFingerprint> fingerprints = ImmutableMap.builderWithExpectedSize(fingerprintCount);
+        CompactFingerprintMap.Builder fingerprints = CompactFingerprintMap.builderWithExpectedSize(fingerprintCount);
         for (int i = 0; i < fingerprintCount; i++) {
             String absolutePath = stringInterner.intern(decoder.readString());
             FileSystemLocationFingerprint fingerprint = readFingerprint(decoder);
@@ -105,10 +105,9 @@ private FileType readFileType(Decoder decoder) throws IOException {
     @Override
     public void write(Encoder encoder, Map<String, FileSystemLocationFingerprint> value) throws Exception {
         encoder.writeSmallInt(value.size());
-        for (String key : value.keySet()) {
-            encoder.writeString(key);
-            FileSystemLocationFingerprint fingerprint = value.get(key);
-            writeFingerprint(encoder, fingerprint);
+        for (Map.Entry<String, FileSystemLocationFingerprint> entry : value.entrySet()) {
+            encoder.writeString(entry.getKey());
+            writeFingerprint(encoder, entry.getValue());
         }
     }
 
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.collect.ImmutableMultimap;
+import org.gradle.internal.execution.history.HashedFileCollectionFingerprint;
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+
+import java.util.Map;
+
+/**
+ * Stands for a file collection fingerprint whose file fingerprints are stored separately from the execution history entry, under its content hash.
+ * The combined hash and the root hashes are kept in the entry, so they are available without loading the file fingerprints.
+ */
+class FingerprintReference implements HashedFileCollectionFingerprint {
+    private final String strategyIdentifier;
+    private final HashCode hash;
+    private final ImmutableMultimap<String, HashCode> rootHashes;
+    private final HashCode contentHash;
+
+    FingerprintReference(String strategyIdentifier, HashCode hash, ImmutableMultimap<String, HashCode> rootHashes) {
+        this.strategyIdentifier = strategyIdentifier;
+        this.hash = hash;
+        this.rootHashes = rootHashes;
+        this.contentHash = contentHash(strategyIdentifier, hash, rootHashes);
+    }
+
+    static FingerprintReference of(CurrentFileCollectionFingerprint fingerprint) {
+        return new FingerprintReference(fingerprint.getStrategyIdentifier(), fingerprint.getHash(), fingerprint.getRootHashes());
+    }
+
+    /**
+     * The combined hash only covers the normalized paths, so the roots, which determine the absolute paths, are hashed as well.
+     */
+    private static HashCode contentHash(String strategyIdentifier, HashCode hash, ImmutableMultimap<String, HashCode> rootHashes) {
+        Hasher hasher = Hashing.newHasher();
+        hasher.putString(strategyIdentifier);
+        hasher.putHash(hash);
+        for (Map.Entry<String, HashCode> root : rootHashes.entries()) {
+            hasher.putString(root.getKey());
+            hasher.putHash(root.getValue());
+        }
+        return hasher.hash();
+    }
+
+    HashCode getContentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public HashCode getHash() {
+        return hash;
+    }
+
+    @Override
+    public String getStrategyIdentifier() {
+        return strategyIdentifier;
+    }
+
+    @Override
+    public ImmutableMultimap<String, HashCode> getRootHashes() {
+        return rootHashes;
+    }
+
+    @Override
+    public Map<String, FileSystemLocationFingerprint> getFingerprints() {
+        throw new IllegalStateException("Fingerprint " + contentHash + " has not been loaded.");
+    }
+
+    @Override
+    public boolean isMissingFingerprints() {
+        throw new IllegalStateException("Fingerprint " + contentHash + " has not been loaded.");
+    }
+
+    @Override
+    public String toString() {
+        return "ref:" + contentHash;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.collect.ImmutableMultimap;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+
+import java.util.Map;
+
+/**
+ * Serializes file collection fingerprints of an execution history entry as references to separately stored file fingerprints.
+ * Empty fingerprints are inlined.
+ */
+class FingerprintReferenceSerializer extends AbstractSerializer<FileCollectionFingerprint> {
+    private final StringInterner stringInterner;
+    private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
+
+    FingerprintReferenceSerializer(StringInterner stringInterner) {
+        this.stringInterner = stringInterner;
+    }
+
+    @Override
+    public FileCollectionFingerprint read(Decoder decoder) throws Exception {
+        if (!decoder.readBoolean()) {
+            return FileCollectionFingerprint.EMPTY;
+        }
+        String strategyIdentifier = stringInterner.intern(decoder.readString());
+        HashCode hash = hashCodeSerializer.read(decoder);
+        int numberOfRoots = decoder.readSmallInt();
+        ImmutableMultimap.Builder<String, HashCode> rootHashes = ImmutableMultimap.builder();
+        for (int i = 0; i < numberOfRoots; i++) {
+            String absolutePath = stringInterner.intern(decoder.readString());
+            rootHashes.put(absolutePath, hashCodeSerializer.read(decoder));
+        }
+        return new FingerprintReference(strategyIdentifier, hash, rootHashes.build());
+    }
+
+    @Override
+    public void write(Encoder encoder, FileCollectionFingerprint value) throws Exception {
+        if (value instanceof FingerprintReference) {
+            FingerprintReference reference = (FingerprintReference) value;
+            encoder.writeBoolean(true);
+            encoder.writeString(reference.getStrategyIdentifier());
+            hashCodeSerializer.write(encoder, reference.getHash());
+            encoder.writeSmallInt(reference.getRootHashes().size());
+            for (Map.Entry<String, HashCode> entry : reference.getRootHashes().entries()) {
+                encoder.writeString(entry.getKey());
+                hashCodeSerializer.write(encoder, entry.getValue());
+            }
+        } else if (value.getFingerprints().isEmpty()) {
+            encoder.writeBoolean(false);
+        } else {
+            throw new IllegalArgumentException("Cannot write fingerprint which has not been stored: " + value);
+        }
+    }
+}
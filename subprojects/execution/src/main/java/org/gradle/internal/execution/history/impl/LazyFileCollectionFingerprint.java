@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.collect.ImmutableMultimap;
+import org.gradle.internal.execution.history.HashedFileCollectionFingerprint;
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.hash.HashCode;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A file collection fingerprint loaded from the execution history, which only loads its file fingerprints when they are first queried.
+ */
+class LazyFileCollectionFingerprint implements HashedFileCollectionFingerprint {
+    private final FingerprintReference reference;
+    private final Supplier<Map<String, FileSystemLocationFingerprint>> loader;
+    private volatile Map<String, FileSystemLocationFingerprint> fingerprints;
+    private volatile boolean missingFingerprints;
+
+    /**
+     * @param loader loads the file fingerprints, or returns {@code null} when they are missing.
+     */
+    LazyFileCollectionFingerprint(FingerprintReference reference, Supplier<Map<String, FileSystemLocationFingerprint>> loader) {
+        this.reference = reference;
+        this.loader = loader;
+    }
+
+    FingerprintReference getReference() {
+        return reference;
+    }
+
+    @Override
+    public Map<String, FileSystemLocationFingerprint> getFingerprints() {
+        Map<String, FileSystemLocationFingerprint> result = fingerprints;
+        if (result == null) {
+            result = loader.get();
+            if (result == null) {
+                missingFingerprints = true;
+                result = Collections.emptyMap();
+            }
+            fingerprints = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isMissingFingerprints() {
+        getFingerprints();
+        return missingFingerprints;
+    }
+
+    @Override
+    public HashCode getHash() {
+        return reference.getHash();
+    }
+
+    @Override
+    public String getStrategyIdentifier() {
+        return reference.getStrategyIdentifier();
+    }
+
+    @Override
+    public ImmutableMultimap<String, HashCode> getRootHashes() {
+        return reference.getRootHashes();
+    }
+
+    @Override
+    public String toString() {
+        return reference.toString();
+    }
+}
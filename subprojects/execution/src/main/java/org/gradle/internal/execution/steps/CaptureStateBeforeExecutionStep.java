@@ -37,9 +37,11 @@
 import org.gradle.internal.fingerprint.overlap.OverlappingOutputDetector;
 import org.gradle.internal.fingerprint.overlap.OverlappingOutputs;
 import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
+import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.BuildOperationType;
+import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.snapshot.FileSystemSnapshot;
 import org.gradle.internal.snapshot.ValueSnapshot;
 import org.gradle.internal.snapshot.ValueSnapshotter;
@@ -47,15 +49,24 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public class CaptureStateBeforeExecutionStep extends BuildOperationStep<AfterPreviousExecutionContext, CachingResult> {
     private static final Logger LOGGER = LoggerFactory.getLogger(CaptureStateBeforeExecutionStep.class);
 
+    /**
+     * When set, the input file properties of a unit of work are fingerprinted concurrently, using the worker leases available to the build.
+     */
+    public static final String PARALLEL_INPUT_FINGERPRINTING_PROPERTY = "org.gradle.internal.execution.parallelInputFingerprinting";
+
+    private final BuildOperationExecutor buildOperationExecutor;
     private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
     private final ValueSnapshotter valueSnapshotter;
     private final OverlappingOutputDetector overlappingOutputDetector;
+    private final boolean parallelInputFingerprinting;
     private final Step<? super BeforeExecutionContext, ? extends CachingResult> delegate;
 
     public CaptureStateBeforeExecutionStep(
@@ -64,11 +75,24 @@ public CaptureStateBeforeExecutionStep(
         ValueSnapshotter valueSnapshotter,
         OverlappingOutputDetector overlappingOutputDetector,
         Step<? super BeforeExecutionContext, ? extends CachingResult> delegate
+    ) {
+        this(buildOperationExecutor, classLoaderHierarchyHasher, valueSnapshotter, overlappingOutputDetector, Boolean.getBoolean(PARALLEL_INPUT_FINGERPRINTING_PROPERTY), delegate);
+    }
+
+    public CaptureStateBeforeExecutionStep(
+        BuildOperationExecutor buildOperationExecutor,
+        ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
+        ValueSnapshotter valueSnapshotter,
+        OverlappingOutputDetector overlappingOutputDetector,
+        boolean parallelInputFingerprinting,
+        Step<? super BeforeExecutionContext, ? extends CachingResult> delegate
     ) {
         super(buildOperationExecutor);
+        this.buildOperationExecutor = buildOperationExecutor;
         this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
         this.valueSnapshotter = valueSnapshotter;
         this.overlappingOutputDetector = overlappingOutputDetector;
+        this.parallelInputFingerprinting = parallelInputFingerprinting;
         this.delegate = delegate;
     }
 
@@ -183,15 +207,22 @@ private static ImmutableSortedMap<String, ValueSnapshot> fingerprintInputPropert
         return builder.build();
     }
 
-    private static ImmutableSortedMap<String, CurrentFileCollectionFingerprint> fingerprintInputFiles(UnitOfWork work) {
+    private ImmutableSortedMap<String, CurrentFileCollectionFingerprint> fingerprintInputFiles(UnitOfWork work) {
+        List<InputFileFingerprinting> properties = new ArrayList<>();
+        work.visitInputFileProperties((propertyName, value, incremental, fingerprinter) ->
+            properties.add(new InputFileFingerprinting(work.getDisplayName(), propertyName, fingerprinter)));
+
+        if (parallelInputFingerprinting && properties.size() > 1) {
+            // The current thread takes part in the fingerprinting, so this falls back to fingerprinting serially when no other worker lease is available
+            buildOperationExecutor.runAll(queue -> properties.forEach(queue::add));
+        } else {
+            properties.forEach(InputFileFingerprinting::fingerprint);
+        }
+
         ImmutableSortedMap.Builder<String, CurrentFileCollectionFingerprint> builder = ImmutableSortedMap.naturalOrder();
-        work.visitInputFileProperties((propertyName, value, incremental, fingerprinter) -> {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Fingerprinting property {} for {}", propertyName, work.getDisplayName());
-            }
-            CurrentFileCollectionFingerprint result = fingerprinter.get();
-            builder.put(propertyName, result);
-        });
+        for (InputFileFingerprinting property : properties) {
+            builder.put(property.propertyName, property.getResult());
+        }
         return builder.build();
     }
 
@@ -219,6 +250,49 @@ private static CurrentFileCollectionFingerprint fingerprintOutputSnapshot(FileSy
         return DefaultCurrentFileCollectionFingerprint.from(roots, AbsolutePathFingerprintingStrategy.IGNORE_MISSING);
     }
 
+    private static class InputFileFingerprinting implements RunnableBuildOperation {
+        private final String workDisplayName;
+        private final String propertyName;
+        private final Supplier<CurrentFileCollectionFingerprint> fingerprinter;
+        private CurrentFileCollectionFingerprint fingerprint;
+        private RuntimeException failure;
+
+        public InputFileFingerprinting(String workDisplayName, String propertyName, Supplier<CurrentFileCollectionFingerprint> fingerprinter) {
+            this.workDisplayName = workDisplayName;
+            this.propertyName = propertyName;
+            this.fingerprinter = fingerprinter;
+        }
+
+        public void fingerprint() {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Fingerprinting property {} for {}", propertyName, workDisplayName);
+            }
+            fingerprint = fingerprinter.get();
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            // Keep the failure so that it is reported like a failure when fingerprinting serially
+            try {
+                fingerprint();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        public CurrentFileCollectionFingerprint getResult() {
+            if (failure != null) {
+                throw failure;
+            }
+            return fingerprint;
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Fingerprint input property '" + propertyName + "' of " + workDisplayName);
+        }
+    }
+
     private static class ImplementationsBuilder implements UnitOfWork.ImplementationVisitor {
         private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
         private ImplementationSnapshot implementation;
@@ -19,8 +19,10 @@ package org.gradle.internal.execution.history.changes
 import com.google.common.collect.ImmutableList
 import com.google.common.collect.ImmutableMultimap
 import com.google.common.collect.Iterables
+import org.gradle.internal.execution.history.HashedFileCollectionFingerprint
 import org.gradle.internal.execution.history.impl.SerializableFileCollectionFingerprint
 import org.gradle.internal.file.FileType
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint
 import org.gradle.internal.fingerprint.FileCollectionFingerprint
 import org.gradle.internal.fingerprint.FileSystemLocationFingerprint
 import org.gradle.internal.fingerprint.impl.DefaultFileSystemLocationFingerprint
@@ -311,6 +313,78 @@ class FingerprintCompareStrategyTest extends Specification {
         strategy << ALL_STRATEGIES
     }
 
+    def "does not load previous fingerprints when the combined hash is unchanged (strategy: #strategy)"() {
+        def current = Stub(CurrentFileCollectionFingerprint) {
+            getStrategyIdentifier() >> "test"
+            getHash() >> HashCode.fromInt(1234)
+            getRootHashes() >> ImmutableMultimap.of('/dir', HashCode.fromInt(456))
+        }
+        def previous = Mock(HashedFileCollectionFingerprint) {
+            getStrategyIdentifier() >> "test"
+            getHash() >> HashCode.fromInt(1234)
+            getRootHashes() >> ImmutableMultimap.of('/other-dir', HashCode.fromInt(456))
+        }
+
+        when:
+        def changes = changes(strategy, current, previous)
+
+        then:
+        changes.empty
+        0 * previous.getFingerprints()
+
+        where:
+        strategy << ALL_STRATEGIES
+    }
+
+    def "compares previous fingerprints when the combined hash is different (strategy: #strategy)"() {
+        def current = Stub(CurrentFileCollectionFingerprint) {
+            getStrategyIdentifier() >> "test"
+            getHash() >> HashCode.fromInt(1234)
+            getRootHashes() >> ImmutableMultimap.of('/dir', HashCode.fromInt(456))
+            getFingerprints() >> ["file1.txt": fingerprint("file1.txt", 123)]
+        }
+        def previous = Mock(HashedFileCollectionFingerprint) {
+            getStrategyIdentifier() >> "test"
+            getHash() >> HashCode.fromInt(4321)
+            getRootHashes() >> ImmutableMultimap.of('/dir', HashCode.fromInt(654))
+        }
+
+        when:
+        def changes = changes(strategy, current, previous)
+
+        then:
+        changes == [modified("file1.txt")]
+        1 * previous.getFingerprints() >> ["file1.txt": fingerprint("file1.txt", 321)]
+
+        where:
+        strategy << ALL_STRATEGIES
+    }
+
+    def "reports a change when the previous fingerprints are missing and the combined hash is different (strategy: #strategy)"() {
+        def current = Stub(CurrentFileCollectionFingerprint) {
+            getStrategyIdentifier() >> "test"
+            getHash() >> HashCode.fromInt(1234)
+            getRootHashes() >> ImmutableMultimap.of('/dir', HashCode.fromInt(456))
+            getFingerprints() >> ["file1.txt": fingerprint("file1.txt", 123)]
+        }
+        def previous = Stub(HashedFileCollectionFingerprint) {
+            getStrategyIdentifier() >> "test"
+            getHash() >> HashCode.fromInt(4321)
+            getRootHashes() >> ImmutableMultimap.of('/dir', HashCode.fromInt(654))
+            isMissingFingerprints() >> true
+            getFingerprints() >> [:]
+        }
+
+        when:
+        def changes = changes(strategy, current, previous)
+
+        then:
+        changes*.message == ["test file fingerprints of the previous execution are not available."]
+
+        where:
+        strategy << ALL_STRATEGIES
+    }
+
     def changes(FingerprintCompareStrategy strategy, Map<String, FileSystemLocationFingerprint> current, Map<String, FileSystemLocationFingerprint> previous) {
         def currentFingerprint = new SerializableFileCollectionFingerprint(current, ImmutableMultimap.of("some", HashCode.fromInt(1234)))
         def previousFingerprint = new SerializableFileCollectionFingerprint(previous,  ImmutableMultimap.of("some", HashCode.fromInt(4321)))
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.execution.history.impl
+
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSortedMap
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.cache.PersistentIndexedCacheParameters
+import org.gradle.caching.internal.origin.OriginMetadata
+import org.gradle.internal.execution.history.ExecutionHistoryCacheAccess
+import org.gradle.internal.execution.steps.FingerprinterFixture
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.snapshot.impl.ImplementationSnapshot
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testfixtures.internal.InMemoryIndexedCache
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+@CleanupTestDirectory
+@UsesNativeServices
+class DefaultExecutionHistoryStoreTest extends Specification implements FingerprinterFixture {
+
+    @Rule
+    public final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def caches = [:]
+    def cacheAccess = Stub(ExecutionHistoryCacheAccess) {
+        createCache(_, _, _) >> { PersistentIndexedCacheParameters parameters, int maxEntries, boolean inMemory ->
+            caches[parameters.cacheName] = Spy(InMemoryIndexedCache, constructorArgs: [parameters.valueSerializer])
+        }
+    }
+    def store = new DefaultExecutionHistoryStore(cacheAccess, new StringInterner())
+    def implementation = ImplementationSnapshot.of("Task", HashCode.fromInt(1234))
+
+    def "stores and loads file fingerprints"() {
+        temporaryFolder.createFile("input.txt").text = "input"
+        temporaryFolder.createFile("output.txt").text = "output"
+        def inputs = fingerprintsOf(input: "input.txt", missing: "missing.txt")
+        def outputs = fingerprintsOf(output: "output.txt")
+
+        when:
+        store("key", inputs, outputs)
+        def loaded = store.load("key").get()
+
+        then:
+        loaded.inputFileProperties.keySet() == inputs.keySet()
+        loaded.inputFileProperties["input"].fingerprints == inputs["input"].fingerprints
+        loaded.inputFileProperties["input"].rootHashes == inputs["input"].rootHashes
+        loaded.outputFileProperties["output"].fingerprints == outputs["output"].fingerprints
+        loaded.successful
+    }
+
+    def "does not write fingerprints of unchanged properties again"() {
+        temporaryFolder.createFile("input.txt").text = "input"
+        def output = temporaryFolder.createFile("output.txt")
+        output.text = "first"
+        def inputs = fingerprintsOf(input: "input.txt")
+        store("key", inputs, fingerprintsOf(output: "output.txt"))
+        def fingerprints = caches["executionHistoryFingerprints"]
+
+        when:
+        output.text = "second"
+        def outputs = fingerprintsOf(output: "output.txt")
+        store("key", inputs, outputs)
+
+        then:
+        1 * fingerprints.put(_, outputs["output"].fingerprints)
+        1 * fingerprints.remove(_)
+        0 * fingerprints.put(_, _)
+
+        and:
+        fingerprints.keySet().size() == 2
+        store.load("key").get().outputFileProperties["output"].fingerprints == outputs["output"].fingerprints
+    }
+
+    def "removes fingerprints together with the entry"() {
+        temporaryFolder.createFile("input.txt").text = "input"
+        store("key", fingerprintsOf(input: "input.txt"), ImmutableSortedMap.of())
+
+        when:
+        store.remove("key")
+
+        then:
+        !store.load("key").present
+        caches["executionHistoryFingerprints"].keySet().empty
+    }
+
+    def "loads fingerprints only when they are queried"() {
+        temporaryFolder.createFile("input.txt").text = "input"
+        def inputs = fingerprintsOf(input: "input.txt")
+        store("key", inputs, ImmutableSortedMap.of())
+        def fingerprints = caches["executionHistoryFingerprints"]
+
+        when:
+        def loaded = store.load("key").get().inputFileProperties["input"]
+
+        then:
+        loaded.hash == inputs["input"].hash
+        loaded.strategyIdentifier == inputs["input"].strategyIdentifier
+        loaded.rootHashes == inputs["input"].rootHashes
+        0 * fingerprints.get(_)
+
+        when:
+        def loadedFingerprints = loaded.fingerprints
+
+        then:
+        loadedFingerprints == inputs["input"].fingerprints
+        !loaded.missingFingerprints
+        1 * fingerprints.get(_)
+    }
+
+    def "reports fingerprints which are missing when they are queried"() {
+        temporaryFolder.createFile("input.txt").text = "input"
+        store("key", fingerprintsOf(input: "input.txt"), ImmutableSortedMap.of())
+        def fingerprints = caches["executionHistoryFingerprints"]
+        new ArrayList(fingerprints.keySet()).each { fingerprints.remove(it) }
+
+        when:
+        def loaded = store.load("key").get().inputFileProperties["input"]
+
+        then:
+        loaded.missingFingerprints
+        loaded.fingerprints.isEmpty()
+    }
+
+    private void store(String key, ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputs, ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputs) {
+        store.store(key, new OriginMetadata("build-id", 100), implementation, ImmutableList.of(), ImmutableSortedMap.of(), inputs, outputs, true)
+    }
+}
@@ -162,6 +162,52 @@ class CaptureStateBeforeExecutionStepTest extends StepSpec<AfterPreviousExecutio
         assertOperationForInputsBeforeExecution()
     }
 
+    def "input file properties are fingerprinted concurrently when enabled"() {
+        def step = new CaptureStateBeforeExecutionStep(buildOperationExecutor, classloaderHierarchyHasher, valueSnapshotter, overlappingOutputDetector, true, delegate)
+        def sourceFingerprint = Mock(CurrentFileCollectionFingerprint)
+        def classpathFingerprint = Mock(CurrentFileCollectionFingerprint)
+
+        when:
+        step.execute(context)
+
+        then:
+        _ * work.visitInputFileProperties(_) >> { UnitOfWork.InputFilePropertyVisitor visitor ->
+            visitor.visitInputFileProperty("source", "ignored", false, { -> sourceFingerprint })
+            visitor.visitInputFileProperty("classpath", "ignored", false, { -> classpathFingerprint })
+        }
+        interaction { fingerprintInputs() }
+        1 * delegate.execute(_) >> { BeforeExecutionContext beforeExecution ->
+            def state = beforeExecution.beforeExecutionState.get()
+            assert state.inputFileProperties == ImmutableSortedMap.<String, CurrentFileCollectionFingerprint>of('source', sourceFingerprint, 'classpath', classpathFingerprint)
+        }
+        0 * _
+
+        buildOperationExecutor.log.descriptors*.displayName.containsAll([
+            "Fingerprint input property 'source' of job ':test'",
+            "Fingerprint input property 'classpath' of job ':test'"
+        ])
+    }
+
+    def "reports failure to fingerprint input file property when fingerprinting concurrently"() {
+        def step = new CaptureStateBeforeExecutionStep(buildOperationExecutor, classloaderHierarchyHasher, valueSnapshotter, overlappingOutputDetector, true, delegate)
+        def failure = new RuntimeException("broken")
+        def classpathFingerprint = Mock(CurrentFileCollectionFingerprint)
+
+        when:
+        step.execute(context)
+
+        then:
+        _ * work.visitInputFileProperties(_) >> { UnitOfWork.InputFilePropertyVisitor visitor ->
+            visitor.visitInputFileProperty("source", "ignored", false, { -> throw failure })
+            visitor.visitInputFileProperty("classpath", "ignored", false, { -> classpathFingerprint })
+        }
+        interaction { fingerprintInputs() }
+        0 * delegate.execute(_)
+
+        def ex = thrown(RuntimeException)
+        ex == failure
+    }
+
     def "output file properties are fingerprinted"() {
         def outputFileSnapshot = Mock(FileSystemSnapshot)
 
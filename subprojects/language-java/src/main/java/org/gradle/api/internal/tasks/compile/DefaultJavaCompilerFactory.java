@@ -37,8 +37,10 @@ public class DefaultJavaCompilerFactory implements JavaCompilerFactory {
     private final AnnotationProcessorDetector processorDetector;
     private final ClassPathRegistry classPathRegistry;
     private final ActionExecutionSpecFactory actionExecutionSpecFactory;
+    private final SharedStandardJavaFileManagers sharedFileManagers;
+    private final boolean reuseFileManagers;
 
-    public DefaultJavaCompilerFactory(WorkerDirectoryProvider workingDirProvider, WorkerDaemonFactory workerDaemonFactory, Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, JavaForkOptionsFactory forkOptionsFactory, ExecHandleFactory execHandleFactory, AnnotationProcessorDetector processorDetector, ClassPathRegistry classPathRegistry, ActionExecutionSpecFactory actionExecutionSpecFactory) {
+    public DefaultJavaCompilerFactory(WorkerDirectoryProvider workingDirProvider, WorkerDaemonFactory workerDaemonFactory, Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, JavaForkOptionsFactory forkOptionsFactory, ExecHandleFactory execHandleFactory, AnnotationProcessorDetector processorDetector, ClassPathRegistry classPathRegistry, ActionExecutionSpecFactory actionExecutionSpecFactory, SharedStandardJavaFileManagers sharedFileManagers) {
         this.workingDirProvider = workingDirProvider;
         this.workerDaemonFactory = workerDaemonFactory;
         this.javaHomeBasedJavaCompilerFactory = javaHomeBasedJavaCompilerFactory;
@@ -47,6 +49,8 @@ public DefaultJavaCompilerFactory(WorkerDirectoryProvider workingDirProvider, Wo
         this.processorDetector = processorDetector;
         this.classPathRegistry = classPathRegistry;
         this.actionExecutionSpecFactory = actionExecutionSpecFactory;
+        this.sharedFileManagers = sharedFileManagers;
+        this.reuseFileManagers = Boolean.getBoolean(JdkJavaCompiler.REUSE_FILE_MANAGERS_PROPERTY);
     }
 
     @Override
@@ -65,9 +69,9 @@ private Compiler<JavaCompileSpec> createTargetCompiler(Class<? extends CompileSp
         }
 
         if (ForkingJavaCompileSpec.class.isAssignableFrom(type)) {
-            return new DaemonJavaCompiler(workingDirProvider.getWorkingDirectory(), JdkJavaCompiler.class, new Object[]{javaHomeBasedJavaCompilerFactory}, workerDaemonFactory, forkOptionsFactory, classPathRegistry, actionExecutionSpecFactory);
+            return new DaemonJavaCompiler(workingDirProvider.getWorkingDirectory(), JdkJavaCompiler.class, new Object[]{javaHomeBasedJavaCompilerFactory, reuseFileManagers}, workerDaemonFactory, forkOptionsFactory, classPathRegistry, actionExecutionSpecFactory);
         } else {
-            return new JdkJavaCompiler(javaHomeBasedJavaCompilerFactory);
+            return new JdkJavaCompiler(javaHomeBasedJavaCompilerFactory, reuseFileManagers ? sharedFileManagers : null);
         }
     }
 }
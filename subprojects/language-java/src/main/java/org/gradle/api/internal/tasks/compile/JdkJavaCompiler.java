@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.tasks.compile;
 
+import com.google.common.collect.Iterables;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration;
 import org.gradle.api.internal.tasks.compile.reflect.GradleStandardJavaFileManager;
@@ -25,6 +26,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileManager;
@@ -39,11 +41,31 @@
 
 public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdkJavaCompiler.class);
+
+    /**
+     * When set, the file managers of javac are kept open between compilations in the same process, see {@link SharedStandardJavaFileManagers}.
+     */
+    public static final String REUSE_FILE_MANAGERS_PROPERTY = "org.gradle.internal.java.compile.reuseFileManagers";
+
     private final Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory;
+    @Nullable
+    private final transient SharedStandardJavaFileManagers sharedFileManagers;
 
-    @Inject
     public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory) {
+        this(javaHomeBasedJavaCompilerFactory, (SharedStandardJavaFileManagers) null);
+    }
+
+    /**
+     * Used in compiler daemons, which only live for a build session and close the file managers they kept open when they exit.
+     */
+    @Inject
+    public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, boolean reuseFileManagers) {
+        this(javaHomeBasedJavaCompilerFactory, reuseFileManagers ? CompilerDaemonFileManagers.INSTANCE : null);
+    }
+
+    public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, @Nullable SharedStandardJavaFileManagers sharedFileManagers) {
         this.javaHomeBasedJavaCompilerFactory = javaHomeBasedJavaCompilerFactory;
+        this.sharedFileManagers = sharedFileManagers;
     }
 
     @Override
@@ -64,7 +86,8 @@ private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, Jdk
         JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
         MinimalJavaCompileOptions compileOptions = spec.getCompileOptions();
         Charset charset = compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null;
-        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, charset);
+        SharedStandardJavaFileManagers.SharedFileManager sharedFileManager = sharedFileManagers != null ? sharedFileManagers.acquire(compiler, charset) : null;
+        StandardJavaFileManager standardFileManager = sharedFileManager != null ? sharedFileManager.getFileManager() : compiler.getStandardFileManager(null, null, charset);
         Iterable<? extends JavaFileObject> compilationUnits = standardFileManager.getJavaFileObjectsFromFiles(spec.getSourceFiles());
         boolean hasEmptySourcepaths = JavaVersion.current().isJava9Compatible() && emptySourcepathIn(options);
         JavaFileManager fileManager = GradleStandardJavaFileManager.wrap(standardFileManager, DefaultClassPath.of(spec.getAnnotationProcessorPath()), hasEmptySourcepaths);
@@ -75,7 +98,12 @@ private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, Jdk
         }
         Set<AnnotationProcessorDeclaration> annotationProcessors = spec.getEffectiveAnnotationProcessors();
         task = new AnnotationProcessingCompileTask(task, annotationProcessors, spec.getAnnotationProcessorPath(), result.getAnnotationProcessingResult());
-        task = new ResourceCleaningCompilationTask(task, fileManager);
+        if (sharedFileManager != null) {
+            Iterable<File> archives = Iterables.concat(spec.getCompileClasspath(), spec.getModulePath());
+            task = new ResourceCleaningCompilationTask(task, () -> sharedFileManagers.release(sharedFileManager, archives), false);
+        } else {
+            task = new ResourceCleaningCompilationTask(task, fileManager, true);
+        }
         return task;
     }
 
@@ -89,4 +117,8 @@ private static boolean emptySourcepathIn(List<String> options) {
         }
         return false;
     }
+
+    private static class CompilerDaemonFileManagers {
+        private static final SharedStandardJavaFileManagers INSTANCE = new SharedStandardJavaFileManagers(SharedStandardJavaFileManagers.DEFAULT_MAX_IDLE_PER_KEY);
+    }
 }
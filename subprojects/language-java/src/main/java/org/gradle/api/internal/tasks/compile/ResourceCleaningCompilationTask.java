@@ -31,10 +31,15 @@
 class ResourceCleaningCompilationTask implements JavaCompiler.CompilationTask {
     private final JavaCompiler.CompilationTask delegate;
     private final Closeable fileManager;
+    private final boolean cleanupZipCache;
 
-    ResourceCleaningCompilationTask(JavaCompiler.CompilationTask delegate, Closeable fileManager) {
+    /**
+     * @param cleanupZipCache whether to clear the shared ZIP cache of javac, which must be kept when file managers are reused.
+     */
+    ResourceCleaningCompilationTask(JavaCompiler.CompilationTask delegate, Closeable fileManager, boolean cleanupZipCache) {
         this.delegate = delegate;
         this.fileManager = fileManager;
+        this.cleanupZipCache = cleanupZipCache;
     }
 
     @Override
@@ -57,7 +62,9 @@ public Boolean call() {
             return delegate.call();
         } finally {
             CompositeStoppable.stoppable(fileManager).stop();
-            cleanupZipCache();
+            if (cleanupZipCache) {
+                cleanupZipCache();
+            }
         }
     }
 
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile;
+
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+
+import javax.annotation.Nullable;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps javac's standard file managers open between compilations in the same process, so that the classpath archives they opened,
+ * and the index of their entries, are reused by the next compilation with the same compiler and encoding.
+ *
+ * A file manager is only used by a single compilation at a time. javac does not notice when an opened archive changes, so each time
+ * a file manager is acquired or released, the idle file managers that have seen an archive that changed or disappeared are closed.
+ * The remaining idle file managers, and with them the archives they keep open, are closed when this service is stopped.
+ */
+public class SharedStandardJavaFileManagers implements Stoppable {
+    public static final int DEFAULT_MAX_IDLE_PER_KEY = 4;
+
+    private final int maxIdlePerKey;
+    private final Map<Key, Deque<SharedFileManager>> idle = new HashMap<>();
+    private boolean stopped;
+
+    public SharedStandardJavaFileManagers(int maxIdlePerKey) {
+        this.maxIdlePerKey = maxIdlePerKey;
+    }
+
+    SharedFileManager acquire(JavaCompiler compiler, @Nullable Charset charset) {
+        Key key = new Key(compiler.getClass(), charset);
+        List<SharedFileManager> stale = new ArrayList<>();
+        try {
+            synchronized (idle) {
+                removeStale(stale);
+                Deque<SharedFileManager> candidates = idle.get(key);
+                if (candidates != null && !candidates.isEmpty()) {
+                    return candidates.pop();
+                }
+            }
+        } finally {
+            close(stale);
+        }
+        return new SharedFileManager(key, compiler.getStandardFileManager(null, null, charset));
+    }
+
+    /**
+     * Hands back a file manager after a compilation using the given archives.
+     */
+    void release(SharedFileManager fileManager, Iterable<File> archives) {
+        fileManager.resetLocations();
+        fileManager.recordArchives(archives);
+        List<SharedFileManager> toClose = new ArrayList<>();
+        synchronized (idle) {
+            removeStale(toClose);
+            Deque<SharedFileManager> candidates = idle.computeIfAbsent(fileManager.key, key -> new ArrayDeque<>());
+            if (!stopped && candidates.size() < maxIdlePerKey && fileManager.isUpToDate()) {
+                candidates.push(fileManager);
+            } else {
+                toClose.add(fileManager);
+            }
+        }
+        close(toClose);
+    }
+
+    @Override
+    public void stop() {
+        List<SharedFileManager> toClose = new ArrayList<>();
+        synchronized (idle) {
+            stopped = true;
+            for (Deque<SharedFileManager> candidates : idle.values()) {
+                toClose.addAll(candidates);
+            }
+            idle.clear();
+        }
+        close(toClose);
+    }
+
+    private void removeStale(List<SharedFileManager> stale) {
+        for (Deque<SharedFileManager> candidates : idle.values()) {
+            Iterator<SharedFileManager> iterator = candidates.iterator();
+            while (iterator.hasNext()) {
+                SharedFileManager candidate = iterator.next();
+                if (!candidate.isUpToDate()) {
+                    iterator.remove();
+                    stale.add(candidate);
+                }
+            }
+        }
+    }
+
+    private static void close(List<SharedFileManager> fileManagers) {
+        for (SharedFileManager fileManager : fileManagers) {
+            fileManager.close();
+        }
+    }
+
+    static class SharedFileManager {
+        private final Key key;
+        private final StandardJavaFileManager fileManager;
+        private final Map<File, ArchiveState> archives = new HashMap<>();
+        private boolean closed;
+
+        private SharedFileManager(Key key, StandardJavaFileManager fileManager) {
+            this.key = key;
+            this.fileManager = fileManager;
+        }
+
+        StandardJavaFileManager getFileManager() {
+            return fileManager;
+        }
+
+        private boolean isUpToDate() {
+            for (Map.Entry<File, ArchiveState> entry : archives.entrySet()) {
+                if (!entry.getValue().equals(ArchiveState.of(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void recordArchives(Iterable<File> files) {
+            for (File file : files) {
+                if (file.isFile()) {
+                    archives.putIfAbsent(file, ArchiveState.of(file));
+                }
+            }
+        }
+
+        /**
+         * Locations are set from the compiler arguments of each compilation, and locations missing from the arguments would otherwise keep the value of the previous compilation.
+         */
+        private void resetLocations() {
+            for (StandardLocation location : StandardLocation.values()) {
+                try {
+                    fileManager.setLocation(location, null);
+                } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                    // Not a location of this file manager
+                }
+            }
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        private void close() {
+            closed = true;
+            CompositeStoppable.stoppable(fileManager).stop();
+        }
+    }
+
+    private static class ArchiveState {
+        private final long length;
+        private final long lastModified;
+
+        private ArchiveState(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        static ArchiveState of(File file) {
+            return new ArchiveState(file.length(), file.lastModified());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ArchiveState that = (ArchiveState) o;
+            return length == that.length && lastModified == that.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(length, lastModified);
+        }
+    }
+
+    private static class Key {
+        private final Class<?> compilerType;
+        private final Charset charset;
+
+        private Key(Class<?> compilerType, @Nullable Charset charset) {
+            this.compilerType = compilerType;
+            this.charset = charset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return compilerType.equals(key.compilerType) && Objects.equals(charset, key.charset);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(compilerType, charset);
+        }
+    }
+}
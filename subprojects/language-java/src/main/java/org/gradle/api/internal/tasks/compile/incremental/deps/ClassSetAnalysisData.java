@@ -16,9 +16,9 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.deps;
 
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.ints.IntSets;
 import org.apache.commons.lang.StringUtils;
@@ -26,26 +26,117 @@
 import org.gradle.internal.serialize.AbstractSerializer;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
-import org.gradle.internal.serialize.IntSetSerializer;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
+/**
+ * The class dependency graph of a set of classes.
+ *
+ * All class names are kept once, in a sorted name table, and classes are referenced by their index in that table.
+ * Dependents and constants are stored in compressed sparse row form: the entries of the class at index {@code i}
+ * are {@code values[start[i]]} up to, but excluding, {@code values[start[i + 1]]}. The {@link DependentsSet} of
+ * a class is only created when it is queried, so that loading the analysis of a large class set is cheap.
+ */
 public class ClassSetAnalysisData {
     public static final String PACKAGE_INFO = "package-info";
 
-    private final Set<String> classes;
-    private final Map<String, DependentsSet> dependents;
-    private final Map<String, IntSet> classesToConstants;
+    private final String[] names;
+    private final int[] classes;
+    private final BitSet dependenciesToAll;
+    private final Map<Integer, String> dependencyToAllReasons;
+    private final int[] privateDependentsStart;
+    private final int[] privateDependents;
+    private final int[] accessibleDependentsStart;
+    private final int[] accessibleDependents;
+    private final int[] constantsStart;
+    private final int[] constants;
     private final String fullRebuildCause;
 
     public ClassSetAnalysisData(Set<String> classes, Map<String, DependentsSet> dependents, Map<String, IntSet> classesToConstants, String fullRebuildCause) {
+        Set<String> allNames = new TreeSet<String>(classes);
+        allNames.addAll(dependents.keySet());
+        for (DependentsSet dependentsSet : dependents.values()) {
+            if (!dependentsSet.isDependencyToAll()) {
+                allNames.addAll(dependentsSet.getPrivateDependentClasses());
+                allNames.addAll(dependentsSet.getAccessibleDependentClasses());
+            }
+        }
+        allNames.addAll(classesToConstants.keySet());
+        this.names = allNames.toArray(new String[0]);
+        this.classes = indicesOf(classes);
+        this.dependenciesToAll = new BitSet(names.length);
+        this.dependencyToAllReasons = new HashMap<Integer, String>();
+        this.privateDependentsStart = new int[names.length + 1];
+        this.accessibleDependentsStart = new int[names.length + 1];
+        this.constantsStart = new int[names.length + 1];
+
+        int privateCount = 0;
+        int accessibleCount = 0;
+        int constantsCount = 0;
+        for (int i = 0; i < names.length; i++) {
+            DependentsSet dependentsSet = dependents.get(names[i]);
+            if (dependentsSet != null) {
+                if (dependentsSet.isDependencyToAll()) {
+                    dependenciesToAll.set(i);
+                    if (dependentsSet.getDescription() != null) {
+                        dependencyToAllReasons.put(i, dependentsSet.getDescription());
+                    }
+                } else {
+                    privateCount += dependentsSet.getPrivateDependentClasses().size();
+                    accessibleCount += dependentsSet.getAccessibleDependentClasses().size();
+                }
+            }
+            IntSet classConstants = classesToConstants.get(names[i]);
+            if (classConstants != null) {
+                constantsCount += classConstants.size();
+            }
+            privateDependentsStart[i + 1] = privateCount;
+            accessibleDependentsStart[i + 1] = accessibleCount;
+            constantsStart[i + 1] = constantsCount;
+        }
+
+        this.privateDependents = new int[privateCount];
+        this.accessibleDependents = new int[accessibleCount];
+        this.constants = new int[constantsCount];
+        for (int i = 0; i < names.length; i++) {
+            DependentsSet dependentsSet = dependents.get(names[i]);
+            if (dependentsSet != null && !dependentsSet.isDependencyToAll()) {
+                copyIndices(dependentsSet.getPrivateDependentClasses(), privateDependents, privateDependentsStart[i]);
+                copyIndices(dependentsSet.getAccessibleDependentClasses(), accessibleDependents, accessibleDependentsStart[i]);
+            }
+            IntSet classConstants = classesToConstants.get(names[i]);
+            if (classConstants != null) {
+                int offset = constantsStart[i];
+                IntIterator iterator = classConstants.iterator();
+                while (iterator.hasNext()) {
+                    constants[offset++] = iterator.nextInt();
+                }
+            }
+        }
+        this.fullRebuildCause = fullRebuildCause;
+    }
+
+    private ClassSetAnalysisData(String[] names, int[] classes, BitSet dependenciesToAll, Map<Integer, String> dependencyToAllReasons,
+                                 int[] privateDependentsStart, int[] privateDependents, int[] accessibleDependentsStart, int[] accessibleDependents,
+                                 int[] constantsStart, int[] constants, String fullRebuildCause) {
+        this.names = names;
         this.classes = classes;
-        this.dependents = dependents;
-        this.classesToConstants = classesToConstants;
+        this.dependenciesToAll = dependenciesToAll;
+        this.dependencyToAllReasons = dependencyToAllReasons;
+        this.privateDependentsStart = privateDependentsStart;
+        this.privateDependents = privateDependents;
+        this.accessibleDependentsStart = accessibleDependentsStart;
+        this.accessibleDependents = accessibleDependents;
+        this.constantsStart = constantsStart;
+        this.constants = constants;
         this.fullRebuildCause = fullRebuildCause;
     }
 
@@ -57,27 +148,66 @@ public DependentsSet getDependents(String className) {
             String packageName = className.equals(PACKAGE_INFO) ? null : StringUtils.removeEnd(className, "." + PACKAGE_INFO);
             return getDependentsOfPackage(packageName);
         }
-        DependentsSet dependentsSet = dependents.get(className);
-        return dependentsSet == null ? DependentsSet.empty() : dependentsSet;
+        int index = indexOf(className);
+        if (index < 0) {
+            return DependentsSet.empty();
+        }
+        if (dependenciesToAll.get(index)) {
+            return DependentsSet.dependencyToAll(dependencyToAllReasons.get(index));
+        }
+        return DependentsSet.dependentClasses(
+            namesOf(privateDependents, privateDependentsStart[index], privateDependentsStart[index + 1]),
+            namesOf(accessibleDependents, accessibleDependentsStart[index], accessibleDependentsStart[index + 1])
+        );
     }
 
     private DependentsSet getDependentsOfPackage(String packageName) {
-        Set<String> typesInPackage = Sets.newHashSet();
-        for (String type : classes) {
+        ImmutableSet.Builder<String> typesInPackage = ImmutableSet.builder();
+        for (int index : classes) {
+            String type = names[index];
             int i = type.lastIndexOf(".");
             if (i < 0 && packageName == null || i > 0 && type.substring(0, i).equals(packageName)) {
                 typesInPackage.add(type);
             }
         }
-        return DependentsSet.dependentClasses(Collections.emptySet(), typesInPackage);
+        return DependentsSet.dependentClasses(Collections.emptySet(), typesInPackage.build());
     }
 
     public IntSet getConstants(String className) {
-        IntSet integers = classesToConstants.get(className);
-        if (integers == null) {
+        int index = indexOf(className);
+        if (index < 0 || constantsStart[index] == constantsStart[index + 1]) {
             return IntSets.EMPTY_SET;
         }
-        return integers;
+        return new IntOpenHashSet(constants, constantsStart[index], constantsStart[index + 1] - constantsStart[index]);
+    }
+
+    private int indexOf(String className) {
+        return Arrays.binarySearch(names, className);
+    }
+
+    private int[] indicesOf(Collection<String> classNames) {
+        int[] indices = new int[classNames.size()];
+        copyIndices(classNames, indices, 0);
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    private void copyIndices(Collection<String> classNames, int[] target, int offset) {
+        int i = offset;
+        for (String className : classNames) {
+            target[i++] = indexOf(className);
+        }
+    }
+
+    private Set<String> namesOf(int[] indices, int from, int to) {
+        if (from == to) {
+            return Collections.emptySet();
+        }
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (int i = from; i < to; i++) {
+            builder.add(names[indices[i]]);
+        }
+        return builder.build();
     }
 
     public static class Serializer extends AbstractSerializer<ClassSetAnalysisData> {
@@ -90,116 +220,127 @@ public Serializer(StringInterner interner) {
 
         @Override
         public ClassSetAnalysisData read(Decoder decoder) throws Exception {
-            Map<Integer, String> classNameMap = new HashMap<Integer, String>();
+            String[] names = readNames(decoder);
 
-            int count = decoder.readSmallInt();
-            ImmutableSet.Builder<String> classes = ImmutableSet.builder();
-            for (int i = 0; i < count; i++) {
-                classes.add(readClassName(decoder, classNameMap));
-            }
+            int[] classes = new int[decoder.readSmallInt()];
+            readSortedIndices(decoder, classes);
 
-            count = decoder.readSmallInt();
-            ImmutableMap.Builder<String, DependentsSet> dependentsBuilder = ImmutableMap.builder();
-            for (int i = 0; i < count; i++) {
-                String className = readClassName(decoder, classNameMap);
-                DependentsSet dependents = readDependentsSet(decoder, classNameMap);
-                dependentsBuilder.put(className, dependents);
+            BitSet dependenciesToAll = new BitSet(names.length);
+            Map<Integer, String> dependencyToAllReasons = new HashMap<Integer, String>();
+            int[] dependencyToAllIndices = new int[decoder.readSmallInt()];
+            readSortedIndices(decoder, dependencyToAllIndices);
+            for (int index : dependencyToAllIndices) {
+                dependenciesToAll.set(index);
+                String reason = decoder.readNullableString();
+                if (reason != null) {
+                    dependencyToAllReasons.put(index, reason);
+                }
             }
 
-            count = decoder.readSmallInt();
-            ImmutableMap.Builder<String, IntSet> classesToConstantsBuilder = ImmutableMap.builder();
-            for (int i = 0; i < count; i++) {
-                String className = readClassName(decoder, classNameMap);
-                IntSet constants = IntSetSerializer.INSTANCE.read(decoder);
-                classesToConstantsBuilder.put(className, constants);
-            }
+            int[] privateDependentsStart = new int[names.length + 1];
+            int[] privateDependents = readRows(decoder, privateDependentsStart, false);
+            int[] accessibleDependentsStart = new int[names.length + 1];
+            int[] accessibleDependents = readRows(decoder, accessibleDependentsStart, false);
+            int[] constantsStart = new int[names.length + 1];
+            int[] constants = readRows(decoder, constantsStart, true);
 
             String fullRebuildCause = decoder.readNullableString();
 
-            return new ClassSetAnalysisData(classes.build(), dependentsBuilder.build(), classesToConstantsBuilder.build(), fullRebuildCause);
+            return new ClassSetAnalysisData(names, classes, dependenciesToAll, dependencyToAllReasons,
+                privateDependentsStart, privateDependents, accessibleDependentsStart, accessibleDependents,
+                constantsStart, constants, fullRebuildCause);
         }
 
         @Override
         public void write(Encoder encoder, ClassSetAnalysisData value) throws Exception {
-            Map<String, Integer> classNameMap = new HashMap<String, Integer>();
-            encoder.writeSmallInt(value.classes.size());
-            for (String clazz : value.classes) {
-                writeClassName(clazz, classNameMap, encoder);
-            }
+            writeNames(encoder, value.names);
 
-            encoder.writeSmallInt(value.dependents.size());
-            for (Map.Entry<String, DependentsSet> entry : value.dependents.entrySet()) {
-                writeClassName(entry.getKey(), classNameMap, encoder);
-                writeDependentSet(entry.getValue(), classNameMap, encoder);
-            }
+            encoder.writeSmallInt(value.classes.length);
+            writeSortedIndices(encoder, value.classes);
 
-            encoder.writeSmallInt(value.classesToConstants.size());
-            for (Map.Entry<String, IntSet> entry : value.classesToConstants.entrySet()) {
-                writeClassName(entry.getKey(), classNameMap, encoder);
-                IntSetSerializer.INSTANCE.write(encoder, entry.getValue());
+            int[] dependencyToAllIndices = value.dependenciesToAll.stream().toArray();
+            encoder.writeSmallInt(dependencyToAllIndices.length);
+            writeSortedIndices(encoder, dependencyToAllIndices);
+            for (int index : dependencyToAllIndices) {
+                encoder.writeNullableString(value.dependencyToAllReasons.get(index));
             }
+
+            writeRows(encoder, value.privateDependentsStart, value.privateDependents, false);
+            writeRows(encoder, value.accessibleDependentsStart, value.accessibleDependents, false);
+            writeRows(encoder, value.constantsStart, value.constants, true);
+
             encoder.writeNullableString(value.fullRebuildCause);
         }
 
-        private DependentsSet readDependentsSet(Decoder decoder, Map<Integer, String> classNameMap) throws IOException {
-            byte b = decoder.readByte();
-            if (b == 1) {
-                return DependentsSet.dependencyToAll(decoder.readNullableString());
+        /**
+         * Names are sorted, so each name is written as the length of the prefix it shares with the previous name, followed by the rest of the name.
+         */
+        private String[] readNames(Decoder decoder) throws IOException {
+            String[] names = new String[decoder.readSmallInt()];
+            String previous = "";
+            for (int i = 0; i < names.length; i++) {
+                int prefixLength = decoder.readSmallInt();
+                String name = interner.intern(previous.substring(0, prefixLength) + decoder.readString());
+                names[i] = name;
+                previous = name;
             }
+            return names;
+        }
 
-            ImmutableSet.Builder<String> privateBuilder = ImmutableSet.builder();
-            int count = decoder.readSmallInt();
-            for (int i = 0; i < count; i++) {
-                privateBuilder.add(readClassName(decoder, classNameMap));
+        private void writeNames(Encoder encoder, String[] names) throws IOException {
+            encoder.writeSmallInt(names.length);
+            String previous = "";
+            for (String name : names) {
+                int prefixLength = StringUtils.indexOfDifference(previous, name);
+                if (prefixLength < 0) {
+                    prefixLength = name.length();
+                }
+                encoder.writeSmallInt(prefixLength);
+                encoder.writeString(name.substring(prefixLength));
+                previous = name;
             }
+        }
 
-            ImmutableSet.Builder<String> accessibleBuilder = ImmutableSet.builder();
-            count = decoder.readSmallInt();
-            for (int i = 0; i < count; i++) {
-                accessibleBuilder.add(readClassName(decoder, classNameMap));
+        private void readSortedIndices(Decoder decoder, int[] target) throws IOException {
+            int previous = -1;
+            for (int i = 0; i < target.length; i++) {
+                previous += decoder.readSmallInt();
+                target[i] = previous;
             }
+        }
 
-            return DependentsSet.dependentClasses(privateBuilder.build(), accessibleBuilder.build());
+        private void writeSortedIndices(Encoder encoder, int[] indices) throws IOException {
+            int previous = -1;
+            for (int index : indices) {
+                encoder.writeSmallInt(index - previous);
+                previous = index;
+            }
         }
 
-        private void writeDependentSet(DependentsSet dependentsSet, Map<String, Integer> classNameMap, Encoder encoder) throws IOException {
-            if (dependentsSet.isDependencyToAll()) {
-                encoder.writeByte((byte) 1);
-                encoder.writeNullableString(dependentsSet.getDescription());
-            } else {
-                encoder.writeByte((byte) 2);
-                encoder.writeSmallInt(dependentsSet.getPrivateDependentClasses().size());
-                for (String className : dependentsSet.getPrivateDependentClasses()) {
-                    writeClassName(className, classNameMap, encoder);
-                }
-                encoder.writeSmallInt(dependentsSet.getAccessibleDependentClasses().size());
-                for (String className : dependentsSet.getAccessibleDependentClasses()) {
-                    writeClassName(className, classNameMap, encoder);
+        private int[] readRows(Decoder decoder, int[] start, boolean constants) throws IOException {
+            int[] values = new int[decoder.readSmallInt()];
+            int offset = 0;
+            for (int i = 1; i < start.length; i++) {
+                int count = decoder.readSmallInt();
+                for (int j = 0; j < count; j++) {
+                    values[offset++] = constants ? decoder.readInt() : decoder.readSmallInt();
                 }
+                start[i] = offset;
             }
+            return values;
         }
 
-        private String readClassName(Decoder decoder, Map<Integer, String> classNameMap) throws IOException {
-            int id = decoder.readSmallInt();
-            if (id == 0) {
-                id = decoder.readSmallInt();
-                String className = interner.intern(decoder.readString());
-                classNameMap.put(id, className);
-                return className;
-            }
-            return classNameMap.get(id);
-        }
-
-        private void writeClassName(String className, Map<String, Integer> classIdMap, Encoder encoder) throws IOException {
-            Integer id = classIdMap.get(className);
-            if (id == null) {
-                id = classIdMap.size() + 1;
-                classIdMap.put(className, id);
-                encoder.writeSmallInt(0);
-                encoder.writeSmallInt(id);
-                encoder.writeString(className);
-            } else {
-                encoder.writeSmallInt(id);
+        private void writeRows(Encoder encoder, int[] start, int[] values, boolean constants) throws IOException {
+            encoder.writeSmallInt(values.length);
+            for (int i = 1; i < start.length; i++) {
+                encoder.writeSmallInt(start[i] - start[i - 1]);
+                for (int j = start[i - 1]; j < start[i]; j++) {
+                    if (constants) {
+                        encoder.writeInt(values[j]);
+                    } else {
+                        encoder.writeSmallInt(values[j]);
+                    }
+                }
             }
         }
     }
@@ -30,7 +30,7 @@ class DefaultJavaCompilerFactoryTest extends Specification {
     Factory<JavaCompiler> javaCompilerFinder = Mock()
     def factory = new DefaultJavaCompilerFactory({
         new File("daemon-work-dir")
-    }, Mock(WorkerDaemonFactory), javaCompilerFinder, Mock(JavaForkOptionsFactory), Mock(ExecHandleFactory), Stub(AnnotationProcessorDetector), Stub(ClassPathRegistry), Stub(ActionExecutionSpecFactory))
+    }, Mock(WorkerDaemonFactory), javaCompilerFinder, Mock(JavaForkOptionsFactory), Mock(ExecHandleFactory), Stub(AnnotationProcessorDetector), Stub(ClassPathRegistry), Stub(ActionExecutionSpecFactory), new SharedStandardJavaFileManagers(1))
 
     def "creates in-process compiler when JavaCompileSpec is provided"() {
         expect:
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import javax.tools.ToolProvider
+import java.nio.charset.StandardCharsets
+
+class SharedStandardJavaFileManagersTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider(getClass())
+
+    def compiler = ToolProvider.getSystemJavaCompiler()
+    def fileManagers = new SharedStandardJavaFileManagers(1)
+
+    def "reuses released file manager for the same compiler and encoding"() {
+        def first = fileManagers.acquire(compiler, StandardCharsets.UTF_8)
+
+        when:
+        fileManagers.release(first, [])
+
+        then:
+        fileManagers.acquire(compiler, StandardCharsets.UTF_8).is(first)
+    }
+
+    def "does not share file managers between encodings"() {
+        def first = fileManagers.acquire(compiler, StandardCharsets.UTF_8)
+
+        when:
+        fileManagers.release(first, [])
+
+        then:
+        !fileManagers.acquire(compiler, StandardCharsets.ISO_8859_1).is(first)
+        !fileManagers.acquire(compiler, null).is(first)
+        fileManagers.acquire(compiler, StandardCharsets.UTF_8).is(first)
+    }
+
+    def "does not hand out a file manager twice"() {
+        def first = fileManagers.acquire(compiler, null)
+        fileManagers.release(first, [])
+
+        expect:
+        fileManagers.acquire(compiler, null).is(first)
+        !fileManagers.acquire(compiler, null).is(first)
+    }
+
+    def "replaces file manager when an archive it has seen changed"() {
+        def archive = tempDir.file("lib.jar")
+        archive.text = "content"
+        def first = fileManagers.acquire(compiler, null)
+        fileManagers.release(first, [archive, tempDir.file("missing.jar")])
+
+        when:
+        archive.text = "changed content"
+
+        then:
+        !fileManagers.acquire(compiler, null).is(first)
+        first.closed
+    }
+
+    def "closes idle file managers of other encodings when an archive they have seen changed"() {
+        def archive = tempDir.file("lib.jar")
+        archive.text = "content"
+        def first = fileManagers.acquire(compiler, StandardCharsets.UTF_8)
+        fileManagers.release(first, [archive])
+
+        when:
+        archive.delete()
+        def second = fileManagers.acquire(compiler, null)
+        fileManagers.release(second, [])
+
+        then:
+        first.closed
+        !second.closed
+        !fileManagers.acquire(compiler, StandardCharsets.UTF_8).is(first)
+    }
+
+    def "closes idle file managers when stopped"() {
+        def first = fileManagers.acquire(compiler, null)
+        def second = fileManagers.acquire(compiler, StandardCharsets.UTF_8)
+        fileManagers.release(first, [])
+        fileManagers.release(second, [])
+
+        when:
+        fileManagers.stop()
+
+        then:
+        first.closed
+        second.closed
+    }
+
+    def "closes file managers released after being stopped"() {
+        def first = fileManagers.acquire(compiler, null)
+        fileManagers.stop()
+
+        when:
+        fileManagers.release(first, [])
+
+        then:
+        first.closed
+        !fileManagers.acquire(compiler, null).is(first)
+    }
+
+    def "closes file managers beyond the idle limit"() {
+        def first = fileManagers.acquire(compiler, null)
+        def second = fileManagers.acquire(compiler, null)
+
+        when:
+        fileManagers.release(first, [])
+        fileManagers.release(second, [])
+
+        then:
+        fileManagers.acquire(compiler, null).is(first)
+        second.closed
+    }
+}
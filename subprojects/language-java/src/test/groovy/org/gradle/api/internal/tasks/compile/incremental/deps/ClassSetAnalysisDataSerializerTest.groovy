@@ -34,28 +34,62 @@ class ClassSetAnalysisDataSerializerTest extends Specification {
 
     def "serializes"() {
         def data = new ClassSetAnalysisData(["A", "B", "C", "D"] as Set,
-            ["A": dependentClasses(["B", "C"] as Set, [] as Set), "B": dependentClasses(["C"] as Set, [] as Set), "C": dependentClasses([] as Set, [] as Set), "D": dependencyToAll(),],
+            ["A": dependentClasses(["B", "C"] as Set, [] as Set), "B": dependentClasses(["C"] as Set, ["D"] as Set), "C": dependentClasses([] as Set, [] as Set), "D": dependencyToAll("Because"),],
             [C: new IntOpenHashSet([1, 2]) as IntSet, D: IntSets.EMPTY_SET]
-            ,"Because"
+            , null
         )
-        def os = new ByteArrayOutputStream()
-        def e = new OutputStreamBackedEncoder(os)
 
         when:
-        serializer.write(e, data)
-        ClassSetAnalysisData read = serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(os.toByteArray())))
+        ClassSetAnalysisData read = serializeAndRead(data)
 
         then:
-        read.dependents.keySet() == data.dependents.keySet()
-
-        ["A", "B", "C"].each {
-            assert read.dependents[it].privateDependentClasses == data.dependents[it].privateDependentClasses
-            assert read.dependents[it].accessibleDependentClasses == data.dependents[it].accessibleDependentClasses
-            assert read.dependents[it].dependencyToAll == data.dependents[it].dependencyToAll
+        ["A", "B", "C", "E"].each {
+            assert read.getDependents(it).privateDependentClasses == data.getDependents(it).privateDependentClasses
+            assert read.getDependents(it).accessibleDependentClasses == data.getDependents(it).accessibleDependentClasses
+            assert !read.getDependents(it).dependencyToAll
         }
 
-        read.dependents["D"].dependencyToAll
-        read.classesToConstants == [C: [1,2] as Set, D: [] as Set]
-        read.fullRebuildCause == "Because"
+        read.getDependents("B").privateDependentClasses == ["C"] as Set
+        read.getDependents("B").accessibleDependentClasses == ["D"] as Set
+        read.getDependents("D").dependencyToAll
+        read.getDependents("D").description == "Because"
+        read.getConstants("C") == [1, 2] as Set
+        read.getConstants("D") == [] as Set
+        read.getConstants("A") == [] as Set
+        read.getDependents("package-info").allDependentClasses == ["A", "B", "C", "D"] as Set
+    }
+
+    def "serializes full rebuild cause"() {
+        def data = new ClassSetAnalysisData(["A"] as Set, [:], [:], "Because")
+
+        when:
+        ClassSetAnalysisData read = serializeAndRead(data)
+
+        then:
+        read.getDependents("A").dependencyToAll
+        read.getDependents("A").description == "Because"
+    }
+
+    def "shares common prefixes of class names"() {
+        def data = new ClassSetAnalysisData(["org.gradle.A", "org.gradle.B", "org.gradle.internal.C", "D"] as Set,
+            ["org.gradle.A": dependentClasses(["org.gradle.internal.C"] as Set, ["org.gradle.B", "D"] as Set)],
+            [:], null
+        )
+
+        when:
+        ClassSetAnalysisData read = serializeAndRead(data)
+
+        then:
+        read.getDependents("org.gradle.A").privateDependentClasses == ["org.gradle.internal.C"] as Set
+        read.getDependents("org.gradle.A").accessibleDependentClasses == ["org.gradle.B", "D"] as Set
+        read.getDependents("org.gradle.package-info").allDependentClasses == ["org.gradle.A", "org.gradle.B"] as Set
+    }
+
+    private ClassSetAnalysisData serializeAndRead(ClassSetAnalysisData data) {
+        def os = new ByteArrayOutputStream()
+        def e = new OutputStreamBackedEncoder(os)
+        serializer.write(e, data)
+        e.flush()
+        return serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(os.toByteArray())))
     }
 }
@@ -24,20 +24,31 @@
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.function.Predicate;
 
 /**
  * Caches the result of hashing regular files with a {@link ResourceHasher}.
- * It does not cache the result of hashing {@link ZipEntry}s.
+ * It only caches the result of hashing {@link ZipEntry}s with selected names, since the content of an entry needs to be hashed to look it up.
  * It also caches the absence of a hash.
  */
 public class CachingResourceHasher implements ResourceHasher {
     private final ResourceHasher delegate;
     private final ResourceSnapshotterCacheService resourceSnapshotterCacheService;
+    @Nullable
+    private final Predicate<String> cachedZipEntries;
     private final HashCode delegateConfigurationHash;
 
     public CachingResourceHasher(ResourceHasher delegate, ResourceSnapshotterCacheService resourceSnapshotterCacheService) {
+        this(delegate, resourceSnapshotterCacheService, null);
+    }
+
+    /**
+     * @param cachedZipEntries selects the zip entries, by name, for which hashing with the delegate is more expensive than hashing their content.
+     */
+    public CachingResourceHasher(ResourceHasher delegate, ResourceSnapshotterCacheService resourceSnapshotterCacheService, @Nullable Predicate<String> cachedZipEntries) {
         this.delegate = delegate;
         this.resourceSnapshotterCacheService = resourceSnapshotterCacheService;
+        this.cachedZipEntries = cachedZipEntries;
         Hasher hasher = Hashing.newHasher();
         delegate.appendConfigurationToHasher(hasher);
         this.delegateConfigurationHash = hasher.hash();
@@ -51,6 +62,9 @@ public HashCode hash(RegularFileSnapshot fileSnapshot) {
 
     @Override
     public HashCode hash(ZipEntryContext zipEntryContext) throws IOException {
+        if (cachedZipEntries != null && cachedZipEntries.test(zipEntryContext.getEntry().getName())) {
+            return resourceSnapshotterCacheService.hashZipEntry(zipEntryContext, delegate, delegateConfigurationHash);
+        }
         return delegate.hash(zipEntryContext);
     }
 
@@ -20,8 +20,15 @@
 import org.gradle.internal.snapshot.RegularFileSnapshot;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 
 public interface ResourceSnapshotterCacheService {
     @Nullable
     HashCode hashFile(RegularFileSnapshot fileSnapshot, RegularFileHasher hasher, HashCode configurationHash);
+
+    /**
+     * Hashes a zip entry with the given hasher, caching the result by the hash of the content of the entry.
+     */
+    @Nullable
+    HashCode hashZipEntry(ZipEntryContext zipEntryContext, ResourceHasher hasher, HashCode configurationHash) throws IOException;
 }
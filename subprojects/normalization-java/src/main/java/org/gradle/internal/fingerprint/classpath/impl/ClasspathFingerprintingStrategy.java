@@ -16,7 +16,6 @@
 
 package org.gradle.internal.fingerprint.classpath.impl;
 
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Interner;
 import com.google.common.collect.Iterables;
 import org.gradle.api.internal.changedetection.state.ManifestFileZipEntryHasher;
@@ -32,6 +31,7 @@
 import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
 import org.gradle.internal.fingerprint.FingerprintHashingStrategy;
 import org.gradle.internal.fingerprint.impl.AbstractFingerprintingStrategy;
+import org.gradle.internal.fingerprint.impl.CompactFingerprintMap;
 import org.gradle.internal.fingerprint.impl.DefaultFileSystemLocationFingerprint;
 import org.gradle.internal.fingerprint.impl.IgnoredPathFileSystemLocationFingerprint;
 import org.gradle.internal.hash.HashCode;
@@ -112,7 +112,7 @@ public String normalizePath(CompleteFileSystemLocationSnapshot snapshot) {
 
     @Override
     public Map<String, FileSystemLocationFingerprint> collectFingerprints(Iterable<? extends FileSystemSnapshot> roots) {
-        ImmutableMap.Builder<String, FileSystemLocationFingerprint> builder = ImmutableMap.builder();
+        CompactFingerprintMap.Builder builder = CompactFingerprintMap.builder();
         HashSet<String> processedEntries = new HashSet<String>();
         for (FileSystemSnapshot root : roots) {
             ClasspathFingerprintVisitor fingerprintVisitor = new ClasspathFingerprintVisitor(processedEntries, builder);
@@ -211,9 +211,9 @@ private HashCode fingerprintZipContents(RegularFileSnapshot fileSnapshot) {
     private class ClasspathFingerprintVisitor {
         private final RelativePathStringTracker relativePathStringTracker;
         private final HashSet<String> processedEntries;
-        private final ImmutableMap.Builder<String, FileSystemLocationFingerprint> builder;
+        private final CompactFingerprintMap.Builder builder;
 
-        public ClasspathFingerprintVisitor(HashSet<String> processedEntries, ImmutableMap.Builder<String, FileSystemLocationFingerprint> builder) {
+        public ClasspathFingerprintVisitor(HashSet<String> processedEntries, CompactFingerprintMap.Builder builder) {
             this.processedEntries = processedEntries;
             this.builder = builder;
             this.relativePathStringTracker = new RelativePathStringTracker();
@@ -63,4 +63,33 @@ class CachingResourceHasherTest extends Specification {
 
         actualHash == expectedHash
     }
+
+    def "uses cache service for selected zip entries"() {
+        def expectedHash = HashCode.fromInt(123)
+        def cachingHasher = new CachingResourceHasher(delegate, snapshotterCacheService, { it.endsWith(".class") })
+        def classEntry = Mock(ZipEntry)
+        def classEntryContext = new ZipEntryContext(classEntry, "Foo.class", "foo.zip")
+        def resourceEntry = Mock(ZipEntry)
+        def resourceEntryContext = new ZipEntryContext(resourceEntry, "foo.txt", "foo.zip")
+
+        when:
+        def actualHash = cachingHasher.hash(classEntryContext)
+
+        then:
+        _ * classEntry.name >> "Foo.class"
+        1 * snapshotterCacheService.hashZipEntry(classEntryContext, delegate, _) >> expectedHash
+        0 * _
+
+        actualHash == expectedHash
+
+        when:
+        actualHash = cachingHasher.hash(resourceEntryContext)
+
+        then:
+        _ * resourceEntry.name >> "foo.txt"
+        1 * delegate.hash(resourceEntryContext) >> expectedHash
+        0 * _
+
+        actualHash == expectedHash
+    }
 }
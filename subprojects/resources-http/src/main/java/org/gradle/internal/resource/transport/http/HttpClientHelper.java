@@ -23,6 +23,7 @@
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -40,6 +41,7 @@
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -88,6 +90,21 @@ public HttpClientResponse performGet(String source, boolean revalidate) {
         return processResponse(performRawGet(source, revalidate));
     }
 
+    /**
+     * Performs a revalidating GET request which is answered with a '304 Not Modified' response by the server
+     * if the resource still matches the given entity tag or has not been modified since the given date.
+     */
+    public HttpClientResponse performConditionalGet(String source, @Nullable String etag, @Nullable Date lastModified) {
+        HttpGet request = new HttpGet(source);
+        if (etag != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, DateUtils.formatDate(lastModified));
+        }
+        return processResponse(performRequest(request, true));
+    }
+
     public HttpClientResponse performRequest(HttpRequestBase request, boolean revalidate) {
         String method = request.getMethod();
         if (revalidate) {
@@ -16,6 +16,7 @@
 package org.gradle.internal.resource.transport.http;
 
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.utils.DateUtils;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.resource.metadata.DefaultExternalResourceMetaData;
@@ -64,6 +65,11 @@ public int getStatusCode() {
         return response.getStatusLine().getStatusCode();
     }
 
+    @Override
+    public boolean isUnchanged() {
+        return getStatusCode() == HttpStatus.SC_NOT_MODIFIED;
+    }
+
     public long getLastModified() {
         String responseHeader = response.getHeader(HttpHeaders.LAST_MODIFIED);
         if (responseHeader == null) {
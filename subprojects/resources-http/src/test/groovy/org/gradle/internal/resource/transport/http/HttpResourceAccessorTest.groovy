@@ -16,7 +16,11 @@
 
 package org.gradle.internal.resource.transport.http
 
+import org.apache.http.HttpStatus
+import org.apache.http.HttpVersion
 import org.apache.http.client.methods.CloseableHttpResponse
+import org.apache.http.message.BasicStatusLine
+import org.gradle.internal.resource.metadata.DefaultExternalResourceMetaData
 import spock.lang.Specification
 
 class HttpResourceAccessorTest extends Specification {
@@ -34,4 +38,22 @@ class HttpResourceAccessorTest extends Specification {
         then:
         1 * response.close()
     }
+
+    def "performs conditional request using the previous entity tag and last modified date"() {
+        def lastModified = new Date(1000)
+        def previous = new DefaultExternalResourceMetaData(uri, lastModified.time, 42, null, "etag", null)
+        def response = Stub(CloseableHttpResponse) {
+            getStatusLine() >> new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_NOT_MODIFIED, "Not Modified")
+        }
+        def http = Mock(HttpClientHelper)
+
+        when:
+        def resource = new HttpResourceAccessor(http).openResourceIfChanged(uri, previous)
+
+        then:
+        1 * http.performConditionalGet(uri.toString(), "etag", lastModified) >> new HttpClientResponse("GET", uri, response)
+
+        and:
+        resource.unchanged
+    }
 }
@@ -19,6 +19,7 @@
 import org.gradle.api.Transformer;
 import org.gradle.api.resources.ResourceException;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.resource.metadata.ExternalResourceMetaDataCompare;
 
 import javax.annotation.Nullable;
 import java.io.File;
@@ -110,6 +111,28 @@ public interface ExternalResource extends Resource {
     @Nullable
     <T> ExternalResourceReadResult<T> withContentIfPresent(ContentAction<? extends T> readAction) throws ResourceException;
 
+    /**
+     * Executes the given action against the binary contents and meta-data of this resource, if the resource exists and has changed
+     * since it was last read. The resource is always revalidated.
+     *
+     * The default implementation obtains the meta-data of the resource first, and only reads the resource when it has changed.
+     *
+     * @param previous The meta-data of the resource, as recorded when it was last read.
+     * @throws ResourceException on failure to read the content.
+     * @return null if the resource does not exist. When the resource has not changed, the action is not executed and the returned result is {@link ExternalResourceReadResult#isUnchanged() unchanged}.
+     */
+    @Nullable
+    default <T> ExternalResourceReadResult<T> withContentIfChanged(ExternalResourceMetaData previous, ContentAction<? extends T> readAction) throws ResourceException {
+        ExternalResourceMetaData current = getMetaData();
+        if (current == null) {
+            return null;
+        }
+        if (ExternalResourceMetaDataCompare.isDefinitelyUnchanged(previous, () -> current)) {
+            return ExternalResourceReadResult.unchanged();
+        }
+        return withContentIfPresent(readAction);
+    }
+
     /**
      * Copies the given content to this resource.
      *
@@ -18,6 +18,7 @@
 
 import org.gradle.api.resources.ResourceException;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.resource.metadata.ExternalResourceMetaDataCompare;
 
 import javax.annotation.Nullable;
 import java.net.URI;
@@ -56,4 +57,30 @@ public interface ExternalResourceAccessor {
     @Nullable
     ExternalResourceMetaData getMetaData(URI location, boolean revalidate) throws ResourceException;
 
+    /**
+     * Read the resource at the given location, unless it has not changed since it was last read. The resource is always revalidated.
+     *
+     * If the resource does not exist, this method should return null. If the resource has not changed, this method returns
+     * a response for which {@link ExternalResourceReadResponse#isUnchanged()} is true.
+     *
+     * The default implementation obtains the metadata of the resource first and only reads the resource when it has changed.
+     * Transports that support conditional requests should override this method to do this with a single request.
+     *
+     * @param location The address of the resource to obtain
+     * @param previous The metadata of the resource, as recorded when it was last read
+     * @return The resource if it exists, otherwise null. Caller is responsible for closing the result.
+     * @throws ResourceException If the resource may exist, but not could be obtained for some reason.
+     */
+    @Nullable
+    default ExternalResourceReadResponse openResourceIfChanged(URI location, ExternalResourceMetaData previous) throws ResourceException {
+        ExternalResourceMetaData current = getMetaData(location, true);
+        if (current == null) {
+            return null;
+        }
+        if (ExternalResourceMetaDataCompare.isDefinitelyUnchanged(previous, () -> current)) {
+            return new UnchangedExternalResourceReadResponse(current);
+        }
+        return openResource(location, true);
+    }
+
 }
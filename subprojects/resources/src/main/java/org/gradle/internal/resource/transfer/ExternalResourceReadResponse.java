@@ -29,4 +29,12 @@ public interface ExternalResourceReadResponse extends Closeable {
     InputStream openStream() throws IOException;
 
     ExternalResourceMetaData getMetaData();
+
+    /**
+     * Returns true when this response is the result of a conditional read of a resource that has not changed since it was last read.
+     * Such a response has no content.
+     */
+    default boolean isUnchanged() {
+        return false;
+    }
 }
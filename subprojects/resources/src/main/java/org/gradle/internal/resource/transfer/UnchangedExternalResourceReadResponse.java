@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transfer;
+
+import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The response of a conditional read of a resource that did not change, and for which no content was transferred.
+ */
+public class UnchangedExternalResourceReadResponse implements ExternalResourceReadResponse {
+    private final ExternalResourceMetaData metaData;
+
+    public UnchangedExternalResourceReadResponse(ExternalResourceMetaData metaData) {
+        this.metaData = metaData;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        throw new IOException("Resource " + metaData.getLocation() + " has not changed, no content is available.");
+    }
+
+    @Override
+    public ExternalResourceMetaData getMetaData() {
+        return metaData;
+    }
+
+    @Override
+    public boolean isUnchanged() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+}
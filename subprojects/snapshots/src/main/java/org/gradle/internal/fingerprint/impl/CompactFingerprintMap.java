@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.fingerprint.impl;
+
+import org.gradle.internal.file.FileType;
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map from absolute paths to fingerprints, which keeps the iteration order of the entries.
+ *
+ * Fingerprint collections are retained for every file property of every work unit in the build, so instead of entry and fingerprint objects,
+ * this map only keeps the absolute path, the normalized path and the normalized content hash of each entry in arrays.
+ * The fingerprints are re-created when they are queried, and the index for lookups by path is only built on the first lookup.
+ */
+public class CompactFingerprintMap extends AbstractMap<String, FileSystemLocationFingerprint> {
+    private static final Map<String, FileSystemLocationFingerprint> EMPTY = new CompactFingerprintMap(new String[0], new String[0], new HashCode[0], 0);
+
+    private final String[] absolutePaths;
+    // null when the path of the entry is ignored
+    private final String[] normalizedPaths;
+    private final HashCode[] normalizedContentHashes;
+    private final int size;
+    private volatile int[] index;
+
+    private CompactFingerprintMap(String[] absolutePaths, String[] normalizedPaths, HashCode[] normalizedContentHashes, int size) {
+        this.absolutePaths = absolutePaths;
+        this.normalizedPaths = normalizedPaths;
+        this.normalizedContentHashes = normalizedContentHashes;
+        this.size = size;
+    }
+
+    public static Builder builder() {
+        return new Builder(16);
+    }
+
+    public static Builder builderWithExpectedSize(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Nullable
+    @Override
+    public FileSystemLocationFingerprint get(Object key) {
+        int position = indexOf(key);
+        return position < 0 ? null : fingerprintAt(position);
+    }
+
+    @Override
+    public Set<Entry<String, FileSystemLocationFingerprint>> entrySet() {
+        return new AbstractSet<Entry<String, FileSystemLocationFingerprint>>() {
+            @Override
+            public Iterator<Entry<String, FileSystemLocationFingerprint>> iterator() {
+                return new Iterator<Entry<String, FileSystemLocationFingerprint>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<String, FileSystemLocationFingerprint> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        int position = next++;
+                        return new SimpleImmutableEntry<>(absolutePaths[position], fingerprintAt(position));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private FileSystemLocationFingerprint fingerprintAt(int position) {
+        HashCode normalizedContentHash = normalizedContentHashes[position];
+        FileType type = typeOf(normalizedContentHash);
+        String normalizedPath = normalizedPaths[position];
+        return normalizedPath == null
+            ? IgnoredPathFileSystemLocationFingerprint.create(type, normalizedContentHash)
+            : new DefaultFileSystemLocationFingerprint(normalizedPath, type, normalizedContentHash);
+    }
+
+    private static FileType typeOf(HashCode normalizedContentHash) {
+        if (normalizedContentHash == FileSystemLocationFingerprint.DIR_SIGNATURE) {
+            return FileType.Directory;
+        } else if (normalizedContentHash == FileSystemLocationFingerprint.MISSING_FILE_SIGNATURE) {
+            return FileType.Missing;
+        } else {
+            return FileType.RegularFile;
+        }
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String) || size == 0) {
+            return -1;
+        }
+        int[] table = index;
+        if (table == null) {
+            table = buildIndex();
+            index = table;
+        }
+        int mask = table.length - 1;
+        for (int slot = key.hashCode() & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int position = table[slot] - 1;
+            if (absolutePaths[position].equals(key)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds an open addressing hash table of the positions of the entries, offset by one so that zero denotes an empty slot.
+     */
+    private int[] buildIndex() {
+        int[] table = new int[Integer.highestOneBit(Math.max(size, 1) * 2) * 2];
+        int mask = table.length - 1;
+        for (int position = 0; position < size; position++) {
+            int slot = absolutePaths[position].hashCode() & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = position + 1;
+        }
+        return table;
+    }
+
+    /**
+     * Collects the entries of a {@link CompactFingerprintMap}. Like the fingerprinting strategies, callers are expected to skip duplicate paths.
+     */
+    public static class Builder {
+        private String[] absolutePaths;
+        private String[] normalizedPaths;
+        private HashCode[] normalizedContentHashes;
+        private int size;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 1);
+            this.absolutePaths = new String[capacity];
+            this.normalizedPaths = new String[capacity];
+            this.normalizedContentHashes = new HashCode[capacity];
+        }
+
+        public Builder put(String absolutePath, FileSystemLocationFingerprint fingerprint) {
+            String normalizedPath;
+            if (fingerprint instanceof IgnoredPathFileSystemLocationFingerprint) {
+                normalizedPath = null;
+            } else if (fingerprint instanceof DefaultFileSystemLocationFingerprint) {
+                normalizedPath = fingerprint.getNormalizedPath();
+            } else {
+                throw new IllegalArgumentException("Unsupported fingerprint type: " + fingerprint.getClass().getName());
+            }
+            if (size == absolutePaths.length) {
+                int capacity = size * 2;
+                absolutePaths = Arrays.copyOf(absolutePaths, capacity);
+                normalizedPaths = Arrays.copyOf(normalizedPaths, capacity);
+                normalizedContentHashes = Arrays.copyOf(normalizedContentHashes, capacity);
+            }
+            absolutePaths[size] = absolutePath;
+            normalizedPaths[size] = normalizedPath;
+            normalizedContentHashes[size] = fingerprint.getNormalizedContentHash();
+            size++;
+            return this;
+        }
+
+        public Map<String, FileSystemLocationFingerprint> build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            if (size < absolutePaths.length) {
+                return new CompactFingerprintMap(Arrays.copyOf(absolutePaths, size), Arrays.copyOf(normalizedPaths, size), Arrays.copyOf(normalizedContentHashes, size), size);
+            }
+            return new CompactFingerprintMap(absolutePaths, normalizedPaths, normalizedContentHashes, size);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.fingerprint.impl
+
+import org.gradle.internal.file.FileType
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint
+import org.gradle.internal.hash.HashCode
+import spock.lang.Specification
+
+class CompactFingerprintMapTest extends Specification {
+
+    def "keeps entries in insertion order"() {
+        def fingerprints = [
+            "/root/b": new DefaultFileSystemLocationFingerprint("b", FileType.RegularFile, HashCode.fromInt(1)),
+            "/root": IgnoredPathFileSystemLocationFingerprint.DIRECTORY,
+            "/root/a": new DefaultFileSystemLocationFingerprint("a", FileType.Directory, HashCode.fromInt(2)),
+            "/root/c": new DefaultFileSystemLocationFingerprint("c", FileType.Missing, HashCode.fromInt(3)),
+            "/other": IgnoredPathFileSystemLocationFingerprint.create(FileType.RegularFile, HashCode.fromInt(4)),
+        ]
+
+        when:
+        def map = build(fingerprints)
+
+        then:
+        map.size() == 5
+        map.keySet() as List == ["/root/b", "/root", "/root/a", "/root/c", "/other"]
+        map.values() as List == fingerprints.values() as List
+        map == fingerprints
+        map.hashCode() == fingerprints.hashCode()
+        map["/root/a"].type == FileType.Directory
+        map["/root/c"].type == FileType.Missing
+        map["/other"].normalizedPath == ""
+    }
+
+    def "looks up entries by absolute path"() {
+        def fingerprints = (1..100).collectEntries {
+            ["/path/" + it, new DefaultFileSystemLocationFingerprint("file" + it, FileType.RegularFile, HashCode.fromInt(it))]
+        }
+
+        when:
+        def map = build(fingerprints)
+
+        then:
+        fingerprints.every { path, fingerprint -> map.get(path) == fingerprint }
+        map.containsKey("/path/42")
+        !map.containsKey("/path/101")
+        map.get("/path/101") == null
+        map.get(null) == null
+    }
+
+    def "builds empty map"() {
+        expect:
+        CompactFingerprintMap.builder().build().isEmpty()
+        CompactFingerprintMap.builder().build().get("/path") == null
+    }
+
+    def "is immutable"() {
+        def map = build(["/path": new DefaultFileSystemLocationFingerprint("path", FileType.RegularFile, HashCode.fromInt(1))])
+
+        when:
+        map.put("/other", IgnoredPathFileSystemLocationFingerprint.DIRECTORY)
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "rejects unsupported fingerprints"() {
+        when:
+        CompactFingerprintMap.builder().put("/path", Stub(FileSystemLocationFingerprint))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private static Map<String, FileSystemLocationFingerprint> build(Map<String, FileSystemLocationFingerprint> fingerprints) {
+        def builder = CompactFingerprintMap.builderWithExpectedSize(2)
+        fingerprints.each { path, fingerprint -> builder.put(path, fingerprint) }
+        builder.build()
+    }
+}
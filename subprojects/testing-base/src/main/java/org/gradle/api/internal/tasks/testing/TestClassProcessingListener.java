@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing;
+
+/**
+ * Notified as a {@link TestClassProcessor} gets through the test classes handed to it, so that more test classes can be
+ * handed to it on demand.
+ */
+public interface TestClassProcessingListener {
+    /**
+     * Called once a test class handed to the processor has been dealt with, and the processor is ready to accept another one.
+     * Processors which defer execution may call this before the test class has actually been executed.
+     */
+    void testClassProcessed();
+
+    /**
+     * Called when the processor has stopped unexpectedly, e.g. because the process running the tests died. The test classes
+     * handed to the processor which have not been reported as processed will not be processed.
+     */
+    void processorStopped();
+}
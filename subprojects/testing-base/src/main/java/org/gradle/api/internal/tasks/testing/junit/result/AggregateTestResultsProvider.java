@@ -110,6 +110,15 @@ public boolean apply(DelegateProvider delegateProvider) {
                 });
     }
 
+    @Override
+    public long getOutputSize(long id, TestOutputEvent.Destination destination) {
+        long size = 0;
+        for (DelegateProvider delegateProvider : classOutputProviders.get(id)) {
+            size += delegateProvider.provider.getOutputSize(delegateProvider.id, destination);
+        }
+        return size;
+    }
+
     @Override
     public void writeAllOutput(long id, TestOutputEvent.Destination destination, Writer writer) {
         for (DelegateProvider delegateProvider : classOutputProviders.get(id)) {
@@ -40,6 +40,7 @@ public class Binary2JUnitXmlReportGenerator {
     private final File testResultsDir;
     private final TestResultsProvider testResultsProvider;
     private JUnitXmlResultWriter xmlWriter;
+    private final String reportFormat;
     private final BuildOperationExecutor buildOperationExecutor;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
 
@@ -47,11 +48,26 @@ public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider t
         this.testResultsDir = testResultsDir;
         this.testResultsProvider = testResultsProvider;
         this.xmlWriter = new JUnitXmlResultWriter(hostName, testResultsProvider, outputAssociation);
+        this.reportFormat = "JUnit XML " + hostName + " " + outputAssociation;
         this.buildOperationExecutor = buildOperationExecutor;
     }
 
     public void generate() {
         Timer clock = Time.startTimer();
+        final TestReportFingerprints fingerprints = new TestReportFingerprints(testResultsDir, reportFormat);
+
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
+            @Override
+            public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
+                testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                    @Override
+                    public void execute(final TestClassResult result) {
+                        final File reportFile = new File(testResultsDir, getReportFileName(result));
+                        queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter, testResultsProvider, fingerprints));
+                    }
+                });
+            }
+        });
 
         buildOperationExecutor.run(new RunnableBuildOperation() {
             @Override
@@ -59,7 +75,7 @@ public void run(BuildOperationContext context) {
                 File[] oldXmlFiles = testResultsDir.listFiles(new FilenameFilter() {
                     @Override
                     public boolean accept(File dir, String name) {
-                        return name.startsWith("TEST") && name.endsWith(".xml");
+                        return name.startsWith("TEST") && name.endsWith(".xml") && !fingerprints.isGenerated(name);
                     }
                 });
 
@@ -73,19 +89,7 @@ public BuildOperationDescriptor.Builder description() {
                 return BuildOperationDescriptor.displayName("Delete old JUnit XML results");
             }
         });
-
-        buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
-            @Override
-            public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
-                testResultsProvider.visitClasses(new Action<TestClassResult>() {
-                    @Override
-                    public void execute(final TestClassResult result) {
-                        final File reportFile = new File(testResultsDir, getReportFileName(result));
-                        queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
-                    }
-                });
-            }
-        });
+        fingerprints.write();
 
         LOG.info("Finished generating test XML results ({}) into: {}", clock.getElapsed(), testResultsDir);
     }
@@ -98,11 +102,15 @@ private static class JUnitXmlReportFileGenerator implements RunnableBuildOperati
         private final TestClassResult result;
         private final File reportFile;
         private final JUnitXmlResultWriter xmlWriter;
+        private final TestResultsProvider testResultsProvider;
+        private final TestReportFingerprints fingerprints;
 
-        public JUnitXmlReportFileGenerator(TestClassResult result, File reportFile, JUnitXmlResultWriter xmlWriter) {
+        public JUnitXmlReportFileGenerator(TestClassResult result, File reportFile, JUnitXmlResultWriter xmlWriter, TestResultsProvider testResultsProvider, TestReportFingerprints fingerprints) {
             this.result = result;
             this.reportFile = reportFile;
             this.xmlWriter = xmlWriter;
+            this.testResultsProvider = testResultsProvider;
+            this.fingerprints = fingerprints;
         }
 
         @Override
@@ -112,6 +120,9 @@ public BuildOperationDescriptor.Builder description() {
 
         @Override
         public void run(BuildOperationContext context) {
+            if (fingerprints.isUpToDate(reportFile.getName(), reportFile, fingerprints.fingerprint(result, testResultsProvider))) {
+                return;
+            }
             FileOutputStream output = null;
             try {
                 output = new FileOutputStream(reportFile);
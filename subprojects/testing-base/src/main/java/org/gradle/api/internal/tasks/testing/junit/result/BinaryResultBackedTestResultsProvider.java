@@ -42,6 +42,18 @@ public void execute(TestOutputStore.Reader reader) {
         return hasOutput[0];
     }
 
+    @Override
+    public long getOutputSize(final long id, final TestOutputEvent.Destination destination) {
+        final long[] size = new long[1];
+        withReader(new Action<TestOutputStore.Reader>() {
+            @Override
+            public void execute(TestOutputStore.Reader reader) {
+                size[0] = reader.getOutputSize(id, destination);
+            }
+        });
+        return size[0];
+    }
+
     @Override
     public void writeAllOutput(final long id, final TestOutputEvent.Destination destination, final Writer writer) {
         withReader(new Action<TestOutputStore.Reader>() {
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores how long each test class took to run, next to the binary results of a test task. Like the binary results, the durations
+ * only contain the test classes of the last run, so that test classes which were removed or renamed do not pile up.
+ */
+public class TestClassDurationsSerializer {
+    private static final Logger LOGGER = Logging.getLogger(TestClassDurationsSerializer.class);
+    private static final int DURATIONS_VERSION = 1;
+
+    private final File durationsFile;
+
+    public TestClassDurationsSerializer(File resultsDir) {
+        this.durationsFile = new File(resultsDir, "class-durations.bin");
+    }
+
+    /**
+     * Returns the durations of the given results, by class name.
+     */
+    public static Map<String, Long> durationsOf(Collection<TestClassResult> results) {
+        Map<String, Long> durations = new HashMap<String, Long>(results.size() * 2);
+        for (TestClassResult result : results) {
+            durations.put(result.getClassName(), Math.max(0, result.getDuration()));
+        }
+        return durations;
+    }
+
+    public void write(Map<String, Long> durations) {
+        try {
+            OutputStream outputStream = new FileOutputStream(durationsFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(DURATIONS_VERSION);
+                encoder.writeSmallInt(durations.size());
+                for (Map.Entry<String, Long> entry : durations.entrySet()) {
+                    encoder.writeString(entry.getKey());
+                    encoder.writeSmallLong(entry.getValue());
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the durations of test classes, in milliseconds, by class name. Returns an empty map when no durations were stored,
+     * when they were stored in a format this version does not understand, or when they cannot be read: durations are only used to
+     * schedule test classes.
+     */
+    public Map<String, Long> read() {
+        return read(durationsFile);
+    }
+
+    /**
+     * Reads the durations of test classes from the given file, which was written by this serializer. See {@link #read()}.
+     */
+    public static Map<String, Long> read(File durationsFile) {
+        if (!durationsFile.isFile()) {
+            return Collections.emptyMap();
+        }
+        try {
+            InputStream inputStream = new FileInputStream(durationsFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != DURATIONS_VERSION) {
+                    return Collections.emptyMap();
+                }
+                int count = decoder.readSmallInt();
+                Map<String, Long> durations = new HashMap<String, Long>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    durations.put(decoder.readString(), decoder.readSmallLong());
+                }
+                return durations;
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            // A truncated or otherwise corrupt file, e.g. when the build was killed while writing it
+            LOGGER.info("Could not read test class durations from {}, ignoring them.", durationsFile, e);
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -18,21 +18,52 @@
 
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import com.google.common.collect.ImmutableMap;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
-import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
-import java.io.*;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 
+/**
+ * Stores the output of tests in compressed blocks.
+ *
+ * <p>The output events are appended to a block, which is compressed and written to the outputs file once it is full. For each block, the index file
+ * lists the test classes with output in the block, and the size of their output in the block. The index is written block by block, so that the
+ * writer only keeps the current block in memory, and the reader only keeps the blocks of each test class, and decompresses only the blocks of the
+ * test class it reads the output of. The output of a whole test class is written straight from the blocks to the writer. The reader keeps the
+ * decoded output of the last test class it read the output of a test for, so that writing the output of each test of a class decodes its blocks
+ * once, unless that output is too large to be kept in memory.</p>
+ */
 public class TestOutputStore {
 
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final long MAX_CACHED_OUTPUT_SIZE = 4 * 1024 * 1024;
+    private static final byte STDOUT = 1;
+    private static final byte STDERR = 2;
+
     private final File resultsDir;
     private final Charset messageStorageCharset;
 
@@ -49,34 +80,21 @@ File getIndexFile() {
         return new File(resultsDir, getOutputsFile().getName() + ".idx");
     }
 
-    private static class Region {
-        long start;
-        long stop;
-
-        private Region() {
-            start = -1;
-            stop = -1;
-        }
-
-        private Region(long start, long stop) {
-            this.start = start;
-            this.stop = stop;
-        }
-    }
-
-    private static class TestCaseRegion {
-        Region stdOutRegion = new Region();
-        Region stdErrRegion = new Region();
-    }
-
     public class Writer implements Closeable {
-        private final KryoBackedEncoder output;
-
-        private final Map<Long, Map<Long, TestCaseRegion>> index = new LinkedHashMap<Long, Map<Long, TestCaseRegion>>();
+        private final DataOutputStream dataOutput;
+        private final Output indexOutput;
+        private final ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE + 1024);
+        private final KryoBackedEncoder blockEncoder = new KryoBackedEncoder(block);
+        private final ByteArrayOutputStream compressedBlock = new ByteArrayOutputStream(BLOCK_SIZE);
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final Map<Long, BlockClass> blockClasses = new LinkedHashMap<Long, BlockClass>();
+        private long blockStart;
+        private long dataPosition;
 
         public Writer() {
             try {
-                output = new KryoBackedEncoder(new FileOutputStream(getOutputsFile()));
+                dataOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getOutputsFile())));
+                indexOutput = new Output(new FileOutputStream(getIndexFile()));
             } catch (FileNotFoundException e) {
                 throw new UncheckedIOException(e);
             }
@@ -84,8 +102,15 @@ public Writer() {
 
         @Override
         public void close() {
-            output.close();
-            writeIndex();
+            try {
+                flushBlock();
+                dataOutput.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                indexOutput.close();
+                deflater.end();
+            }
         }
 
         public void onOutput(long classId, TestOutputEvent outputEvent) {
@@ -94,11 +119,16 @@ public void onOutput(long classId, TestOutputEvent outputEvent) {
 
         public void onOutput(long classId, long testId, TestOutputEvent outputEvent) {
             boolean stdout = outputEvent.getDestination() == TestOutputEvent.Destination.StdOut;
-            mark(classId, testId, stdout);
+            BlockClass blockClass = blockClasses.get(classId);
+            if (blockClass == null) {
+                blockClass = new BlockClass();
+                blockClasses.put(classId, blockClass);
+            }
+            long eventStart = blockEncoder.getWritePosition();
 
-            output.writeBoolean(stdout);
-            output.writeSmallLong(classId);
-            output.writeSmallLong(testId);
+            blockEncoder.writeBoolean(stdout);
+            blockEncoder.writeSmallLong(classId);
+            blockEncoder.writeSmallLong(testId);
 
             byte[] bytes;
             try {
@@ -106,64 +136,53 @@ public void onOutput(long classId, long testId, TestOutputEvent outputEvent) {
             } catch (UnsupportedEncodingException e) {
                 throw UncheckedException.throwAsUncheckedException(e);
             }
-            output.writeSmallInt(bytes.length);
-            output.writeBytes(bytes, 0, bytes.length);
-        }
-
-        private void mark(long classId, long testId, boolean isStdout) {
-            if (!index.containsKey(classId)) {
-                index.put(classId, new LinkedHashMap<Long, TestCaseRegion>());
-            }
-
-            Map<Long, TestCaseRegion> testCaseRegions = index.get(classId);
-            if (!testCaseRegions.containsKey(testId)) {
-                TestCaseRegion region = new TestCaseRegion();
-                testCaseRegions.put(testId, region);
-            }
-
-            TestCaseRegion region = testCaseRegions.get(testId);
-
-            Region streamRegion = isStdout ? region.stdOutRegion : region.stdErrRegion;
+            blockEncoder.writeSmallInt(bytes.length);
+            blockEncoder.writeBytes(bytes, 0, bytes.length);
+            blockClass.add(stdout ? STDOUT : STDERR, (int) (blockEncoder.getWritePosition() - eventStart));
 
-            long total = output.getWritePosition();
-            if (streamRegion.start < 0) {
-                streamRegion.start = total;
+            if (blockEncoder.getWritePosition() - blockStart >= BLOCK_SIZE) {
+                try {
+                    flushBlock();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
             }
-            streamRegion.stop = total;
         }
 
-        private void writeIndex() {
-            Output indexOutput;
-            try {
-                indexOutput = new Output(new FileOutputStream(getIndexFile()));
-            } catch (FileNotFoundException e) {
-                throw new UncheckedIOException(e);
+        private void flushBlock() throws IOException {
+            if (blockClasses.isEmpty()) {
+                return;
             }
-
-
-            try {
-                indexOutput.writeInt(index.size(), true);
-
-                for (Map.Entry<Long, Map<Long, TestCaseRegion>> classEntry : index.entrySet()) {
-                    Long classId = classEntry.getKey();
-                    Map<Long, TestCaseRegion> regions = classEntry.getValue();
-
-                    indexOutput.writeLong(classId, true);
-                    indexOutput.writeInt(regions.size(), true);
-
-                    for (Map.Entry<Long, TestCaseRegion> testCaseEntry : regions.entrySet()) {
-                        long id = testCaseEntry.getKey();
-                        TestCaseRegion region = testCaseEntry.getValue();
-                        indexOutput.writeLong(id, true);
-                        indexOutput.writeLong(region.stdOutRegion.start);
-                        indexOutput.writeLong(region.stdOutRegion.stop);
-                        indexOutput.writeLong(region.stdErrRegion.start);
-                        indexOutput.writeLong(region.stdErrRegion.stop);
-                    }
+            blockEncoder.flush();
+            blockStart = blockEncoder.getWritePosition();
+
+            compressedBlock.reset();
+            deflater.reset();
+            DeflaterOutputStream compressor = new DeflaterOutputStream(compressedBlock, deflater);
+            block.writeTo(compressor);
+            compressor.finish();
+
+            dataOutput.writeInt(block.size());
+            dataOutput.writeInt(compressedBlock.size());
+            compressedBlock.writeTo(dataOutput);
+
+            indexOutput.writeLong(dataPosition, true);
+            indexOutput.writeInt(blockClasses.size(), true);
+            for (Map.Entry<Long, BlockClass> entry : blockClasses.entrySet()) {
+                BlockClass blockClass = entry.getValue();
+                indexOutput.writeLong(entry.getKey(), true);
+                indexOutput.writeByte(blockClass.destinations);
+                if ((blockClass.destinations & STDOUT) != 0) {
+                    indexOutput.writeInt(blockClass.stdOutSize, true);
+                }
+                if ((blockClass.destinations & STDERR) != 0) {
+                    indexOutput.writeInt(blockClass.stdErrSize, true);
                 }
-            } finally {
-                indexOutput.close();
             }
+
+            dataPosition += 8 + compressedBlock.size();
+            block.reset();
+            blockClasses.clear();
         }
     }
 
@@ -171,55 +190,73 @@ public Writer writer() {
         return new Writer();
     }
 
-    private static class Index {
-        final ImmutableMap<Long, Index> children;
-        final Region stdOut;
-        final Region stdErr;
-
-        private Index(Region stdOut, Region stdErr) {
-            this.children = ImmutableMap.of();
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
+    /**
+     * The output of a test class in the current block.
+     */
+    private static class BlockClass {
+        byte destinations;
+        int stdOutSize;
+        int stdErrSize;
+
+        void add(byte destination, int size) {
+            destinations |= destination;
+            if (destination == STDOUT) {
+                stdOutSize += size;
+            } else {
+                stdErrSize += size;
+            }
         }
+    }
 
-        private Index(ImmutableMap<Long, Index> children, Region stdOut, Region stdErr) {
-            this.children = children;
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
+    /**
+     * The positions of the blocks containing output of a test class.
+     */
+    private static class BlockList {
+        private long[] positions = new long[4];
+        private int size;
+
+        void add(long position) {
+            if (size == positions.length) {
+                long[] grown = new long[size * 2];
+                System.arraycopy(positions, 0, grown, 0, size);
+                positions = grown;
+            }
+            positions[size++] = position;
         }
     }
 
-    private static class IndexBuilder {
-        final Region stdOut = new Region();
-        final Region stdErr = new Region();
+    private static class OutputEntry {
+        final long testId;
+        final String message;
 
-        private final ImmutableMap.Builder<Long, Index> children = ImmutableMap.builder();
+        OutputEntry(long testId, String message) {
+            this.testId = testId;
+            this.message = message;
+        }
+    }
 
-        void add(long key, Index index) {
-            if (stdOut.start < 0) {
-                stdOut.start = index.stdOut.start;
-            }
-            if (stdErr.start < 0) {
-                stdErr.start = index.stdErr.start;
-            }
-            if (index.stdOut.stop > stdOut.stop) {
-                stdOut.stop = index.stdOut.stop;
-            }
-            if (index.stdErr.stop > stdErr.stop) {
-                stdErr.stop = index.stdErr.stop;
-            }
+    private interface OutputVisitor {
+        boolean accepts(long testId);
 
-            children.put(key, index);
-        }
+        void visit(long testId, String message) throws IOException;
+    }
 
-        Index build() {
-            return new Index(children.build(), stdOut, stdErr);
-        }
+    private static class ClassBlocks {
+        final BlockList stdOut = new BlockList();
+        final BlockList stdErr = new BlockList();
+        long stdOutSize;
+        long stdErrSize;
     }
 
     public class Reader implements Closeable {
-        private final Index index;
+        private final Map<Long, ClassBlocks> index;
         private final RandomAccessFile dataFile;
+        private final Inflater inflater = new Inflater();
+        private long cachedBlockPosition = -1;
+        private byte[] cachedBlock;
+        private Long cachedClassId;
+        private List<OutputEntry> cachedStdOut;
+        private List<OutputEntry> cachedStdErr;
 
         public Reader() {
             File indexFile = getIndexFile();
@@ -237,31 +274,33 @@ public Reader() {
                     throw new UncheckedIOException(e);
                 }
 
-                IndexBuilder rootBuilder = null;
+                index = new HashMap<Long, ClassBlocks>();
                 try {
-                    int numClasses = input.readInt(true);
-                    rootBuilder = new IndexBuilder();
-
-                    for (int classCounter = 0; classCounter < numClasses; ++classCounter) {
-                        long classId = input.readLong(true);
-                        IndexBuilder classBuilder = new IndexBuilder();
-
-                        int numEntries = input.readInt(true);
-                        for (int entryCounter = 0; entryCounter < numEntries; ++entryCounter) {
-                            long testId = input.readLong(true);
-                            Region stdOut = new Region(input.readLong(), input.readLong());
-                            Region stdErr = new Region(input.readLong(), input.readLong());
-                            classBuilder.add(testId, new Index(stdOut, stdErr));
+                    while (!input.eof()) {
+                        long position = input.readLong(true);
+                        int numClasses = input.readInt(true);
+                        for (int classCounter = 0; classCounter < numClasses; ++classCounter) {
+                            long classId = input.readLong(true);
+                            byte destinations = input.readByte();
+                            ClassBlocks classBlocks = index.get(classId);
+                            if (classBlocks == null) {
+                                classBlocks = new ClassBlocks();
+                                index.put(classId, classBlocks);
+                            }
+                            if ((destinations & STDOUT) != 0) {
+                                classBlocks.stdOut.add(position);
+                                classBlocks.stdOutSize += input.readInt(true);
+                            }
+                            if ((destinations & STDERR) != 0) {
+                                classBlocks.stdErr.add(position);
+                                classBlocks.stdErrSize += input.readInt(true);
+                            }
                         }
-
-                        rootBuilder.add(classId, classBuilder.build());
                     }
                 } finally {
                     input.close();
                 }
 
-                index = rootBuilder.build();
-
                 try {
                     dataFile = new RandomAccessFile(getOutputsFile(), "r");
                 } catch (FileNotFoundException e) {
@@ -279,23 +318,29 @@ public Reader() {
 
         @Override
         public void close() throws IOException {
+            inflater.end();
             if (dataFile != null) {
                 dataFile.close();
             }
         }
 
         public boolean hasOutput(long classId, TestOutputEvent.Destination destination) {
+            BlockList blocks = blocksOf(classId, destination);
+            return blocks != null && blocks.size > 0;
+        }
+
+        /**
+         * Returns the size of the stored output of the given test class, without reading the output.
+         */
+        public long getOutputSize(long classId, TestOutputEvent.Destination destination) {
             if (dataFile == null) {
-                return false;
+                return 0;
             }
-
-            Index classIndex = index.children.get(classId);
-            if (classIndex == null) {
-                return false;
-            } else {
-                Region region = destination == TestOutputEvent.Destination.StdOut ? classIndex.stdOut : classIndex.stdErr;
-                return region.start >= 0;
+            ClassBlocks classBlocks = index.get(classId);
+            if (classBlocks == null) {
+                return 0;
             }
+            return destination == TestOutputEvent.Destination.StdOut ? classBlocks.stdOutSize : classBlocks.stdErrSize;
         }
 
         public void writeAllOutput(long classId, TestOutputEvent.Destination destination, java.io.Writer writer) {
@@ -310,76 +355,136 @@ public void writeTestOutput(long classId, long testId, TestOutputEvent.Destinati
             doRead(classId, testId, false, destination, writer);
         }
 
-        private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
+        private BlockList blocksOf(long classId, TestOutputEvent.Destination destination) {
             if (dataFile == null) {
-                return;
+                return null;
             }
-
-            Index targetIndex = index.children.get(classId);
-            if (targetIndex != null && testId != 0) {
-                targetIndex = targetIndex.children.get(testId);
+            ClassBlocks classBlocks = index.get(classId);
+            if (classBlocks == null) {
+                return null;
             }
+            return destination == TestOutputEvent.Destination.StdOut ? classBlocks.stdOut : classBlocks.stdErr;
+        }
 
-            if (targetIndex == null) {
+        private void doRead(long classId, final long testId, final boolean allClassOutput, TestOutputEvent.Destination destination, final java.io.Writer writer) {
+            BlockList blocks = blocksOf(classId, destination);
+            if (blocks == null) {
                 return;
             }
-
             boolean stdout = destination == TestOutputEvent.Destination.StdOut;
-            Region region = stdout ? targetIndex.stdOut : targetIndex.stdErr;
+            try {
+                List<OutputEntry> output = cachedOutputOf(classId, stdout);
+                if (output == null && testId != 0 && getOutputSize(classId, destination) <= MAX_CACHED_OUTPUT_SIZE) {
+                    // Reports write the output of a test class one test after the other
+                    output = decodeAll(classId, stdout, blocks);
+                    if (stdout) {
+                        cachedStdOut = output;
+                    } else {
+                        cachedStdErr = output;
+                    }
+                }
+                if (output != null) {
+                    for (OutputEntry entry : output) {
+                        if (allClassOutput || entry.testId == testId) {
+                            writer.write(entry.message);
+                        }
+                    }
+                    return;
+                }
+                decode(classId, stdout, blocks, new OutputVisitor() {
+                    @Override
+                    public boolean accepts(long readTestId) {
+                        return allClassOutput || readTestId == testId;
+                    }
 
-            if (region.start < 0) {
-                return;
+                    @Override
+                    public void visit(long readTestId, String message) throws IOException {
+                        writer.write(message);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        }
 
-            boolean ignoreClassLevel = !allClassOutput && testId != 0;
-            boolean ignoreTestLevel = !allClassOutput && testId == 0;
+        /**
+         * Returns the decoded output of the given test class, when it is the last class the output of a test was read for.
+         */
+        private List<OutputEntry> cachedOutputOf(long classId, boolean stdout) {
+            if (cachedClassId == null || cachedClassId != classId) {
+                cachedClassId = classId;
+                cachedStdOut = null;
+                cachedStdErr = null;
+            }
+            return stdout ? cachedStdOut : cachedStdErr;
+        }
 
-            try {
-                dataFile.seek(region.start);
-                long maxPos = region.stop - region.start;
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
-                while (decoder.getReadPosition() <= maxPos) {
+        private List<OutputEntry> decodeAll(long classId, boolean stdout, BlockList blocks) throws IOException {
+            final List<OutputEntry> output = new ArrayList<OutputEntry>();
+            decode(classId, stdout, blocks, new OutputVisitor() {
+                @Override
+                public boolean accepts(long testId) {
+                    return true;
+                }
+
+                @Override
+                public void visit(long testId, String message) {
+                    output.add(new OutputEntry(testId, message));
+                }
+            });
+            return output;
+        }
+
+        private void decode(long classId, boolean stdout, BlockList blocks, OutputVisitor visitor) throws IOException {
+            for (int i = 0; i < blocks.size; i++) {
+                byte[] block = readBlock(blocks.positions[i]);
+                KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(block));
+                while (decoder.getReadPosition() < block.length) {
                     boolean readStdout = decoder.readBoolean();
                     long readClassId = decoder.readSmallLong();
                     long readTestId = decoder.readSmallLong();
                     int readLength = decoder.readSmallInt();
 
-                    boolean isClassLevel = readTestId == 0;
-
-                    if (stdout != readStdout || classId != readClassId) {
+                    if (stdout != readStdout || classId != readClassId || !visitor.accepts(readTestId)) {
                         decoder.skipBytes(readLength);
                         continue;
                     }
 
-                    if (ignoreClassLevel && isClassLevel) {
-                        decoder.skipBytes(readLength);
-                        continue;
-                    }
-
-                    if (ignoreTestLevel && !isClassLevel) {
-                        decoder.skipBytes(readLength);
-                        continue;
-                    }
+                    byte[] stringBytes = new byte[readLength];
+                    decoder.readBytes(stringBytes);
+                    visitor.visit(readTestId, new String(stringBytes, messageStorageCharset));
+                }
+            }
+        }
 
-                    if (testId == 0 || testId == readTestId) {
-                        byte[] stringBytes = new byte[readLength];
-                        decoder.readBytes(stringBytes);
-                        String message;
-                        try {
-                            message = new String(stringBytes, messageStorageCharset.name());
-                        } catch (UnsupportedEncodingException e) {
-                            // shouldn't happen
-                            throw UncheckedException.throwAsUncheckedException(e);
+        /**
+         * Returns the decompressed block at the given position. The last block is kept, as the output of both destinations of a test class
+         * is often in the same block.
+         */
+        private byte[] readBlock(long position) throws IOException {
+            if (position != cachedBlockPosition) {
+                dataFile.seek(position);
+                byte[] block = new byte[dataFile.readInt()];
+                byte[] compressedBlock = new byte[dataFile.readInt()];
+                dataFile.readFully(compressedBlock);
+                inflater.reset();
+                inflater.setInput(compressedBlock);
+                try {
+                    int length = 0;
+                    while (length < block.length) {
+                        int inflated = inflater.inflate(block, length, block.length - length);
+                        if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new IOException(String.format("Test output in '%s' is truncated.", getOutputsFile()));
                         }
-
-                        writer.write(message);
-                    } else {
-                        decoder.skipBytes(readLength);
+                        length += inflated;
                     }
+                } catch (DataFormatException e) {
+                    throw new IOException(String.format("Could not decompress test output in '%s'.", getOutputsFile()), e);
                 }
-            } catch (IOException e1) {
-                throw new UncheckedIOException(e1);
+                cachedBlockPosition = position;
+                cachedBlock = block;
             }
+            return cachedBlock;
         }
     }
 
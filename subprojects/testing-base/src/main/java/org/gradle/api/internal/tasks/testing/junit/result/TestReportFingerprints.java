@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.util.GFileUtils;
+import org.gradle.util.GradleVersion;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers a fingerprint of the test class results each file of a test report was generated from, so that a file which would be
+ * generated again from the same results can be kept as it is.
+ *
+ * <p>The fingerprints of the previous report are read, and their file deleted, when this is created: should the report generation fail
+ * half-way, no file of the report is trusted the next time. Call {@link #write()} once the report has been generated.</p>
+ */
+public class TestReportFingerprints {
+    private static final Logger LOGGER = Logging.getLogger(TestReportFingerprints.class);
+    private static final int FINGERPRINTS_VERSION = 1;
+
+    private final File fingerprintsFile;
+    private final String reportFormat;
+    private final Map<String, HashCode> previousFingerprints;
+    private final ConcurrentMap<String, HashCode> fingerprints = new ConcurrentHashMap<String, HashCode>();
+
+    /**
+     * @param reportDir the directory the report is generated into.
+     * @param reportFormat describes the format of the report files, including anything other than the test results that affects their content.
+     */
+    public TestReportFingerprints(File reportDir, String reportFormat) {
+        this.fingerprintsFile = new File(reportDir, ".report-fingerprints.bin");
+        this.reportFormat = reportFormat;
+        this.previousFingerprints = read();
+        GFileUtils.deleteQuietly(fingerprintsFile);
+    }
+
+    /**
+     * Calculates the fingerprint of the given results, including the size of their output. The output itself is not read, as the timing
+     * of the results already changes each time the tests run again.
+     */
+    public HashCode fingerprint(TestClassResult result, TestResultsProvider resultsProvider) {
+        Hasher hasher = Hashing.newHasher();
+        hasher.putString(reportFormat);
+        hasher.putString(result.getClassName());
+        hasher.putString(result.getClassDisplayName());
+        hasher.putLong(result.getStartTime());
+        for (TestMethodResult methodResult : result.getResults()) {
+            hasher.putString(methodResult.getName());
+            putNullableString(hasher, methodResult.getDisplayName());
+            hasher.putString(String.valueOf(methodResult.getResultType()));
+            hasher.putLong(methodResult.getDuration());
+            hasher.putLong(methodResult.getEndTime());
+            for (TestFailure failure : methodResult.getFailures()) {
+                putNullableString(hasher, failure.getMessage());
+                putNullableString(hasher, failure.getStackTrace());
+                putNullableString(hasher, failure.getExceptionType());
+            }
+        }
+        for (TestOutputEvent.Destination destination : TestOutputEvent.Destination.values()) {
+            hasher.putString(destination.name());
+            hasher.putLong(resultsProvider.getOutputSize(result.getId(), destination));
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Records the fingerprint of the results the given report file is generated from. Returns true when the file exists and was generated
+     * from results with the same fingerprint by the previous report. Can be called concurrently.
+     *
+     * @param path the path of the report file, relative to the report directory.
+     */
+    public boolean isUpToDate(String path, File reportFile, HashCode fingerprint) {
+        fingerprints.put(path, fingerprint);
+        return fingerprint.equals(previousFingerprints.get(path)) && reportFile.isFile();
+    }
+
+    /**
+     * Returns whether a fingerprint was recorded for the given report file by this report.
+     */
+    public boolean isGenerated(String path) {
+        return fingerprints.containsKey(path);
+    }
+
+    public void write() {
+        GFileUtils.mkdirs(fingerprintsFile.getParentFile());
+        try {
+            OutputStream outputStream = new FileOutputStream(fingerprintsFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(FINGERPRINTS_VERSION);
+                encoder.writeString(GradleVersion.current().getVersion());
+                encoder.writeSmallInt(fingerprints.size());
+                for (Map.Entry<String, HashCode> entry : fingerprints.entrySet()) {
+                    encoder.writeString(entry.getKey());
+                    encoder.writeBinary(entry.getValue().toByteArray());
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reports generated by a different Gradle version may have different content, so their fingerprints are ignored. So are fingerprints
+     * which cannot be read, in which case the whole report is generated again.
+     */
+    private Map<String, HashCode> read() {
+        if (!fingerprintsFile.isFile()) {
+            return Collections.emptyMap();
+        }
+        try {
+            InputStream inputStream = new FileInputStream(fingerprintsFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != FINGERPRINTS_VERSION || !decoder.readString().equals(GradleVersion.current().getVersion())) {
+                    return Collections.emptyMap();
+                }
+                int count = decoder.readSmallInt();
+                Map<String, HashCode> fingerprints = new HashMap<String, HashCode>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    fingerprints.put(decoder.readString(), HashCode.fromBytes(decoder.readBinary()));
+                }
+                return fingerprints;
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.info("Could not read test report fingerprints from {}, generating the whole report.", fingerprintsFile, e);
+            return Collections.emptyMap();
+        }
+    }
+
+    private static void putNullableString(Hasher hasher, String value) {
+        if (value == null) {
+            hasher.putNull();
+        } else {
+            hasher.putString(value);
+        }
+    }
+}
@@ -46,5 +46,11 @@ public interface TestResultsProvider extends Closeable {
 
     boolean hasOutput(long id, TestOutputEvent.Destination destination);
 
+    /**
+     * Returns the size of the output of the given test class, in an unspecified unit. Unlike the output itself, this is cheap to query.
+     * Any change to the output of a test class changes its size, unless the output is the same length.
+     */
+    long getOutputSize(long id, TestOutputEvent.Destination destination);
+
     boolean isHasResults();
 }
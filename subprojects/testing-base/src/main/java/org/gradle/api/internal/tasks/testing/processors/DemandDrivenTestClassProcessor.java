@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.Transformer;
+import org.gradle.api.internal.tasks.testing.TestClassProcessingListener;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.actor.Actor;
+import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.dispatch.DispatchException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Manages a set of parallel TestClassProcessors, like {@link MaxNParallelTestClassProcessor}. Instead of assigning test classes to
+ * processors as soon as they are received, test classes are queued and handed to the processors as they get through the ones already
+ * handed to them. A processor running slow test classes therefore receives fewer of them, and processors do not sit idle while others
+ * still have a backlog of test classes.
+ *
+ * Each processor is handed at most {@link #MAX_CLASSES_PER_PROCESSOR} test classes at a time, so that it can start with the next test
+ * class without waiting for the round trip to this processor.
+ */
+public class DemandDrivenTestClassProcessor implements TestClassProcessor {
+    static final int MAX_CLASSES_PER_PROCESSOR = 2;
+
+    private final int maxProcessors;
+    private final Transformer<TestClassProcessor, TestClassProcessingListener> factory;
+    private final ActorFactory actorFactory;
+    private final Lock lock = new ReentrantLock();
+    private final Condition classesHandedOut = lock.newCondition();
+    private final Deque<TestClassRunInfo> pending = new ArrayDeque<TestClassRunInfo>();
+    private final List<ProcessorSlot> slots = new ArrayList<ProcessorSlot>();
+    private final List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
+    private final List<TestClassProcessor> rawProcessors = new ArrayList<TestClassProcessor>();
+    private final List<Actor> actors = new ArrayList<Actor>();
+    private TestResultProcessor resultProcessor;
+    private Actor resultProcessorActor;
+    private volatile boolean stoppedNow;
+
+    public DemandDrivenTestClassProcessor(int maxProcessors, Transformer<TestClassProcessor, TestClassProcessingListener> factory, ActorFactory actorFactory) {
+        this.maxProcessors = maxProcessors;
+        this.factory = factory;
+        this.actorFactory = actorFactory;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        // Create a processor that processes events in its own thread
+        resultProcessorActor = actorFactory.createActor(resultProcessor);
+        this.resultProcessor = resultProcessorActor.getProxy(TestResultProcessor.class);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (stoppedNow) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (slots.size() < maxProcessors) {
+                startProcessor().handOut(testClass);
+            } else {
+                pending.add(testClass);
+                handOutPending();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ProcessorSlot startProcessor() {
+        ProcessorSlot slot = new ProcessorSlot();
+        TestClassProcessor processor = factory.transform(slot);
+        rawProcessors.add(processor);
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        processor.startProcessing(resultProcessor);
+        slot.processor = processor;
+        slots.add(slot);
+        return slot;
+    }
+
+    /**
+     * Hands the pending test classes to the processors with capacity left, least busy first. Must be called while holding the lock.
+     */
+    private void handOutPending() {
+        while (!pending.isEmpty()) {
+            ProcessorSlot target = null;
+            boolean anyAlive = false;
+            for (ProcessorSlot slot : slots) {
+                if (slot.stopped) {
+                    continue;
+                }
+                anyAlive = true;
+                if (slot.classesInFlight < MAX_CLASSES_PER_PROCESSOR && (target == null || slot.classesInFlight < target.classesInFlight)) {
+                    target = slot;
+                }
+            }
+            if (!anyAlive) {
+                // No processor is left to run these test classes: the failure of the processors is reported when they are stopped
+                pending.clear();
+            } else if (target == null) {
+                return;
+            } else {
+                target.handOut(pending.poll());
+            }
+        }
+        classesHandedOut.signalAll();
+    }
+
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            while (!pending.isEmpty() && !stoppedNow) {
+                classesHandedOut.await();
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
+        } catch (DispatchException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    @Override
+    public void stopNow() {
+        stoppedNow = true;
+        lock.lock();
+        try {
+            pending.clear();
+            classesHandedOut.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (TestClassProcessor processor : rawProcessors) {
+            processor.stopNow();
+        }
+    }
+
+    private class ProcessorSlot implements TestClassProcessingListener {
+        private TestClassProcessor processor;
+        private int classesInFlight;
+        private boolean stopped;
+
+        void handOut(TestClassRunInfo testClass) {
+            classesInFlight++;
+            processor.processTestClass(testClass);
+        }
+
+        @Override
+        public void testClassProcessed() {
+            lock.lock();
+            try {
+                classesInFlight--;
+                handOutPending();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void processorStopped() {
+            lock.lock();
+            try {
+                stopped = true;
+                handOutPending();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link TestResultProcessor} which coalesces the output events of each test, so that tests writing a lot of output do not send one event
+ * per line.
+ *
+ * <p>The output of a test is forwarded as a single event once it reaches {@link #MAX_BUFFERED_CHARS}, when the test writes to the other
+ * destination, when {@link #FLUSH_INTERVAL_MILLIS} have passed since it was buffered, and before any other event is forwarded, so that the
+ * output is still forwarded before the completion of the test.</p>
+ */
+public class OutputBatchingTestResultProcessor implements TestResultProcessor {
+    static final int MAX_BUFFERED_CHARS = 32 * 1024;
+    static final long FLUSH_INTERVAL_MILLIS = 200;
+
+    private final TestResultProcessor processor;
+    private final ScheduledExecutorService flushExecutor;
+    private final Object lock = new Object();
+    private final Map<Object, BufferedOutput> bufferedOutputs = new LinkedHashMap<Object, BufferedOutput>();
+    private boolean flushScheduled;
+
+    public OutputBatchingTestResultProcessor(TestResultProcessor processor, ScheduledExecutorService flushExecutor) {
+        this.processor = processor;
+        this.flushExecutor = flushExecutor;
+    }
+
+    @Override
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        synchronized (lock) {
+            flush();
+            processor.started(test, event);
+        }
+    }
+
+    @Override
+    public void completed(Object testId, TestCompleteEvent event) {
+        synchronized (lock) {
+            flush();
+            processor.completed(testId, event);
+        }
+    }
+
+    @Override
+    public void output(Object testId, TestOutputEvent event) {
+        synchronized (lock) {
+            BufferedOutput bufferedOutput = bufferedOutputs.get(testId);
+            if (bufferedOutput != null && bufferedOutput.destination != event.getDestination()) {
+                bufferedOutputs.remove(testId);
+                bufferedOutput.forward();
+                bufferedOutput = null;
+            }
+            if (bufferedOutput == null) {
+                bufferedOutput = new BufferedOutput(testId, event.getDestination());
+                bufferedOutputs.put(testId, bufferedOutput);
+            }
+            bufferedOutput.text.append(event.getMessage());
+            if (bufferedOutput.text.length() >= MAX_BUFFERED_CHARS) {
+                bufferedOutputs.remove(testId);
+                bufferedOutput.forward();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                flushExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (lock) {
+                            flush();
+                        }
+                    }
+                }, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void failure(Object testId, Throwable result) {
+        synchronized (lock) {
+            flush();
+            processor.failure(testId, result);
+        }
+    }
+
+    /**
+     * Forwards all buffered output. Needs to be called while holding the lock.
+     */
+    private void flush() {
+        flushScheduled = false;
+        if (bufferedOutputs.isEmpty()) {
+            return;
+        }
+        List<BufferedOutput> outputs = new ArrayList<BufferedOutput>(bufferedOutputs.values());
+        bufferedOutputs.clear();
+        for (BufferedOutput output : outputs) {
+            output.forward();
+        }
+    }
+
+    private class BufferedOutput {
+        private final Object testId;
+        private final TestOutputEvent.Destination destination;
+        private final StringBuilder text = new StringBuilder();
+
+        BufferedOutput(Object testId, TestOutputEvent.Destination destination) {
+            this.testId = testId;
+            this.destination = destination;
+        }
+
+        void forward() {
+            processor.output(testId, new DefaultTestOutputEvent(destination, text.toString()));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Passes test classes to its delegate longest first, according to how long they took to run previously, so that parallel processors
+ * do not end up waiting for a long test class which started last. Test classes which did not run previously are assumed to take the
+ * average time of the other test classes.
+ */
+public class RunLongestFirstTestClassProcessor implements TestClassProcessor {
+    private final Map<String, Long> previousDurations;
+    private final TestClassProcessor delegate;
+    private final LinkedHashSet<TestClassRunInfo> testClasses = new LinkedHashSet<TestClassRunInfo>();
+
+    public RunLongestFirstTestClassProcessor(Map<String, Long> previousDurations, TestClassProcessor delegate) {
+        this.previousDurations = previousDurations;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        delegate.startProcessing(resultProcessor);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        testClasses.add(testClass);
+    }
+
+    @Override
+    public void stop() {
+        for (EstimatedTestClass testClass : sortLongestFirst(testClasses, previousDurations)) {
+            delegate.processTestClass(testClass.getTestClass());
+        }
+        delegate.stop();
+    }
+
+    @Override
+    public void stopNow() {
+        delegate.stopNow();
+    }
+
+    /**
+     * Sorts the given test classes by estimated duration, longest first, then by name. The result only depends on the given test
+     * classes and durations, not on the order in which the test classes were detected.
+     */
+    static List<EstimatedTestClass> sortLongestFirst(Collection<TestClassRunInfo> testClasses, Map<String, Long> previousDurations) {
+        long knownTotal = 0;
+        int knownCount = 0;
+        for (TestClassRunInfo testClass : testClasses) {
+            Long duration = previousDurations.get(testClass.getTestClassName());
+            if (duration != null) {
+                knownTotal += duration;
+                knownCount++;
+            }
+        }
+        // Give every test class some weight, so that test classes are spread evenly when no durations are known
+        long unknownDuration = knownCount == 0 ? 1 : Math.max(1, knownTotal / knownCount);
+
+        List<EstimatedTestClass> sorted = new ArrayList<EstimatedTestClass>(testClasses.size());
+        for (TestClassRunInfo testClass : testClasses) {
+            Long duration = previousDurations.get(testClass.getTestClassName());
+            sorted.add(new EstimatedTestClass(testClass, duration == null ? unknownDuration : Math.max(1, duration)));
+        }
+        Collections.sort(sorted, new Comparator<EstimatedTestClass>() {
+            @Override
+            public int compare(EstimatedTestClass o1, EstimatedTestClass o2) {
+                int byDuration = Long.compare(o2.estimatedDuration, o1.estimatedDuration);
+                return byDuration != 0 ? byDuration : o1.testClass.getTestClassName().compareTo(o2.testClass.getTestClassName());
+            }
+        });
+        return sorted;
+    }
+
+    static class EstimatedTestClass {
+        private final TestClassRunInfo testClass;
+        private final long estimatedDuration;
+
+        EstimatedTestClass(TestClassRunInfo testClass, long estimatedDuration) {
+            this.testClass = testClass;
+            this.estimatedDuration = estimatedDuration;
+        }
+
+        TestClassRunInfo getTestClass() {
+            return testClass;
+        }
+
+        long getEstimatedDuration() {
+            return estimatedDuration;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Only passes the test classes of one shard to its delegate, so that the test classes of a test task can be spread over several
+ * builds. When durations of test classes are given, test classes are split into shards of about the same total duration, by handing
+ * each test class, longest first, to the shard with the lowest total so far. Otherwise, each test class is assigned to a shard based
+ * on a hash of its name, and test classes are passed through as they are detected.
+ *
+ * The split only depends on the detected test classes, on the given durations and on the number of shards, and not on any state of
+ * the build. For the shards to cover each test class exactly once, all builds must be given the same durations, for example from a
+ * durations file which is checked in or shared between the builds.
+ */
+public class ShardingTestClassProcessor implements TestClassProcessor {
+    private final int shardIndex;
+    private final int shardCount;
+    private final Map<String, Long> durations;
+    private final TestClassProcessor delegate;
+    private final LinkedHashSet<TestClassRunInfo> testClasses = new LinkedHashSet<TestClassRunInfo>();
+
+    /**
+     * @param shardIndex the shard to run, between 0 and {@code shardCount - 1}
+     * @param durations the durations of test classes to balance the shards with, empty to assign test classes by name
+     */
+    public ShardingTestClassProcessor(int shardIndex, int shardCount, Map<String, Long> durations, TestClassProcessor delegate) {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException(String.format("Invalid test shard %d of %d.", shardIndex + 1, shardCount));
+        }
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.durations = durations;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        delegate.startProcessing(resultProcessor);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (!durations.isEmpty()) {
+            testClasses.add(testClass);
+        } else if (shardOf(testClass.getTestClassName(), shardCount) == shardIndex) {
+            delegate.processTestClass(testClass);
+        }
+    }
+
+    static int shardOf(String testClassName, int shardCount) {
+        // String.hashCode() is specified, hence the same in every JVM. Spread the high bits, as class names often only differ at the end.
+        int hash = testClassName.hashCode();
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % shardCount;
+    }
+
+    @Override
+    public void stop() {
+        long[] shardDurations = new long[shardCount];
+        for (RunLongestFirstTestClassProcessor.EstimatedTestClass testClass : RunLongestFirstTestClassProcessor.sortLongestFirst(testClasses, durations)) {
+            int shard = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (shardDurations[i] < shardDurations[shard]) {
+                    shard = i;
+                }
+            }
+            shardDurations[shard] += testClass.getEstimatedDuration();
+            if (shard == shardIndex) {
+                delegate.processTestClass(testClass.getTestClass());
+            }
+        }
+        delegate.stop();
+    }
+
+    @Override
+    public void stopNow() {
+        delegate.stopNow();
+    }
+}
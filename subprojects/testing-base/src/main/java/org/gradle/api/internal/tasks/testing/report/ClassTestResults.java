@@ -96,4 +96,15 @@ public TestResult addTest(String testName, String testDisplayName, long duration
         results.add(test);
         return addTest(test);
     }
+
+    /**
+     * Discards the results of the individual tests, along with their failures, once the page of this class has been rendered.
+     * The counts and durations are kept, as well as the failed and ignored tests, which are listed by the package and overview pages.
+     */
+    void discardTestResults() {
+        for (TestResult test : results) {
+            test.failures.clear();
+        }
+        results.clear();
+    }
 }
@@ -20,6 +20,7 @@
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestReportFingerprints;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -54,43 +55,41 @@ public void generateReport(TestResultsProvider resultsProvider, File reportDir)
         LOG.info("Generating HTML test report...");
 
         Timer clock = Time.startTimer();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        generateFiles(resultsProvider, reportDir);
         LOG.info("Finished generating test html results ({}) into: {}", clock.getElapsed(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
-        final AllTestResults model = new AllTestResults();
-        resultsProvider.visitClasses(new Action<TestClassResult>() {
-            @Override
-            public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName());
-                List<TestMethodResult> collectedResults = classResult.getResults();
-                for (TestMethodResult collectedResult : collectedResults) {
-                    final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName(), collectedResult.getName(), collectedResult.getDisplayName(), collectedResult.getDuration());
-                    if (collectedResult.getResultType() == SKIPPED) {
-                        testResult.setIgnored();
-                    } else {
-                        List<TestFailure> failures = collectedResult.getFailures();
-                        for (TestFailure failure : failures) {
-                            testResult.addFailure(failure);
-                        }
-                    }
+    private static ClassTestResults addToModel(AllTestResults model, TestClassResult classResult) {
+        ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName());
+        List<TestMethodResult> collectedResults = classResult.getResults();
+        for (TestMethodResult collectedResult : collectedResults) {
+            final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName(), collectedResult.getName(), collectedResult.getDisplayName(), collectedResult.getDuration());
+            if (collectedResult.getResultType() == SKIPPED) {
+                testResult.setIgnored();
+            } else {
+                List<TestFailure> failures = collectedResult.getFailures();
+                for (TestFailure failure : failures) {
+                    testResult.addFailure(failure);
                 }
             }
-        });
-        return model;
+        }
+        return classResults;
     }
 
-    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, final File reportDir) {
+    /**
+     * Class pages are rendered while the results are visited, and the details of the tests of a class are discarded once its page
+     * has been rendered, so that only the summary of the results is kept in memory. The package and overview pages are rendered
+     * from that summary afterwards. Class pages generated from the same results by the previous report are kept as they are.
+     */
+    private void generateFiles(final TestResultsProvider resultsProvider, final File reportDir) {
         try {
+            final TestReportFingerprints fingerprints = new TestReportFingerprints(reportDir, "HTML");
             HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
             buildOperationExecutor.run(new RunnableBuildOperation() {
                 @Override
                 public void run(BuildOperationContext context) {
                     // Clean-up old HTML report directories
                     GFileUtils.deleteQuietly(new File(reportDir, "packages"));
-                    GFileUtils.deleteQuietly(new File(reportDir, "classes"));
                 }
 
                 @Override
@@ -99,28 +98,61 @@ public BuildOperationDescriptor.Builder description() {
                 }
             });
 
-            htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
+            htmlRenderer.render(new AllTestResults(), new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
                 @Override
                 public void render(final AllTestResults model, final HtmlReportBuilder output) throws IOException {
+                    buildOperationExecutor.runAll(new Action<BuildOperationQueue<ClassReportFileGenerator>>() {
+                        @Override
+                        public void execute(final BuildOperationQueue<ClassReportFileGenerator> queue) {
+                            resultsProvider.visitClasses(new Action<TestClassResult>() {
+                                @Override
+                                public void execute(TestClassResult classResult) {
+                                    ClassTestResults classResults = addToModel(model, classResult);
+                                    queue.add(new ClassReportFileGenerator(classResult, classResults, resultsProvider, fingerprints, reportDir, output));
+                                }
+                            });
+                        }
+                    });
+                    deleteStaleClassPages(reportDir, fingerprints);
                     buildOperationExecutor.runAll(new Action<BuildOperationQueue<HtmlReportFileGenerator<? extends CompositeTestResults>>>() {
                         @Override
                         public void execute(BuildOperationQueue<HtmlReportFileGenerator<? extends CompositeTestResults>> queue) {
                             queue.add(generator("index.html", model, new OverviewPageRenderer(), output));
                             for (PackageTestResults packageResults : model.getPackages()) {
                                 queue.add(generator(packageResults.getBaseUrl(), packageResults, new PackagePageRenderer(), output));
-                                for (ClassTestResults classResults : packageResults.getClasses()) {
-                                    queue.add(generator(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider), output));
-                                }
                             }
                         }
                     });
                 }
             }, reportDir);
+            fingerprints.write();
         } catch (Exception e) {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
 
+    private void deleteStaleClassPages(final File reportDir, final TestReportFingerprints fingerprints) {
+        buildOperationExecutor.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                File[] classPages = new File(reportDir, "classes").listFiles();
+                if (classPages == null) {
+                    return;
+                }
+                for (File classPage : classPages) {
+                    if (!fingerprints.isGenerated("classes/" + classPage.getName())) {
+                        GFileUtils.deleteQuietly(classPage);
+                    }
+                }
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Delete old HTML class results");
+            }
+        });
+    }
+
     public static <T extends CompositeTestResults> HtmlReportFileGenerator<T> generator(String fileUrl, T results, PageRenderer<T> renderer, HtmlReportBuilder output) {
         return new HtmlReportFileGenerator<T>(fileUrl, results, renderer, output);
     }
@@ -148,4 +180,39 @@ public void run(BuildOperationContext context) {
             output.renderHtmlPage(fileUrl, results, renderer);
         }
     }
+
+    private static class ClassReportFileGenerator implements RunnableBuildOperation {
+        private final TestClassResult classResult;
+        private final ClassTestResults results;
+        private final TestResultsProvider resultsProvider;
+        private final TestReportFingerprints fingerprints;
+        private final File reportDir;
+        private final HtmlReportBuilder output;
+
+        ClassReportFileGenerator(TestClassResult classResult, ClassTestResults results, TestResultsProvider resultsProvider, TestReportFingerprints fingerprints, File reportDir, HtmlReportBuilder output) {
+            this.classResult = classResult;
+            this.results = results;
+            this.resultsProvider = resultsProvider;
+            this.fingerprints = fingerprints;
+            this.reportDir = reportDir;
+            this.output = output;
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Generate HTML test report for ".concat(results.getTitle()));
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            String fileUrl = results.getBaseUrl();
+            try {
+                if (!fingerprints.isUpToDate(fileUrl, new File(reportDir, fileUrl), fingerprints.fingerprint(classResult, resultsProvider))) {
+                    output.renderHtmlPage(fileUrl, results, new ClassPageRenderer(resultsProvider));
+                }
+            } finally {
+                results.discardTestResults();
+            }
+        }
+    }
 }
@@ -29,6 +29,7 @@ public class TestResult extends TestResultModel implements Comparable<TestResult
     final String name;
     final String displayName;
     boolean ignored;
+    boolean failed;
 
     public TestResult(String name, long duration, ClassTestResults classResults) {
         this(name, name, duration, classResults);
@@ -63,7 +64,7 @@ public ResultType getResultType() {
         if (ignored) {
             return ResultType.SKIPPED;
         }
-        return failures.isEmpty() ? ResultType.SUCCESS : ResultType.FAILURE;
+        return failed ? ResultType.FAILURE : ResultType.SUCCESS;
     }
 
     @Override
@@ -91,6 +92,7 @@ public boolean isIgnored() {
     public void addFailure(TestFailure failure) {
         classResults.failed(this);
         failures.add(failure);
+        failed = true;
     }
 
     public void setIgnored() {
@@ -17,12 +17,16 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
+import org.gradle.api.internal.tasks.testing.TestClassProcessingListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.dispatch.StreamCompletion;
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.gradle.process.JavaForkOptions;
@@ -32,9 +36,15 @@
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 import org.gradle.util.CollectionUtils;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -49,17 +59,41 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final List<String> testWorkerImplementationModules;
     private final Action<WorkerProcessBuilder> buildConfigAction;
     private final ModuleRegistry moduleRegistry;
+    @Nullable
+    private final TestClassProcessingListener processingListener;
+    @Nullable
+    private final ReusableTestWorkerPool workerPool;
     private final Lock lock = new ReentrantLock();
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
+    private ReusableTestWorkerProcess reusableWorker;
     private TestResultProcessor resultProcessor;
     private WorkerLeaseRegistry.WorkerLeaseCompletion completion;
     private DocumentationRegistry documentationRegistry;
     private boolean stoppedNow;
+    private volatile boolean stopRequested;
 
     public ForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLease, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options,
                                      Iterable<File> classPath, Iterable<File> modulePath, List<String> testWorkerImplementationModules,
                                      Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry) {
+        this(parentWorkerLease, workerFactory, processorFactory, options, classPath, modulePath, testWorkerImplementationModules, buildConfigAction, moduleRegistry, documentationRegistry, null);
+    }
+
+    public ForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLease, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options,
+                                     Iterable<File> classPath, Iterable<File> modulePath, List<String> testWorkerImplementationModules,
+                                     Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry,
+                                     @Nullable TestClassProcessingListener processingListener) {
+        this(parentWorkerLease, workerFactory, processorFactory, options, classPath, modulePath, testWorkerImplementationModules, buildConfigAction, moduleRegistry, documentationRegistry, processingListener, null);
+    }
+
+    /**
+     * @param workerPool when not null, the tests are run in a worker process of this pool, unless the tests run on the module path, in debug mode,
+     * or with a JVM agent.
+     */
+    public ForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLease, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options,
+                                     Iterable<File> classPath, Iterable<File> modulePath, List<String> testWorkerImplementationModules,
+                                     Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry,
+                                     @Nullable TestClassProcessingListener processingListener, @Nullable ReusableTestWorkerPool workerPool) {
         this.currentWorkerLease = parentWorkerLease;
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
@@ -70,6 +104,8 @@ public ForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLea
         this.buildConfigAction = buildConfigAction;
         this.moduleRegistry = moduleRegistry;
         this.documentationRegistry = documentationRegistry;
+        this.processingListener = processingListener;
+        this.workerPool = workerPool;
     }
 
     @Override
@@ -92,6 +128,10 @@ public void processTestClass(TestClassRunInfo testClass) {
                 } catch (RuntimeException e) {
                     completion.leaseFinish();
                     completion = null;
+                    // No worker process is going to report that it stopped, so report it here, to not wait for it to run any test classes
+                    if (processingListener != null) {
+                        processingListener.processorStopped();
+                    }
                     throw e;
                 }
             }
@@ -103,7 +143,11 @@ public void processTestClass(TestClassRunInfo testClass) {
     }
 
     RemoteTestClassProcessor forkProcess() {
-        WorkerProcessBuilder builder = workerFactory.create(new TestWorker(processorFactory));
+        if (workerPool != null && !modulePath.iterator().hasNext() && !options.getDebug() && !hasJvmAgent(options.getAllJvmArgs())) {
+            return startReusableWorkerSession(workerPool);
+        }
+
+        WorkerProcessBuilder builder = workerFactory.create(new TestWorker(processorFactory, processingListener != null));
         builder.setBaseName("Gradle Test Executor");
         builder.setImplementationClasspath(getTestWorkerImplementationClasspath());
         builder.setImplementationModulePath(getTestWorkerImplementationModulePath());
@@ -120,12 +164,60 @@ RemoteTestClassProcessor forkProcess() {
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializers(TestEventSerializer.create());
         connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        connection.addIncoming(RemoteTestClassProcessorListener.class, new WorkerProcessingListener());
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
         return remoteProcessor;
     }
 
+    private RemoteTestClassProcessor startReusableWorkerSession(ReusableTestWorkerPool workerPool) {
+        List<URL> frameworkClasspath = getTestFrameworkImplementationClasspath();
+        List<URL> implementationClasspath = new ArrayList<URL>(getTestWorkerImplementationClasspath());
+        implementationClasspath.removeAll(frameworkClasspath);
+
+        WorkerProcessBuilder builder = workerFactory.create(new ReusableTestWorker());
+        builder.setBaseName("Gradle Test Executor");
+        builder.setImplementationClasspath(implementationClasspath);
+        builder.setImplementationModulePath(Collections.<URL>emptyList());
+        options.copyTo(builder.getJavaCommand());
+        builder.getJavaCommand().getModularity().getInferModulePath().set(false);
+        builder.getJavaCommand().jvmArgs("-Dorg.gradle.native=false");
+        buildConfigAction.execute(builder);
+
+        reusableWorker = workerPool.acquire(builder, implementationClasspath);
+        workerProcess = reusableWorker.getWorkerProcess();
+        ReusableTestWorkerSession session = new ReusableTestWorkerSession(DefaultClassPath.of(classPath).getAsURLs(), frameworkClasspath,
+            new HashSet<String>(builder.getSharedPackages()), serialize(processorFactory), processingListener != null);
+        RemoteTestClassProcessor remoteProcessor = reusableWorker.startSession(session, resultProcessor, new WorkerProcessingListener());
+        remoteProcessor.startProcessing();
+        return remoteProcessor;
+    }
+
+    /**
+     * Agents often write their results when the JVM exits, e.g. JaCoCo, which never happens while the worker process is pooled.
+     */
+    private static boolean hasJvmAgent(List<String> jvmArgs) {
+        for (String jvmArg : jvmArgs) {
+            if (jvmArg.startsWith("-javaagent:") || jvmArg.startsWith("-agentpath:") || jvmArg.startsWith("-agentlib:")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] serialize(WorkerTestClassProcessorFactory processorFactory) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream outputStream = new ObjectOutputStream(bytes);
+            outputStream.writeObject(processorFactory);
+            outputStream.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
     List<URL> getTestWorkerImplementationClasspath() {
         return CollectionUtils.flattenCollections(URL.class,
             moduleRegistry.getModule("gradle-core-api").getImplementationClasspath().getAsURLs(),
@@ -151,6 +243,18 @@ List<URL> getTestWorkerImplementationClasspath() {
         );
     }
 
+    /**
+     * The part of the implementation classpath which links against the test framework. A reusable worker process loads it for each session.
+     */
+    List<URL> getTestFrameworkImplementationClasspath() {
+        return CollectionUtils.flattenCollections(URL.class,
+            moduleRegistry.getModule("gradle-testing-jvm").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-testing-junit-platform").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("junit").getImplementationClasspath().getAsURLs(),
+            getTestWorkerImplementationModulePath()
+        );
+    }
+
     List<URL> getTestWorkerImplementationModulePath() {
         List<URL> modules = new ArrayList<URL>();
         for(String moduleName : testWorkerImplementationModules) {
@@ -163,6 +267,7 @@ List<URL> getTestWorkerImplementationModulePath() {
     public void stop() {
         try {
             if (remoteProcessor != null) {
+                stopRequested = true;
                 lock.lock();
                 try {
                     if (!stoppedNow) {
@@ -171,7 +276,11 @@ public void stop() {
                 } finally {
                     lock.unlock();
                 }
-                workerProcess.waitForStop();
+                if (reusableWorker != null && reusableWorker.waitForSessionCompletion()) {
+                    workerPool.release(reusableWorker);
+                } else {
+                    workerProcess.waitForStop();
+                }
             }
         } catch (ExecException e) {
             if (!stoppedNow) {
@@ -192,6 +301,7 @@ public void stopNow() {
         lock.lock();
         try {
             stoppedNow = true;
+            stopRequested = true;
             if (remoteProcessor != null) {
                 workerProcess.stopNow();
             }
@@ -199,4 +309,24 @@ public void stopNow() {
             lock.unlock();
         }
     }
+
+    /**
+     * Forwards the notifications of the worker process to the listener, if any. The end of the stream of notifications before this
+     * processor has been stopped means that the worker process has died.
+     */
+    private class WorkerProcessingListener implements RemoteTestClassProcessorListener, StreamCompletion {
+        @Override
+        public void testClassProcessed() {
+            if (processingListener != null) {
+                processingListener.testClassProcessed();
+            }
+        }
+
+        @Override
+        public void endStream() {
+            if (processingListener != null && !stopRequested) {
+                processingListener.processorStopped();
+            }
+        }
+    }
 }
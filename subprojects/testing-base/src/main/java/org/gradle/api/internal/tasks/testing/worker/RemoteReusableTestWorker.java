@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+/**
+ * A test worker process which runs the tests of several {@code Test} tasks, one session after the other.
+ *
+ * <p>Each session starts with {@link #startSession(ReusableTestWorkerSession)} and ends with {@link #stop()}.</p>
+ */
+public interface RemoteReusableTestWorker extends RemoteTestClassProcessor {
+    /**
+     * Does not block.
+     */
+    void startSession(ReusableTestWorkerSession session);
+
+    /**
+     * Makes the worker process exit, once the current session, if any, has been stopped. Does not block.
+     */
+    void shutdown();
+}
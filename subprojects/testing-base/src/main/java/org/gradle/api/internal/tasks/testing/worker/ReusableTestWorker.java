@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.Cast;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.classloader.MultiParentClassLoader;
+import org.gradle.internal.dispatch.ContextClassLoaderProxy;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.internal.time.Clock;
+import org.gradle.process.internal.worker.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.AccessControlException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The counterpart of {@link TestWorker} for worker processes which are kept alive between {@code Test} tasks.
+ *
+ * <p>The worker process is started without an application classpath. Each session gets its own application ClassLoader, and its own ClassLoader
+ * for the test framework integration, which sees the shared packages of the application ClassLoader first, as the implementation ClassLoader of
+ * a {@link TestWorker} does. Both are discarded when the session is stopped, and the system properties and security manager are restored.</p>
+ */
+public class ReusableTestWorker implements Action<WorkerProcessContext>, RemoteReusableTestWorker, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReusableTestWorker.class);
+    private transient CountDownLatch shutdown;
+    private transient WorkerProcessContext workerProcessContext;
+    private transient DefaultServiceRegistry testServices;
+    private transient TestResultProcessor resultProcessor;
+    private transient RemoteTestClassProcessorListener processingListener;
+    private transient Session session;
+
+    @Override
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started, waiting for tests.", workerProcessContext.getDisplayName());
+
+        this.workerProcessContext = workerProcessContext;
+        shutdown = new CountDownLatch(1);
+
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+
+        testServices = new TestWorker.TestFrameworkServiceRegistry(workerProcessContext);
+
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(TestEventSerializer.create());
+        resultProcessor = TestWorker.createResultProcessor(serverConnection.addOutgoing(TestResultProcessor.class), testServices);
+        processingListener = serverConnection.addOutgoing(RemoteTestClassProcessorListener.class);
+        serverConnection.addIncoming(RemoteReusableTestWorker.class, this);
+        serverConnection.connect();
+
+        try {
+            try {
+                shutdown.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        } finally {
+            LOGGER.info("{} finished executing tests.", workerProcessContext.getDisplayName());
+            testServices.close();
+        }
+    }
+
+    @Override
+    public void startSession(ReusableTestWorkerSession spec) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            session = new Session(spec);
+        } catch (RuntimeException e) {
+            shutdown.countDown();
+            throw e;
+        }
+    }
+
+    @Override
+    public void startProcessing() {
+        Thread.currentThread().setName("Test worker");
+        session.processor.startProcessing(resultProcessor);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            session.processor.processTestClass(testClass);
+        } catch (AccessControlException e) {
+            shutdown.countDown();
+            throw e;
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+            if (session.reportProcessedTestClasses) {
+                processingListener.testClassProcessed();
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (session == null) {
+            return;
+        }
+        Thread.currentThread().setName("Test worker");
+        try {
+            session.processor.stop();
+        } finally {
+            session.close();
+            session = null;
+            // Clean the interrupted status
+            // because some test class processors do work here, e.g. JUnitPlatform
+            Thread.interrupted();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown.countDown();
+    }
+
+    private class Session {
+        private final Properties systemProperties;
+        private final SecurityManager securityManager;
+        private final URLClassLoader applicationClassLoader;
+        private final URLClassLoader frameworkClassLoader;
+        private final TestClassProcessor processor;
+        private final boolean reportProcessedTestClasses;
+
+        Session(ReusableTestWorkerSession spec) {
+            reportProcessedTestClasses = spec.isReportProcessedTestClasses();
+            systemProperties = new Properties();
+            systemProperties.putAll(System.getProperties());
+            securityManager = System.getSecurityManager();
+
+            applicationClassLoader = new URLClassLoader(toArray(spec.getApplicationClasspath()), ClassLoaderUtils.getPlatformClassLoader());
+            FilteringClassLoader.Spec sharedPackages = new FilteringClassLoader.Spec();
+            for (String sharedPackage : spec.getSharedPackages()) {
+                sharedPackages.allowPackage(sharedPackage);
+            }
+            frameworkClassLoader = new URLClassLoader(toArray(spec.getFrameworkClasspath()),
+                new MultiParentClassLoader(new FilteringClassLoader(applicationClassLoader, sharedPackages), getClass().getClassLoader()));
+
+            WorkerTestClassProcessorFactory factory = readProcessorFactory(spec.getProcessorFactory(), frameworkClassLoader);
+            IdGenerator<Object> idGenerator = Cast.uncheckedNonnullCast(testServices.get(IdGenerator.class));
+            TestClassProcessor targetProcessor = new WorkerTestClassProcessor(factory.create(testServices), idGenerator.generateId(),
+                workerProcessContext.getDisplayName(), testServices.get(Clock.class));
+            processor = new ContextClassLoaderProxy<TestClassProcessor>(TestClassProcessor.class, targetProcessor, applicationClassLoader).getSource();
+        }
+
+        void close() {
+            if (System.getSecurityManager() != securityManager) {
+                try {
+                    // Reset security manager the tests seem to have installed
+                    System.setSecurityManager(securityManager);
+                } catch (SecurityException e) {
+                    LOGGER.warn("Unable to reset SecurityManager. Stopping worker after this session.", e);
+                    shutdown.countDown();
+                }
+            }
+            System.setProperties(systemProperties);
+            ClassLoaderUtils.tryClose(frameworkClassLoader);
+            ClassLoaderUtils.tryClose(applicationClassLoader);
+        }
+    }
+
+    private static WorkerTestClassProcessorFactory readProcessorFactory(byte[] serializedFactory, ClassLoader classLoader) {
+        try {
+            ObjectInputStream inputStream = new ClassLoaderObjectInputStream(new ByteArrayInputStream(serializedFactory), classLoader);
+            try {
+                return (WorkerTestClassProcessorFactory) inputStream.readObject();
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private static URL[] toArray(List<URL> urls) {
+        return urls.toArray(new URL[0]);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedScheduledExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.time.Clock;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.health.memory.MaximumHeapHelper;
+import org.gradle.process.internal.health.memory.MemoryAmount;
+import org.gradle.process.internal.health.memory.MemoryHolder;
+import org.gradle.process.internal.health.memory.MemoryManager;
+import org.gradle.process.internal.health.memory.OsMemoryInfo;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the test worker processes of finished {@code Test} tasks alive, so that later {@code Test} tasks with the same java executable,
+ * JVM arguments, system properties, environment and working directory can run their tests in them instead of starting new processes.
+ *
+ * <p>Like idle worker daemons, idle worker processes are stopped when the system runs low on memory, least recently used first. They are also
+ * stopped once they have been idle for a while, so that they do not live as long as the Gradle daemon.</p>
+ */
+public class ReusableTestWorkerPool implements MemoryHolder, Stoppable {
+    private static final Logger LOGGER = Logging.getLogger(ReusableTestWorkerPool.class);
+    private static final int MAX_IDLE_WORKERS = 16;
+    private static final long MAX_IDLE_TIME_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long EXPIRATION_CHECK_INTERVAL_SECONDS = 60;
+
+    private final MemoryManager memoryManager;
+    private final Clock clock;
+    private final ExecutorFactory executorFactory;
+    private final long osTotalMemory;
+    private final Object lock = new Object();
+    // Least recently used first
+    private final LinkedList<ReusableTestWorkerProcess> idleWorkers = new LinkedList<ReusableTestWorkerProcess>();
+    private ManagedScheduledExecutor expirationExecutor;
+    private boolean stopped;
+
+    public ReusableTestWorkerPool(MemoryManager memoryManager, OsMemoryInfo memoryInfo, Clock clock, ExecutorFactory executorFactory) {
+        this.memoryManager = memoryManager;
+        this.clock = clock;
+        this.executorFactory = executorFactory;
+        this.osTotalMemory = getTotalPhysicalMemory(memoryInfo);
+        memoryManager.addMemoryHolder(this);
+    }
+
+    /**
+     * Reserves an idle worker process compatible with the given configured builder, or starts a new one.
+     */
+    ReusableTestWorkerProcess acquire(WorkerProcessBuilder builder, List<URL> implementationClasspath) {
+        Object key = keyFor(builder, implementationClasspath);
+        List<ReusableTestWorkerProcess> endedWorkers = new ArrayList<ReusableTestWorkerProcess>();
+        ReusableTestWorkerProcess worker = null;
+        synchronized (lock) {
+            Iterator<ReusableTestWorkerProcess> it = idleWorkers.descendingIterator();
+            while (it.hasNext()) {
+                ReusableTestWorkerProcess candidate = it.next();
+                if (candidate.isEnded()) {
+                    it.remove();
+                    endedWorkers.add(candidate);
+                } else if (candidate.getKey().equals(key)) {
+                    it.remove();
+                    worker = candidate;
+                    break;
+                }
+            }
+        }
+        stopWorkers(endedWorkers);
+        if (worker != null) {
+            LOGGER.debug("Reusing {} to run tests.", worker.getWorkerProcess());
+            return worker;
+        }
+        return new ReusableTestWorkerProcess(key, estimateMemoryUsage(builder.getJavaCommand()), builder.build());
+    }
+
+    /**
+     * Returns a worker process which has completed its session to the pool.
+     */
+    void release(ReusableTestWorkerProcess worker) {
+        List<ReusableTestWorkerProcess> workersToStop = new ArrayList<ReusableTestWorkerProcess>();
+        synchronized (lock) {
+            if (stopped) {
+                workersToStop.add(worker);
+            } else {
+                worker.setIdleSince(clock.getCurrentTime());
+                idleWorkers.addLast(worker);
+                while (idleWorkers.size() > MAX_IDLE_WORKERS) {
+                    workersToStop.add(idleWorkers.removeFirst());
+                }
+                if (expirationExecutor == null) {
+                    expirationExecutor = executorFactory.createScheduled("Test worker process expiration", 1);
+                    expirationExecutor.scheduleWithFixedDelay(new Runnable() {
+                        @Override
+                        public void run() {
+                            expireIdleWorkers();
+                        }
+                    }, EXPIRATION_CHECK_INTERVAL_SECONDS, EXPIRATION_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                }
+            }
+        }
+        stopWorkers(workersToStop);
+    }
+
+    /**
+     * Stops the worker processes which have been idle for too long.
+     */
+    void expireIdleWorkers() {
+        List<ReusableTestWorkerProcess> workersToStop = new ArrayList<ReusableTestWorkerProcess>();
+        synchronized (lock) {
+            long now = clock.getCurrentTime();
+            // Least recently used first, so the oldest idle workers are at the head
+            while (!idleWorkers.isEmpty() && now - idleWorkers.getFirst().getIdleSince() >= MAX_IDLE_TIME_MILLIS) {
+                workersToStop.add(idleWorkers.removeFirst());
+            }
+        }
+        if (!workersToStop.isEmpty()) {
+            LOGGER.debug("{} test worker process(es) expired after being idle for {} minutes.", workersToStop.size(), TimeUnit.MILLISECONDS.toMinutes(MAX_IDLE_TIME_MILLIS));
+        }
+        stopWorkers(workersToStop);
+    }
+
+    @Override
+    public long attemptToRelease(long memoryAmountBytes) throws IllegalArgumentException {
+        if (memoryAmountBytes < 0) {
+            throw new IllegalArgumentException("Negative memory amount");
+        }
+        List<ReusableTestWorkerProcess> workersToStop = new ArrayList<ReusableTestWorkerProcess>();
+        long releasedBytes = 0;
+        synchronized (lock) {
+            while (releasedBytes < memoryAmountBytes && !idleWorkers.isEmpty()) {
+                ReusableTestWorkerProcess worker = idleWorkers.removeFirst();
+                workersToStop.add(worker);
+                releasedBytes += worker.getMemoryUsage();
+            }
+        }
+        if (!workersToStop.isEmpty()) {
+            LOGGER.debug("{} test worker process(es) expired to free some system memory.", workersToStop.size());
+        }
+        stopWorkers(workersToStop);
+        return releasedBytes;
+    }
+
+    @Override
+    public void stop() {
+        List<ReusableTestWorkerProcess> workersToStop;
+        ManagedScheduledExecutor executorToStop;
+        synchronized (lock) {
+            stopped = true;
+            workersToStop = new ArrayList<ReusableTestWorkerProcess>(idleWorkers);
+            idleWorkers.clear();
+            executorToStop = expirationExecutor;
+            expirationExecutor = null;
+        }
+        memoryManager.removeMemoryHolder(this);
+        if (executorToStop != null) {
+            executorToStop.stop();
+        }
+        stopWorkers(workersToStop);
+    }
+
+    private static void stopWorkers(List<ReusableTestWorkerProcess> workers) {
+        if (!workers.isEmpty()) {
+            LOGGER.debug("Stopping {} idle test worker process(es).", workers.size());
+            CompositeStoppable.stoppable(workers).stop();
+        }
+    }
+
+    /**
+     * Estimates the memory used by a worker process from its maximum heap size, as test worker processes do not report their memory usage.
+     */
+    private long estimateMemoryUsage(JavaExecHandleBuilder javaCommand) {
+        long maxHeapSize = MemoryAmount.parseNotation(javaCommand.getMaxHeapSize());
+        if (maxHeapSize != -1) {
+            return maxHeapSize;
+        }
+        // The default maximum heap size of the JVM
+        if (osTotalMemory != -1) {
+            return new MaximumHeapHelper().getDefaultMaximumHeapSize(osTotalMemory);
+        }
+        return 0;
+    }
+
+    private static long getTotalPhysicalMemory(OsMemoryInfo memoryInfo) {
+        try {
+            return memoryInfo.getOsSnapshot().getTotalPhysicalMemory();
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    private static Object keyFor(WorkerProcessBuilder builder, List<URL> implementationClasspath) {
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        return Arrays.asList(
+            javaCommand.getExecutable(),
+            new ArrayList<String>(javaCommand.getAllJvmArgs()),
+            new HashMap<String, Object>(javaCommand.getEnvironment()),
+            javaCommand.getWorkingDir(),
+            builder.getLogLevel(),
+            new ArrayList<URL>(implementationClasspath)
+        );
+    }
+}
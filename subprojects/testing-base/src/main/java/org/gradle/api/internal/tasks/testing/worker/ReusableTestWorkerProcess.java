@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.dispatch.StreamCompletion;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.process.internal.worker.WorkerProcess;
+
+import javax.annotation.Nullable;
+
+/**
+ * A test worker process owned by a {@link ReusableTestWorkerPool}, together with the connection to it.
+ *
+ * <p>The handlers of the connection can only be registered once, so the events received from the worker are forwarded to the processors of
+ * the current session. A session is complete once the worker test suite of the session has completed, which is the last event the worker sends
+ * for a session.</p>
+ */
+class ReusableTestWorkerProcess implements Stoppable {
+    private final Object key;
+    private final long memoryUsage;
+    private final WorkerProcess workerProcess;
+    private final RemoteReusableTestWorker remoteWorker;
+    private final Object lock = new Object();
+    private TestResultProcessor sessionResultProcessor;
+    private RemoteTestClassProcessorListener sessionListener;
+    private Object workerSuiteId;
+    private boolean sessionCompleted;
+    private boolean ended;
+    private long idleSince;
+
+    ReusableTestWorkerProcess(Object key, long memoryUsage, WorkerProcess workerProcess) {
+        this.key = key;
+        this.memoryUsage = memoryUsage;
+        this.workerProcess = workerProcess;
+        workerProcess.start();
+
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializers(TestEventSerializer.create());
+        connection.addIncoming(TestResultProcessor.class, new SessionResultProcessor());
+        connection.addIncoming(RemoteTestClassProcessorListener.class, new SessionListener());
+        remoteWorker = connection.addOutgoing(RemoteReusableTestWorker.class);
+        connection.connect();
+    }
+
+    Object getKey() {
+        return key;
+    }
+
+    /**
+     * The estimated memory used by the worker process, in bytes.
+     */
+    long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    WorkerProcess getWorkerProcess() {
+        return workerProcess;
+    }
+
+    /**
+     * The time the worker process was returned to the pool, only accessed by the pool.
+     */
+    long getIdleSince() {
+        return idleSince;
+    }
+
+    void setIdleSince(long idleSince) {
+        this.idleSince = idleSince;
+    }
+
+    boolean isEnded() {
+        synchronized (lock) {
+            return ended;
+        }
+    }
+
+    RemoteTestClassProcessor startSession(ReusableTestWorkerSession session, TestResultProcessor resultProcessor, RemoteTestClassProcessorListener listener) {
+        synchronized (lock) {
+            sessionResultProcessor = resultProcessor;
+            sessionListener = listener;
+            workerSuiteId = null;
+            sessionCompleted = false;
+        }
+        remoteWorker.startSession(session);
+        return remoteWorker;
+    }
+
+    /**
+     * Waits until the worker has completed the current session, which has been requested to stop.
+     *
+     * @return false when the worker process has ended instead, in which case the remaining events of the session are still forwarded until
+     * the connection has been stopped.
+     */
+    boolean waitForSessionCompletion() {
+        synchronized (lock) {
+            try {
+                while (!sessionCompleted && !ended) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            if (sessionCompleted) {
+                sessionResultProcessor = null;
+                sessionListener = null;
+            }
+            return sessionCompleted;
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!isEnded()) {
+            remoteWorker.shutdown();
+        }
+        workerProcess.waitForStop();
+    }
+
+    @Nullable
+    private TestResultProcessor getSessionResultProcessor() {
+        synchronized (lock) {
+            return sessionResultProcessor;
+        }
+    }
+
+    private class SessionResultProcessor implements TestResultProcessor {
+        @Override
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            synchronized (lock) {
+                if (workerSuiteId == null && test instanceof WorkerTestClassProcessor.WorkerTestSuiteDescriptor) {
+                    workerSuiteId = test.getId();
+                }
+            }
+            TestResultProcessor resultProcessor = getSessionResultProcessor();
+            if (resultProcessor != null) {
+                resultProcessor.started(test, event);
+            }
+        }
+
+        @Override
+        public void completed(Object testId, TestCompleteEvent event) {
+            TestResultProcessor resultProcessor = getSessionResultProcessor();
+            if (resultProcessor != null) {
+                resultProcessor.completed(testId, event);
+            }
+            synchronized (lock) {
+                if (testId.equals(workerSuiteId)) {
+                    sessionCompleted = true;
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public void output(Object testId, TestOutputEvent event) {
+            TestResultProcessor resultProcessor = getSessionResultProcessor();
+            if (resultProcessor != null) {
+                resultProcessor.output(testId, event);
+            }
+        }
+
+        @Override
+        public void failure(Object testId, Throwable result) {
+            TestResultProcessor resultProcessor = getSessionResultProcessor();
+            if (resultProcessor != null) {
+                resultProcessor.failure(testId, result);
+            }
+        }
+    }
+
+    private class SessionListener implements RemoteTestClassProcessorListener, StreamCompletion {
+        @Override
+        public void testClassProcessed() {
+            RemoteTestClassProcessorListener listener;
+            synchronized (lock) {
+                listener = sessionListener;
+            }
+            if (listener != null) {
+                listener.testClassProcessed();
+            }
+        }
+
+        @Override
+        public void endStream() {
+            RemoteTestClassProcessorListener listener;
+            synchronized (lock) {
+                ended = true;
+                lock.notifyAll();
+                listener = sessionListener;
+            }
+            if (listener instanceof StreamCompletion) {
+                ((StreamCompletion) listener).endStream();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Everything a reusable test worker process needs to run the tests of one {@code Test} task.
+ *
+ * <p>The processor factory is sent in serialized form, as its classes are only visible to the ClassLoader the worker creates for the session.</p>
+ */
+public class ReusableTestWorkerSession implements Serializable {
+    private final List<URL> applicationClasspath;
+    private final List<URL> frameworkClasspath;
+    private final Set<String> sharedPackages;
+    private final byte[] processorFactory;
+    private final boolean reportProcessedTestClasses;
+
+    public ReusableTestWorkerSession(List<URL> applicationClasspath, List<URL> frameworkClasspath, Set<String> sharedPackages, byte[] processorFactory, boolean reportProcessedTestClasses) {
+        this.applicationClasspath = applicationClasspath;
+        this.frameworkClasspath = frameworkClasspath;
+        this.sharedPackages = sharedPackages;
+        this.processorFactory = processorFactory;
+        this.reportProcessedTestClasses = reportProcessedTestClasses;
+    }
+
+    public List<URL> getApplicationClasspath() {
+        return applicationClasspath;
+    }
+
+    /**
+     * The test framework integration classes, which are loaded in the session, so that they link against the test framework of the application classpath.
+     */
+    public List<URL> getFrameworkClasspath() {
+        return frameworkClasspath;
+    }
+
+    public Set<String> getSharedPackages() {
+        return sharedPackages;
+    }
+
+    public byte[] getProcessorFactory() {
+        return processorFactory;
+    }
+
+    /**
+     * Whether the worker notifies the build process each time a test class has been processed.
+     */
+    public boolean isReportProcessedTestClasses() {
+        return reportProcessedTestClasses;
+    }
+}
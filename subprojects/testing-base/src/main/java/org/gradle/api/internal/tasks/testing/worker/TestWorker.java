@@ -21,6 +21,7 @@
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.processors.OutputBatchingTestResultProcessor;
 import org.gradle.internal.Cast;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.actor.ActorFactory;
@@ -43,17 +44,32 @@
 import java.io.Serializable;
 import java.security.AccessControlException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClassProcessor, Serializable, Stoppable {
     private static final Logger LOGGER = LoggerFactory.getLogger(TestWorker.class);
     public static final String WORKER_ID_SYS_PROPERTY = "org.gradle.test.worker";
+    /**
+     * When set in the worker process, the output events of each test are coalesced before being sent to the build process.
+     */
+    public static final String BATCH_OUTPUT_SYS_PROPERTY = "org.gradle.internal.testing.batch-output";
     private final WorkerTestClassProcessorFactory factory;
+    private final boolean reportProcessedTestClasses;
     private CountDownLatch completed;
     private TestClassProcessor processor;
     private TestResultProcessor resultProcessor;
+    private RemoteTestClassProcessorListener processingListener;
 
     public TestWorker(WorkerTestClassProcessorFactory factory) {
+        this(factory, false);
+    }
+
+    /**
+     * @param reportProcessedTestClasses whether to notify the build process each time a test class has been processed
+     */
+    public TestWorker(WorkerTestClassProcessorFactory factory, boolean reportProcessedTestClasses) {
         this.factory = factory;
+        this.reportProcessedTestClasses = reportProcessedTestClasses;
     }
 
     @Override
@@ -101,11 +117,20 @@ private void startReceivingTests(WorkerProcessContext workerProcessContext, Serv
 
         ObjectConnection serverConnection = workerProcessContext.getServerConnection();
         serverConnection.useParameterSerializers(TestEventSerializer.create());
-        this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        this.resultProcessor = createResultProcessor(serverConnection.addOutgoing(TestResultProcessor.class), testServices);
+        this.processingListener = serverConnection.addOutgoing(RemoteTestClassProcessorListener.class);
         serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
         serverConnection.connect();
     }
 
+    static TestResultProcessor createResultProcessor(TestResultProcessor remoteResultProcessor, ServiceRegistry testServices) {
+        if (!Boolean.getBoolean(BATCH_OUTPUT_SYS_PROPERTY)) {
+            return remoteResultProcessor;
+        }
+        ScheduledExecutorService flushExecutor = testServices.get(ExecutorFactory.class).createScheduled("Test output flusher", 1);
+        return new OutputBatchingTestResultProcessor(remoteResultProcessor, flushExecutor);
+    }
+
     @Override
     public void startProcessing() {
         Thread.currentThread().setName("Test worker");
@@ -123,6 +148,9 @@ public void processTestClass(final TestClassRunInfo testClass) {
         } finally {
             // Clean the interrupted status
             Thread.interrupted();
+            if (reportProcessedTestClasses) {
+                processingListener.testClassProcessed();
+            }
         }
     }
 
@@ -139,7 +167,7 @@ public void stop() {
         }
     }
 
-    private static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
+    static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
         private final WorkerProcessContext workerProcessContext;
 
         public TestFrameworkServiceRegistry(WorkerProcessContext workerProcessContext) {
@@ -35,6 +35,7 @@
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.result.Binary2JUnitXmlReportGenerator;
 import org.gradle.api.internal.tasks.testing.junit.result.InMemoryTestResultsProvider;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassDurationsSerializer;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputAssociation;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore;
@@ -492,6 +493,7 @@ public void execute(DeleteSpec spec) {
         }
 
         new TestResultSerializer(binaryResultsDir).write(results.values());
+        new TestClassDurationsSerializer(binaryResultsDir).write(TestClassDurationsSerializer.durationsOf(results.values()));
 
         createReporting(results, testOutputStore);
 
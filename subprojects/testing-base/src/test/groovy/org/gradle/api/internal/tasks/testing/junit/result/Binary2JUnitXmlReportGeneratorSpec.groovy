@@ -100,4 +100,37 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         ex.causes[0].message.startsWith('Could not write XML test results for FooTest')
         ex.causes[0].cause.message == "Boo!"
     }
+
+    def "keeps report files generated from the same results and removes report files of classes without results"() {
+        def fooTest = new TestClassResult(1, 'FooTest', 100)
+            .add(new TestMethodResult(1, "foo"))
+        def barTest = new TestClassResult(2, 'BarTest', 100)
+            .add(new TestMethodResult(2, "bar"))
+        def changedBarTest = new TestClassResult(2, 'BarTest', 200)
+            .add(new TestMethodResult(2, "bar"))
+        def staleFile = temp.createFile("TEST-Removed.xml")
+
+        given:
+        generator = generatorWithMaxThreads(1)
+        resultsProvider.visitClasses(_) >> { Action action ->
+            action.execute(fooTest)
+            action.execute(barTest)
+        }
+        generator.xmlWriter.write(_, _) >> { TestClassResult result, OutputStream output -> output << result.className }
+        generator.generate()
+
+        when:
+        generator = generatorWithMaxThreads(1)
+        generator.generate()
+
+        then:
+        _ * resultsProvider.visitClasses(_) >> { Action action ->
+            action.execute(fooTest)
+            action.execute(changedBarTest)
+        }
+        0 * generator.xmlWriter.write(fooTest, _)
+        1 * generator.xmlWriter.write(changedBarTest, _)
+        temp.file("TEST-FooTest.xml").text == "FooTest"
+        !staleFile.exists()
+    }
 }
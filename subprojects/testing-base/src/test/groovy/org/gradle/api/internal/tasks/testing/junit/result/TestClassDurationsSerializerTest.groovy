@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestClassDurationsSerializerTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider(getClass())
+
+    def "can write and read durations"() {
+        def serializer = new TestClassDurationsSerializer(tmp.testDirectory)
+
+        when:
+        serializer.write([Class1: 1234L, Class2: 0L])
+
+        then:
+        serializer.read() == [Class1: 1234L, Class2: 0L]
+    }
+
+    def "reads no durations when none were written"() {
+        expect:
+        new TestClassDurationsSerializer(tmp.testDirectory).read().isEmpty()
+    }
+
+    def "reads no durations when the file is corrupt"() {
+        def serializer = new TestClassDurationsSerializer(tmp.testDirectory)
+        serializer.write([Class1: 1234L, Class2: 0L])
+        def file = tmp.file("class-durations.bin")
+        file.bytes = file.bytes[0..<(file.bytes.length - 3)] as byte[]
+
+        expect:
+        serializer.read().isEmpty()
+    }
+
+    def "reads durations from a given file"() {
+        new TestClassDurationsSerializer(tmp.testDirectory).write([Class1: 1234L])
+
+        expect:
+        TestClassDurationsSerializer.read(tmp.file("class-durations.bin")) == [Class1: 1234L]
+        TestClassDurationsSerializer.read(tmp.file("missing.bin")).isEmpty()
+    }
+
+    def "durations only contain the test classes of the given results"() {
+        def class1 = new TestClassResult(1, 'Class1', 1000)
+        class1.add(new TestMethodResult(1, "method1", TestResult.ResultType.SUCCESS, 100, 1100))
+        class1.add(new TestMethodResult(2, "method2", TestResult.ResultType.SUCCESS, 200, 1300))
+        def serializer = new TestClassDurationsSerializer(tmp.testDirectory)
+        serializer.write([Class1: 50L, Class2: 70L])
+
+        when:
+        serializer.write(TestClassDurationsSerializer.durationsOf([class1]))
+
+        then:
+        serializer.read() == [Class1: 300L]
+    }
+}
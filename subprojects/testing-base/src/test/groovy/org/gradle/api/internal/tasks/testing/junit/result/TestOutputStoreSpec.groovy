@@ -98,6 +98,104 @@ class TestOutputStoreSpec extends WorkspaceTest {
         reader.close()
     }
 
+    def "reads output of tests of several classes in any order"() {
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, output(StdOut, "[out-1]"))
+        writer.onOutput(1, 1, output(StdOut, "[out-2]"))
+        writer.onOutput(2, 1, output(StdOut, "[out-3]"))
+        writer.onOutput(1, 2, output(StdErr, "[err-4]"))
+        writer.onOutput(2, 2, output(StdErr, "[err-5]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectOutput(reader, 1, 1, StdOut) == "[out-2]"
+        collectOutput(reader, 1, 2, StdErr) == "[err-4]"
+        collectOutput(reader, 2, 1, StdOut) == "[out-3]"
+        collectOutput(reader, 1, StdOut) == "[out-1]"
+        collectOutput(reader, 2, 2, StdErr) == "[err-5]"
+        collectOutput(reader, 2, 1, StdErr) == ""
+        collectAllOutput(reader, 1, StdOut) == "[out-1][out-2]"
+
+        cleanup:
+        reader.close()
+    }
+
+    def "knows the size of the output of each class without reading it"() {
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, output(StdOut, "[out-1]"))
+        writer.onOutput(1, 1, output(StdOut, "[out-2]"))
+        writer.onOutput(2, 1, output(StdOut, "[out-2]"))
+        writer.onOutput(2, 1, output(StdOut, "[longer-out-3]"))
+        writer.onOutput(1, 1, output(StdErr, "[out-4]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        reader.getOutputSize(1, StdOut) > reader.getOutputSize(1, StdErr)
+        reader.getOutputSize(2, StdOut) > reader.getOutputSize(1, StdOut)
+        reader.getOutputSize(1, StdErr) > 0
+        reader.getOutputSize(2, StdErr) == 0
+        reader.getOutputSize(3, StdOut) == 0
+
+        cleanup:
+        reader.close()
+    }
+
+    def "reads output spread over many blocks"() {
+        when:
+        def writer = output.writer()
+        def expected = new StringBuilder()
+        10000.times {
+            def message = "[out-$it with some more text]"
+            writer.onOutput(it % 2 + 1, it % 3, output(StdOut, message))
+            if (it % 2 == 0 && it % 3 == 1) {
+                expected.append(message)
+            }
+        }
+        writer.onOutput(3, 1, output(StdErr, "[err]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        output.outputsFile.length() < 10000 * 20
+        collectOutput(reader, 1, 1, StdOut) == expected.toString()
+        collectAllOutput(reader, 3, StdErr) == "[err]"
+        !reader.hasOutput(3, StdOut)
+
+        cleanup:
+        reader.close()
+    }
+
+    def "reads output of a test class too large to be kept in memory"() {
+        when:
+        def writer = output.writer()
+        def line = "x" * 1024
+        def expectedAll = new StringBuilder()
+        def expectedTest = new StringBuilder()
+        def expectedNonTest = new StringBuilder()
+        6000.times {
+            def message = "[out-$it]$line"
+            writer.onOutput(1, it % 3, output(StdOut, message))
+            expectedAll.append(message)
+            (it % 3 == 2 ? expectedTest : it % 3 == 0 ? expectedNonTest : new StringBuilder()).append(message)
+        }
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        reader.getOutputSize(1, StdOut) > 4 * 1024 * 1024
+        collectAllOutput(reader, 1, StdOut) == expectedAll.toString()
+        collectOutput(reader, 1, StdOut) == expectedNonTest.toString()
+        collectOutput(reader, 1, 2, StdOut) == expectedTest.toString()
+        collectOutput(reader, 1, 2, StdOut) == expectedTest.toString()
+
+        cleanup:
+        reader.close()
+    }
+
     def DefaultTestOutputEvent output(TestOutputEvent.Destination destination, String msg) {
         new DefaultTestOutputEvent(destination, msg)
     }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdErr
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdOut
+
+class TestReportFingerprintsTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider(getClass())
+    def resultsProvider = Mock(TestResultsProvider)
+    def result = classResult()
+
+    def "fingerprints results from the size of their output without reading it"() {
+        def fingerprints = new TestReportFingerprints(tmp.testDirectory, "XML")
+
+        when:
+        def fingerprint = fingerprints.fingerprint(result, resultsProvider)
+        def sameFingerprint = fingerprints.fingerprint(result, resultsProvider)
+
+        then:
+        2 * resultsProvider.getOutputSize(1, StdOut) >> 10
+        2 * resultsProvider.getOutputSize(1, StdErr) >> 0
+        0 * resultsProvider._
+        fingerprint == sameFingerprint
+
+        when:
+        def changedFingerprint = fingerprints.fingerprint(result, resultsProvider)
+
+        then:
+        1 * resultsProvider.getOutputSize(1, StdOut) >> 12
+        changedFingerprint != fingerprint
+    }
+
+    def "remembers fingerprints of the previous report"() {
+        def reportFile = tmp.createFile("report.xml")
+        def fingerprints = new TestReportFingerprints(tmp.testDirectory, "XML")
+        def fingerprint = fingerprints.fingerprint(result, resultsProvider)
+        fingerprints.isUpToDate("report.xml", reportFile, fingerprint)
+        fingerprints.write()
+
+        expect:
+        new TestReportFingerprints(tmp.testDirectory, "XML").isUpToDate("report.xml", reportFile, fingerprint)
+    }
+
+    def "ignores corrupt fingerprints of the previous report"() {
+        def reportFile = tmp.createFile("report.xml")
+        def fingerprints = new TestReportFingerprints(tmp.testDirectory, "XML")
+        def fingerprint = fingerprints.fingerprint(result, resultsProvider)
+        fingerprints.isUpToDate("report.xml", reportFile, fingerprint)
+        fingerprints.write()
+        def file = tmp.file(".report-fingerprints.bin")
+        file.bytes = file.bytes[0..<(file.bytes.length - 5)] as byte[]
+
+        expect:
+        !new TestReportFingerprints(tmp.testDirectory, "XML").isUpToDate("report.xml", reportFile, fingerprint)
+    }
+
+    private static TestClassResult classResult() {
+        def result = new TestClassResult(1, "org.gradle.Test", 1000)
+        result.add(new TestMethodResult(2, "test", TestResult.ResultType.SUCCESS, 100, 1100))
+        return result
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.Transformer
+import org.gradle.api.internal.tasks.testing.TestClassProcessingListener
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.internal.actor.Actor
+import org.gradle.internal.actor.ActorFactory
+import org.gradle.internal.dispatch.DispatchException
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class DemandDrivenTestClassProcessorTest extends ConcurrentSpec {
+    private final Transformer<TestClassProcessor, TestClassProcessingListener> factory = Mock()
+    private final TestResultProcessor resultProcessor = Mock()
+    private final TestResultProcessor asyncResultProcessor = Mock()
+    private final Actor resultProcessorActor = Mock()
+    private final ActorFactory actorFactory = Mock()
+    private final DemandDrivenTestClassProcessor processor = new DemandDrivenTestClassProcessor(2, factory, actorFactory)
+    private final List<TestClassProcessor> rawProcessors = [Stub(TestClassProcessor), Stub(TestClassProcessor)]
+    private final List<TestClassProcessor> asyncProcessors = [Mock(TestClassProcessor), Mock(TestClassProcessor)]
+    private final List<Actor> actors = [Stub(Actor), Stub(Actor)]
+    private final List<TestClassProcessingListener> listeners = []
+
+    def setup() {
+        _ * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        _ * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        _ * factory.transform(_) >> { TestClassProcessingListener listener ->
+            listeners << listener
+            rawProcessors[listeners.size() - 1]
+        }
+        _ * actorFactory.createActor(rawProcessors[0]) >> actors[0]
+        _ * actorFactory.createActor(rawProcessors[1]) >> actors[1]
+        actors[0].getProxy(TestClassProcessor) >> asyncProcessors[0]
+        actors[1].getProxy(TestClassProcessor) >> asyncProcessors[1]
+        processor.startProcessing(resultProcessor)
+    }
+
+    def "starts processors on demand and hands out a limited number of test classes to each"() {
+        def tests = (1..5).collect { Mock(TestClassRunInfo) }
+
+        when:
+        tests.each { processor.processTestClass(it) }
+
+        then:
+        1 * asyncProcessors[0].processTestClass(tests[0])
+        1 * asyncProcessors[1].processTestClass(tests[1])
+        1 * asyncProcessors[0].processTestClass(tests[2])
+        1 * asyncProcessors[1].processTestClass(tests[3])
+        0 * asyncProcessors[0].processTestClass(tests[4])
+        0 * asyncProcessors[1].processTestClass(tests[4])
+
+        when:
+        listeners[1].testClassProcessed()
+
+        then:
+        1 * asyncProcessors[1].processTestClass(tests[4])
+        0 * asyncProcessors[0].processTestClass(_)
+    }
+
+    def "hands out test classes to the least busy processor"() {
+        def tests = (1..4).collect { Mock(TestClassRunInfo) }
+
+        when:
+        processor.processTestClass(tests[0])
+        processor.processTestClass(tests[1])
+        listeners[0].testClassProcessed()
+        processor.processTestClass(tests[2])
+        processor.processTestClass(tests[3])
+
+        then:
+        1 * asyncProcessors[0].processTestClass(tests[0])
+        1 * asyncProcessors[1].processTestClass(tests[1])
+        1 * asyncProcessors[0].processTestClass(tests[2])
+        1 * asyncProcessors[0].processTestClass(tests[3])
+    }
+
+    def "stop waits for all test classes to be handed out before stopping processors"() {
+        def tests = (1..5).collect { Mock(TestClassRunInfo) }
+        tests.each { processor.processTestClass(it) }
+
+        when:
+        async {
+            start {
+                processor.stop()
+                instant.stopped
+            }
+            start {
+                thread.block()
+                instant.processed
+                listeners[0].testClassProcessed()
+            }
+        }
+
+        then:
+        instant.stopped > instant.processed
+        1 * asyncProcessors[0].processTestClass(tests[4])
+        1 * asyncProcessors[0].stop()
+        1 * asyncProcessors[1].stop()
+        1 * resultProcessorActor.stop()
+    }
+
+    def "hands test classes of a processor which stopped unexpectedly to the other processors"() {
+        def tests = (1..5).collect { Mock(TestClassRunInfo) }
+        tests.each { processor.processTestClass(it) }
+
+        when:
+        listeners[0].processorStopped()
+        listeners[0].testClassProcessed()
+        listeners[1].testClassProcessed()
+
+        then:
+        0 * asyncProcessors[0].processTestClass(_)
+        1 * asyncProcessors[1].processTestClass(tests[4])
+    }
+
+    def "discards pending test classes when all processors stopped unexpectedly"() {
+        def tests = (1..5).collect { Mock(TestClassRunInfo) }
+        tests.each { processor.processTestClass(it) }
+
+        when:
+        listeners[0].processorStopped()
+        listeners[1].processorStopped()
+        processor.stop()
+
+        then:
+        0 * asyncProcessors[0].processTestClass(_)
+        0 * asyncProcessors[1].processTestClass(_)
+        1 * asyncProcessors[0].stop()
+        1 * asyncProcessors[1].stop()
+    }
+
+    def "stop rethrows the failure of a processor which failed to start"() {
+        def tests = (1..5).collect { Mock(TestClassRunInfo) }
+        def failure = new RuntimeException("could not start")
+        tests.each { processor.processTestClass(it) }
+        actors[0].stop() >> { throw new DispatchException("Could not dispatch message", failure) }
+
+        when:
+        // As reported by a processor whose worker process could not be started
+        listeners[0].processorStopped()
+        listeners[1].testClassProcessed()
+        processor.stop()
+
+        then:
+        def e = thrown(RuntimeException)
+        e.is(failure)
+        1 * asyncProcessors[1].processTestClass(tests[4])
+    }
+
+    def "stopNow discards pending test classes and propagates to processors"() {
+        def tests = (1..5).collect { Mock(TestClassRunInfo) }
+        tests.each { processor.processTestClass(it) }
+
+        when:
+        processor.stopNow()
+        processor.processTestClass(Mock(TestClassRunInfo))
+        listeners[0].testClassProcessed()
+        processor.stop()
+
+        then:
+        0 * asyncProcessors[0].processTestClass(_)
+        0 * asyncProcessors[1].processTestClass(_)
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import spock.lang.Specification
+
+import java.util.concurrent.ScheduledExecutorService
+
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdErr
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdOut
+
+class OutputBatchingTestResultProcessorTest extends Specification {
+    def target = Mock(TestResultProcessor)
+    def flushExecutor = Mock(ScheduledExecutorService)
+    def processor = new OutputBatchingTestResultProcessor(target, flushExecutor)
+
+    def "forwards the buffered output of a test as one event before its completion"() {
+        def complete = new TestCompleteEvent(2)
+
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "line 1\n"))
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "line 2\n"))
+
+        then:
+        0 * target._
+
+        when:
+        processor.completed("1", complete)
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdOut, "line 1\nline 2\n"))
+
+        then:
+        1 * target.completed("1", complete)
+        0 * target._
+    }
+
+    def "keeps the order of output written to different destinations"() {
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "out 1\n"))
+        processor.output("1", new DefaultTestOutputEvent(StdErr, "err\n"))
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "out 2\n"))
+        processor.started(new DefaultTestDescriptor("2", "Foo", "bar"), new TestStartEvent(1, "1"))
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdOut, "out 1\n"))
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdErr, "err\n"))
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdOut, "out 2\n"))
+
+        then:
+        1 * target.started(_, _)
+        0 * target._
+    }
+
+    def "forwards the output of a test once enough has been buffered"() {
+        def text = "x" * OutputBatchingTestResultProcessor.MAX_BUFFERED_CHARS
+
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "line\n"))
+        processor.output("1", new DefaultTestOutputEvent(StdOut, text))
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdOut, "line\n" + text))
+        0 * target._
+    }
+
+    def "forwards buffered output when the flush interval has passed"() {
+        Runnable flush = null
+
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "line 1\n"))
+        processor.output("2", new DefaultTestOutputEvent(StdOut, "line 2\n"))
+
+        then:
+        1 * flushExecutor.schedule(_, OutputBatchingTestResultProcessor.FLUSH_INTERVAL_MILLIS, _) >> { flush = it[0]; null }
+        0 * target._
+
+        when:
+        flush.run()
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdOut, "line 1\n"))
+        1 * target.output("2", new DefaultTestOutputEvent(StdOut, "line 2\n"))
+        0 * target._
+    }
+}
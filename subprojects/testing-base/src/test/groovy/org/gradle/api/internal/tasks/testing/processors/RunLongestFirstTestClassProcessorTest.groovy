@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import spock.lang.Specification
+
+class RunLongestFirstTestClassProcessorTest extends Specification {
+    TestClassProcessor delegate = Mock()
+    TestResultProcessor testResultProcessor = Mock()
+
+    def "passes test classes to delegate longest first"() {
+        given:
+        def processor = new RunLongestFirstTestClassProcessor([Class1: 10L, Class2: 300L, Class3: 20L], delegate)
+
+        when:
+        processor.startProcessing(testResultProcessor)
+        ['Class1', 'Class2', 'Class3', 'Class4'].each { processor.processTestClass(new DefaultTestClassRunInfo(it)) }
+
+        then:
+        1 * delegate.startProcessing(testResultProcessor)
+        0 * delegate.processTestClass(_)
+
+        when:
+        processor.stop()
+
+        then:
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class2'))
+        then:
+        // Class4 did not run previously and is assumed to take the average time of the other classes
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class4'))
+        then:
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class3'))
+        then:
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class1'))
+        then:
+        1 * delegate.stop()
+    }
+
+    def "passes test classes to delegate by name when no durations are known"() {
+        given:
+        def processor = new RunLongestFirstTestClassProcessor([:], delegate)
+
+        when:
+        ['Class2', 'Class3', 'Class1'].each { processor.processTestClass(new DefaultTestClassRunInfo(it)) }
+        processor.stop()
+
+        then:
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class1'))
+        then:
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class2'))
+        then:
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class3'))
+        then:
+        1 * delegate.stop()
+    }
+}
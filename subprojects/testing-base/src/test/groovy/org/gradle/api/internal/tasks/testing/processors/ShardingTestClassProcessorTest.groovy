@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import spock.lang.Specification
+
+class ShardingTestClassProcessorTest extends Specification {
+    def classes = (1..100).collect { "org.gradle.Class$it".toString() }
+
+    def "each test class is part of exactly one shard"() {
+        when:
+        def shards = (0..<3).collect { shard(it, 3, classes) }
+
+        then:
+        shards.flatten().sort() == classes.sort()
+    }
+
+    def "spreads test classes over all shards"() {
+        when:
+        def shards = (0..<4).collect { shard(it, 4, classes) }
+
+        then:
+        shards.every { it.size() > 10 }
+    }
+
+    def "shard of a test class does not depend on the other test classes"() {
+        def expected = shard(1, 3, classes)
+
+        expect:
+        shard(1, 3, classes.reverse()) == expected.reverse()
+        shard(1, 3, classes + ['org.gradle.New1', 'org.gradle.New2']).take(expected.size()) == expected
+        shard(1, 3, classes.findAll { it.endsWith('0') }) == expected.findAll { it.endsWith('0') }
+    }
+
+    def "splits test classes into shards of about the same duration when durations are given"() {
+        def durations = [A: 100L, B: 60L, C: 50L, D: 40L, E: 30L, F: 20L]
+
+        expect:
+        shard(0, 2, durations.keySet(), durations) == ['A', 'D', 'F']
+        shard(1, 2, durations.keySet(), durations) == ['B', 'C', 'E']
+    }
+
+    def "split with durations does not depend on the order in which test classes are detected"() {
+        def durations = classes.collectEntries { [it, (long) (it.hashCode() & 0xff)] }
+        def expected = (0..<3).collect { shard(it, 3, classes, durations) }
+
+        expect:
+        expected.flatten().sort() == classes.sort()
+        (0..<3).collect { shard(it, 3, classes.reverse(), durations) } == expected
+    }
+
+    def "assumes the average duration for test classes without a duration"() {
+        def durations = [A: 100L, B: 100L]
+
+        expect:
+        shard(0, 2, ['A', 'B', 'C', 'D'], durations) == ['A', 'C']
+        shard(1, 2, ['A', 'B', 'C', 'D'], durations) == ['B', 'D']
+    }
+
+    def "passes test classes through without buffering them"() {
+        def delegate = Mock(TestClassProcessor)
+        def processor = new ShardingTestClassProcessor(0, 1, [:], delegate)
+        def testClass = new DefaultTestClassRunInfo('Class1')
+
+        when:
+        processor.processTestClass(testClass)
+
+        then:
+        1 * delegate.processTestClass(testClass)
+    }
+
+    def "rejects invalid shard"() {
+        when:
+        new ShardingTestClassProcessor(2, 2, [:], Mock(TestClassProcessor))
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid test shard 3 of 2."
+    }
+
+    private List<String> shard(int index, int count, Collection<String> classes, Map<String, Long> durations = [:]) {
+        def received = []
+        def delegate = Stub(TestClassProcessor) {
+            processTestClass(_) >> { TestClassRunInfo testClass -> received << testClass.testClassName }
+        }
+        def processor = new ShardingTestClassProcessor(index, count, durations, delegate)
+        classes.each { processor.processTestClass(new DefaultTestClassRunInfo(it)) }
+        processor.stop()
+        return received
+    }
+}
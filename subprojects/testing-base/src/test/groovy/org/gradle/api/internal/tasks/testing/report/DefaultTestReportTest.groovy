@@ -533,6 +533,39 @@ class DefaultTestReportTest extends Specification {
         testClassFile.assertHasStandardError('err:\u0102')
     }
 
+    def "keeps class pages generated from the same results and removes pages of classes without results"() {
+        given:
+        report = reportWithMaxThreads(1)
+        report.generateReport(passingBuildResults(), reportDir)
+        def passedClassFile = reportDir.file('classes/org.gradle.passing.Passed.html')
+        def alsoPassedClassFile = reportDir.file('classes/org.gradle.passing.subpackage.AlsoPassed.html')
+        def staleClassFile = reportDir.file('classes/org.gradle.Removed.html').createFile()
+        passedClassFile << "<!-- unchanged -->"
+        alsoPassedClassFile << "<!-- unchanged -->"
+
+        when:
+        report.generateReport(buildResults {
+            testClassResult("org.gradle.passing.Passed") {
+                testcase("passed") {
+                    duration = 1000;
+                }
+            }
+            testClassResult("org.gradle.passing.subpackage.AlsoPassed") {
+                testcase("passedToo") {
+                    duration = 1000;
+                    stdout "this is\nother standard output"
+                }
+            }
+        }, reportDir)
+
+        then:
+        passedClassFile.text.endsWith("<!-- unchanged -->")
+        !alsoPassedClassFile.text.contains("<!-- unchanged -->")
+        results(alsoPassedClassFile).assertHasStandardOutput("this is\nother standard output")
+        !staleClassFile.exists()
+        results(indexFile).assertHasTests(2)
+    }
+
     TestResultsProvider buildResults(Closure closure) {
         ConfigureUtil.configure(closure, new BuildableTestResultsProvider())
     }
@@ -20,9 +20,11 @@ import org.gradle.api.Action
 import org.gradle.api.internal.DocumentationRegistry
 import org.gradle.api.internal.classpath.Module
 import org.gradle.api.internal.classpath.ModuleRegistry
+import org.gradle.api.internal.tasks.testing.TestClassProcessingListener
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.classpath.ClassPath
+import org.gradle.internal.dispatch.StreamCompletion
 import org.gradle.internal.remote.ObjectConnection
 import org.gradle.internal.work.WorkerLeaseRegistry
 import org.gradle.process.JavaForkOptions
@@ -101,6 +103,22 @@ class ForkingTestClassProcessorTest extends Specification {
         1 * workerProcessBuilder.setImplementationModulePath(_) >> { assert it[0].size() == 3 }
     }
 
+    def "does not reuse a worker process when the tests run with a JVM agent"() {
+        def workerPool = Mock(ReusableTestWorkerPool)
+        options.getAllJvmArgs() >> ["-javaagent:jacocoagent.jar=destfile=build/jacoco/test.exec"]
+        ForkingTestClassProcessor processor = new ForkingTestClassProcessor(Stub(WorkerLeaseRegistry.WorkerLease), workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [new File("classpath.jar")], [], [], Mock(Action), Stub(ModuleRegistry), documentationRegistry, null, workerPool)
+
+        setup:
+        1 * workerProcess.getConnection() >> Stub(ObjectConnection) { addOutgoing(_) >> Stub(RemoteTestClassProcessor) }
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        then:
+        1 * workerProcess.start()
+        0 * workerPool._
+    }
+
     def "stopNow does nothing when no remote processor"() {
         when:
         processor.stopNow()
@@ -141,6 +159,68 @@ class ForkingTestClassProcessorTest extends Specification {
         notThrown(ExecException)
     }
 
+    def "forwards notifications of the worker process to the listener"() {
+        def listener = Mock(TestClassProcessingListener)
+        def workerListener = null
+        ForkingTestClassProcessor processor = new ForkingTestClassProcessor(Stub(WorkerLeaseRegistry.WorkerLease), workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [new File("classpath.jar")], [], [], Mock(Action), Stub(ModuleRegistry), documentationRegistry, listener)
+
+        setup:
+        1 * workerProcess.getConnection() >> Stub(ObjectConnection) {
+            addOutgoing(_) >> Stub(RemoteTestClassProcessor)
+            addIncoming(RemoteTestClassProcessorListener, _) >> { workerListener = it[1] }
+        }
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+        workerListener.testClassProcessed()
+
+        then:
+        1 * listener.testClassProcessed()
+
+        when:
+        (workerListener as StreamCompletion).endStream()
+
+        then:
+        1 * listener.processorStopped()
+    }
+
+    def "reports the processor as stopped when the worker process fails to start"() {
+        def listener = Mock(TestClassProcessingListener)
+        def failure = new ExecException("could not start")
+        ForkingTestClassProcessor processor = new ForkingTestClassProcessor(Stub(WorkerLeaseRegistry.WorkerLease), workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [new File("classpath.jar")], [], [], Mock(Action), Stub(ModuleRegistry), documentationRegistry, listener)
+
+        setup:
+        workerProcess.start() >> { throw failure }
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        then:
+        def e = thrown(ExecException)
+        e.is(failure)
+        1 * listener.processorStopped()
+    }
+
+    def "does not report the worker process as stopped unexpectedly once stop has been requested"() {
+        def listener = Mock(TestClassProcessingListener)
+        def workerListener = null
+        ForkingTestClassProcessor processor = new ForkingTestClassProcessor(Stub(WorkerLeaseRegistry.WorkerLease), workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [new File("classpath.jar")], [], [], Mock(Action), Stub(ModuleRegistry), documentationRegistry, listener)
+
+        setup:
+        1 * workerProcess.getConnection() >> Stub(ObjectConnection) {
+            addOutgoing(_) >> Stub(RemoteTestClassProcessor)
+            addIncoming(RemoteTestClassProcessorListener, _) >> { workerListener = it[1] }
+        }
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+        processor.stop()
+        (workerListener as StreamCompletion).endStream()
+
+        then:
+        0 * listener.processorStopped()
+    }
+
     def module(String module) {
         return Stub(Module) {
             _ * getImplementationClasspath() >> {
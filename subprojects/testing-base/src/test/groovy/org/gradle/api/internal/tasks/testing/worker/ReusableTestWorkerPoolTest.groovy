@@ -0,0 +1,237 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.logging.LogLevel
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedScheduledExecutor
+import org.gradle.internal.remote.ObjectConnection
+import org.gradle.internal.time.Clock
+import org.gradle.process.internal.JavaExecHandleBuilder
+import org.gradle.process.internal.health.memory.MemoryManager
+import org.gradle.process.internal.health.memory.OsMemoryInfo
+import org.gradle.process.internal.worker.WorkerProcess
+import org.gradle.process.internal.worker.WorkerProcessBuilder
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class ReusableTestWorkerPoolTest extends Specification {
+    def memoryManager = Mock(MemoryManager)
+    def currentTime = 0L
+    def clock = Stub(Clock) {
+        getCurrentTime() >> { currentTime }
+    }
+    def expirationExecutor = Mock(ManagedScheduledExecutor)
+    def executorFactory = Stub(ExecutorFactory) {
+        createScheduled(_, _) >> expirationExecutor
+    }
+    def memoryInfo = Stub(OsMemoryInfo) {
+        getOsSnapshot() >> { throw new UnsupportedOperationException() }
+    }
+    def pool = new ReusableTestWorkerPool(memoryManager, memoryInfo, clock, executorFactory)
+    def implementationClasspath = [new URL("file://gradle-testing-base.jar")]
+
+    def "reuses an idle worker process with the same configuration"() {
+        def workerProcess = Mock(WorkerProcess)
+        def remoteWorker = Mock(RemoteReusableTestWorker)
+        def connection = connection(remoteWorker)
+
+        when:
+        def worker = pool.acquire(builder(["-Xmx512m"], workerProcess), implementationClasspath)
+        pool.release(worker)
+        def reused = pool.acquire(builder(["-Xmx512m"], Mock(WorkerProcess)), implementationClasspath)
+
+        then:
+        reused.is(worker)
+        1 * workerProcess.start()
+        1 * workerProcess.getConnection() >> connection
+    }
+
+    def "starts a new worker process when no idle worker process has the same configuration"() {
+        def workerProcess = Mock(WorkerProcess)
+        def otherWorkerProcess = Mock(WorkerProcess)
+        def connection = connection(Mock(RemoteReusableTestWorker))
+
+        when:
+        def worker = pool.acquire(builder(["-Xmx512m"], workerProcess), implementationClasspath)
+        pool.release(worker)
+        def other = pool.acquire(builder(["-Xmx1g"], otherWorkerProcess), implementationClasspath)
+
+        then:
+        !other.is(worker)
+        1 * workerProcess.start()
+        1 * workerProcess.getConnection() >> connection
+        1 * otherWorkerProcess.start()
+        1 * otherWorkerProcess.getConnection() >> connection
+    }
+
+    def "completes a session once the worker test suite has completed"() {
+        def remoteWorker = Mock(RemoteReusableTestWorker)
+        def resultProcessor = Mock(TestResultProcessor)
+        def workerResultProcessor = null
+        def workerProcess = Stub(WorkerProcess) {
+            getConnection() >> Stub(ObjectConnection) {
+                addOutgoing(RemoteReusableTestWorker) >> remoteWorker
+                addIncoming(TestResultProcessor, _) >> { workerResultProcessor = it[1] }
+            }
+        }
+        def session = new ReusableTestWorkerSession([], [], [] as Set, new byte[0], false)
+        def suite = new WorkerTestClassProcessor.WorkerTestSuiteDescriptor("worker", "Gradle Test Executor 1")
+        def worker = pool.acquire(builder([], workerProcess), implementationClasspath)
+
+        when:
+        def remoteProcessor = worker.startSession(session, resultProcessor, Stub(RemoteTestClassProcessorListener))
+        workerResultProcessor.started(suite, new TestStartEvent(0))
+        workerResultProcessor.completed("worker", new TestCompleteEvent(1))
+
+        then:
+        remoteProcessor.is(remoteWorker)
+        1 * remoteWorker.startSession(session)
+        1 * resultProcessor.started(suite, _)
+        1 * resultProcessor.completed("worker", _)
+
+        and:
+        worker.waitForSessionCompletion()
+
+        when:
+        workerResultProcessor.completed("worker", new TestCompleteEvent(2))
+
+        then:
+        0 * resultProcessor._
+    }
+
+    def "stops idle worker processes when stopped"() {
+        def workerProcess = Mock(WorkerProcess)
+        def remoteWorker = Mock(RemoteReusableTestWorker)
+        def connection = connection(remoteWorker)
+
+        given:
+        workerProcess.getConnection() >> connection
+        pool.release(pool.acquire(builder([], workerProcess), implementationClasspath))
+
+        when:
+        pool.stop()
+
+        then:
+        1 * remoteWorker.shutdown()
+        1 * workerProcess.waitForStop()
+    }
+
+    def "stops worker processes released after the pool has been stopped"() {
+        def workerProcess = Mock(WorkerProcess)
+        def remoteWorker = Mock(RemoteReusableTestWorker)
+        def connection = connection(remoteWorker)
+
+        given:
+        workerProcess.getConnection() >> connection
+        def worker = pool.acquire(builder([], workerProcess), implementationClasspath)
+        pool.stop()
+
+        when:
+        pool.release(worker)
+
+        then:
+        1 * remoteWorker.shutdown()
+        1 * workerProcess.waitForStop()
+    }
+
+    def "stops worker processes which have been idle for too long"() {
+        def workerProcess = Mock(WorkerProcess)
+        def remoteWorker = Mock(RemoteReusableTestWorker)
+        def recentWorkerProcess = Mock(WorkerProcess)
+        def recentRemoteWorker = Mock(RemoteReusableTestWorker)
+
+        given:
+        workerProcess.getConnection() >> connection(remoteWorker)
+        recentWorkerProcess.getConnection() >> connection(recentRemoteWorker)
+        pool.release(pool.acquire(builder([], workerProcess), implementationClasspath))
+        currentTime = 5 * 60 * 1000
+        pool.release(pool.acquire(builder(["-Xmx1g"], recentWorkerProcess), implementationClasspath))
+
+        when:
+        currentTime = 12 * 60 * 1000
+        pool.expireIdleWorkers()
+
+        then:
+        1 * remoteWorker.shutdown()
+        1 * workerProcess.waitForStop()
+        0 * recentRemoteWorker.shutdown()
+    }
+
+    def "checks for expired worker processes once a worker process is idle and stops checking when stopped"() {
+        def workerProcess = Stub(WorkerProcess) {
+            getConnection() >> connection(Mock(RemoteReusableTestWorker))
+        }
+
+        when:
+        pool.release(pool.acquire(builder([], workerProcess), implementationClasspath))
+
+        then:
+        1 * expirationExecutor.scheduleWithFixedDelay(_, 60, 60, TimeUnit.SECONDS)
+
+        when:
+        pool.stop()
+
+        then:
+        1 * memoryManager.removeMemoryHolder(pool)
+        1 * expirationExecutor.stop()
+    }
+
+    def "stops idle worker processes least recently used first to release memory"() {
+        def remoteWorkers = (0..2).collect { Mock(RemoteReusableTestWorker) }
+        def workerProcesses = (0..2).collect { i -> Stub(WorkerProcess) { getConnection() >> connection(remoteWorkers[i]) } }
+
+        given:
+        pool.release(pool.acquire(builder(["-Xmx512m"], workerProcesses[0]), implementationClasspath))
+        pool.release(pool.acquire(builder(["-Xmx1g"], workerProcesses[1]), implementationClasspath))
+        pool.release(pool.acquire(builder(["-Xmx2g"], workerProcesses[2]), implementationClasspath))
+
+        when:
+        def released = pool.attemptToRelease(1024 * 1024 * 1024)
+
+        then:
+        released == (512 + 1024) * 1024 * 1024
+        1 * remoteWorkers[0].shutdown()
+        1 * remoteWorkers[1].shutdown()
+        0 * remoteWorkers[2].shutdown()
+    }
+
+    def builder(List<String> jvmArgs, WorkerProcess workerProcess) {
+        def javaCommand = Stub(JavaExecHandleBuilder) {
+            getExecutable() >> "java"
+            getAllJvmArgs() >> jvmArgs
+            getMaxHeapSize() >> jvmArgs.find { it.startsWith("-Xmx") }?.substring(4)
+            getEnvironment() >> [:]
+            getWorkingDir() >> new File("project")
+        }
+        return Stub(WorkerProcessBuilder) {
+            getJavaCommand() >> javaCommand
+            getLogLevel() >> LogLevel.LIFECYCLE
+            build() >> workerProcess
+        }
+    }
+
+    def connection(RemoteReusableTestWorker remoteWorker) {
+        return Stub(ObjectConnection) {
+            addOutgoing(RemoteReusableTestWorker) >> remoteWorker
+        }
+    }
+}
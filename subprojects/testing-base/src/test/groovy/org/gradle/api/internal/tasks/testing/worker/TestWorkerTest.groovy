@@ -38,7 +38,8 @@ public class TestWorkerTest extends ConcurrentSpec {
     def processor = Mock(TestClassProcessor)
     def test = Mock(TestClassRunInfo)
     def resultProcessor = Mock(TestResultProcessor)
-    def worker = new TestWorker(factory)
+    def processingListener = Mock(RemoteTestClassProcessorListener)
+    def worker = new TestWorker(factory, true)
     def serviceRegistry = new DefaultServiceRegistry().add(Clock, Time.clock())
 
     def setup() {
@@ -61,6 +62,7 @@ public class TestWorkerTest extends ConcurrentSpec {
         and:
         1 * factory.create(_) >> processor
         1 * connection.addOutgoing(TestResultProcessor) >> resultProcessor
+        1 * connection.addOutgoing(RemoteTestClassProcessorListener) >> processingListener
         1 * connection.addIncoming(RemoteTestClassProcessor, worker)
         1 * connection.useParameterSerializers(_)
         1 * connection.connect() >> {
@@ -74,6 +76,29 @@ public class TestWorkerTest extends ConcurrentSpec {
         }
         1 * processor.startProcessing(_)
         1 * processor.processTestClass(test)
+        1 * processingListener.testClassProcessed()
         1 * processor.stop()
     }
+
+    def "does not report processed test classes unless requested"() {
+        def worker = new TestWorker(factory)
+
+        when:
+        async {
+            worker.execute(workerContext)
+        }
+
+        then:
+        1 * factory.create(_) >> processor
+        1 * connection.addOutgoing(RemoteTestClassProcessorListener) >> processingListener
+        1 * connection.connect() >> {
+            start {
+                worker.startProcessing()
+                worker.processTestClass(test)
+                worker.stop()
+            }
+        }
+        1 * processor.processTestClass(test)
+        0 * processingListener._
+    }
 }
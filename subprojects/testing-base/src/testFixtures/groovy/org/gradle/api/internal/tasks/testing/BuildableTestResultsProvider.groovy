@@ -75,6 +75,10 @@ class BuildableTestResultsProvider implements TestResultsProvider {
         testClasses[classId]?.outputEvents?.find { it.testOutputEvent.destination == destination }
     }
 
+    long getOutputSize(long classId, TestOutputEvent.Destination destination) {
+        testClasses[classId]?.outputEvents?.findAll { it.testOutputEvent.destination == destination }?.sum { it.testOutputEvent.message.length() } ?: 0
+    }
+
     static class BuildableOutputEvent {
         long testId
         TestOutputEvent testOutputEvent
@@ -18,12 +18,15 @@
 
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
+import org.gradle.api.internal.tasks.testing.impact.TestImpactAnalysis;
 import org.gradle.internal.scan.UsedByScanPlugin;
 import org.gradle.process.JavaForkOptions;
 import org.gradle.util.Path;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 @UsedByScanPlugin("test-distribution")
@@ -40,6 +43,8 @@ public class JvmTestExecutionSpec implements TestExecutionSpec {
     private final JavaForkOptions javaForkOptions;
     private final int maxParallelForks;
     private final Set<String> previousFailedTestClasses;
+    private final Map<String, Long> previousTestClassDurations;
+    private final TestImpactAnalysis testImpactAnalysis;
 
     /**
      * Required by test-retry-gradle-plugin <= 1.1.3
@@ -49,6 +54,14 @@ public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File
     }
 
     public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File> classpath, Iterable<? extends File>  modulePath, FileTree candidateClassFiles, boolean scanForTestClasses, FileCollection testClassesDirs, String path, Path identityPath, long forkEvery, JavaForkOptions javaForkOptions, int maxParallelForks, Set<String> previousFailedTestClasses) {
+        this(testFramework, classpath, modulePath, candidateClassFiles, scanForTestClasses, testClassesDirs, path, identityPath, forkEvery, javaForkOptions, maxParallelForks, previousFailedTestClasses, Collections.<String, Long>emptyMap());
+    }
+
+    public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File> classpath, Iterable<? extends File>  modulePath, FileTree candidateClassFiles, boolean scanForTestClasses, FileCollection testClassesDirs, String path, Path identityPath, long forkEvery, JavaForkOptions javaForkOptions, int maxParallelForks, Set<String> previousFailedTestClasses, Map<String, Long> previousTestClassDurations) {
+        this(testFramework, classpath, modulePath, candidateClassFiles, scanForTestClasses, testClassesDirs, path, identityPath, forkEvery, javaForkOptions, maxParallelForks, previousFailedTestClasses, previousTestClassDurations, null);
+    }
+
+    public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File> classpath, Iterable<? extends File>  modulePath, FileTree candidateClassFiles, boolean scanForTestClasses, FileCollection testClassesDirs, String path, Path identityPath, long forkEvery, JavaForkOptions javaForkOptions, int maxParallelForks, Set<String> previousFailedTestClasses, Map<String, Long> previousTestClassDurations, @Nullable TestImpactAnalysis testImpactAnalysis) {
         this.testFramework = testFramework;
         this.classpath = classpath;
         this.modulePath = modulePath;
@@ -61,6 +74,8 @@ public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File
         this.javaForkOptions = javaForkOptions;
         this.maxParallelForks = maxParallelForks;
         this.previousFailedTestClasses = previousFailedTestClasses;
+        this.previousTestClassDurations = previousTestClassDurations;
+        this.testImpactAnalysis = testImpactAnalysis;
     }
 
     public TestFramework getTestFramework() {
@@ -117,4 +132,19 @@ public int getMaxParallelForks() {
     public Set<String> getPreviousFailedTestClasses() {
         return previousFailedTestClasses;
     }
+
+    /**
+     * The durations of the test classes in previous runs, in milliseconds, by class name.
+     */
+    public Map<String, Long> getPreviousTestClassDurations() {
+        return previousTestClassDurations;
+    }
+
+    /**
+     * The analysis selecting the test classes to run, or {@code null} when all test classes should run.
+     */
+    @Nullable
+    public TestImpactAnalysis getTestImpactAnalysis() {
+        return testImpactAnalysis;
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import com.google.common.util.concurrent.Futures;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.internal.file.RelativeFile;
@@ -24,6 +25,10 @@
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.IoActions;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 import org.slf4j.Logger;
@@ -33,17 +38,24 @@
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import static org.gradle.internal.FileUtils.hasExtension;
 
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTestFrameworkDetector.class);
     private static final String JAVA_LANG_OBJECT = "java/lang/Object";
+    private static final int MAX_PENDING_READS = 1000;
 
     private List<File> testClassDirectories;
     private final ClassFileExtractionManager classFileExtractionManager;
@@ -53,6 +65,11 @@
     private Set<File> testClassesDirectories;
     private Set<File> testClasspath;
 
+    private FileHasher fileHasher;
+    private TestClassDetectionCache detectionCache;
+    private Executor readExecutor;
+    private final Deque<Future<TestClass>> pendingReads = new ArrayDeque<Future<TestClass>>();
+
     protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
         assert classFileExtractionManager != null;
         this.classFileExtractionManager = classFileExtractionManager;
@@ -117,6 +134,45 @@ public void setTestClasspath(Set<File> testClasspath) {
         this.testClasspath = testClasspath;
     }
 
+    @Override
+    public void setDetectionCache(FileHasher fileHasher, TestClassDetectionCache detectionCache) {
+        this.fileHasher = fileHasher;
+        this.detectionCache = detectionCache;
+    }
+
+    @Override
+    public void setReadExecutor(Executor readExecutor) {
+        this.readExecutor = readExecutor;
+    }
+
+    /**
+     * Reads the given class file, or looks up what was read from a class file with the same content when a detection cache is set.
+     * Can be called concurrently.
+     */
+    private TestClass readClassFile(File testClassFile, Factory<String> fallbackClassNameProvider, boolean cacheable) {
+        if (!cacheable || detectionCache == null) {
+            return readClassFile(testClassFile, fallbackClassNameProvider);
+        }
+        HashCode key;
+        try {
+            Hasher hasher = Hashing.newHasher();
+            hasher.putString(getClass().getName());
+            hasher.putHash(fileHasher.hash(testClassFile));
+            key = hasher.hash();
+        } catch (RuntimeException e) {
+            LOGGER.debug("Failed to hash class file " + testClassFile.getAbsolutePath() + "; reading it without using the detection cache", e);
+            return readClassFile(testClassFile, fallbackClassNameProvider);
+        }
+        TestClass testClass = detectionCache.get(key);
+        if (testClass == null) {
+            testClass = readClassFile(testClassFile, fallbackClassNameProvider);
+            if (testClass.isParseable()) {
+                detectionCache.put(key, testClass);
+            }
+        }
+        return testClass;
+    }
+
     private TestClass readClassFile(File testClassFile, Factory<String> fallbackClassNameProvider) {
         final TestClassVisitor classVisitor = createClassVisitor();
 
@@ -135,13 +191,42 @@ private TestClass readClassFile(File testClassFile, Factory<String> fallbackClas
     }
 
     @Override
-    public boolean processTestClass(final RelativeFile testClassFile) {
-        return processTestClass(testClassFile.getFile(), false, new Factory<String>() {
+    public void processTestClass(final RelativeFile testClassFile) {
+        final Factory<String> fallbackClassNameProvider = new Factory<String>() {
             @Override
             public String create() {
                 return testClassFile.getRelativePath().getPathString().replace(".class", "");
             }
+        };
+        if (readExecutor == null) {
+            processTestClass(readClassFile(testClassFile.getFile(), fallbackClassNameProvider, true), false);
+            return;
+        }
+
+        FutureTask<TestClass> read = new FutureTask<TestClass>(new Callable<TestClass>() {
+            @Override
+            public TestClass call() {
+                return readClassFile(testClassFile.getFile(), fallbackClassNameProvider, true);
+            }
         });
+        pendingReads.add(read);
+        readExecutor.execute(read);
+        processReadTestClasses(false);
+    }
+
+    @Override
+    public void endDetection() {
+        processReadTestClasses(true);
+    }
+
+    /**
+     * Processes the class files read so far, in the order they were submitted, so that test classes are published as soon as possible.
+     * Superclasses are resolved on the calling thread, as the class file extraction manager and the superclass cache are not thread-safe.
+     */
+    private void processReadTestClasses(boolean waitForAll) {
+        while (!pendingReads.isEmpty() && (waitForAll || pendingReads.size() > MAX_PENDING_READS || pendingReads.peek().isDone())) {
+            processTestClass(Futures.getUnchecked(pendingReads.poll()), false);
+        }
     }
 
     /**
@@ -149,9 +234,7 @@ public String create() {
      * class is a test class. First the package of the parent class is checked, if it is a java.lang or groovy.lang the class can't be a test class, otherwise the parent class is scanned. <p/> When a
      * parent class is a test class all the extending classes are marked as test classes.
      */
-    private boolean processTestClass(File testClassFile, boolean superClass, Factory<String> fallbackClassNameProvider) {
-        TestClass testClass = readClassFile(testClassFile, fallbackClassNameProvider);
-
+    private boolean processTestClass(TestClass testClass, boolean superClass) {
         boolean isTest = testClass.isTest();
 
         if (!isTest) { // scan parent class
@@ -184,7 +267,7 @@ private boolean processSuperClass(File testClassFile, String superClassName) {
         Boolean isSuperTest = superClasses.get(testClassFile);
 
         if (isSuperTest == null) {
-            isTest = processTestClass(testClassFile, true, Factories.constant(superClassName));
+            isTest = processTestClass(readClassFile(testClassFile, Factories.constant(superClassName)), true);
 
             superClasses.put(testClassFile, isTest);
         } else {
@@ -210,27 +293,33 @@ public void startDetection(TestClassProcessor testClassProcessor) {
         this.testClassProcessor = testClassProcessor;
     }
 
-    private static class TestClass {
+    static class TestClass {
+        private final boolean parseable;
         private final boolean test;
         private final boolean isAbstract;
         private final String className;
         private final String superClassName;
 
         static TestClass forParseableFile(TestClassVisitor testClassVisitor) {
-            return new TestClass(testClassVisitor.isTest(), testClassVisitor.isAbstract(), testClassVisitor.getClassName(), testClassVisitor.getSuperClassName());
+            return new TestClass(true, testClassVisitor.isTest(), testClassVisitor.isAbstract(), testClassVisitor.getClassName(), testClassVisitor.getSuperClassName());
         }
 
         static TestClass forUnparseableFile(String className) {
-            return new TestClass(true, false, className, null);
+            return new TestClass(false, true, false, className, null);
         }
 
-        private TestClass(boolean test, boolean isAbstract, String className, String superClassName) {
+        private TestClass(boolean parseable, boolean test, boolean isAbstract, String className, String superClassName) {
+            this.parseable = parseable;
             this.test = test;
             this.isAbstract = isAbstract;
             this.className = className;
             this.superClassName = superClassName;
         }
 
+        boolean isParseable() {
+            return parseable;
+        }
+
         boolean isTest() {
             return test;
         }
@@ -60,6 +60,7 @@ public void visitClassFile(FileVisitDetails fileDetails) {
                 testFrameworkDetector.processTestClass(new RelativeFile(fileDetails.getFile(), fileDetails.getRelativePath()));
             }
         });
+        testFrameworkDetector.endDetection();
     }
 
     private void filenameScan() {
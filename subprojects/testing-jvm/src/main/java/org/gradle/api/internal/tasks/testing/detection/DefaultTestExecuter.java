@@ -17,39 +17,91 @@
 package org.gradle.api.internal.tasks.testing.detection;
 
 import com.google.common.collect.ImmutableSet;
+import org.gradle.api.Action;
+import org.gradle.api.Transformer;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.tasks.testing.JvmTestExecutionSpec;
+import org.gradle.api.internal.tasks.testing.TestClassProcessingListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestExecuter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
+import org.gradle.api.internal.tasks.testing.impact.AffectedTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.impact.TestImpactAnalysis;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassDurationsSerializer;
+import org.gradle.api.internal.tasks.testing.processors.DemandDrivenTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.PatternMatchTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.RunLongestFirstTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RunPreviousFailedFirstTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.ShardingTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.ReusableTestWorkerPool;
+import org.gradle.api.internal.tasks.testing.worker.TestWorker;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.Factory;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.time.Clock;
 import org.gradle.internal.work.WorkerLeaseRegistry;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
+    /**
+     * When enabled, test classes are handed to the forked test processes as they get through the test classes they already received,
+     * instead of round-robin as soon as they are detected.
+     */
+    public static final String DEMAND_DRIVEN_DISTRIBUTION_PROPERTY = "org.gradle.internal.testing.demand-driven-distribution";
+    /**
+     * When enabled, test classes are run longest first, according to their durations in previous runs.
+     */
+    public static final String LONGEST_FIRST_PROPERTY = "org.gradle.internal.testing.longest-first";
+    /**
+     * When set to {@code <index>/<count>}, e.g. {@code 2/4}, only runs the test classes of the given shard, out of the given number of
+     * shards. The index starts at 1. The value is an input of the {@code Test} task.
+     */
+    public static final String SHARD_PROPERTY = "org.gradle.internal.testing.shard";
+    /**
+     * The path of a file with test class durations, in the format of the {@code class-durations.bin} file of the binary test results,
+     * used to split test classes into shards of about the same duration. The file must be the same for all shards, e.g. checked in
+     * or shared between the builds. When not set, test classes are assigned to shards by name. The file is an input of the {@code Test} task.
+     */
+    public static final String SHARD_DURATIONS_PROPERTY = "org.gradle.internal.testing.shard-durations";
+    /**
+     * When enabled, the test processes are kept alive after the tests of a task have run, and reused by later test tasks with the same java executable,
+     * JVM arguments, system properties, environment and working directory, each with a new application ClassLoader.
+     */
+    public static final String REUSE_WORKERS_PROPERTY = "org.gradle.internal.testing.reuse-workers";
+    /**
+     * When enabled, the test processes coalesce the output of each test into fewer, larger output events, instead of sending one event per line.
+     */
+    public static final String BATCH_OUTPUT_PROPERTY = TestWorker.BATCH_OUTPUT_SYS_PROPERTY;
+    /**
+     * When enabled, only the test classes that depend on classes changed since the last run, and the test classes that did not pass in the last run, are run.
+     * All test classes are run when the change cannot be attributed to classes, for example when a resource or the order of the classpath changes.
+     */
+    public static final String TEST_IMPACT_ANALYSIS_PROPERTY = "org.gradle.internal.testing.impact-analysis";
 
     private static final Logger LOGGER = Logging.getLogger(DefaultTestExecuter.class);
 
@@ -62,11 +114,18 @@ public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
     private final Clock clock;
     private final DocumentationRegistry documentationRegistry;
     private final DefaultTestFilter testFilter;
+    private final ExecutorFactory executorFactory;
+    private final FileHasher fileHasher;
+    private final TestClassDetectionCache detectionCache;
+    @Nullable
+    private final ReusableTestWorkerPool workerPool;
     private TestClassProcessor processor;
 
     public DefaultTestExecuter(WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry,
                                WorkerLeaseRegistry workerLeaseRegistry, BuildOperationExecutor buildOperationExecutor, int maxWorkerCount,
-                               Clock clock, DocumentationRegistry documentationRegistry, DefaultTestFilter testFilter) {
+                               Clock clock, DocumentationRegistry documentationRegistry, DefaultTestFilter testFilter,
+                               ExecutorFactory executorFactory, FileHasher fileHasher, TestClassDetectionCache detectionCache,
+                               @Nullable ReusableTestWorkerPool workerPool) {
         this.workerFactory = workerFactory;
         this.actorFactory = actorFactory;
         this.moduleRegistry = moduleRegistry;
@@ -76,6 +135,10 @@ public DefaultTestExecuter(WorkerProcessFactory workerFactory, ActorFactory acto
         this.clock = clock;
         this.documentationRegistry = documentationRegistry;
         this.testFilter = testFilter;
+        this.executorFactory = executorFactory;
+        this.fileHasher = fileHasher;
+        this.detectionCache = detectionCache;
+        this.workerPool = workerPool;
     }
 
     @Override
@@ -86,11 +149,14 @@ public void execute(final JvmTestExecutionSpec testExecutionSpec, TestResultProc
         final Set<File> classpath = ImmutableSet.copyOf(testExecutionSpec.getClasspath());
         final Set<File> modulePath = ImmutableSet.copyOf(testExecutionSpec.getModulePath());
         final List<String> testWorkerImplementationModules = testFramework.getTestWorkerImplementationModules();
+        final Action<WorkerProcessBuilder> workerConfigurationAction = createWorkerConfigurationAction(testFramework);
+        // Fresh processes are requested when forking every n test classes
+        final ReusableTestWorkerPool workerPool = Boolean.getBoolean(REUSE_WORKERS_PROPERTY) && testExecutionSpec.getForkEvery() == 0 ? this.workerPool : null;
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             @Override
             public TestClassProcessor create() {
                 return new ForkingTestClassProcessor(currentWorkerLease, workerFactory, testInstanceFactory, testExecutionSpec.getJavaForkOptions(),
-                    classpath, modulePath, testWorkerImplementationModules, testFramework.getWorkerConfigurationAction(), moduleRegistry, documentationRegistry);
+                    classpath, modulePath, testWorkerImplementationModules, workerConfigurationAction, moduleRegistry, documentationRegistry, null, workerPool);
             }
         };
         final Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
@@ -99,18 +165,49 @@ public TestClassProcessor create() {
                 return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testExecutionSpec.getForkEvery());
             }
         };
-        processor =
-            new PatternMatchTestClassProcessor(testFilter,
-                new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
-                    new MaxNParallelTestClassProcessor(getMaxParallelForks(testExecutionSpec), reforkingProcessorFactory, actorFactory)));
+        TestClassProcessor parallelProcessor;
+        if (Boolean.getBoolean(DEMAND_DRIVEN_DISTRIBUTION_PROPERTY)) {
+            parallelProcessor = new DemandDrivenTestClassProcessor(getMaxParallelForks(testExecutionSpec), new Transformer<TestClassProcessor, TestClassProcessingListener>() {
+                @Override
+                public TestClassProcessor transform(final TestClassProcessingListener listener) {
+                    Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
+                        @Override
+                        public TestClassProcessor create() {
+                            return new ForkingTestClassProcessor(currentWorkerLease, workerFactory, testInstanceFactory, testExecutionSpec.getJavaForkOptions(),
+                                classpath, modulePath, testWorkerImplementationModules, workerConfigurationAction, moduleRegistry, documentationRegistry, listener, workerPool);
+                        }
+                    };
+                    return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testExecutionSpec.getForkEvery());
+                }
+            }, actorFactory);
+        } else {
+            parallelProcessor = new MaxNParallelTestClassProcessor(getMaxParallelForks(testExecutionSpec), reforkingProcessorFactory, actorFactory);
+        }
+        TestClassProcessor orderingProcessor = new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(), parallelProcessor);
+        if (Boolean.getBoolean(LONGEST_FIRST_PROPERTY)) {
+            orderingProcessor = new RunLongestFirstTestClassProcessor(testExecutionSpec.getPreviousTestClassDurations(), orderingProcessor);
+        }
+        String shard = System.getProperty(SHARD_PROPERTY);
+        if (shard != null) {
+            orderingProcessor = createShardingProcessor(shard, testExecutionSpec, orderingProcessor);
+        }
+        TestImpactAnalysis testImpactAnalysis = testExecutionSpec.getTestImpactAnalysis();
+        if (testImpactAnalysis != null) {
+            orderingProcessor = new AffectedTestClassProcessor(testImpactAnalysis, orderingProcessor);
+        }
+        processor = new PatternMatchTestClassProcessor(testFilter, orderingProcessor);
 
         final FileTree testClassFiles = testExecutionSpec.getCandidateClassFiles();
 
         Runnable detector;
+        ManagedExecutor readExecutor = null;
         if (testExecutionSpec.isScanForTestClasses() && testFramework.getDetector() != null) {
+            readExecutor = executorFactory.create("Test class detection", maxWorkerCount);
             TestFrameworkDetector testFrameworkDetector = testFramework.getDetector();
             testFrameworkDetector.setTestClasses(testExecutionSpec.getTestClassesDirs().getFiles());
             testFrameworkDetector.setTestClasspath(classpath);
+            testFrameworkDetector.setDetectionCache(fileHasher, detectionCache);
+            testFrameworkDetector.setReadExecutor(readExecutor);
             detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
         } else {
             detector = new DefaultTestClassScanner(testClassFiles, null, processor);
@@ -118,7 +215,13 @@ public TestClassProcessor create() {
 
         final Object testTaskOperationId = buildOperationExecutor.getCurrentOperation().getParentId();
 
-        new TestMainAction(detector, processor, testResultProcessor, clock, testTaskOperationId, testExecutionSpec.getPath(), "Gradle Test Run " + testExecutionSpec.getIdentityPath()).run();
+        try {
+            new TestMainAction(detector, processor, testResultProcessor, clock, testTaskOperationId, testExecutionSpec.getPath(), "Gradle Test Run " + testExecutionSpec.getIdentityPath()).run();
+        } finally {
+            if (readExecutor != null) {
+                readExecutor.stop();
+            }
+        }
     }
 
     @Override
@@ -128,6 +231,46 @@ public void stopNow() {
         }
     }
 
+    private static Action<WorkerProcessBuilder> createWorkerConfigurationAction(TestFramework testFramework) {
+        final Action<WorkerProcessBuilder> frameworkConfigurationAction = testFramework.getWorkerConfigurationAction();
+        if (!Boolean.getBoolean(BATCH_OUTPUT_PROPERTY)) {
+            return frameworkConfigurationAction;
+        }
+        return new Action<WorkerProcessBuilder>() {
+            @Override
+            public void execute(WorkerProcessBuilder builder) {
+                frameworkConfigurationAction.execute(builder);
+                builder.getJavaCommand().systemProperty(BATCH_OUTPUT_PROPERTY, "true");
+            }
+        };
+    }
+
+    private static TestClassProcessor createShardingProcessor(String shard, JvmTestExecutionSpec testExecutionSpec, TestClassProcessor delegate) {
+        Map<String, Long> durations = readShardDurations();
+        int separator = shard.indexOf('/');
+        try {
+            int shardIndex = Integer.parseInt(shard.substring(0, separator).trim());
+            int shardCount = Integer.parseInt(shard.substring(separator + 1).trim());
+            LOGGER.info("{} runs test shard {} of {}", testExecutionSpec.getPath(), shardIndex, shardCount);
+            return new ShardingTestClassProcessor(shardIndex - 1, shardCount, durations, delegate);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(String.format("Invalid value '%s' for system property '%s', expected <index>/<count>.", shard, SHARD_PROPERTY), e);
+        }
+    }
+
+    private static Map<String, Long> readShardDurations() {
+        String durationsPath = System.getProperty(SHARD_DURATIONS_PROPERTY);
+        if (durationsPath == null) {
+            return Collections.emptyMap();
+        }
+        File durationsFile = new File(durationsPath);
+        if (!durationsFile.isFile()) {
+            // Falling back to another split here would make this shard overlap with the shards which found the file
+            throw new IllegalArgumentException(String.format("Test class durations file '%s' given by system property '%s' does not exist.", durationsFile, SHARD_DURATIONS_PROPERTY));
+        }
+        return TestClassDurationsSerializer.read(durationsFile);
+    }
+
     private int getMaxParallelForks(JvmTestExecutionSpec testExecutionSpec) {
         int maxParallelForks = testExecutionSpec.getMaxParallelForks();
         if (maxParallelForks > maxWorkerCount) {
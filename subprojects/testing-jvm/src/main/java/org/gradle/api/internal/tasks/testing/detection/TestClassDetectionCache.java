@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keeps what test framework detectors learned from the class files they have read, keyed by the content of the class file
+ * and the detector, so that unchanged class files do not have to be read again by later test runs in the same process.
+ */
+public class TestClassDetectionCache {
+    private static final int MAX_ENTRIES = 100000;
+
+    private final Cache<HashCode, AbstractTestFrameworkDetector.TestClass> testClasses = CacheBuilder.newBuilder()
+        .maximumSize(MAX_ENTRIES)
+        .build();
+
+    @Nullable
+    AbstractTestFrameworkDetector.TestClass get(HashCode key) {
+        return testClasses.getIfPresent(key);
+    }
+
+    void put(HashCode key, AbstractTestFrameworkDetector.TestClass testClass) {
+        testClasses.put(key, testClass);
+    }
+}
@@ -17,16 +17,33 @@
 
 import org.gradle.api.internal.file.RelativeFile;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.hash.FileHasher;
 
 import java.io.File;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 public interface TestFrameworkDetector {
     void startDetection(TestClassProcessor testClassProcessor);
 
-    boolean processTestClass(RelativeFile testClassFile);
+    void processTestClass(RelativeFile testClassFile);
+
+    /**
+     * Blocks until all the class files passed to {@link #processTestClass(RelativeFile)} have been processed.
+     */
+    void endDetection();
 
     void setTestClasses(Set<File> testClasses);
 
     void setTestClasspath(Set<File> classpath);
+
+    /**
+     * Reuses what was learned from class files with the same content, as hashed by the given hasher.
+     */
+    void setDetectionCache(FileHasher fileHasher, TestClassDetectionCache detectionCache);
+
+    /**
+     * Reads the class files using the given executor. Test classes are still passed to the test class processor in the order their class files were processed.
+     */
+    void setReadExecutor(Executor readExecutor);
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact;
+
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.internal.file.FileOperations;
+import org.gradle.internal.IoActions;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.StreamHasher;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.gradle.internal.FileUtils.hasExtension;
+
+/**
+ * Hashes the content of a classpath entry which is not a class file, i.e. its resources, as changes to those are not visible in the
+ * class dependency analysis.
+ */
+public class ClasspathEntryResourceHasher {
+    private final FileHasher fileHasher;
+    private final StreamHasher streamHasher;
+    private final FileOperations fileOperations;
+
+    public ClasspathEntryResourceHasher(FileHasher fileHasher, StreamHasher streamHasher, FileOperations fileOperations) {
+        this.fileHasher = fileHasher;
+        this.streamHasher = streamHasher;
+        this.fileOperations = fileOperations;
+    }
+
+    public HashCode hash(File classpathEntry) {
+        final Map<String, HashCode> resourceHashes = new TreeMap<String, HashCode>();
+        if (hasExtension(classpathEntry, ".jar")) {
+            fileOperations.zipTree(classpathEntry).visit(new ResourceVisitor(resourceHashes) {
+                @Override
+                protected HashCode getHashCode(FileVisitDetails fileDetails) {
+                    InputStream inputStream = fileDetails.open();
+                    try {
+                        return streamHasher.hash(inputStream);
+                    } finally {
+                        IoActions.closeQuietly(inputStream);
+                    }
+                }
+            });
+        } else if (classpathEntry.isDirectory()) {
+            fileOperations.fileTree(classpathEntry).visit(new ResourceVisitor(resourceHashes) {
+                @Override
+                protected HashCode getHashCode(FileVisitDetails fileDetails) {
+                    return fileHasher.hash(fileDetails.getFile(), fileDetails.getSize(), fileDetails.getLastModified());
+                }
+            });
+        }
+        // Sorted by path, so that the hash does not depend on the order of the entries
+        Hasher hasher = Hashing.newHasher();
+        for (Map.Entry<String, HashCode> entry : resourceHashes.entrySet()) {
+            hasher.putString(entry.getKey());
+            hasher.putHash(entry.getValue());
+        }
+        return hasher.hash();
+    }
+
+    private static abstract class ResourceVisitor implements FileVisitor {
+        private final Map<String, HashCode> resourceHashes;
+
+        ResourceVisitor(Map<String, HashCode> resourceHashes) {
+            this.resourceHashes = resourceHashes;
+        }
+
+        @Override
+        public void visitDir(FileVisitDetails dirDetails) {
+        }
+
+        @Override
+        public void visitFile(FileVisitDetails fileDetails) {
+            if (!fileDetails.getName().endsWith(".class")) {
+                resourceHashes.put(fileDetails.getRelativePath().getPathString(), getHashCode(fileDetails));
+            }
+        }
+
+        protected abstract HashCode getHashCode(FileVisitDetails fileDetails);
+    }
+}
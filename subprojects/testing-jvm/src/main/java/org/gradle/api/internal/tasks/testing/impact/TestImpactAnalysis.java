@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.impact;
+
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathEntrySnapshot;
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathEntrySnapshotCache;
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathSnapshot;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassChanges;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which test classes of a test task are affected by the changes of its runtime classpath since the last run, using the class
+ * dependency analysis of incremental Java compilation.
+ *
+ * <p>A test class is affected when it, or any class it transitively depends on, was added, changed or removed, or when it is still pending
+ * from the last run. All test classes are affected when there is no state of a previous run, when other inputs of the test task changed, when
+ * classpath entries were added, removed or reordered, when the resources of an entry changed, i.e. its content which is not a class file, or
+ * when a changed class may affect any class.</p>
+ */
+public class TestImpactAnalysis {
+    private static final Logger LOGGER = Logging.getLogger(TestImpactAnalysis.class);
+
+    @Nullable
+    private final TestImpactState previousState;
+    private final HashCode inputsHash;
+    private final Map<File, HashCode> classpathEntryHashes;
+    private final Map<File, HashCode> resourceHashes;
+    @Nullable
+    private final Set<String> affectedClasses;
+    private final Set<String> scheduledTestClasses = Collections.synchronizedSet(new HashSet<String>());
+
+    private TestImpactAnalysis(@Nullable TestImpactState previousState, HashCode inputsHash, Map<File, HashCode> classpathEntryHashes, Map<File, HashCode> resourceHashes,
+                               @Nullable Set<String> affectedClasses) {
+        this.previousState = previousState;
+        this.inputsHash = inputsHash;
+        this.classpathEntryHashes = classpathEntryHashes;
+        this.resourceHashes = resourceHashes;
+        this.affectedClasses = affectedClasses;
+    }
+
+    /**
+     * @param inputsHash the hash of the inputs of the test task which are not part of its classpath, see {@link TestImpactState#getInputsHash()}
+     */
+    public static TestImpactAnalysis analyze(ClasspathSnapshot classpathSnapshot, HashCode inputsHash, @Nullable TestImpactState previousState,
+                                             ClasspathEntrySnapshotCache snapshotCache, ClasspathEntryResourceHasher resourceHasher) {
+        Map<File, HashCode> classpathEntryHashes = new LinkedHashMap<File, HashCode>();
+        Map<File, HashCode> resourceHashes = new LinkedHashMap<File, HashCode>();
+        for (File entry : classpathSnapshot.getEntries()) {
+            HashCode hash = classpathSnapshot.getSnapshot(entry).getHash();
+            classpathEntryHashes.put(entry, hash);
+            resourceHashes.put(entry, hashResources(entry, hash, previousState, resourceHasher));
+        }
+        Set<String> affectedClasses = previousState == null ? null : findAffectedClasses(classpathSnapshot, inputsHash, previousState, resourceHashes, snapshotCache);
+        return new TestImpactAnalysis(previousState, inputsHash, classpathEntryHashes, resourceHashes, affectedClasses);
+    }
+
+    /**
+     * Hashes the resources of the given classpath entry, unless the entry did not change since the previous run.
+     */
+    private static HashCode hashResources(File entry, HashCode hash, @Nullable TestImpactState previousState, ClasspathEntryResourceHasher resourceHasher) {
+        if (previousState != null && hash.equals(previousState.getClasspathEntryHashes().get(entry))) {
+            HashCode previousResourceHash = previousState.getResourceHashes().get(entry);
+            if (previousResourceHash != null) {
+                return previousResourceHash;
+            }
+        }
+        return resourceHasher.hash(entry);
+    }
+
+    @Nullable
+    private static Set<String> findAffectedClasses(ClasspathSnapshot classpathSnapshot, HashCode inputsHash, TestImpactState previousState,
+                                                   Map<File, HashCode> resourceHashes, ClasspathEntrySnapshotCache snapshotCache) {
+        if (!inputsHash.equals(previousState.getInputsHash())) {
+            LOGGER.info("Running all tests, as inputs of the test task other than its classpath have changed.");
+            return null;
+        }
+        Map<File, HashCode> previousHashes = previousState.getClasspathEntryHashes();
+        if (!new ArrayList<File>(previousHashes.keySet()).equals(new ArrayList<File>(classpathSnapshot.getEntries()))) {
+            LOGGER.info("Running all tests, as the test runtime classpath has different entries than in the previous run.");
+            return null;
+        }
+        Set<String> changedClasses = new HashSet<String>();
+        for (File entry : classpathSnapshot.getEntries()) {
+            ClasspathEntrySnapshot snapshot = classpathSnapshot.getSnapshot(entry);
+            HashCode previousHash = previousHashes.get(entry);
+            if (snapshot.getHash().equals(previousHash)) {
+                continue;
+            }
+            if (!resourceHashes.get(entry).equals(previousState.getResourceHashes().get(entry))) {
+                LOGGER.info("Running all tests, as resources of {} have changed.", entry);
+                return null;
+            }
+            ClasspathEntrySnapshot previousSnapshot = snapshotCache.get(entry, previousHash);
+            if (previousSnapshot == null) {
+                LOGGER.info("Running all tests, as the previous content of {} is not known anymore.", entry);
+                return null;
+            }
+            ClassChanges classChanges = snapshot.getChangedClassesSince(previousSnapshot);
+            changedClasses.addAll(classChanges.getModified());
+            changedClasses.addAll(classChanges.getAdded());
+        }
+        Set<String> affectedClasses = addDependents(changedClasses, classpathSnapshot);
+        if (affectedClasses != null) {
+            LOGGER.info("{} classes changed since the previous run, which affect {} classes.", changedClasses.size(), affectedClasses.size());
+        }
+        return affectedClasses;
+    }
+
+    /**
+     * Returns the given classes, with all classes transitively depending on them. Unlike for compilation, private dependencies are followed
+     * too, as they can change the behavior of a class.
+     */
+    @Nullable
+    private static Set<String> addDependents(Collection<String> classes, ClasspathSnapshot classpathSnapshot) {
+        Set<String> result = new HashSet<String>(classes);
+        Deque<String> queue = new ArrayDeque<String>(classes);
+        while (!queue.isEmpty()) {
+            String className = queue.removeFirst();
+            for (File entry : classpathSnapshot.getEntries()) {
+                DependentsSet dependents = classpathSnapshot.getSnapshot(entry).getData().getClassAnalysis().getDependents(className);
+                if (dependents.isDependencyToAll()) {
+                    LOGGER.info("Running all tests, as a change to {} may affect any class: {}", className, dependents.getDescription());
+                    return null;
+                }
+                for (String dependent : dependents.getAllDependentClasses()) {
+                    if (result.add(dependent)) {
+                        queue.addLast(dependent);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the given test class needs to run, and remembers the test classes which do.
+     */
+    public boolean isAffected(String testClassName) {
+        boolean affected = affectedClasses == null
+            || affectedClasses.contains(testClassName)
+            || previousState.getPendingTestClasses().contains(testClassName);
+        if (affected) {
+            scheduledTestClasses.add(testClassName);
+        }
+        return affected;
+    }
+
+    @Nullable
+    public TestImpactState getPreviousState() {
+        return previousState;
+    }
+
+    /**
+     * Creates the state to remember once the affected test classes have run. The test classes which were scheduled but did not pass are pending.
+     */
+    public TestImpactState createState(Set<String> passedTestClasses) {
+        Set<String> pendingTestClasses = new HashSet<String>(scheduledTestClasses);
+        pendingTestClasses.removeAll(passedTestClasses);
+        return new TestImpactState(inputsHash, classpathEntryHashes, resourceHashes, pendingTestClasses);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.impact;
+
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.file.FileOperations;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.CachingClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.DefaultClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches;
+import org.gradle.api.internal.tasks.compile.incremental.classpath.CachingClasspathEntrySnapshotter;
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathEntrySnapshotter;
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathSnapshot;
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathSnapshotFactory;
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathSnapshotMaker;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.StreamHasher;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.vfs.VirtualFileSystem;
+
+import javax.annotation.Nullable;
+import java.io.File;
+
+/**
+ * Creates {@link TestImpactAnalysis} instances, from classpath snapshots shared with incremental Java compilation.
+ */
+public class TestImpactAnalyzer {
+    private final GeneralCompileCaches compileCaches;
+    private final ClasspathSnapshotFactory classpathSnapshotFactory;
+    private final ClasspathEntryResourceHasher resourceHasher;
+
+    public TestImpactAnalyzer(FileHasher fileHasher, StreamHasher streamHasher, VirtualFileSystem virtualFileSystem, StringInterner interner,
+                              GeneralCompileCaches compileCaches, FileOperations fileOperations, BuildOperationExecutor buildOperationExecutor) {
+        this.compileCaches = compileCaches;
+        ClassDependenciesAnalyzer analyzer = new CachingClassDependenciesAnalyzer(new DefaultClassDependenciesAnalyzer(interner), compileCaches.getClassAnalysisCache());
+        ClasspathEntrySnapshotter snapshotter = new CachingClasspathEntrySnapshotter(fileHasher, streamHasher, virtualFileSystem, analyzer, compileCaches.getClasspathEntrySnapshotCache(), fileOperations);
+        this.classpathSnapshotFactory = new ClasspathSnapshotFactory(snapshotter, buildOperationExecutor);
+        this.resourceHasher = new ClasspathEntryResourceHasher(fileHasher, streamHasher, fileOperations);
+    }
+
+    public TestImpactAnalysis analyze(Iterable<File> classpath, HashCode inputsHash, @Nullable TestImpactState previousState) {
+        ClasspathSnapshot classpathSnapshot = new ClasspathSnapshotMaker(classpathSnapshotFactory).getClasspathSnapshot(classpath);
+        return TestImpactAnalysis.analyze(classpathSnapshot, inputsHash, previousState, compileCaches.getClasspathEntrySnapshotCache(), resourceHasher);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.impact;
+
+import org.gradle.internal.hash.HashCode;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What test impact analysis remembers from the last run of a test task: a hash of the inputs of the test task other than its classpath, the
+ * content hash of each entry of the test runtime classpath, and the test classes which need to run again regardless of changes, because they
+ * failed or did not run to completion.
+ */
+public class TestImpactState {
+    private final HashCode inputsHash;
+    private final Map<File, HashCode> classpathEntryHashes;
+    private final Map<File, HashCode> resourceHashes;
+    private final Set<String> pendingTestClasses;
+
+    public TestImpactState(HashCode inputsHash, Map<File, HashCode> classpathEntryHashes, Map<File, HashCode> resourceHashes, Set<String> pendingTestClasses) {
+        this.inputsHash = inputsHash;
+        this.classpathEntryHashes = classpathEntryHashes;
+        this.resourceHashes = resourceHashes;
+        this.pendingTestClasses = pendingTestClasses;
+    }
+
+    /**
+     * The hash of the inputs of the test task which are not part of its classpath, like the fork options, the Java version, the system properties
+     * and the test framework options.
+     */
+    public HashCode getInputsHash() {
+        return inputsHash;
+    }
+
+    /**
+     * The hashes of the classpath entries, in classpath order.
+     */
+    public Map<File, HashCode> getClasspathEntryHashes() {
+        return classpathEntryHashes;
+    }
+
+    /**
+     * The hashes of the resources of the classpath entries, i.e. of their content which is not a class file.
+     */
+    public Map<File, HashCode> getResourceHashes() {
+        return resourceHashes;
+    }
+
+    public Set<String> getPendingTestClasses() {
+        return pendingTestClasses;
+    }
+}
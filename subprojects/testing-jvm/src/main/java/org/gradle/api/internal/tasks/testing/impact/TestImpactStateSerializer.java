@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.impact;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores the {@link TestImpactState} of a test task next to its binary results.
+ */
+public class TestImpactStateSerializer {
+    private static final Logger LOGGER = Logging.getLogger(TestImpactStateSerializer.class);
+    private static final int STATE_VERSION = 3;
+
+    private final File stateFile;
+    private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
+
+    public TestImpactStateSerializer(File resultsDir) {
+        this.stateFile = new File(resultsDir, "impact-analysis.bin");
+    }
+
+    public void write(TestImpactState state) {
+        try {
+            OutputStream outputStream = new FileOutputStream(stateFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(STATE_VERSION);
+                hashCodeSerializer.write(encoder, state.getInputsHash());
+                encoder.writeSmallInt(state.getClasspathEntryHashes().size());
+                for (Map.Entry<File, HashCode> entry : state.getClasspathEntryHashes().entrySet()) {
+                    encoder.writeString(entry.getKey().getPath());
+                    hashCodeSerializer.write(encoder, entry.getValue());
+                    hashCodeSerializer.write(encoder, state.getResourceHashes().get(entry.getKey()));
+                }
+                encoder.writeSmallInt(state.getPendingTestClasses().size());
+                for (String testClass : state.getPendingTestClasses()) {
+                    encoder.writeString(testClass);
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the stored state, or null when no state was stored, when it was stored in a format this version does not understand, or when
+     * it cannot be read, in which case all tests are run.
+     */
+    @Nullable
+    public TestImpactState read() {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(stateFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != STATE_VERSION) {
+                    return null;
+                }
+                HashCode inputsHash = hashCodeSerializer.read(decoder);
+                int entryCount = decoder.readSmallInt();
+                Map<File, HashCode> classpathEntryHashes = new LinkedHashMap<File, HashCode>();
+                Map<File, HashCode> resourceHashes = new LinkedHashMap<File, HashCode>();
+                for (int i = 0; i < entryCount; i++) {
+                    File entry = new File(decoder.readString());
+                    classpathEntryHashes.put(entry, hashCodeSerializer.read(decoder));
+                    resourceHashes.put(entry, hashCodeSerializer.read(decoder));
+                }
+                int pendingCount = decoder.readSmallInt();
+                Set<String> pendingTestClasses = new HashSet<String>();
+                for (int i = 0; i < pendingCount; i++) {
+                    pendingTestClasses.add(decoder.readString());
+                }
+                return new TestImpactState(inputsHash, classpathEntryHashes, resourceHashes, pendingTestClasses);
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.info("Running all tests, as the test impact analysis state in {} could not be read.", stateFile, e);
+            return null;
+        }
+    }
+}
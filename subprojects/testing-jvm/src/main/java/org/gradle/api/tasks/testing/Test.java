@@ -27,20 +27,31 @@
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.classpath.ModuleRegistry;
+import org.gradle.api.internal.file.FileOperations;
 import org.gradle.api.internal.initialization.loadercache.ClassLoaderCache;
+import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches;
 import org.gradle.api.internal.tasks.testing.JvmTestExecutionSpec;
 import org.gradle.api.internal.tasks.testing.TestExecuter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
+import org.gradle.api.internal.tasks.testing.impact.TestImpactAnalysis;
+import org.gradle.api.internal.tasks.testing.impact.TestImpactAnalyzer;
+import org.gradle.api.internal.tasks.testing.impact.TestImpactState;
+import org.gradle.api.internal.tasks.testing.impact.TestImpactStateSerializer;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassDurationsSerializer;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultSerializer;
 import org.gradle.api.internal.tasks.testing.junitplatform.JUnitPlatformTestFramework;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
+import org.gradle.api.internal.tasks.testing.worker.ReusableTestWorkerPool;
 import org.gradle.api.jvm.ModularitySpec;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.ExtensionAware;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Classpath;
@@ -62,13 +73,21 @@
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factory;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.jvm.DefaultModularitySpec;
 import org.gradle.internal.jvm.JavaModuleDetector;
 import org.gradle.internal.jvm.UnsupportedJavaRuntimeException;
 import org.gradle.internal.jvm.inspection.JvmVersionDetector;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.scan.UsedByScanPlugin;
+import org.gradle.internal.snapshot.ValueSnapshotter;
 import org.gradle.internal.time.Clock;
+import org.gradle.internal.vfs.VirtualFileSystem;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.gradle.process.CommandLineArgumentProvider;
 import org.gradle.process.JavaDebugOptions;
@@ -86,6 +105,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
 import static org.gradle.util.ConfigureUtil.configureUsing;
 
@@ -156,12 +177,27 @@ public class Test extends AbstractTestTask implements JavaForkOptions, PatternFi
     private long forkEvery;
     private int maxParallelForks = 1;
     private TestExecuter<JvmTestExecutionSpec> testExecuter;
+    private TestImpactState previousTestImpactState;
+    private TestImpactAnalysis testImpactAnalysis;
 
     public Test() {
         patternSet = getPatternSetFactory().create();
         forkOptions = getForkOptionsFactory().newDecoratedJavaForkOptions();
         forkOptions.setEnableAssertions(true);
         modularity = getObjectFactory().newInstance(DefaultModularitySpec.class);
+        // Each shard runs different test classes, so the outputs of one shard must not be reused for another, nor for another split
+        getInputs().property("testShard", new Callable<String>() {
+            @Override
+            public String call() {
+                return System.getProperty(DefaultTestExecuter.SHARD_PROPERTY);
+            }
+        }).optional(true);
+        getInputs().file(new Callable<String>() {
+            @Override
+            public String call() {
+                return System.getProperty(DefaultTestExecuter.SHARD_DURATIONS_PROPERTY);
+            }
+        }).withPropertyName("testShardDurations").withPathSensitivity(PathSensitivity.NONE).optional(true);
     }
 
     @Inject
@@ -609,7 +645,72 @@ protected JvmTestExecutionSpec createTestExecutionSpec() {
         boolean testIsModule = javaModuleDetector.isModule(modularity.getInferModulePath().get(), getTestClassesDirs());
         FileCollection classpath = javaModuleDetector.inferClasspath(testIsModule, getClasspath());
         FileCollection modulePath = javaModuleDetector.inferModulePath(testIsModule, getClasspath());
-        return new JvmTestExecutionSpec(getTestFramework(), classpath, modulePath, getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), getPreviousFailedTestClasses());
+        return new JvmTestExecutionSpec(getTestFramework(), classpath, modulePath, getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), getPreviousFailedTestClasses(), new TestClassDurationsSerializer(getBinResultsDir()).read(), testImpactAnalysis);
+    }
+
+    private boolean isTestImpactAnalysisEnabled() {
+        if (!Boolean.getBoolean(DefaultTestExecuter.TEST_IMPACT_ANALYSIS_PROPERTY)) {
+            return false;
+        }
+        // Tests selected on the command line always run, and leaving out tests must not fail a filter that requires matching tests
+        DefaultTestFilter filter = (DefaultTestFilter) getFilter();
+        return filter.getCommandLineIncludePatterns().isEmpty()
+            && (!filter.isFailOnNoMatchingTests() || (filter.getIncludePatterns().isEmpty() && filter.getExcludePatterns().isEmpty()));
+    }
+
+    private TestImpactAnalysis createTestImpactAnalysis() {
+        TestImpactAnalyzer analyzer = new TestImpactAnalyzer(
+            getServices().get(FileHasher.class),
+            getServices().get(StreamHasher.class),
+            getServices().get(VirtualFileSystem.class),
+            getServices().get(StringInterner.class),
+            getServices().get(GeneralCompileCaches.class),
+            getServices().get(FileOperations.class),
+            getServices().get(BuildOperationExecutor.class));
+        TestImpactState previousState = previousTestImpactState;
+        if (previousState != null && getServices().get(StartParameter.class).isRerunTasks()) {
+            getLogger().info("Running all tests, as tasks are rerun.");
+            previousState = null;
+        }
+        return analyzer.analyze(getClasspath(), hashNonClasspathInputs(), previousState);
+    }
+
+    /**
+     * Hashes the input properties of this task, like the fork options, the Java version, the system properties and the test framework options,
+     * the same way as for up-to-date checks. Changes to the classpath are analyzed class by class instead.
+     */
+    private HashCode hashNonClasspathInputs() {
+        ValueSnapshotter valueSnapshotter = getServices().get(ValueSnapshotter.class);
+        Hasher hasher = Hashing.newHasher();
+        for (Map.Entry<String, Object> property : new TreeMap<String, Object>(getInputs().getProperties()).entrySet()) {
+            hasher.putString(property.getKey());
+            valueSnapshotter.snapshot(property.getValue()).appendToHasher(hasher);
+        }
+        // Only the Java version of the executable is an input property, but another executable of the same version can behave differently
+        hasher.putString(String.valueOf(getExecutable()));
+        return hasher.hash();
+    }
+
+    private void storeTestImpactState() {
+        TestImpactState state = previousTestImpactState;
+        TestResultSerializer serializer = new TestResultSerializer(getBinResultsDir());
+        if (testImpactAnalysis != null && serializer.isHasResults()) {
+            final Set<String> passedTestClasses = new HashSet<String>();
+            serializer.read(new Action<TestClassResult>() {
+                @Override
+                public void execute(TestClassResult testClassResult) {
+                    if (testClassResult.getFailuresCount() == 0) {
+                        passedTestClasses.add(testClassResult.getClassName());
+                    }
+                }
+            });
+            state = testImpactAnalysis.createState(passedTestClasses);
+        }
+        // Without a complete run, keep the previous state, so that the changes since then are still picked up by the next run
+        if (state != null) {
+            getBinResultsDir().mkdirs();
+            new TestImpactStateSerializer(getBinResultsDir()).write(state);
+        }
     }
 
     private Set<String> getPreviousFailedTestClasses() {
@@ -642,13 +743,38 @@ public void executeTests() {
             getLogger().info("Running tests for remote debugging.");
         }
 
+        boolean testImpactAnalysisEnabled = Boolean.getBoolean(DefaultTestExecuter.TEST_IMPACT_ANALYSIS_PROPERTY);
+        if (testImpactAnalysisEnabled) {
+            // Read ahead of the test execution, which deletes the previous results
+            previousTestImpactState = new TestImpactStateSerializer(getBinResultsDir()).read();
+            if (isTestImpactAnalysisEnabled()) {
+                testImpactAnalysis = createTestImpactAnalysis();
+            }
+        }
+
         try {
             super.executeTests();
         } finally {
             testFramework = null;
+            if (testImpactAnalysisEnabled) {
+                try {
+                    storeTestImpactState();
+                } finally {
+                    previousTestImpactState = null;
+                    testImpactAnalysis = null;
+                }
+            }
         }
     }
 
+    /**
+     * Reused worker processes keep running after the task, so extensions which collect their results when the test process exits, like JaCoCo,
+     * would never get them.
+     */
+    private boolean canReuseWorkers() {
+        return ((ExtensionAware) this).getExtensions().findByName("jacoco") == null;
+    }
+
     @Override
     protected TestExecuter<JvmTestExecutionSpec> createTestExecuter() {
         if (testExecuter == null) {
@@ -658,7 +784,11 @@ protected TestExecuter<JvmTestExecutionSpec> createTestExecuter() {
                 getServices().get(StartParameter.class).getMaxWorkerCount(),
                 getServices().get(Clock.class),
                 getServices().get(DocumentationRegistry.class),
-                (DefaultTestFilter) getFilter());
+                (DefaultTestFilter) getFilter(),
+                getServices().get(ExecutorFactory.class),
+                getServices().get(FileHasher.class),
+                getServices().get(TestClassDetectionCache.class),
+                canReuseWorkers() ? getServices().get(ReusableTestWorkerPool.class) : null);
         } else {
             return testExecuter;
         }
@@ -16,6 +16,8 @@
 
 package org.gradle.jvm.test.internal.services;
 
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache;
+import org.gradle.api.internal.tasks.testing.worker.ReusableTestWorkerPool;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.AbstractPluginServiceRegistry;
 import org.gradle.jvm.test.internal.JUnitTestSuiteBinaryRenderer;
@@ -24,5 +26,11 @@ public class JvmTestingServices extends AbstractPluginServiceRegistry {
     @Override
     public void registerGlobalServices(ServiceRegistration registration) {
         registration.add(JUnitTestSuiteBinaryRenderer.class);
+        registration.add(TestClassDetectionCache.class);
+    }
+
+    @Override
+    public void registerGradleUserHomeServices(ServiceRegistration registration) {
+        registration.add(ReusableTestWorkerPool.class);
     }
 }
@@ -56,6 +56,8 @@ class DefaultTestClassScannerTest extends Specification {
         1 * detector.processTestClass({ it.file.is(class1.file) && it.relativePath.is(class1.relativePath) })
         then:
         1 * detector.processTestClass({ it.file.is(class2.file) && it.relativePath.is(class2.relativePath) })
+        then:
+        1 * detector.endDetection()
 
         0 * _._
     }
@@ -74,6 +76,8 @@ class DefaultTestClassScannerTest extends Specification {
             visitor.visitFile(stubFileVisitDetails('AnonymousClass$1'))
             visitor.visitFile(stubFileVisitDetails('AnonymousClass$1$22'))
         }
+        then:
+        1 * detector.endDetection()
 
         0 * _._
     }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact
+
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathEntrySnapshot
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathEntrySnapshotCache
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathEntrySnapshotData
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathSnapshot
+import org.gradle.api.internal.tasks.compile.incremental.classpath.ClasspathSnapshotData
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.internal.hash.HashCode
+import spock.lang.Specification
+
+class TestImpactAnalysisTest extends Specification {
+    def cache = Mock(ClasspathEntrySnapshotCache)
+    def resourceHasher = Stub(ClasspathEntryResourceHasher) {
+        hash(_) >> HashCode.fromInt(0x10)
+    }
+    def inputsHash = HashCode.fromInt(0x20)
+    def classes = new File("classes")
+    def lib = new File("lib.jar")
+
+    def previousClasses = entry(0x1, ["Foo": 0xa, "Bar": 0xb, "FooTest": 0xc, "BarTest": 0xd], ["Foo": ["FooTest"], "Bar": ["BarTest"], "Lib": ["Bar"]])
+    def previousLib = entry(0x2, ["Lib": 0xe], [:])
+
+    def "runs all test classes without state of a previous run"() {
+        def analysis = TestImpactAnalysis.analyze(snapshot((classes): previousClasses, (lib): previousLib), inputsHash, null, cache, resourceHasher)
+
+        expect:
+        analysis.isAffected("FooTest")
+        analysis.isAffected("BarTest")
+    }
+
+    def "runs only the pending test classes when nothing changed"() {
+        def previousState = new TestImpactState(inputsHash, hashes(), resourceHashes(), ["BarTest"] as Set)
+
+        when:
+        def analysis = TestImpactAnalysis.analyze(snapshot((classes): previousClasses, (lib): previousLib), inputsHash, previousState, cache, resourceHasher)
+
+        then:
+        !analysis.isAffected("FooTest")
+        analysis.isAffected("BarTest")
+        0 * cache._
+    }
+
+    def "runs the test classes depending on changed classes"() {
+        def previousState = new TestImpactState(inputsHash, hashes(), resourceHashes(), [] as Set)
+        def changedLib = entry(0x3, ["Lib": 0xf], [:])
+        cache.get(lib, previousLib.hash) >> previousLib
+
+        when:
+        def analysis = TestImpactAnalysis.analyze(snapshot((classes): previousClasses, (lib): changedLib), inputsHash, previousState, cache, resourceHasher)
+
+        then:
+        analysis.isAffected("BarTest")
+        !analysis.isAffected("FooTest")
+    }
+
+    def "runs all test classes when the classpath entries differ or the previous content is unknown"() {
+        def changedLib = entry(0x3, ["Lib": 0xf], [:])
+
+        expect:
+        def reordered = TestImpactAnalysis.analyze(snapshot((lib): previousLib, (classes): previousClasses), inputsHash, state(), cache, resourceHasher)
+        reordered.isAffected("FooTest")
+
+        def unknown = TestImpactAnalysis.analyze(snapshot((classes): previousClasses, (lib): changedLib), inputsHash, state(), cache, resourceHasher)
+        unknown.isAffected("FooTest")
+        unknown.isAffected("BarTest")
+    }
+
+    def "runs all test classes when other inputs changed"() {
+        expect:
+        def analysis = TestImpactAnalysis.analyze(snapshot((classes): previousClasses, (lib): previousLib), HashCode.fromInt(0x21), inputsHash, state(), cache, resourceHasher)
+        analysis.isAffected("FooTest")
+        analysis.isAffected("BarTest")
+        analysis.createState([] as Set).inputsHash == HashCode.fromInt(0x21)
+    }
+
+    def "runs all test classes when resources changed"() {
+        def changedLib = entry(0x3, ["Lib": 0xf], [:])
+        cache.get(lib, previousLib.hash) >> previousLib
+        def resourceHasher = Stub(ClasspathEntryResourceHasher) {
+            hash(lib) >> HashCode.fromInt(0x11)
+        }
+
+        expect:
+        def analysis = TestImpactAnalysis.analyze(snapshot((classes): previousClasses, (lib): changedLib), inputsHash, state(), cache, resourceHasher)
+        analysis.isAffected("FooTest")
+        analysis.isAffected("BarTest")
+    }
+
+    def "runs no test classes when an entry changed without changes to its classes or resources"() {
+        def changedLib = entry(0x3, ["Lib": 0xe], [:])
+        cache.get(lib, previousLib.hash) >> previousLib
+
+        expect:
+        def analysis = TestImpactAnalysis.analyze(snapshot((classes): previousClasses, (lib): changedLib), inputsHash, state(), cache, resourceHasher)
+        !analysis.isAffected("FooTest")
+        !analysis.isAffected("BarTest")
+    }
+
+    def "hashes the resources of changed classpath entries only"() {
+        def resourceHasher = Mock(ClasspathEntryResourceHasher)
+        def changedLib = entry(0x3, ["Lib": 0xf], [:])
+        cache.get(lib, previousLib.hash) >> previousLib
+
+        when:
+        def analysis = TestImpactAnalysis.analyze(snapshot((classes): previousClasses, (lib): changedLib), inputsHash, state(), cache, resourceHasher)
+
+        then:
+        1 * resourceHasher.hash(lib) >> HashCode.fromInt(0x10)
+        0 * resourceHasher._
+
+        when:
+        def state = analysis.createState([] as Set)
+
+        then:
+        state.resourceHashes == resourceHashes()
+    }
+
+    def "keeps the scheduled test classes which did not pass as pending"() {
+        def analysis = TestImpactAnalysis.analyze(snapshot((classes): previousClasses, (lib): previousLib), inputsHash, null, cache, resourceHasher)
+        ["FooTest", "BarTest"].each { analysis.isAffected(it) }
+
+        when:
+        def state = analysis.createState(["FooTest"] as Set)
+
+        then:
+        state.pendingTestClasses == ["BarTest"] as Set
+        state.classpathEntryHashes == hashes()
+        state.resourceHashes == resourceHashes()
+    }
+
+    def "forwards only affected test classes"() {
+        def previousState = new TestImpactState(inputsHash, hashes(), resourceHashes(), ["BarTest"] as Set)
+        def analysis = TestImpactAnalysis.analyze(snapshot((classes): previousClasses, (lib): previousLib), inputsHash, previousState, cache, resourceHasher)
+        def delegate = Mock(TestClassProcessor)
+        def processor = new AffectedTestClassProcessor(analysis, delegate)
+
+        when:
+        processor.processTestClass(new DefaultTestClassRunInfo("FooTest"))
+        processor.processTestClass(new DefaultTestClassRunInfo("BarTest"))
+
+        then:
+        1 * delegate.processTestClass({ it.testClassName == "BarTest" })
+        0 * delegate._
+    }
+
+    private TestImpactState state() {
+        new TestImpactState(inputsHash, hashes(), resourceHashes(), [] as Set)
+    }
+
+    private Map<File, HashCode> hashes() {
+        [(classes): previousClasses.hash, (lib): previousLib.hash]
+    }
+
+    private Map<File, HashCode> resourceHashes() {
+        [(classes): HashCode.fromInt(0x10), (lib): HashCode.fromInt(0x10)]
+    }
+
+    private static ClasspathEntrySnapshot entry(int hash, Map<String, Integer> classHashes, Map<String, List<String>> dependents) {
+        def analysis = new ClassSetAnalysisData(classHashes.keySet(), dependents.collectEntries { k, v -> [k, DependentsSet.dependentClasses([] as Set, v as Set)] }, [:], null)
+        new ClasspathEntrySnapshot(new ClasspathEntrySnapshotData(HashCode.fromInt(hash), classHashes.collectEntries { k, v -> [k, HashCode.fromInt(v)] }, analysis))
+    }
+
+    private static ClasspathSnapshot snapshot(Map<File, ClasspathEntrySnapshot> entries) {
+        new ClasspathSnapshot(new LinkedHashMap<File, ClasspathEntrySnapshot>(entries), new ClasspathSnapshotData([:], [] as Set))
+    }
+}
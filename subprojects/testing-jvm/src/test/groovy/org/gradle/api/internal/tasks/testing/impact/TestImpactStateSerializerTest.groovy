@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact
+
+import org.gradle.internal.hash.HashCode
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestImpactStateSerializerTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider(getClass())
+
+    def serializer = new TestImpactStateSerializer(tmp.testDirectory)
+
+    def "reads the written state"() {
+        def classes = new File("classes")
+        def lib = new File("lib.jar")
+        serializer.write(new TestImpactState(HashCode.fromInt(0x5), [(classes): HashCode.fromInt(0x1), (lib): HashCode.fromInt(0x2)], [(classes): HashCode.fromInt(0x3), (lib): HashCode.fromInt(0x4)], ["FooTest"] as Set))
+
+        when:
+        def state = serializer.read()
+
+        then:
+        state.inputsHash == HashCode.fromInt(0x5)
+        state.classpathEntryHashes == [(classes): HashCode.fromInt(0x1), (lib): HashCode.fromInt(0x2)]
+        state.classpathEntryHashes.keySet() as List == [classes, lib]
+        state.resourceHashes == [(classes): HashCode.fromInt(0x3), (lib): HashCode.fromInt(0x4)]
+        state.pendingTestClasses == ["FooTest"] as Set
+    }
+
+    def "reads no state when none was written"() {
+        expect:
+        serializer.read() == null
+    }
+
+    def "reads no state when the state cannot be read"() {
+        tmp.file("impact-analysis.bin").bytes = content as byte[]
+
+        expect:
+        serializer.read() == null
+
+        where:
+        content << [[], [3], [3, 5, 1], [3, 1, 7, 99, 99]]
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit
+
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.file.RelativeFile
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.hash.FileHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class JUnitDetectorTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider(getClass())
+
+    def classesDir = tmp.createDir("classes")
+    def detected = []
+    def processor = Stub(TestClassProcessor) {
+        processTestClass(_) >> { TestClassRunInfo info -> detected << info.testClassName }
+    }
+    def fileHasher = Stub(FileHasher) {
+        hash(_) >> { File file -> HashCode.fromInt(file.name.hashCode()) }
+    }
+    def executorFactory = new DefaultExecutorFactory()
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "reads class files on the given executor and publishes test classes in order"() {
+        def detector = detector()
+        detector.setReadExecutor(executorFactory.create("test", 4))
+        def classes = [ATestClass, CustomSuiteRunner, BTestClass, ATestClassWithSeveralMethods]
+
+        when:
+        classes.each { detector.processTestClass(classFile(it)) }
+        detector.endDetection()
+
+        then:
+        detected == [ATestClass.name, BTestClass.name, ATestClassWithSeveralMethods.name]
+    }
+
+    def "reuses what was read from class files with the same content"() {
+        def cache = new TestClassDetectionCache()
+        def file = classFile(ATestClass)
+        def first = detector()
+        first.setDetectionCache(fileHasher, cache)
+        first.processTestClass(file)
+        first.endDetection()
+
+        when:
+        file.file.bytes = "not a class file".bytes
+        def second = detector()
+        second.setDetectionCache(fileHasher, cache)
+        second.processTestClass(file)
+        second.endDetection()
+
+        then:
+        detected == [ATestClass.name, ATestClass.name]
+    }
+
+    def "does not cache class files which cannot be read"() {
+        def cache = new TestClassDetectionCache()
+        def file = classFile(CustomSuiteRunner)
+        file.file.bytes = "not a class file".bytes
+        def first = detector()
+        first.setDetectionCache(fileHasher, cache)
+        first.processTestClass(file)
+
+        when:
+        file.file.bytes = classBytes(CustomSuiteRunner)
+        def second = detector()
+        second.setDetectionCache(fileHasher, cache)
+        second.processTestClass(file)
+
+        then:
+        // Class files which cannot be read are assumed to be test classes
+        detected == [CustomSuiteRunner.name]
+    }
+
+    private JUnitDetector detector() {
+        def detector = new JUnitDetector(new ClassFileExtractionManager({ tmp.createDir("tmp") } as Factory<File>))
+        detector.setTestClasses([classesDir] as Set)
+        detector.startDetection(processor)
+        return detector
+    }
+
+    private RelativeFile classFile(Class<?> type) {
+        def path = type.name.replace('.', '/') + ".class"
+        TestFile file = classesDir.file(path)
+        file.parentFile.mkdirs()
+        file.bytes = classBytes(type)
+        return new RelativeFile(file, RelativePath.parse(true, path))
+    }
+
+    private static byte[] classBytes(Class<?> type) {
+        type.getResource(type.simpleName + ".class").bytes
+    }
+}
@@ -49,15 +49,24 @@
 import org.gradle.workers.WorkerExecutor;
 import org.gradle.workers.WorkerSpec;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.File;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.gradle.internal.classloader.ClassLoaderUtils.classFromContextLoader;
 import static org.gradle.internal.work.AsyncWorkTracker.ProjectLockRetention.RETAIN_PROJECT_LOCKS;
 
 public class DefaultWorkerExecutor implements WorkerExecutor {
+    /**
+     * When enabled, a thread waiting for work items runs those that have not started yet itself, using the worker lease it
+     * already holds, instead of blocking while they wait for a worker thread and lease to become available.
+     */
+    public static final String RUN_QUEUED_WORK_WHILE_WAITING_PROPERTY = "org.gradle.workers.internal.run-queued-work-while-waiting";
+
     private final ConditionalExecutionQueue<DefaultWorkResult> executionQueue;
     private final WorkerFactory daemonWorkerFactory;
     private final WorkerFactory isolatedClassloaderWorkerFactory;
@@ -72,6 +81,9 @@ public class DefaultWorkerExecutor implements WorkerExecutor {
     private final Instantiator instantiator;
     private final IsolationScheme<WorkAction<?>, WorkParameters> isolationScheme = new IsolationScheme<>(Cast.uncheckedCast(WorkAction.class), WorkParameters.class, WorkParameters.None.class);
     private final File baseDir;
+    // Work items which have been submitted but have not completed yet, or null when queued work is not run by waiting threads
+    @Nullable
+    private final Set<WorkItemExecution> uncompletedWork;
 
     public DefaultWorkerExecutor(WorkerFactory daemonWorkerFactory, WorkerFactory isolatedClassloaderWorkerFactory, WorkerFactory noIsolationWorkerFactory,
                                  JavaForkOptionsFactory forkOptionsFactory, WorkerLeaseRegistry workerLeaseRegistry, BuildOperationExecutor buildOperationExecutor,
@@ -90,6 +102,7 @@ public DefaultWorkerExecutor(WorkerFactory daemonWorkerFactory, WorkerFactory is
         this.actionExecutionSpecFactory = actionExecutionSpecFactory;
         this.instantiator = instantiator;
         this.baseDir = baseDir;
+        this.uncompletedWork = Boolean.getBoolean(RUN_QUEUED_WORK_WHILE_WAITING_PROPERTY) ? ConcurrentHashMap.newKeySet() : null;
     }
 
     @Override
@@ -194,7 +207,7 @@ private <T extends WorkParameters> AsyncWorkCompletion submitWork(Class<? extend
     private AsyncWorkCompletion submitWork(IsolatedParametersActionExecutionSpec<?> spec, WorkerFactory workerFactory, WorkerRequirement workerRequirement) {
         final WorkerLease currentWorkerWorkerLease = getCurrentWorkerLease();
         final BuildOperationRef currentBuildOperation = buildOperationExecutor.getCurrentOperation();
-        WorkItemExecution execution = new WorkItemExecution(spec.getDisplayName(), currentWorkerWorkerLease, () -> {
+        WorkItemExecution execution = new WorkItemExecution(spec.getDisplayName(), currentWorkerWorkerLease, currentBuildOperation, uncompletedWork, () -> {
             try {
                 BuildOperationAwareWorker worker = workerFactory.getWorker(workerRequirement);
                 return worker.execute(spec, currentBuildOperation);
@@ -202,6 +215,9 @@ private AsyncWorkCompletion submitWork(IsolatedParametersActionExecutionSpec<?>
                 throw new WorkExecutionException(spec.getDisplayName(), t);
             }
         });
+        if (uncompletedWork != null) {
+            uncompletedWork.add(execution);
+        }
         executionQueue.submit(execution);
         asyncWorkTracker.registerWork(currentBuildOperation, execution);
         return execution;
@@ -239,6 +255,9 @@ public void await() throws WorkerExecutionException {
         BuildOperationRef currentOperation = buildOperationExecutor.getCurrentOperation();
         try {
             if (asyncWorkTracker.hasUncompletedWork(currentOperation)) {
+                if (uncompletedWork != null) {
+                    runQueuedWorkInCurrentThread(CollectionUtils.filter(uncompletedWork, workItem -> workItem.wasSubmittedBy(currentOperation)));
+                }
                 executionQueue.expand();
             }
             asyncWorkTracker.waitForCompletion(currentOperation, RETAIN_PROJECT_LOCKS);
@@ -251,6 +270,9 @@ private void await(List<AsyncWorkCompletion> workItems) throws WorkExecutionExce
         BuildOperationRef currentOperation = buildOperationExecutor.getCurrentOperation();
         try {
             if (CollectionUtils.any(workItems, workItem -> !workItem.isComplete())) {
+                if (uncompletedWork != null) {
+                    runQueuedWorkInCurrentThread(workItems);
+                }
                 executionQueue.expand();
             }
             asyncWorkTracker.waitForCompletion(currentOperation, workItems, RETAIN_PROJECT_LOCKS);
@@ -259,6 +281,22 @@ private void await(List<AsyncWorkCompletion> workItems) throws WorkExecutionExce
         }
     }
 
+    /**
+     * Runs the given work items which have not been picked up by a worker thread yet in the current thread.  Only items whose parent
+     * worker lease is held by the current thread are run, so they execute under that lease instead of a child lease of it: the number
+     * of threads doing work stays within the configured maximum.  Failures are collected when waiting for the items afterwards.
+     */
+    private void runQueuedWorkInCurrentThread(Iterable<? extends AsyncWorkCompletion> workItems) {
+        for (AsyncWorkCompletion workItem : workItems) {
+            if (workItem instanceof WorkItemExecution) {
+                WorkItemExecution execution = (WorkItemExecution) workItem;
+                if (!execution.isComplete() && execution.isParentLeaseHeldByCurrentThread()) {
+                    executionQueue.tryRunInCurrentThread(execution);
+                }
+            }
+        }
+    }
+
     private WorkerExecutionException workerExecutionException(List<? extends Throwable> failures) {
         if (failures.size() == 1) {
             throw new WorkerExecutionException("There was a failure while executing work items", failures);
@@ -323,10 +361,32 @@ private static String toMessage(String description) {
 
     private static class WorkItemExecution extends AbstractConditionalExecution<DefaultWorkResult> implements AsyncWorkCompletion {
         private final String description;
+        private final WorkerLease parentWorkerLease;
+        private final BuildOperationRef submittingOperation;
+        private final Set<WorkItemExecution> uncompletedWork;
 
-        public WorkItemExecution(String description, WorkerLease parentWorkerLease, Callable<DefaultWorkResult> callable) {
+        public WorkItemExecution(String description, WorkerLease parentWorkerLease, BuildOperationRef submittingOperation, @Nullable Set<WorkItemExecution> uncompletedWork, Callable<DefaultWorkResult> callable) {
             super(callable, new LazyChildWorkerLeaseLock(parentWorkerLease));
             this.description = description;
+            this.parentWorkerLease = parentWorkerLease;
+            this.submittingOperation = submittingOperation;
+            this.uncompletedWork = uncompletedWork;
+        }
+
+        boolean wasSubmittedBy(BuildOperationRef operation) {
+            return submittingOperation == operation;
+        }
+
+        boolean isParentLeaseHeldByCurrentThread() {
+            return parentWorkerLease.isLockedByCurrentThread();
+        }
+
+        @Override
+        public void complete() {
+            if (uncompletedWork != null) {
+                uncompletedWork.remove(this);
+            }
+            super.complete();
         }
 
         @Override
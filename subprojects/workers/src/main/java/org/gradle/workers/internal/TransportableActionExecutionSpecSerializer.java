@@ -16,27 +16,58 @@
 
 package org.gradle.workers.internal;
 
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Serializes specs sent to a single worker process, so an instance must only be used for a single connection.
+ *
+ * Classloader structures, and serialized parameters above a minimum size, are sent once and then referenced by id in later
+ * specs on the same connection. This avoids sending the same classpath, or the same large parameters, with every work item.
+ * The number of values shared is bounded, and values beyond the bound are sent with each spec, as before.
+ */
 public class TransportableActionExecutionSpecSerializer implements Serializer<TransportableActionExecutionSpec> {
     private static final byte FLAT = (byte) 0;
     private static final byte HIERARCHICAL = (byte) 1;
 
+    private static final byte INLINE = (byte) 0;
+    private static final byte INLINE_SHARED = (byte) 1;
+    private static final byte SHARED_REFERENCE = (byte) 2;
+
+    private static final int MAX_SHARED_CLASSLOADER_STRUCTURES = 64;
+    private static final int MAX_SHARED_PARAMETERS = 256;
+    private static final int MIN_SHARED_PARAMETERS_SIZE = 1024;
+    private static final long MAX_SHARED_PARAMETERS_BYTES = 16 * 1024 * 1024;
+
     private final Serializer<HierarchicalClassLoaderStructure> hierarchicalClassLoaderStructureSerializer = new HierarchicalClassLoaderStructureSerializer();
 
+    // Sending side
+    private final Map<HierarchicalClassLoaderStructure, Integer> sentClassLoaderStructures = new HashMap<HierarchicalClassLoaderStructure, Integer>();
+    private final Map<HashCode, Integer> sentParameters = new HashMap<HashCode, Integer>();
+    private long sentParametersBytes;
+
+    // Receiving side
+    private final List<HierarchicalClassLoaderStructure> receivedClassLoaderStructures = new ArrayList<HierarchicalClassLoaderStructure>();
+    private final List<byte[]> receivedParameters = new ArrayList<byte[]>();
+
     @Override
-    public void write(Encoder encoder, TransportableActionExecutionSpec spec) throws Exception {
+    public synchronized void write(Encoder encoder, TransportableActionExecutionSpec spec) throws Exception {
         encoder.writeString(spec.getImplementationClassName());
         encoder.writeBoolean(spec.isInternalServicesRequired());
         encoder.writeString(spec.getBaseDir().getAbsolutePath());
-        encoder.writeBinary(spec.getSerializedParameters());
+        writeParameters(encoder, spec.getSerializedParameters());
         if (spec.getClassLoaderStructure() instanceof HierarchicalClassLoaderStructure) {
             encoder.writeByte(HIERARCHICAL);
-            hierarchicalClassLoaderStructureSerializer.write(encoder, (HierarchicalClassLoaderStructure) spec.getClassLoaderStructure());
+            writeClassLoaderStructure(encoder, (HierarchicalClassLoaderStructure) spec.getClassLoaderStructure());
         } else if (spec.getClassLoaderStructure() instanceof FlatClassLoaderStructure) {
             encoder.writeByte(FLAT);
             // If the classloader structure is flat, there's no need to send the classpath
@@ -46,11 +77,11 @@ public void write(Encoder encoder, TransportableActionExecutionSpec spec) throws
     }
 
     @Override
-    public TransportableActionExecutionSpec read(Decoder decoder) throws Exception {
+    public synchronized TransportableActionExecutionSpec read(Decoder decoder) throws Exception {
         String implementationClassName = decoder.readString();
         boolean usesInternalServices = decoder.readBoolean();
         String baseDirPath = decoder.readString();
-        byte[] serializedParameters = decoder.readBinary();
+        byte[] serializedParameters = readParameters(decoder);
         byte classLoaderStructureTag = decoder.readByte();
         ClassLoaderStructure classLoaderStructure;
         switch (classLoaderStructureTag) {
@@ -58,11 +89,80 @@ public TransportableActionExecutionSpec read(Decoder decoder) throws Exception {
                 classLoaderStructure = new FlatClassLoaderStructure(null);
                 break;
             case HIERARCHICAL:
-                classLoaderStructure = hierarchicalClassLoaderStructureSerializer.read(decoder);
+                classLoaderStructure = readClassLoaderStructure(decoder);
                 break;
             default:
                 throw new IllegalArgumentException("Unexpected payload type.");
         }
         return new TransportableActionExecutionSpec(implementationClassName, serializedParameters, classLoaderStructure, new File(baseDirPath), usesInternalServices);
     }
+
+    private void writeParameters(Encoder encoder, byte[] serializedParameters) throws Exception {
+        if (serializedParameters.length < MIN_SHARED_PARAMETERS_SIZE) {
+            encoder.writeByte(INLINE);
+            encoder.writeBinary(serializedParameters);
+            return;
+        }
+        HashCode hash = Hashing.hashBytes(serializedParameters);
+        Integer id = sentParameters.get(hash);
+        if (id != null) {
+            encoder.writeByte(SHARED_REFERENCE);
+            encoder.writeSmallInt(id);
+        } else if (sentParameters.size() < MAX_SHARED_PARAMETERS && sentParametersBytes + serializedParameters.length <= MAX_SHARED_PARAMETERS_BYTES) {
+            encoder.writeByte(INLINE_SHARED);
+            encoder.writeBinary(serializedParameters);
+            sentParameters.put(hash, sentParameters.size());
+            sentParametersBytes += serializedParameters.length;
+        } else {
+            encoder.writeByte(INLINE);
+            encoder.writeBinary(serializedParameters);
+        }
+    }
+
+    private byte[] readParameters(Decoder decoder) throws Exception {
+        byte tag = decoder.readByte();
+        switch (tag) {
+            case INLINE:
+                return decoder.readBinary();
+            case INLINE_SHARED:
+                byte[] serializedParameters = decoder.readBinary();
+                receivedParameters.add(serializedParameters);
+                return serializedParameters;
+            case SHARED_REFERENCE:
+                return receivedParameters.get(decoder.readSmallInt());
+            default:
+                throw new IllegalArgumentException("Unexpected payload type.");
+        }
+    }
+
+    private void writeClassLoaderStructure(Encoder encoder, HierarchicalClassLoaderStructure classLoaderStructure) throws Exception {
+        Integer id = sentClassLoaderStructures.get(classLoaderStructure);
+        if (id != null) {
+            encoder.writeByte(SHARED_REFERENCE);
+            encoder.writeSmallInt(id);
+        } else if (sentClassLoaderStructures.size() < MAX_SHARED_CLASSLOADER_STRUCTURES) {
+            encoder.writeByte(INLINE_SHARED);
+            hierarchicalClassLoaderStructureSerializer.write(encoder, classLoaderStructure);
+            sentClassLoaderStructures.put(classLoaderStructure, sentClassLoaderStructures.size());
+        } else {
+            encoder.writeByte(INLINE);
+            hierarchicalClassLoaderStructureSerializer.write(encoder, classLoaderStructure);
+        }
+    }
+
+    private HierarchicalClassLoaderStructure readClassLoaderStructure(Decoder decoder) throws Exception {
+        byte tag = decoder.readByte();
+        switch (tag) {
+            case INLINE:
+                return hierarchicalClassLoaderStructureSerializer.read(decoder);
+            case INLINE_SHARED:
+                HierarchicalClassLoaderStructure classLoaderStructure = hierarchicalClassLoaderStructureSerializer.read(decoder);
+                receivedClassLoaderStructures.add(classLoaderStructure);
+                return classLoaderStructure;
+            case SHARED_REFERENCE:
+                return receivedClassLoaderStructures.get(decoder.readSmallInt());
+            default:
+                throw new IllegalArgumentException("Unexpected payload type.");
+        }
+    }
 }
@@ -24,6 +24,8 @@
 import org.gradle.api.logging.Logging;
 import org.gradle.initialization.SessionLifecycleListener;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.exceptions.DefaultMultiCauseException;
@@ -36,9 +38,12 @@
 import org.gradle.process.internal.worker.WorkerProcess;
 import org.gradle.util.CollectionUtils;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import static java.util.Comparator.*;
 
@@ -46,6 +51,12 @@ public class WorkerDaemonClientsManager implements Stoppable {
 
     private static final Logger LOGGER = Logging.getLogger(WorkerDaemonClientsManager.class);
 
+    /**
+     * When set, the session scoped worker daemons used by a build are started again, in the background, when the next build starts.
+     */
+    public static final String PRESTART_SESSION_DAEMONS_PROPERTY = "org.gradle.workers.internal.prestart-session-daemons";
+    private static final int MAX_PRESTARTED_DAEMONS = 8;
+
     private final Object lock = new Object();
     private final List<WorkerDaemonClient> allClients = new ArrayList<WorkerDaemonClient>();
     private final List<WorkerDaemonClient> idleClients = new ArrayList<WorkerDaemonClient>();
@@ -61,7 +72,19 @@ public class WorkerDaemonClientsManager implements Stoppable {
     private final MemoryManager memoryManager;
     private volatile LogLevel currentLogLevel;
 
+    // Pre-starting session scoped worker daemons, only used when enabled
+    private final ManagedExecutor prestartExecutor;
+    private final List<DaemonForkOptions> previousSessionForkOptions = new ArrayList<DaemonForkOptions>();
+    private final Set<WorkerDaemonClient> unusedPrestartedClients = new HashSet<WorkerDaemonClient>();
+    private boolean sessionRunning;
+    private int prestartedClientsUsed;
+    private int sessionClientsStartedOnDemand;
+
     public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, ListenerManager listenerManager, LoggingManagerInternal loggingManager, MemoryManager memoryManager, OsMemoryInfo memoryInfo) {
+        this(workerDaemonStarter, listenerManager, loggingManager, memoryManager, memoryInfo, null, false);
+    }
+
+    public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, ListenerManager listenerManager, LoggingManagerInternal loggingManager, MemoryManager memoryManager, OsMemoryInfo memoryInfo, @Nullable ExecutorFactory executorFactory, boolean prestartSessionDaemons) {
         this.workerDaemonStarter = workerDaemonStarter;
         this.listenerManager = listenerManager;
         this.loggingManager = loggingManager;
@@ -74,6 +97,7 @@ public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, Liste
         this.memoryManager = memoryManager;
         this.workerDaemonExpiration = new WorkerDaemonExpiration(this, getTotalPhysicalMemory());
         memoryManager.addMemoryHolder(workerDaemonExpiration);
+        this.prestartExecutor = prestartSessionDaemons && executorFactory != null ? executorFactory.create("Worker daemon pre-start") : null;
     }
 
     // TODO - should supply and check for the same parameters as passed to reserveNewClient()
@@ -93,6 +117,9 @@ WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<WorkerD
                         LOGGER.info("Log level has changed, stopping idle worker daemon with out-of-date log level.");
                         candidate.stop();
                     } else {
+                        if (unusedPrestartedClients.remove(candidate)) {
+                            prestartedClientsUsed++;
+                        }
                         return candidate;
                     }
                 }
@@ -106,6 +133,9 @@ public WorkerDaemonClient reserveNewClient(DaemonForkOptions forkOptions) {
         WorkerDaemonClient client = workerDaemonStarter.startDaemon(forkOptions, workerProcessCleanupAction);
         synchronized (lock) {
             allClients.add(client);
+            if (prestartExecutor != null && forkOptions.getKeepAliveMode() == KeepAliveMode.SESSION) {
+                sessionClientsStartedOnDemand++;
+            }
         }
         return client;
     }
@@ -120,6 +150,10 @@ public void release(WorkerDaemonClient client) {
 
     @Override
     public void stop() {
+        if (prestartExecutor != null) {
+            // Do not hold lock while waiting for daemons being pre-started, as they need to acquire the lock to be registered
+            prestartExecutor.stop();
+        }
         synchronized (lock) {
             stopWorkers(allClients);
             allClients.clear();
@@ -168,6 +202,7 @@ private void stopWorkers(List<WorkerDaemonClient> clientsToStop) {
             }
             idleClients.removeAll(clientsToStop);
             allClients.removeAll(clientsToStop);
+            unusedPrestartedClients.removeAll(clientsToStop);
             if (!failures.isEmpty()) {
                 if (failures.size() == 1) {
                     throw UncheckedException.throwAsUncheckedException(failures.get(0));
@@ -180,17 +215,69 @@ private void stopWorkers(List<WorkerDaemonClient> clientsToStop) {
         }
     }
 
+    private void prestart(DaemonForkOptions forkOptions) {
+        WorkerDaemonClient client;
+        try {
+            client = workerDaemonStarter.startDaemon(forkOptions, workerProcessCleanupAction);
+        } catch (Exception e) {
+            LOGGER.info("Could not pre-start worker daemon with fork options {}.", forkOptions, e);
+            return;
+        }
+        synchronized (lock) {
+            if (sessionRunning) {
+                allClients.add(client);
+                idleClients.add(client);
+                unusedPrestartedClients.add(client);
+                return;
+            }
+        }
+        // The build finished before the daemon was ready
+        client.stop();
+    }
+
     private class StopSessionScopedWorkers implements SessionLifecycleListener {
         @Override
-        public void afterStart() { }
+        public void afterStart() {
+            if (prestartExecutor == null) {
+                return;
+            }
+            List<DaemonForkOptions> forkOptionsToStart;
+            synchronized (lock) {
+                sessionRunning = true;
+                prestartedClientsUsed = 0;
+                sessionClientsStartedOnDemand = 0;
+                forkOptionsToStart = new ArrayList<DaemonForkOptions>(previousSessionForkOptions);
+                previousSessionForkOptions.clear();
+            }
+            if (!forkOptionsToStart.isEmpty()) {
+                LOGGER.info("Pre-starting {} worker daemon(s) used by the previous build.", forkOptionsToStart.size());
+            }
+            for (DaemonForkOptions forkOptions : forkOptionsToStart) {
+                prestartExecutor.execute(() -> prestart(forkOptions));
+            }
+        }
 
         @Override
         public void beforeComplete() {
             synchronized (lock) {
                 List<WorkerDaemonClient> sessionScopedClients = CollectionUtils.filter(allClients, client -> client.getKeepAliveMode() == KeepAliveMode.SESSION);
+                if (prestartExecutor != null) {
+                    rememberSessionForkOptions(sessionScopedClients);
+                }
                 stopWorkers(sessionScopedClients);
             }
         }
+
+        private void rememberSessionForkOptions(List<WorkerDaemonClient> sessionScopedClients) {
+            sessionRunning = false;
+            previousSessionForkOptions.clear();
+            for (WorkerDaemonClient client : sessionScopedClients) {
+                if (!client.isFailed() && !unusedPrestartedClients.contains(client) && previousSessionForkOptions.size() < MAX_PRESTARTED_DAEMONS) {
+                    previousSessionForkOptions.add(client.getForkOptions());
+                }
+            }
+            LOGGER.info("Pre-started worker daemons: {} used, {} unused, {} worker daemon(s) started on demand.", prestartedClientsUsed, unusedPrestartedClients.size(), sessionClientsStartedOnDemand);
+        }
     }
 
     private class LogLevelChangeEventListener implements OutputEventListener {
@@ -83,8 +83,10 @@ WorkerDaemonClientsManager createWorkerDaemonClientsManager(WorkerProcessFactory
                                                                     MemoryManager memoryManager,
                                                                     OsMemoryInfo memoryInfo,
                                                                     ClassPathRegistry classPathRegistry,
-                                                                    ActionExecutionSpecFactory actionExecutionSpecFactory) {
-            return new WorkerDaemonClientsManager(new WorkerDaemonStarter(workerFactory, loggingManager, classPathRegistry, actionExecutionSpecFactory), listenerManager, loggingManager, memoryManager, memoryInfo);
+                                                                    ActionExecutionSpecFactory actionExecutionSpecFactory,
+                                                                    ExecutorFactory executorFactory) {
+            boolean prestartSessionDaemons = Boolean.getBoolean(WorkerDaemonClientsManager.PRESTART_SESSION_DAEMONS_PROPERTY);
+            return new WorkerDaemonClientsManager(new WorkerDaemonStarter(workerFactory, loggingManager, classPathRegistry, actionExecutionSpecFactory), listenerManager, loggingManager, memoryManager, memoryInfo, executorFactory, prestartSessionDaemons);
         }
 
         ClassLoaderStructureProvider createClassLoaderStructureProvider(ClassLoaderRegistry classLoaderRegistry) {
@@ -216,6 +216,73 @@ class DefaultWorkerExecutorTest extends Specification {
         }
     }
 
+    def "does not run queued work items in the waiting thread by default"() {
+        given:
+        def workQueue = workerExecutor.noIsolation()
+
+        when:
+        workQueue.submit(TestExecutable.class, Actions.doNothing())
+        workQueue.await()
+
+        then:
+        1 * buildOperationWorkerRegistry.getCurrentWorkerLease() >> Stub(WorkerLeaseRegistry.WorkerLease)
+        1 * executionQueue.submit(_)
+        1 * executionQueue.expand()
+        0 * executionQueue.tryRunInCurrentThread(_)
+        1 * asyncWorkTracker.waitForCompletion(_, _, _)
+    }
+
+    def "runs queued work items in the waiting thread when enabled"() {
+        given:
+        System.setProperty(DefaultWorkerExecutor.RUN_QUEUED_WORK_WHILE_WAITING_PROPERTY, "true")
+        workerExecutor = new DefaultWorkerExecutor(workerDaemonFactory, inProcessWorkerFactory, noIsolationWorkerFactory, forkOptionsFactory, buildOperationWorkerRegistry, buildOperationExecutor, asyncWorkTracker, workerDirectoryProvider, executionQueueFactory, classLoaderStructureProvider, actionExecutionSpecFactory, instantiator, temporaryFolder.testDirectory)
+        def lease = Stub(WorkerLeaseRegistry.WorkerLease) {
+            isLockedByCurrentThread() >> true
+        }
+        def workQueue = workerExecutor.noIsolation()
+
+        when:
+        workQueue.submit(TestExecutable.class, Actions.doNothing())
+        workQueue.await()
+
+        then:
+        1 * buildOperationWorkerRegistry.getCurrentWorkerLease() >> lease
+        1 * executionQueue.submit(_) >> { args -> task = args[0] }
+
+        then:
+        1 * executionQueue.tryRunInCurrentThread({ it.is(task) }) >> true
+
+        then:
+        1 * executionQueue.expand()
+        1 * asyncWorkTracker.waitForCompletion(_, _, _)
+
+        cleanup:
+        System.clearProperty(DefaultWorkerExecutor.RUN_QUEUED_WORK_WHILE_WAITING_PROPERTY)
+    }
+
+    def "only runs queued work items whose parent worker lease is held by the waiting thread"() {
+        given:
+        System.setProperty(DefaultWorkerExecutor.RUN_QUEUED_WORK_WHILE_WAITING_PROPERTY, "true")
+        workerExecutor = new DefaultWorkerExecutor(workerDaemonFactory, inProcessWorkerFactory, noIsolationWorkerFactory, forkOptionsFactory, buildOperationWorkerRegistry, buildOperationExecutor, asyncWorkTracker, workerDirectoryProvider, executionQueueFactory, classLoaderStructureProvider, actionExecutionSpecFactory, instantiator, temporaryFolder.testDirectory)
+        def lease = Stub(WorkerLeaseRegistry.WorkerLease) {
+            isLockedByCurrentThread() >> false
+        }
+        def workQueue = workerExecutor.noIsolation()
+
+        when:
+        workQueue.submit(TestExecutable.class, Actions.doNothing())
+        workQueue.await()
+
+        then:
+        1 * buildOperationWorkerRegistry.getCurrentWorkerLease() >> lease
+        1 * executionQueue.submit(_)
+        0 * executionQueue.tryRunInCurrentThread(_)
+        1 * executionQueue.expand()
+
+        cleanup:
+        System.clearProperty(DefaultWorkerExecutor.RUN_QUEUED_WORK_WHILE_WAITING_PROPERTY)
+    }
+
     abstract static class TestExecutable implements WorkAction<WorkParameters.None> {
         @Override
         void execute() {
@@ -68,6 +68,33 @@ class TransportableActionExecutionSpecSerializerTest extends Specification {
         decodedSpec.internalServicesRequired
     }
 
+    def "sends classloader structures and large parameters only once per connection"() {
+        def largeBytes = new byte[4096]
+        largeBytes[10] = (byte) 42
+        def spec1 = new TransportableActionExecutionSpec(Runnable.class.name, largeBytes, classLoaderStructure(), new File("/foo"), usesInternalServices)
+        def spec2 = new TransportableActionExecutionSpec(Runnable.class.name, largeBytes.clone(), classLoaderStructure(), new File("/foo"), usesInternalServices)
+        def spec3 = new TransportableActionExecutionSpec(Runnable.class.name, bytes, classLoaderStructure(), new File("/foo"), usesInternalServices)
+
+        when:
+        serializer.write(encoder, spec1)
+        encoder.flush()
+        def firstSize = outputStream.size()
+        serializer.write(encoder, spec2)
+        serializer.write(encoder, spec3)
+        encoder.flush()
+
+        and:
+        def decoder = new KryoBackedDecoder(new ByteArrayInputStream(outputStream.toByteArray()))
+        def receiver = new TransportableActionExecutionSpecSerializer()
+        def decoded = (1..3).collect { receiver.read(decoder) }
+
+        then:
+        firstSize > largeBytes.length
+        outputStream.size() - firstSize < 200
+        decoded*.serializedParameters == [largeBytes, largeBytes, bytes]
+        decoded*.classLoaderStructure == [spec1, spec2, spec3]*.classLoaderStructure
+    }
+
     def filteringClassloaderSpec() {
         def classNames = [ 'allowed.Class1', 'allowed.Class2' ]
         def disallowedClassNames = [ 'disallowed.Class1', 'disallowed.Class2' ]
@@ -19,6 +19,8 @@ package org.gradle.workers.internal
 import org.gradle.api.Transformer
 import org.gradle.api.logging.LogLevel
 import org.gradle.initialization.SessionLifecycleListener
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
 import org.gradle.internal.event.DefaultListenerManager
 import org.gradle.internal.event.ListenerManager
 import org.gradle.internal.exceptions.DefaultMultiCauseException
@@ -304,4 +306,85 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
         then:
         1 * memoryManager.removeMemoryHolder(_) >> { args -> assert args[0] == workerDaemonExpiration }
     }
+
+    def "pre-starts session-scoped clients of the previous session when enabled"() {
+        listenerManager = new DefaultListenerManager(Scopes.BuildSession)
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, new MBeanOsMemoryInfo(), synchronousExecutorFactory(), true)
+        def sessionOptions = Stub(DaemonForkOptions) { getKeepAliveMode() >> KeepAliveMode.SESSION }
+        def client = sessionScopedClient(sessionOptions)
+        def prestarted = sessionScopedClient(sessionOptions)
+        starter.startDaemon(sessionOptions, _) >>> [client, prestarted]
+        def session = listenerManager.getBroadcaster(SessionLifecycleListener)
+
+        when:
+        manager.reserveNewClient(sessionOptions)
+        manager.release(client)
+        session.beforeComplete()
+
+        then:
+        1 * client.stop()
+
+        when:
+        session.afterStart()
+
+        then:
+        manager.reserveIdleClient(sessionOptions) == prestarted
+    }
+
+    def "does not pre-start unused clients again"() {
+        listenerManager = new DefaultListenerManager(Scopes.BuildSession)
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, new MBeanOsMemoryInfo(), synchronousExecutorFactory(), true)
+        def sessionOptions = Stub(DaemonForkOptions) { getKeepAliveMode() >> KeepAliveMode.SESSION }
+        def client = sessionScopedClient(sessionOptions)
+        def prestarted = sessionScopedClient(sessionOptions)
+        starter.startDaemon(sessionOptions, _) >>> [client, prestarted]
+        def session = listenerManager.getBroadcaster(SessionLifecycleListener)
+        manager.reserveNewClient(sessionOptions)
+        manager.release(client)
+        session.beforeComplete()
+        session.afterStart()
+
+        when:
+        session.beforeComplete()
+        session.afterStart()
+
+        then:
+        1 * prestarted.stop()
+        manager.reserveIdleClient(sessionOptions) == null
+    }
+
+    def "does not pre-start clients by default"() {
+        listenerManager = new DefaultListenerManager(Scopes.BuildSession)
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, new MBeanOsMemoryInfo())
+        def sessionOptions = Stub(DaemonForkOptions) { getKeepAliveMode() >> KeepAliveMode.SESSION }
+        def client = sessionScopedClient(sessionOptions)
+        starter.startDaemon(sessionOptions, _) >>> [client, sessionScopedClient(sessionOptions)]
+        def session = listenerManager.getBroadcaster(SessionLifecycleListener)
+
+        when:
+        manager.reserveNewClient(sessionOptions)
+        manager.release(client)
+        session.beforeComplete()
+        session.afterStart()
+
+        then:
+        manager.reserveIdleClient(sessionOptions) == null
+    }
+
+    private WorkerDaemonClient sessionScopedClient(DaemonForkOptions forkOptions) {
+        return Mock(WorkerDaemonClient) {
+            _ * isCompatibleWith(_) >> true
+            _ * getKeepAliveMode() >> KeepAliveMode.SESSION
+            _ * getForkOptions() >> forkOptions
+        }
+    }
+
+    private ExecutorFactory synchronousExecutorFactory() {
+        def executor = Stub(ManagedExecutor) {
+            execute(_) >> { Runnable runnable -> runnable.run() }
+        }
+        return Stub(ExecutorFactory) {
+            create(_) >> executor
+        }
+    }
 }